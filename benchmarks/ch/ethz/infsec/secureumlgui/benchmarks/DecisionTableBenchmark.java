@@ -0,0 +1,135 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionMatrix;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PolicyDecisionCompiler;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PolicyDecisionTable;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Access decisions on the effective permissions of a
+ * {@link SyntheticModel}: through the compiled
+ * {@link PolicyDecisionTable}, and through the derived permission sets
+ * as the GUI reads them. Also compiling the table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecisionTableBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    /**
+     * the derived permissions, the table compiled from them and the same
+     * (role, action, resource, policy) queries for both.
+     */
+    @State(Scope.Benchmark)
+    public static class Decisions {
+        Map<ResourceWrapper, PermissionSet> permissions;
+        List<PolicyWrapper> policies;
+        PolicyDecisionTable table;
+
+        final int[] roleIds = new int[QUERIES];
+        final int[] actionIds = new int[QUERIES];
+        final int[] resourceIds = new int[QUERIES];
+        final int[] policyIds = new int[QUERIES];
+
+        final RoleWrapper[] roles = new RoleWrapper[QUERIES];
+        final ActionWrapper[] actions = new ActionWrapper[QUERIES];
+        final PermissionSet[] resources = new PermissionSet[QUERIES];
+        final PolicyWrapper[] queryPolicies = new PolicyWrapper[QUERIES];
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticModelState state) {
+            HierarchicalPermissionsExplorer explorer = new HierarchicalPermissionsExplorer();
+            permissions = state.getExplicitPermissions();
+            explorer.collectNonExplicitPermissions(permissions);
+            policies = explorer.getSortedPolicyWrappers();
+            table = compile(permissions, policies);
+
+            List<ResourceWrapper> resourceWrappers = new ArrayList<ResourceWrapper>(permissions.keySet());
+            List<RoleWrapper> roleWrappers = state.getRoleWrappers();
+            for ( int i = 0; i < QUERIES; i++ ) {
+                // spread over the model, with different strides per dimension
+                ResourceWrapper resource = resourceWrappers.get((i * 7) % resourceWrappers.size());
+                List<ActionWrapper> resourceActions = new ArrayList<ActionWrapper>(resource.getActionWrapper());
+
+                roles[i] = roleWrappers.get((i * 5) % roleWrappers.size());
+                actions[i] = resourceActions.get((i * 3) % resourceActions.size());
+                resources[i] = permissions.get(resource);
+                queryPolicies[i] = policies.get(i % policies.size());
+
+                resourceIds[i] = table.getResourceId(resource.getName());
+                roleIds[i] = table.getRoleId(roles[i].getName());
+                actionIds[i] = table.getActionId(resourceIds[i], actions[i].getName());
+                policyIds[i] = table.getPolicyId(queryPolicies[i] == null ? null : queryPolicies[i].getName());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void checkTable(Decisions decisions, Blackhole blackhole) {
+        PolicyDecisionTable table = decisions.table;
+        for ( int i = 0; i < QUERIES; i++ ) {
+            blackhole.consume(table.check(decisions.roleIds[i], decisions.actionIds[i],
+                                          decisions.resourceIds[i], decisions.policyIds[i]));
+        }
+    }
+
+    /**
+     * the same decision as {@link PolicyDecisionTable#check}: permitted
+     * without an authorization constraint.
+     */
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void checkPermissionSets(Decisions decisions, Blackhole blackhole) {
+        for ( int i = 0; i < QUERIES; i++ ) {
+            int summary = decisions.resources[i].getResourcePermissionsSet(decisions.roles[i])
+                          .getPermissions(decisions.actions[i])
+                          .getPolicyPermissionSet(decisions.queryPolicies[i]).getSummary();
+            blackhole.consume((summary & (PermissionMatrix.PERMITTED | PermissionMatrix.CONSTRAINED))
+                              == PermissionMatrix.PERMITTED);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public PolicyDecisionTable compileTable(Decisions decisions) {
+        return compile(decisions.permissions, decisions.policies);
+    }
+
+    private static PolicyDecisionTable compile(Map<ResourceWrapper, PermissionSet> permissions,
+            List<PolicyWrapper> policies) {
+        PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(policies);
+        for ( Map.Entry<ResourceWrapper, PermissionSet> entry : permissions.entrySet() ) {
+            compiler.add(entry.getKey(), entry.getValue());
+        }
+        return compiler.compile();
+    }
+}
@@ -0,0 +1,90 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.InterResourceAssociation;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelClass;
+
+/**
+ * Classification and association navigation of the
+ * {@link GenericDialectHelper} on all resources of a
+ * {@link SyntheticModel}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DialectHelperBenchmark {
+
+    /**
+     * the (entity, association) pairs the dialect allows to navigate.
+     */
+    @State(Scope.Benchmark)
+    public static class Associations {
+        final List<ModelElement> from = new ArrayList<ModelElement>();
+        final List<InterResourceAssociation> associations = new ArrayList<InterResourceAssociation>();
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticModelState state) {
+            GenericDialectHelper helper = state.getHelper();
+            for ( ModelElement entity : state.getModel().getEntities() ) {
+                MetaModelClass metaModelClass = helper.getMetaModelClass(entity);
+                if ( metaModelClass == null ) {
+                    continue;
+                }
+                for ( InterResourceAssociation association :
+                        state.getDialectMetaModelInfo().getInterResourceAssociations(metaModelClass) ) {
+                    from.add(entity);
+                    associations.add(association);
+                }
+            }
+        }
+    }
+
+    /** memoized classification, as while browsing a mapped model */
+    @Benchmark
+    public void getResourceType(SyntheticModelState state, Blackhole blackhole) {
+        GenericDialectHelper helper = state.getHelper();
+        for ( ModelElement resource : state.getModel().getResources() ) {
+            blackhole.consume(helper.getResourceType(resource));
+        }
+    }
+
+    /** classification after the memoized resource types were dropped */
+    @Benchmark
+    public void getResourceTypeUnmemoized(SyntheticModelState state, Blackhole blackhole) {
+        GenericDialectHelper helper = state.getHelper();
+        helper.getElementClassifier().clear();
+        for ( ModelElement resource : state.getModel().getResources() ) {
+            blackhole.consume(helper.getResourceType(resource));
+        }
+    }
+
+    @Benchmark
+    public void navigateAssociation(SyntheticModelState state, Associations associations,
+                                    Blackhole blackhole) {
+        GenericDialectHelper helper = state.getHelper();
+        for ( int i = 0; i < associations.from.size(); i++ ) {
+            blackhole.consume(helper.navigateAssociation(associations.from.get(i),
+                              associations.associations.get(i)));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ActionType;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclEvaluatorException;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionsParser;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclUmlExpressionEvaluator;
+
+/**
+ * Parsing the OCL expressions of the dialect, and evaluating the anchor
+ * paths on the attributes and methods of a {@link SyntheticModel}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OclBenchmark {
+
+    /**
+     * the anchor paths and subactions definitions of the dialect, and the
+     * features with their anchor path.
+     */
+    @State(Scope.Benchmark)
+    public static class Expressions {
+        final List<String> definitions = new ArrayList<String>();
+
+        final List<ModelElement> features = new ArrayList<ModelElement>();
+        final List<OclExpression> anchorPaths = new ArrayList<OclExpression>();
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticModelState state) {
+            DialectMetaModelInfo mmInfo = state.getDialectMetaModelInfo();
+            for ( ResourceType resourceType : mmInfo.getResourceTypes() ) {
+                add(resourceType.getAnchorPath());
+            }
+            for ( ActionType actionType : mmInfo.getActionTypes() ) {
+                add(actionType.getSubactionsDefinition());
+            }
+
+            GenericDialectHelper helper = state.getHelper();
+            for ( ModelElement feature : state.getModel().getFeatures() ) {
+                ResourceType resourceType = helper.getResourceType(feature);
+                OclExpression anchorPath = resourceType == null ? null : mmInfo.getAnchorExpression(resourceType);
+                if ( anchorPath != null ) {
+                    features.add(feature);
+                    anchorPaths.add(anchorPath);
+                }
+            }
+        }
+
+        private void add(String definition) {
+            if ( definition != null && definition.length() > 0 ) {
+                definitions.add(definition);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseOclExpression(Expressions expressions, Blackhole blackhole) {
+        OclExpressionsParser parser = new OclExpressionsParser();
+        for ( String definition : expressions.definitions ) {
+            blackhole.consume(parser.parseOclExpression(definition));
+        }
+    }
+
+    /** finds the anchors of all features, like the mapping does */
+    @Benchmark
+    public void evaluateExpression(SyntheticModelState state, Expressions expressions,
+                                   Blackhole blackhole) throws OclEvaluatorException {
+        GenericDialectHelper helper = state.getHelper();
+        DialectMetaModelInfo mmInfo = state.getDialectMetaModelInfo();
+        for ( int i = 0; i < expressions.features.size(); i++ ) {
+            ModelElement feature = expressions.features.get(i);
+            OclUmlExpressionEvaluator evaluator = new OclUmlExpressionEvaluator(
+                expressions.anchorPaths.get(i), feature, feature, mmInfo,
+                helper.getMetaModelClass(feature));
+            blackhole.consume(evaluator.evaluateExpression());
+        }
+    }
+}
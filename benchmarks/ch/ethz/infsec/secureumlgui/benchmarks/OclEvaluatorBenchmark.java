@@ -0,0 +1,77 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclEvaluatorException;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionEvaluator;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionsParser;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclTestModel;
+
+/**
+ * The interpreted and the compiled evaluation of the subactions
+ * definitions of the entity of an {@link OclTestModel}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OclEvaluatorBenchmark {
+
+    /**
+     * the subactions definition of an action of the entity, parsed once.
+     */
+    @State(Scope.Benchmark)
+    public static class Subactions {
+
+        @Param({"false", "true"})
+        public boolean compiled;
+
+        @Param({"10", "50", "250"})
+        public int size;
+
+        @Param({"read", "fullAccess"})
+        public String action;
+
+        private boolean wasCompiled;
+
+        OclExpression expression;
+        Object self;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            wasCompiled = OclExpressionEvaluator.isCompilationEnabled();
+            OclExpressionEvaluator.setCompilationEnabled(compiled);
+
+            String definition = "read".equals(action)
+                ? OclTestModel.READ_SUBACTIONS : OclTestModel.FULL_ACCESS_SUBACTIONS;
+            expression = new OclExpressionsParser().parseOclExpression(definition);
+            self = OclTestModel.getAction(OclTestModel.createEntity(size), action);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            OclExpressionEvaluator.setCompilationEnabled(wasCompiled);
+        }
+    }
+
+    @Benchmark
+    public Object evaluateSubactions(Subactions subactions) throws OclEvaluatorException {
+        return new OclExpressionEvaluator(subactions.expression, subactions.self).evaluateExpression();
+    }
+}
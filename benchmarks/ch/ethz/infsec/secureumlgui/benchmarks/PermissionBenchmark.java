@@ -0,0 +1,135 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.jmi.reflect.RefObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.omg.uml.modelmanagement.UmlPackage;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
+import ch.ethz.infsec.secureumlgui.modelmapping.ModelWriter;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionDerivationEngine;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Deriving the effective permissions of all resources of a
+ * {@link SyntheticModel}, and writing a new permission to the UML model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PermissionBenchmark {
+
+    /**
+     * fresh explicit permissions for every derivation, as the derivation
+     * adds to them.
+     */
+    @State(Scope.Thread)
+    public static class Derivation {
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        private boolean wasParallel;
+
+        Map<ResourceWrapper, PermissionSet> permissions;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            wasParallel = PermissionDerivationEngine.isParallelEnabled();
+            PermissionDerivationEngine.setParallelEnabled(parallel);
+        }
+
+        @Setup(Level.Invocation)
+        public void setUp(SyntheticModelState state) {
+            permissions = state.getExplicitPermissions();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            PermissionDerivationEngine.setParallelEnabled(wasParallel);
+        }
+    }
+
+    /**
+     * the next (role, action) to add a permission for; the permissions
+     * added are deleted again, so that the model does not grow.
+     */
+    @State(Scope.Thread)
+    public static class NewPermission {
+        private int next = 0;
+
+        RoleWrapper role;
+        ActionWrapper action;
+        Set<PolicyWrapper> policies;
+
+        private Set<Object> existing;
+
+        @Setup(Level.Invocation)
+        public void setUp(SyntheticModelState state) {
+            List<RoleWrapper> roles = state.getRoleWrappers();
+            List<ResourceWrapper> resources = state.getResourceWrappers();
+            List<PolicyWrapper> allPolicies = state.getPolicyWrappers();
+
+            role = roles.get(next % roles.size());
+            List<ActionWrapper> actions =
+                new ArrayList<ActionWrapper>(resources.get(next % resources.size()).getActionWrapper());
+            action = actions.get(next % actions.size());
+            policies = Collections.singleton(allPolicies.get(next % allPolicies.size()));
+            next++;
+
+            existing = new HashSet<Object>(getPermissionPackage().getOwnedElement());
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            for ( Object element : new ArrayList<Object>(getPermissionPackage().getOwnedElement()) ) {
+                if ( !existing.contains(element) ) {
+                    ((RefObject) element).refDelete();
+                }
+            }
+        }
+
+        private UmlPackage getPermissionPackage() {
+            return GenericDialectModelMapper.getInstance().getPermissionPackage();
+        }
+    }
+
+    @Benchmark
+    public Map<ResourceWrapper, PermissionSet> collectNonExplicitPermissions(Derivation derivation) {
+        new HierarchicalPermissionsExplorer().collectNonExplicitPermissions(derivation.permissions);
+        return derivation.permissions;
+    }
+
+    @Benchmark
+    public void addPermission(NewPermission permission) {
+        ModelWriter writer = GenericDialectModelMapper.getInstance().getModelWriter();
+        writer.addPermission(permission.action, permission.role, permission.policies);
+    }
+}
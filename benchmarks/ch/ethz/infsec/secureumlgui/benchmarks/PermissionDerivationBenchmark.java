@@ -0,0 +1,91 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionDerivationEngine;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionTestModel;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionValue;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.RoundBasedPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * The round based exploration and the semi-naive
+ * {@link PermissionDerivationEngine} deriving the permissions of a
+ * {@link PermissionTestModel} of growing role hierarchy depth and action
+ * hierarchy width.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PermissionDerivationBenchmark {
+
+    private static final List<PolicyWrapper> DEFAULT_POLICY =
+        Collections.singletonList((PolicyWrapper) null);
+
+    /**
+     * fresh explicit permissions for every derivation, as the derivation
+     * adds to them.
+     */
+    @State(Scope.Thread)
+    public static class Hierarchy {
+
+        @Param({"2", "4", "8"})
+        public int depth;
+
+        @Param({"2", "4", "8", "16"})
+        public int width;
+
+        PermissionTestModel model;
+        PermissionSet permissions;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            model = new PermissionTestModel(depth, width);
+        }
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            permissions = model.createExplicitPermissions();
+        }
+    }
+
+    @Benchmark
+    public PermissionSet deriveWithEngine(Hierarchy hierarchy) {
+        final PermissionTestModel model = hierarchy.model;
+        new PermissionDerivationEngine(model.getResourceWrapper(), hierarchy.permissions) {
+            @Override
+            protected PermissionValue createComposite(ActionWrapper action, RoleWrapper role) {
+                return model.createComposite(action, role);
+            }
+        } .derive(DEFAULT_POLICY);
+        return hierarchy.permissions;
+    }
+
+    @Benchmark
+    public PermissionSet deriveRoundBased(Hierarchy hierarchy) {
+        PermissionTestModel model = hierarchy.model;
+        new RoundBasedPermissionsExplorer(model)
+        .collectNonExplicitPermissions(model.getResourceWrapper(), hierarchy.permissions, DEFAULT_POLICY);
+        return hierarchy.permissions;
+    }
+}
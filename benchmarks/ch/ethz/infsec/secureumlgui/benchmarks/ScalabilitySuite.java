@@ -0,0 +1,313 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jmi.reflect.RefObject;
+
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.ModuleController;
+import ch.ethz.infsec.secureumlgui.gui.GenericResourcePermissionsTableModel;
+import ch.ethz.infsec.secureumlgui.logging.SimpleLogger;
+import ch.ethz.infsec.secureumlgui.main.BatchAnalyzer;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.EffectivePermissionsCache;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectMetaModelParser;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * End-to-end scalability regression suite: times the steps of a user
+ * on {@link SyntheticModel}s of growing size and fails if a step grows
+ * faster than allowed.
+ *
+ * For every size factor (by default 1, 10 and 100 times a base model of
+ * 8 roles and 4 entities), the suite records
+ * <ul>
+ * <li><b>transform</b>: selecting the first entity, i.e.
+ * {@link ModuleController#mapTarget} which transforms it with
+ * {@link GenericDialectModelMapper#transform},</li>
+ * <li><b>table</b>: the first population of its permission table,</li>
+ * <li><b>toggle</b>: granting a permission in the table, i.e. writing it,
+ * mapping the entity again and refreshing the table,</li>
+ * <li><b>retained heap</b> of the model and its mapping.</li>
+ * </ul>
+ * The times are the medians of several runs. The curve is written as
+ * CSV; the growth exponent between two sizes, log(t2/t1) / log(n2/n1) for
+ * n elements, must not exceed <code>-maxExponent</code> (1 is linear).
+ * Steps shorter than <code>-minTime</code> ms are not checked, as their
+ * times are mostly noise.
+ *
+ * <pre>
+ * java ch.ethz.infsec.secureumlgui.benchmarks.ScalabilitySuite
+ *     -dialect metamodels/securecomponentuml_mof.xmi [-sizes 1,10,100]
+ *     [-runs 3] [-maxExponent 1.5] [-minTime 20] [-out curve.csv]
+ * </pre>
+ *
+ * The exit code is 1 if a threshold is exceeded, 2 for invalid
+ * arguments.
+ */
+public class ScalabilitySuite {
+
+    private static final String[] COLUMNS = {
+        "dialect", "factor", "elements", "transform_ms", "table_ms", "toggle_ms", "retained_kb"
+    };
+
+    /** the retained heap is not checked below this size */
+    private static final long MIN_HEAP_KB = 1024;
+
+    private File dialectFile;
+
+    private int[] factors = {1, 10, 100};
+
+    private int runs = 3;
+
+    private double maxExponent = 1.5;
+
+    private long minTime = 20;
+
+    private File outputFile;
+
+    /** one row per size, see COLUMNS */
+    private final List<long[]> curve = new ArrayList<long[]>();
+
+    public static void main(String[] args) throws Exception {
+        ScalabilitySuite suite = new ScalabilitySuite();
+        if ( !suite.parseArguments(args) ) {
+            System.err.println("usage: ScalabilitySuite -dialect <dialect_mof.xmi> [-sizes 1,10,100] [-runs 3]"
+                               + " [-maxExponent 1.5] [-minTime 20] [-out <file>]");
+            System.exit(2);
+        }
+
+        List<String> violations = suite.run();
+        for ( String violation : violations ) {
+            System.err.println("[SCALABILITY] " + violation);
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * @return false, if the arguments are invalid
+     */
+    public boolean parseArguments(String[] args) {
+        try {
+            for ( int i = 0; i + 1 < args.length; i += 2 ) {
+                String value = args[i + 1];
+                if ( args[i].equals("-dialect") ) {
+                    dialectFile = new File(value);
+                } else if ( args[i].equals("-sizes") ) {
+                    String[] sizes = value.split(",");
+                    factors = new int[sizes.length];
+                    for ( int j = 0; j < sizes.length; j++ ) {
+                        factors[j] = Integer.parseInt(sizes[j].trim());
+                    }
+                } else if ( args[i].equals("-runs") ) {
+                    runs = Integer.parseInt(value);
+                } else if ( args[i].equals("-maxExponent") ) {
+                    maxExponent = Double.parseDouble(value);
+                } else if ( args[i].equals("-minTime") ) {
+                    minTime = Long.parseLong(value);
+                } else if ( args[i].equals("-out") ) {
+                    outputFile = new File(value);
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return args.length % 2 == 0 && dialectFile != null && runs > 0;
+    }
+
+    /**
+     * measures all sizes and writes the curve.
+     *
+     * @return the exceeded thresholds, empty if none
+     */
+    public List<String> run() throws Exception {
+        // the mapper logs to the standard output
+        SimpleLogger.setOutput(System.err);
+
+        BatchAnalyzer.initialiseRepository();
+        DialectMetaModelInfo mmInfo = new DialectMetaModelParser().loadDialect(dialectFile);
+
+        for ( int factor : factors ) {
+            curve.add(measure(mmInfo, factor));
+        }
+
+        writeCurve();
+        return check();
+    }
+
+    private long[] measure(DialectMetaModelInfo mmInfo, int factor) {
+        long baseline = getUsedHeap();
+
+        SyntheticModel model = new SyntheticModel(mmInfo, 8 * factor, 4, 4 * factor, 6, 2);
+        model.addPermissions();
+        ModelElement target = model.getEntities().get(0);
+        ModuleController controller = ModuleController.getInstance();
+
+        long[] transform = new long[runs];
+        for ( int run = 0; run < runs; run++ ) {
+            GenericDialectModelMapper.getInstance().invalidateMapping();
+            long start = System.nanoTime();
+            controller.mapTarget(target);
+            transform[run] = System.nanoTime() - start;
+        }
+
+        ResourceWrapper resource = new ResourceWrapper(controller.mapTarget(target));
+        long[] table = new long[runs];
+        for ( int run = 0; run < runs; run++ ) {
+            EffectivePermissionsCache.getInstance().clear();
+            long start = System.nanoTime();
+            new GenericResourcePermissionsTableModel(resource);
+            table[run] = System.nanoTime() - start;
+        }
+
+        long retained = getUsedHeap() - baseline;
+
+        long[] toggle = new long[runs];
+        for ( int run = 0; run < runs; run++ ) {
+            toggle[run] = toggle(target, run);
+        }
+
+        model.delete();
+        GenericDialectModelMapper.getInstance().invalidateMapping();
+
+        return new long[] {
+                   factor, model.size(), median(transform) / 1000000, median(table) / 1000000,
+                   median(toggle) / 1000000, retained / 1024
+               };
+    }
+
+    /**
+     * grants a permission on <code>target</code> from its table, and
+     * removes it again afterwards (not timed).
+     *
+     * @return the time of the grant in ns
+     */
+    private long toggle(ModelElement target, int run) {
+        ModuleController controller = ModuleController.getInstance();
+        ResourceWrapper resource = new ResourceWrapper(controller.mapTarget(target));
+        List<ActionWrapper> actions = new ArrayList<ActionWrapper>(resource.getActionWrapper());
+        List<RoleWrapper> roles = SyntheticModel.wrapRoles();
+        List<PolicyWrapper> policies = SyntheticModel.wrapPolicies();
+
+        Collection<?> permissionElements = GenericDialectModelMapper.getInstance().getPermissionPackage().getOwnedElement();
+        Set<Object> existing = new HashSet<Object>(permissionElements);
+
+        long start = System.nanoTime();
+        controller.addPermission(actions.get(run % actions.size()), roles.get(roles.size() - 1 - run % roles.size()),
+                                 Collections.singleton(policies.get(run % policies.size())));
+        resource = new ResourceWrapper(controller.mapTarget(target));
+        new GenericResourcePermissionsTableModel(resource);
+        long duration = System.nanoTime() - start;
+
+        permissionElements = GenericDialectModelMapper.getInstance().getPermissionPackage().getOwnedElement();
+        for ( Object element : new ArrayList<Object>(permissionElements) ) {
+            if ( !existing.contains(element) ) {
+                ((RefObject) element).refDelete();
+            }
+        }
+        GenericDialectModelMapper.getInstance().invalidateMapping();
+        return duration;
+    }
+
+    /**
+     * @return the growth thresholds exceeded between consecutive sizes
+     */
+    private List<String> check() {
+        List<String> violations = new ArrayList<String>();
+        for ( int i = 1; i < curve.size(); i++ ) {
+            long[] previous = curve.get(i - 1);
+            long[] current = curve.get(i);
+            for ( int column = 2; column < previous.length; column++ ) {
+                long minimum = column == previous.length - 1 ? MIN_HEAP_KB : minTime;
+                if ( current[column] < minimum || current[1] <= previous[1] ) {
+                    continue;
+                }
+                double exponent = Math.log((double) current[column] / Math.max(previous[column], 1))
+                                  / Math.log((double) current[1] / previous[1]);
+                if ( exponent > maxExponent ) {
+                    violations.add(dialectFile.getName() + ": " + COLUMNS[column + 1]
+                                   + " grows with exponent " + Math.round(exponent * 100) / 100.0
+                                   + " from " + previous[1] + " to " + current[1] + " elements ("
+                                   + previous[column] + " -> " + current[column] + ", allowed "
+                                   + maxExponent + ")");
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * appends the curve to the output file (with a header if it is new),
+     * or prints it.
+     */
+    private void writeCurve() throws Exception {
+        boolean header = outputFile == null || !outputFile.exists() || outputFile.length() == 0;
+        PrintStream out = outputFile == null ? System.out : new PrintStream(new FileOutputStream(outputFile, true), true, "UTF-8");
+        try {
+            if ( header ) {
+                out.println(join(Arrays.asList(COLUMNS)));
+            }
+            for ( long[] row : curve ) {
+                List<Object> values = new ArrayList<Object>();
+                values.add(dialectFile.getName());
+                for ( long value : row ) {
+                    values.add(Long.valueOf(value));
+                }
+                out.println(join(values));
+            }
+        } finally {
+            if ( outputFile != null ) {
+                out.close();
+            }
+        }
+    }
+
+    private static String join(List<?> values) {
+        StringBuilder result = new StringBuilder();
+        for ( Object value : values ) {
+            if ( result.length() > 0 ) {
+                result.append(',');
+            }
+            result.append(value);
+        }
+        return result.toString();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * @return the used heap after garbage collection
+     */
+    private static long getUsedHeap() {
+        for ( int i = 0; i < 3; i++ ) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,240 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.argouml.model.Model;
+import org.omg.uml.foundation.core.Attribute;
+import org.omg.uml.foundation.core.ModelElement;
+import org.omg.uml.foundation.core.Namespace;
+import org.omg.uml.foundation.core.Operation;
+import org.omg.uml.foundation.core.Stereotype;
+import org.omg.uml.foundation.core.UmlClass;
+
+import ch.ethz.infsec.secureumlgui.ModuleController;
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
+import ch.ethz.infsec.secureumlgui.modelmapping.ModelWriter;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Synthetic model of a dialect in the ArgoUML repository, of the size
+ * given by the benchmark parameters.
+ *
+ * The dialect decides which elements are resources: the entities are
+ * classes with the stereotypes of the dialect's resource types on UML
+ * classes (e.g. compuml.entity, Controller), taken in turn; attributes,
+ * methods and associations are only generated if the dialect has
+ * resource types on them. Resource types on other UML elements (e.g. the
+ * states of ControllerUML) are not generated.
+ *
+ * <ul>
+ * <li><b>roles</b> in chains of <code>depth</code> levels: a role below
+ * the first level is a subrole of the previous role of its chain and of
+ * the role one level up in the previous chain, so that the hierarchy has
+ * diamonds like in real models.</li>
+ * <li><b>entities</b>, each with <code>features</code> attributes and
+ * methods alternately, every second method a query; entity <i>i</i> is
+ * associated with entity <i>i</i>+1.</li>
+ * <li><b>policies</b> in one refinement chain: policy <i>i</i>+1
+ * refines policy <i>i</i>.</li>
+ * </ul>
+ *
+ * The permissions are added through the mapping, see
+ * {@link #addPermissions()}.
+ */
+public class SyntheticModel {
+
+    private static final String UML_CLASS = "UmlClass";
+    private static final String UML_ATTRIBUTE = "Attribute";
+    private static final String UML_OPERATION = "Operation";
+    private static final String UML_ASSOCIATION_END = "AssociationEnd";
+
+    private final Namespace model;
+
+    private final List<UmlClass> roles = new ArrayList<UmlClass>();
+
+    private final List<UmlClass> entities = new ArrayList<UmlClass>();
+
+    /** the attributes and methods of all entities */
+    private final List<ModelElement> features = new ArrayList<ModelElement>();
+
+    private final List<UmlClass> policies = new ArrayList<UmlClass>();
+
+    /** one stereotype per name, like the profile of a real model */
+    private final Map<String, Stereotype> stereotypes = new HashMap<String, Stereotype>();
+
+    public SyntheticModel(DialectMetaModelInfo dialect, int roleCount, int depth,
+                          int entityCount, int featuresPerEntity, int policyCount) {
+        List<String> entityStereotypes = new ArrayList<String>();
+        boolean attributes = false;
+        boolean methods = false;
+        boolean associations = false;
+        for ( ResourceType resourceType : dialect.getResourceTypes() ) {
+            String umlClassName = resourceType.getUmlClassName();
+            String stereotype = resourceType.getModelElementStereotype();
+            if ( UML_CLASS.equals(umlClassName) && stereotype != null && stereotype.length() > 0 ) {
+                entityStereotypes.add(stereotype);
+            }
+            attributes |= UML_ATTRIBUTE.equals(umlClassName);
+            methods |= UML_OPERATION.equals(umlClassName);
+            associations |= UML_ASSOCIATION_END.equals(umlClassName);
+        }
+        if ( entityStereotypes.isEmpty() ) {
+            throw new IllegalArgumentException("dialect " + dialect.getDialectName()
+                                               + " has no resource types on classes");
+        }
+
+        model = (Namespace) Model.getModelManagementFactory().createModel();
+        Model.getCoreHelper().setName(model, "synthetic");
+
+        for ( int i = 0; i < roleCount; i++ ) {
+            UmlClass role = createClass("Role" + i, SecureUmlConstants.STEREOTYPE_SECUML_ROLE);
+            if ( i % depth != 0 ) {
+                Model.getCoreFactory().buildGeneralization(role, roles.get(i - 1));
+                if ( i > depth ) {
+                    Model.getCoreFactory().buildGeneralization(role, roles.get(i - depth - 1));
+                }
+            }
+            roles.add(role);
+        }
+
+        for ( int i = 0; i < entityCount; i++ ) {
+            UmlClass entity = createClass("Entity" + i, entityStereotypes.get(i % entityStereotypes.size()));
+            for ( int j = 0; j < featuresPerEntity && (attributes || methods); j++ ) {
+                if ( attributes && (j % 2 == 0 || !methods) ) {
+                    Attribute attribute = (Attribute) Model.getCoreFactory().createAttribute();
+                    attribute.setName("attribute" + j);
+                    entity.getFeature().add(attribute);
+                    features.add(attribute);
+                } else {
+                    Operation method = (Operation) Model.getCoreFactory().createOperation();
+                    method.setName("method" + j);
+                    method.setQuery(j % 4 == 1);
+                    entity.getFeature().add(method);
+                    features.add(method);
+                }
+            }
+            if ( i > 0 && associations ) {
+                Model.getCoreFactory().buildAssociation(entities.get(i - 1), true, entity, true,
+                                                        "association" + i);
+            }
+            entities.add(entity);
+        }
+
+        for ( int i = 0; i < policyCount; i++ ) {
+            UmlClass policy = createClass("Policy" + i, SecureUmlConstants.STEREOTYPE_SECUML_POLICY);
+            if ( i > 0 ) {
+                Model.getCoreFactory().buildGeneralization(policy, policies.get(i - 1));
+            }
+            policies.add(policy);
+        }
+    }
+
+    /**
+     * writes the explicit permissions with the {@link ModelWriter}, like
+     * the permission table does: role <i>i</i> gets the (<i>i</i> mod
+     * actions)-th action of the (<i>i</i> mod entities)-th entity in the
+     * (<i>i</i> mod policies)-th policy. The mapping is discarded
+     * afterwards.
+     */
+    public void addPermissions() {
+        ModuleController controller = ModuleController.getInstance();
+        controller.mapTarget(entities.get(0));
+
+        List<RoleWrapper> roleWrappers = wrapRoles();
+        List<PolicyWrapper> policyWrappers = wrapPolicies();
+
+        ModelWriter writer = GenericDialectModelMapper.getInstance().getModelWriter();
+        for ( int i = 0; i < roleWrappers.size(); i++ ) {
+            ResourceWrapper entity = new ResourceWrapper(controller.mapTarget(entities.get(i % entities.size())));
+            List<ActionWrapper> actions = new ArrayList<ActionWrapper>(entity.getActionWrapper());
+
+            writer.addPermission(actions.get(i % actions.size()), roleWrappers.get(i),
+                                 Collections.singleton(policyWrappers.get(i % policyWrappers.size())));
+        }
+
+        GenericDialectModelMapper.getInstance().invalidateMapping();
+    }
+
+    /** @return the SecureUML roles of the current mapping */
+    public static List<RoleWrapper> wrapRoles() {
+        List<RoleWrapper> result = new ArrayList<RoleWrapper>();
+        for ( Object role : (Collection) ModuleController.getInstance().getAllRoles((Object) null) ) {
+            result.add(new RoleWrapper(role));
+        }
+        return result;
+    }
+
+    /** @return the SecureUML policies of the current mapping */
+    public static List<PolicyWrapper> wrapPolicies() {
+        List<PolicyWrapper> result = new ArrayList<PolicyWrapper>();
+        for ( Object policy : ModuleController.getInstance().getAllPolicies() ) {
+            result.add(new PolicyWrapper(policy));
+        }
+        return result;
+    }
+
+    private UmlClass createClass(String name, String stereotypeName) {
+        UmlClass umlClass = (UmlClass) Model.getCoreFactory().buildClass(name, model);
+
+        Stereotype stereotype = stereotypes.get(stereotypeName);
+        if ( stereotype == null ) {
+            stereotype = (Stereotype) Model.getExtensionMechanismsFactory()
+                         .buildStereotype(umlClass, stereotypeName, model);
+            stereotypes.put(stereotypeName, stereotype);
+        }
+        umlClass.getStereotype().add(stereotype);
+        return umlClass;
+    }
+
+    /** @return the UML model, the namespace of all elements */
+    public Namespace getModel() {
+        return model;
+    }
+
+    public List<UmlClass> getRoles() {
+        return Collections.unmodifiableList(roles);
+    }
+
+    public List<UmlClass> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    /** @return the attributes and methods of all entities */
+    public List<ModelElement> getFeatures() {
+        return Collections.unmodifiableList(features);
+    }
+
+    public List<UmlClass> getPolicies() {
+        return Collections.unmodifiableList(policies);
+    }
+
+    /**
+     * removes the model and all its elements from the repository.
+     */
+    public void delete() {
+        model.refDelete();
+    }
+
+    /** @return the number of generated elements */
+    public int size() {
+        return roles.size() + entities.size() + features.size() + policies.size();
+    }
+
+    /** @return the entities and their features, i.e. all resources */
+    public List<ModelElement> getResources() {
+        List<ModelElement> result = new ArrayList<ModelElement>(entities);
+        result.addAll(features);
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package ch.ethz.infsec.secureumlgui.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.ethz.infsec.secureumlgui.main.BatchAnalyzer;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectMetaModelParser;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * A mapped {@link SyntheticModel} with explicit permissions, shared by
+ * all benchmarks.
+ *
+ * The repository is initialised and the dialect (system property
+ * <code>secureuml.dialect</code>, by default the ComponentUML dialect)
+ * is loaded once per JVM, like {@link BatchAnalyzer} does. After the
+ * explicit permissions are written (see
+ * {@link SyntheticModel#addPermissions()}), all resources are mapped
+ * again.
+ */
+@State(Scope.Benchmark)
+public class SyntheticModelState {
+
+    private static final String DEFAULT_DIALECT =
+        "metamodels/securecomponentuml_mof.xmi";
+
+    private static DialectMetaModelInfo dialect;
+
+    @Param({"16", "64"})
+    public int roles;
+
+    /** levels of the role hierarchy */
+    @Param({"4"})
+    public int depth;
+
+    @Param({"8", "32"})
+    public int entities;
+
+    /** attributes and methods per entity */
+    @Param({"8"})
+    public int features;
+
+    @Param({"2"})
+    public int policies;
+
+    private SyntheticModel model;
+
+    private Map<ResourceWrapper, PermissionSet> mappedResources;
+
+    private List<RoleWrapper> roleWrappers;
+
+    private List<PolicyWrapper> policyWrappers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DialectMetaModelInfo mmInfo = getDialect();
+
+        model = new SyntheticModel(mmInfo, roles, depth, entities, features, policies);
+        model.addPermissions();
+
+        mappedResources = BatchAnalyzer.mapResources(model.getModel(), mmInfo);
+        roleWrappers = SyntheticModel.wrapRoles();
+        policyWrappers = SyntheticModel.wrapPolicies();
+    }
+
+    private static synchronized DialectMetaModelInfo getDialect() {
+        if ( dialect == null ) {
+            BatchAnalyzer.initialiseRepository();
+            File file = new File(System.getProperty("secureuml.dialect", DEFAULT_DIALECT));
+            dialect = new DialectMetaModelParser().loadDialect(file);
+        }
+        return dialect;
+    }
+
+    public SyntheticModel getModel() {
+        return model;
+    }
+
+    public DialectMetaModelInfo getDialectMetaModelInfo() {
+        return getDialect();
+    }
+
+    public GenericDialectHelper getHelper() {
+        return GenericDialectHelper.getInstance();
+    }
+
+    /** @return the mapped entities, attributes and methods */
+    public List<ResourceWrapper> getResourceWrappers() {
+        return new ArrayList<ResourceWrapper>(mappedResources.keySet());
+    }
+
+    public List<RoleWrapper> getRoleWrappers() {
+        return roleWrappers;
+    }
+
+    /** @return the policies of the model */
+    public List<PolicyWrapper> getPolicyWrappers() {
+        return policyWrappers;
+    }
+
+    /**
+     * @return the explicit permissions of all resources, to derive the
+     *     effective permissions from
+     */
+    public Map<ResourceWrapper, PermissionSet> getExplicitPermissions() {
+        HierarchicalPermissionsExplorer explorer = new HierarchicalPermissionsExplorer();
+        Map<ResourceWrapper, PermissionSet> result = new LinkedHashMap<ResourceWrapper, PermissionSet>();
+        for ( ResourceWrapper resource : mappedResources.keySet() ) {
+            result.put(resource, explorer.getExplicitPermissions(resource));
+        }
+        return result;
+    }
+}
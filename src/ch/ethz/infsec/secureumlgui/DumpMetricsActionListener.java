@@ -0,0 +1,45 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+
+/**
+ * ActionListener for the Dump Mapping Metrics menu item: shows a
+ * snapshot of the {@link MappingMetrics} and writes it to the log.
+ */
+public class DumpMetricsActionListener implements ActionListener {
+
+    private static Logger aLog = Logger.getLogger(DumpMetricsActionListener.class);
+
+    DumpMetricsActionListener() {
+    }
+
+    /**
+     * Responds to the <code>ActionEvents</code> from the module menu.
+     *
+     * @param event the <code>ActionEvent</code> to be handled.
+     */
+    public final void actionPerformed(final ActionEvent event) {
+        String snapshot = MappingMetrics.getInstance().getSnapshot();
+        aLog.info("mapping metrics:\n" + snapshot);
+
+        JTextArea text = new JTextArea(snapshot);
+        text.setEditable(false);
+        text.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JScrollPane scrollPane = new JScrollPane(text);
+        scrollPane.setPreferredSize(new Dimension(760, 400));
+
+        JOptionPane.showMessageDialog(null, scrollPane, "SecureUML Mapping Metrics",
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+}
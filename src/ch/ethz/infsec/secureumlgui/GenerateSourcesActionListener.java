@@ -0,0 +1,85 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectMetaModelUtil;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectSourceGenerator;
+
+/**
+ * ActionListener for the Generate JMI Sources menu item: generates the
+ * JMI interface sources of the selected dialect into a chosen directory,
+ * in the background.
+ */
+public class GenerateSourcesActionListener implements ActionListener {
+
+    private static Logger aLog = Logger.getLogger(GenerateSourcesActionListener.class);
+
+    private File lastDirectory = new File(DialectSourceGenerator.DEFAULT_DIRECTORY);
+
+    GenerateSourcesActionListener() {
+    }
+
+    /**
+     * Responds to the <code>ActionEvents</code> from the module menu.
+     *
+     * @param event the <code>ActionEvent</code> to be handled.
+     */
+    public final void actionPerformed(final ActionEvent event) {
+        final DialectMetaModelInfo mmInfo =
+            GenericDialectHelper.getInstance().getDialectMetaModelInfo();
+        if ( mmInfo == null || mmInfo.getDialectExtent() == null ) {
+            JOptionPane.showMessageDialog(null, "Select a dialect metamodel first.",
+                                          "Generate JMI Sources", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setSelectedFile(lastDirectory.getAbsoluteFile());
+        if ( chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION ) {
+            return;
+        }
+        final File destDir = chooser.getSelectedFile();
+        lastDirectory = destDir;
+
+        Thread generation = new Thread("SecureUML source generation") {
+            public void run() {
+                String message;
+                int type;
+                try {
+                    DialectSourceGenerator generator =
+                        DialectMetaModelUtil.generateSrcFiles(mmInfo.getDialectExtent(), destDir);
+                    message = "Generated the sources of " + generator.getGenerated()
+                              + " metamodel elements to " + destDir + ", "
+                              + generator.getSkipped() + " were up to date.";
+                    type = JOptionPane.INFORMATION_MESSAGE;
+                } catch (Exception e) {
+                    aLog.error("could not generate the sources to " + destDir, e);
+                    message = "Could not generate the sources: " + e;
+                    type = JOptionPane.ERROR_MESSAGE;
+                }
+                show(message, type);
+            }
+        };
+        generation.setDaemon(true);
+        generation.start();
+    }
+
+    private static void show(final String message, final int type) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JOptionPane.showMessageDialog(null, message, "Generate JMI Sources", type);
+            }
+        });
+    }
+}
@@ -111,6 +111,30 @@ public class ModuleController
     }
 
 
+    /** returns the SecureUML element for the selected target.
+     *
+     * If the mapper is in incremental mode and the model did not change
+     * since the target was mapped, this is just a lookup. Otherwise the
+     * target is (re-)transformed.
+     */
+    public Object mapTarget(ModelElement modelElement)
+    {
+        if(modelMapper == null) {
+            logger.error("transform without modelmapper");
+            return null;
+        }
+
+        Object mapped = modelMapper.getUpToDateElement(modelElement);
+        if(mapped != null)
+            return mapped;
+
+        if(modelMapper.needsInit())
+            initModelMapper();
+
+        return transform(modelElement);
+    }
+
+
     /** returns a PermissionDummy containing only the necessary
      * information.
      *
@@ -187,7 +211,8 @@ public class ModuleController
         UmlClass policyClass = modelMapper.getModelWriter().createPolicy(policyName, refined_by, namespace);
         aLog.debug("received new UmlClass: " + policyClass + " .. " + policyClass.getClass().toString());
 
-        TargetManager.getInstance().setTarget(policyClass);
+        if(isInteractive())
+            TargetManager.getInstance().setTarget(policyClass);
 
         //modelMapper.init();
         modelMapper.examineUmlClass(policyClass);
@@ -220,7 +245,7 @@ public class ModuleController
             UmlClass newRole = modelMapper.getModelWriter().
                                createRole(roleName, namespace);
 
-            if(newRole != null)
+            if(newRole != null && isInteractive())
                 TargetManager.getInstance().setTarget(newRole);
 
             logger.info("Added role: " + roleName);
@@ -255,7 +280,8 @@ public class ModuleController
             "Model changed - triggering update " );
         //   + resource);
 
-        SecureUmlModule.getTab().onTargetSet();
+        if(isInteractive())
+            SecureUmlModule.getTab().onTargetSet();
 
     }
     /**
@@ -272,7 +298,8 @@ public class ModuleController
 
 
             // TODO: refresh proppanels
-            SecureUmlModule.getTab().onTargetSet();
+            if(isInteractive())
+                SecureUmlModule.getTab().onTargetSet();
 
         }
         catch (Exception e)
@@ -281,6 +308,15 @@ public class ModuleController
         }
     }
 
+    /**
+     * @return true, if the module runs in the ArgoUML GUI (and not e.g.
+     *     in the {@link ch.ethz.infsec.secureumlgui.main.BatchAnalyzer})
+     */
+    public boolean isInteractive()
+    {
+        return SecureUmlModule.getTab() != null;
+    }
+
     public Role getSecureUmlRole(UmlClass roleClass)
     {
         if(roleClass == null)
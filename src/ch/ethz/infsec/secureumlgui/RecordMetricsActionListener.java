@@ -0,0 +1,33 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.AbstractButton;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+
+/**
+ * ActionListener for the Record Mapping Metrics menu item: enables or
+ * disables the recording of the {@link MappingMetrics}.
+ */
+public class RecordMetricsActionListener implements ActionListener {
+
+    private static Logger aLog = Logger.getLogger(RecordMetricsActionListener.class);
+
+    RecordMetricsActionListener() {
+    }
+
+    /**
+     * Responds to the <code>ActionEvents</code> from the module menu.
+     *
+     * @param event the <code>ActionEvent</code> to be handled.
+     */
+    public final void actionPerformed(final ActionEvent event) {
+        boolean enabled = ((AbstractButton) event.getSource()).isSelected();
+        MappingMetrics.getInstance().setEnabled(enabled);
+        aLog.info((enabled ? "enabled" : "disabled") + " the mapping metrics");
+    }
+}
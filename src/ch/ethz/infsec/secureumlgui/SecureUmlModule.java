@@ -29,6 +29,8 @@ package ch.ethz.infsec.secureumlgui;
 
 //import java.awt.event.*;
 import java.awt.event.KeyEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -38,6 +40,7 @@ import java.util.List;
 import java.util.Properties;
 
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JRadioButtonMenuItem;
@@ -45,15 +48,19 @@ import javax.swing.JRadioButtonMenuItem;
 import java.lang.Thread;
 
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
+import ch.ethz.infsec.secureumlgui.modelmapping.StereotypeIndex;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectMetaModelParser;
 import ch.ethz.infsec.secureumlgui.usecasemapper.control.MenuActionListener;
 import ch.ethz.infsec.secureumlgui.util.ExtensionFilenameFilter;
 import ch.ethz.infsec.secureumlgui.util.SelectMetamodelActionListener;
 
 import ch.ethz.infsec.secureumlgui.main.ClassLoaderProviderImpl;
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
+import org.argouml.kernel.ProjectManager;
 import org.argouml.moduleloader.ModuleInterface;
 import org.argouml.ui.ProjectBrowser;
 import org.argouml.ui.cmd.GenericArgoMenuBar;
@@ -84,6 +91,9 @@ public final class SecureUmlModule implements
     private boolean isPropPanelsInitialized = false;
 
     private static TabSecureUml tab;
+
+    /** ends the session of the model of a project when it is closed */
+    private PropertyChangeListener projectListener;
     private MultiContextLogger logger = new MultiContextLogger(
         MultiContextLogger.STARTUP);
 
@@ -180,6 +190,20 @@ public final class SecureUmlModule implements
         writeXmiItem.setEnabled(true);
         secureUMLMenu.add(writeXmiItem);
 
+        JCheckBoxMenuItem recordMetricsItem =
+            new JCheckBoxMenuItem("Record Mapping Metrics",
+                                  MappingMetrics.getInstance().isEnabled());
+        recordMetricsItem.addActionListener(new RecordMetricsActionListener());
+        secureUMLMenu.add(recordMetricsItem);
+
+        JMenuItem dumpMetricsItem = new JMenuItem("Dump Mapping Metrics");
+        dumpMetricsItem.addActionListener(new DumpMetricsActionListener());
+        secureUMLMenu.add(dumpMetricsItem);
+
+        JMenuItem generateSourcesItem = new JMenuItem("Generate JMI Sources...");
+        generateSourcesItem.addActionListener(new GenerateSourcesActionListener());
+        secureUMLMenu.add(generateSourcesItem);
+
         menubar.add(secureUMLMenu);
 
     }
@@ -236,11 +260,29 @@ public final class SecureUmlModule implements
             initializeMenu();
             isEnabled = true;
 
+            MappingMetrics.register();
+            StereotypeIndex.getInstance().register();
+
             TabSecureUml tabSecureUml = new TabSecureUml();
             tab=tabSecureUml;
 
             TargetManager.getInstance().addTargetListener(tabSecureUml);
 
+            projectListener = new PropertyChangeListener()
+            {
+                public void propertyChange(PropertyChangeEvent event)
+                {
+                    // the session of the old project ends; nothing is saved
+                    // if its model is gone already
+                    if (ProjectManager.CURRENT_PROJECT_PROPERTY_NAME.equals(event.getPropertyName())
+                        && tab != null)
+                    {
+                        tab.endSession();
+                    }
+                }
+            };
+            ProjectManager.getManager().addPropertyChangeListener(projectListener);
+
             Object target = TargetManager.getInstance().getTarget();
             TargetManager.getInstance().setTarget(null);
             TargetManager.getInstance().setTarget(target);
@@ -273,6 +315,14 @@ public final class SecureUmlModule implements
         isEnabled = false;
         isPropPanelsInitialized = false;
 
+        if (projectListener != null)
+        {
+            ProjectManager.getManager().removePropertyChangeListener(projectListener);
+            projectListener = null;
+        }
+        if (tab != null)
+            tab.endSession();
+
         Object target = TargetManager.getInstance().getTarget();
         TargetManager.getInstance().setTarget(null);
         TargetManager.getInstance().setTarget(target);
@@ -304,7 +354,7 @@ public final class SecureUmlModule implements
             return "Marcel Beer";
 //              break;
         case VERSION:
-            return "0.42";
+            return SecureUmlConstants.MODULE_VERSION;
 //              break;
         default:
             return null;
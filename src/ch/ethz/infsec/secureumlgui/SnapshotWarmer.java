@@ -0,0 +1,398 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.log4j.Logger;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.gui.GenericResourcePermissionsTableModel;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionReport;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.MappingSnapshot;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.ModelDigest;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.SnapshotStore;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+
+/**
+ * Keeps the mapping warm across sessions: remembers the resources mapped
+ * in a session together with their effective permissions in a
+ * {@link MappingSnapshot}. When the same model is opened again with the
+ * same dialect, the stored permissions of a resource are shown while its
+ * current ones are computed (see {@link #getStoredCells(ModelElement)}),
+ * and the stored resources are mapped in advance, so that the first click
+ * on them does not pay for the mapping and the permission derivation.
+ *
+ * The session of a model ends when an element of another model is
+ * selected, when the project is closed and when the module is disabled;
+ * only then is the snapshot saved. The permissions saved are the ones of
+ * the resource tables still cached at that time: every change of the
+ * model evicts the cached permissions depending on it, so they match the
+ * model the snapshot is taken of.
+ *
+ * Snapshots are keyed by the UUID of the model, which is cheap to get;
+ * the {@link ModelDigest} walking the whole model only verifies that a
+ * stored snapshot was taken of the current version of the model. It is
+ * computed on the thread of the {@link TargetMappingWorker}, like the
+ * loading, writing and the permission derivation, and only if there is a
+ * snapshot for the model. Only when the project is closed or the module
+ * is disabled may the model be gone before the worker gets to it, so the
+ * digest of the ended session is computed right away then.
+ *
+ * The stored resources are warmed one at a time, and only while the
+ * worker has no target to map, so that the target the user selects is
+ * not held up by the warm-up: a resource is mapped on the event dispatch
+ * thread, then its permissions are derived on the worker thread. Neither
+ * thread waits for the other.
+ */
+public class SnapshotWarmer {
+
+    /**
+     * maps a resource and computes what its component displays.
+     */
+    public interface Warmer {
+
+        /**
+         * maps <code>resource</code>, on the event dispatch thread.
+         *
+         * @return what {@link #warm(Object)} needs, null if the resource
+         *     is not mapped
+         */
+        Object map(ModelElement resource) throws Exception;
+
+        /**
+         * computes what the component of a mapped resource displays, on
+         * the thread of the worker.
+         */
+        void warm(Object mapped) throws Exception;
+    }
+
+    private static Logger aLog = Logger.getLogger(SnapshotWarmer.class);
+
+    private final TargetMappingWorker worker;
+
+    private final SnapshotStore store;
+
+    private final Warmer warmer;
+
+    /** the outermost namespace of the current model */
+    private ModelElement root = null;
+
+    /** the resources mapped since the model was opened: uuid -> resource */
+    private final Map<String, ResourceWrapper> mapped = new LinkedHashMap<String, ResourceWrapper>();
+
+    /** the resources of the snapshot loaded for the current model: uuid -> resource */
+    private final Map<String, MappingSnapshot.Resource> stored = new HashMap<String, MappingSnapshot.Resource>();
+
+    /** used on the thread of the worker only */
+    private final ModelDigest digest = new ModelDigest();
+
+    public SnapshotWarmer(TargetMappingWorker worker, SnapshotStore store, Warmer warmer) {
+        this.worker = worker;
+        this.store = store;
+        this.warmer = warmer;
+    }
+
+    /**
+     * an element was selected; if it belongs to another model, ends the
+     * session of the current model and starts the warm-up of the new one.
+     * Call it on the event dispatch thread.
+     */
+    public synchronized void targetSelected(ModelElement element) {
+        final ModelElement newRoot = ModelDigest.getRoot(element);
+        if ( newRoot == root ) {
+            return;
+        }
+        final ModelElement oldRoot = root;
+        final MappingSnapshot ended = endSession();
+        root = newRoot;
+
+        final String key = getKey(newRoot);
+        worker.schedule(new Runnable() {
+            public void run() {
+                if ( ended != null ) {
+                    // the old model is still open: a project being closed
+                    // ends its session in sessionEnded() instead
+                    String modelDigest = computeDigest(digest, oldRoot);
+                    if ( modelDigest != null ) {
+                        save(ended, modelDigest);
+                    }
+                }
+                if ( key != null ) {
+                    warmUp(newRoot, key);
+                }
+            }
+        }, 0);
+    }
+
+    /**
+     * ends the session of the current model when the project is closed
+     * or the module is disabled, and saves its snapshot. Call it on the
+     * thread closing the project, while the model is still there.
+     */
+    public void sessionEnded() {
+        ModelElement oldRoot;
+        MappingSnapshot ended;
+        synchronized (this) {
+            oldRoot = root;
+            ended = endSession();
+        }
+        if ( ended == null ) {
+            return;
+        }
+
+        // once per session, and not holding the lock the event dispatch
+        // thread reads the stored cells with
+        final String modelDigest = computeDigest(new ModelDigest(), oldRoot);
+        if ( modelDigest == null ) {
+            return;
+        }
+        final MappingSnapshot snapshot = ended;
+        worker.schedule(new Runnable() {
+            public void run() {
+                save(snapshot, modelDigest);
+            }
+        }, 0);
+    }
+
+    /**
+     * the table of <code>resource</code> was displayed; its permissions
+     * are saved at the end of the session if they are still cached then.
+     */
+    public synchronized void resourceMapped(ModelElement element, ResourceWrapper resource) {
+        if ( root == null || ModelDigest.getRoot(element) != root ) {
+            return;
+        }
+        mapped.put(ModelDigest.getUuidOf(element), resource);
+    }
+
+    /**
+     * @return the permitted cells stored for <code>element</code> in an
+     *     earlier session of the current model, each with the columns
+     *     role, action, policy and flags; null if there are none
+     */
+    public synchronized List<String[]> getStoredCells(ModelElement element) {
+        if ( root == null || ModelDigest.getRoot(element) != root ) {
+            return null;
+        }
+        MappingSnapshot.Resource resource = stored.get(ModelDigest.getUuidOf(element));
+        return resource == null || resource.getCells().isEmpty() ? null : resource.getCells();
+    }
+
+    private synchronized boolean isCurrent(ModelElement modelRoot) {
+        return modelRoot == root;
+    }
+
+    /**
+     * @return the key of the model, null if the dialect is unknown
+     */
+    private String getKey(ModelElement modelRoot) {
+        DialectMetaModelInfo mmInfo = GenericDialectHelper.getInstance().getDialectMetaModelInfo();
+        if ( mmInfo == null || mmInfo.getSourceDigest() == null ) {
+            return null;
+        }
+        return SnapshotStore.getKey(ModelDigest.getUuidOf(modelRoot), mmInfo.getSourceDigest());
+    }
+
+    /**
+     * @return the digest of the model, null if it cannot be read
+     */
+    private static String computeDigest(ModelDigest modelDigest, ModelElement modelRoot) {
+        try {
+            return modelDigest.compute(modelRoot);
+        } catch (RuntimeException e) {
+            // e.g. the model was closed meanwhile
+            aLog.warn("could not compute the digest of the model: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * takes the snapshot of the resources mapped in the current session
+     * and their cached permissions, and forgets the session. The snapshot
+     * has no model digest yet, see {@link #save(MappingSnapshot, String)}.
+     *
+     * @return the snapshot, null if there is nothing to save
+     */
+    private synchronized MappingSnapshot endSession() {
+        try {
+            if ( root == null || mapped.isEmpty() ) {
+                return null;
+            }
+            String key = getKey(root);
+            if ( key == null ) {
+                return null;
+            }
+
+            List<PolicyWrapper> policies = new HierarchicalPermissionsExplorer().getSortedPolicyWrappers();
+            MappingSnapshot snapshot = new MappingSnapshot(key, false);
+            for ( Map.Entry<String, ResourceWrapper> entry : mapped.entrySet() ) {
+                ResourceWrapper resource = entry.getValue();
+                MappingSnapshot.Resource snapshotResource =
+                    new MappingSnapshot.Resource(entry.getKey(), resource.getName());
+
+                PermissionSet permissions = GenericResourcePermissionsTableModel.getCachedPermissions(resource);
+                if ( permissions != null ) {
+                    PermissionReport report = new PermissionReport(policies);
+                    report.add(resource, permissions);
+                    for ( String[] row : report.getRows() ) {
+                        snapshotResource.addCell(row[0], row[2], row[3], row[4]);
+                    }
+                }
+                snapshot.addResource(snapshotResource);
+            }
+            return snapshot;
+        } catch (RuntimeException e) {
+            // e.g. the model was closed meanwhile
+            aLog.warn("could not take the snapshot of the session: " + e);
+            return null;
+        } finally {
+            root = null;
+            mapped.clear();
+            stored.clear();
+        }
+    }
+
+    private void warmUp(ModelElement modelRoot, String key) {
+        MappingSnapshot snapshot = store.load(key);
+        if ( snapshot == null || !isCurrent(modelRoot) ) {
+            return;
+        }
+        String modelDigest = computeDigest(digest, modelRoot);
+        if ( !snapshot.isOf(modelDigest) ) {
+            if ( aLog.isDebugEnabled() ) {
+                aLog.debug("the snapshot " + key + " is of another version of the model");
+            }
+            return;
+        }
+        Map<String, ModelElement> elements = new HashMap<String, ModelElement>(digest.getElements());
+
+        synchronized (this) {
+            if ( modelRoot != root ) {
+                return;
+            }
+            for ( MappingSnapshot.Resource resource : snapshot.getResources() ) {
+                stored.put(resource.getUuid(), resource);
+            }
+        }
+        aLog.info("warming up " + snapshot.getResources().size() + " resources");
+        warmNext(modelRoot, snapshot.getResources().iterator(), elements);
+    }
+
+    /**
+     * warms the next resource which is still in the model.
+     */
+    private void warmNext(ModelElement modelRoot,
+                          Iterator<MappingSnapshot.Resource> resources,
+                          Map<String, ModelElement> elements) {
+        while ( resources.hasNext() && isCurrent(modelRoot) ) {
+            MappingSnapshot.Resource resource = resources.next();
+            ModelElement element = elements.get(resource.getUuid());
+            if ( element != null ) {
+                warm(modelRoot, resources, elements, resource, element);
+                return;
+            }
+        }
+    }
+
+    /**
+     * maps <code>element</code> on the event dispatch thread, once the
+     * worker has no target to map, and derives its permissions on the
+     * worker thread; then warms the next resource.
+     */
+    private void warm(final ModelElement modelRoot,
+                      final Iterator<MappingSnapshot.Resource> resources,
+                      final Map<String, ModelElement> elements,
+                      final MappingSnapshot.Resource resource,
+                      final ModelElement element) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if ( !isCurrent(modelRoot) ) {
+                    return;
+                }
+                if ( worker.isBusy() ) {
+                    // the selected target first, try again later
+                    worker.schedule(new Runnable() {
+                        public void run() {
+                            warm(modelRoot, resources, elements, resource, element);
+                        }
+                    }, TargetMappingWorker.DEBOUNCE_MILLIS);
+                    return;
+                }
+
+                Object mapped = null;
+                try {
+                    mapped = warmer.map(element);
+                } catch (Exception e) {
+                    aLog.warn("could not map " + resource.getName() + ": " + e);
+                }
+
+                final Object prepared = mapped;
+                worker.schedule(new Runnable() {
+                    public void run() {
+                        if ( prepared != null && isCurrent(modelRoot) ) {
+                            try {
+                                warmer.warm(prepared);
+                            } catch (Exception e) {
+                                aLog.warn("could not warm up " + resource.getName() + ": " + e);
+                            }
+                        }
+                        warmNext(modelRoot, resources, elements);
+                    }
+                }, 0);
+            }
+        });
+    }
+
+    /**
+     * stores the snapshot of a session, together with the resources of
+     * the snapshot already stored for the same version of the model that
+     * were not mapped in the session.
+     *
+     * @param modelDigest the digest of the model of the session
+     */
+    private void save(MappingSnapshot session, String modelDigest) {
+        MappingSnapshot stored = store.load(session.getKey());
+        if ( stored != null && !stored.isOf(modelDigest) ) {
+            // of an earlier version of the model, replace it
+            stored = null;
+        }
+        if ( stored != null && stored.isComplete() ) {
+            return;
+        }
+
+        MappingSnapshot snapshot = new MappingSnapshot(session.getKey(), modelDigest, false);
+        Map<String, MappingSnapshot.Resource> resources = new LinkedHashMap<String, MappingSnapshot.Resource>();
+        if ( stored != null ) {
+            for ( MappingSnapshot.Resource resource : stored.getResources() ) {
+                resources.put(resource.getUuid(), resource);
+            }
+        }
+        for ( MappingSnapshot.Resource resource : session.getResources() ) {
+            // the stored permissions are of the same model, keep them if
+            // the session has none cached
+            if ( !resource.getCells().isEmpty() || !resources.containsKey(resource.getUuid()) ) {
+                resources.put(resource.getUuid(), resource);
+            }
+        }
+        for ( MappingSnapshot.Resource resource : resources.values() ) {
+            snapshot.addResource(resource);
+        }
+
+        try {
+            store.save(snapshot);
+        } catch (IOException e) {
+            aLog.warn("could not save the snapshot to " + store.getDirectory() + ": " + e);
+        }
+    }
+}
@@ -14,8 +14,10 @@ import javax.swing.JTable;
 import javax.swing.JScrollPane;
 import javax.swing.JPanel;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingConstants;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import ch.ethz.infsec.secureumlgui.gui.*;
@@ -27,6 +29,9 @@ import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.ActionPermissionSet;
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
+import ch.ethz.infsec.secureumlgui.modelmapping.Cancellation;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPolicyExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.SnapshotStore;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.AtomicActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.CompositeActionWrapper;
@@ -57,7 +62,30 @@ public class TabSecureUml
     private Object target;
     private boolean shouldBeEnabled = false;
 
-    private boolean hack_init = false;
+    private volatile boolean hack_init = false;
+
+    /** maps the selected targets in the background */
+    private TargetMappingWorker worker = new TargetMappingWorker();
+
+    private static final String[] STORED_PERMISSIONS_COLUMNS =
+        { "Role", "Action", "Policy", "Flags" };
+
+    /** maps the elements displayed in an earlier session in advance */
+    private SnapshotWarmer snapshots = new SnapshotWarmer(
+        worker, new SnapshotStore(SnapshotStore.getDefaultDirectory()),
+        new SnapshotWarmer.Warmer()
+        {
+            public Object map(ModelElement element)
+            {
+                PreparedTarget prepared = mapTarget(element);
+                return prepared == null || prepared.suElement == null ? null : prepared;
+            }
+
+            public void warm(Object mapped)
+            {
+                deriveTarget((PreparedTarget) mapped);
+            }
+        });
 
     public TabSecureUml()
     {
@@ -209,8 +237,10 @@ public class TabSecureUml
         if(GenericDialectModelMapper.getInstance()==null) return;
         target = newTarget;
 
-        if(newTarget == null)
+        if(newTarget == null) {
+            worker.cancel();
             return;
+        }
 
         String newTargetClassName = newTarget.getClass().getSimpleName()
                                     .split(MetaModelConst.MDR_IMPL_SUFFIX_REGEXP)[0];
@@ -218,44 +248,171 @@ public class TabSecureUml
 
 
         if (newTarget instanceof ModelElement) {
-            ModelElement me = (ModelElement) newTarget;
+            final ModelElement me = (ModelElement) newTarget;
 
             // don't handle unnamed Elements
             if(me.getName() == null || me.getName().length() == 0) {
                 logger.info("unnamed model element");
+                worker.cancel();
                 onTargetSet(newTarget, null);
             } else { // if Element != null and named
                 logger.info("model element: " + me.getName());
+                snapshots.targetSelected(me);
+
+                // map the element on this thread once the selection has
+                // settled, as the mapping writes to the model, and derive
+                // its permissions in the background; only the newest
+                // target is displayed
+                worker.submit(new TargetMappingWorker.Task() {
+                    private PreparedTarget prepared;
+
+                    protected boolean prepare() {
+                        prepared = mapTarget(me);
+                        if (prepared == null || prepared.suElement == null) {
+                            displayTarget(prepared);
+                            return false;
+                        }
+                        showProgress(me);
+                        return true;
+                    }
 
-                try {
-                    ResourceType targetResourceType = GenericDialectHelper.getInstance().getSecureUmlType(me);
-                    if(targetResourceType != null ) {
-                        logger.info("targetResourceType: " + targetResourceType.getName());
-                        ModuleController.getInstance().initModelMapper();
-                        Object secureUmlElement = ModuleController.getInstance().transform(me);
+                    protected Object compute() throws Exception {
+                        return deriveTarget(prepared);
+                    }
 
-                        if(secureUmlElement == null) {
-                            logger.error("new target could not be mapped");
-                            return;
-                        }
-                    } else {
-                        logger.info("Could not find ResourceType for " + me);
-                        if ( ! hack_init && !me.getName().contains("untitled")) { //untitledModel
-                            hack_init = true;
-                            GenericDialectModelMapper.getInstance().transform(me);
-                        }
+                    protected void done(Object result) {
+                        displayTarget((PreparedTarget) result);
+                    }
 
+                    protected void failed(Exception ex) {
+                        //secureumlComponent.setErrorMessage(ex.getMessage());
+                        logger.logException(ex);
+                        setComponent(null);
                     }
+                });
+            }
+        }
+    }
 
-                    onTargetSet(newTarget, targetResourceType);
-                }
+    /** a target, mapped and ready to be displayed */
+    private static class PreparedTarget {
+        ModelElement me;
+        ResourceType resourceType;
+        AbstractSecureUmlComponent component;
+        Object suElement;
+        Object displayModel;
+    }
 
-                catch (Exception ex)  {
-                    //secureumlComponent.setErrorMessage(ex.getMessage());
-                    logger.logException(ex);
-                }
+    /**
+     * maps <code>me</code>, creating the elements the mapping needs (the
+     * SecureUML packages, the default policy). Writes to the model, so it
+     * runs on the event dispatch thread.
+     *
+     * @return null, if the target could not be mapped
+     */
+    private PreparedTarget mapTarget(ModelElement me) {
+        ResourceType targetResourceType = GenericDialectHelper.getInstance().getSecureUmlType(me);
+        if(targetResourceType != null ) {
+            logger.info("targetResourceType: " + targetResourceType.getName());
+            Object secureUmlElement = ModuleController.getInstance().mapTarget(me);
+
+            if(secureUmlElement == null) {
+                logger.error("new target could not be mapped");
+                return null;
+            }
+        } else {
+            logger.info("Could not find ResourceType for " + me);
+            if ( ! hack_init && !me.getName().contains("untitled")) { //untitledModel
+                hack_init = true;
+                GenericDialectModelMapper.getInstance().transform(me);
             }
         }
+
+        PreparedTarget prepared = new PreparedTarget();
+        prepared.me = me;
+        prepared.resourceType = targetResourceType;
+        if (targetResourceType != null) {
+            prepared.component = secureUmlComponents.get(targetResourceType);
+        }
+        if (prepared.component != null) {
+            prepared.suElement = ModelMap.getDefault().getElement(me);
+            if (prepared.suElement != null) {
+                // created on first use, not by the derivation
+                HierarchicalPolicyExplorer.getInstance().getDefaultPolicy();
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * computes what the component of a mapped target displays, i.e.
+     * derives its permissions. Only reads the model, runs on the
+     * background thread of the {@link #worker}: the derived composite
+     * permissions are plain values, see
+     * {@link ch.ethz.infsec.secureumlgui.modelmapping.permissions.CompositePermission}.
+     */
+    private PreparedTarget deriveTarget(PreparedTarget prepared) {
+        Cancellation.check();
+        prepared.displayModel = prepared.component.createDisplayModel(
+                                    prepared.suElement, prepared.resourceType);
+        return prepared;
+    }
+
+    /**
+     * shows the component of a prepared target, like
+     * {@link #onTargetSet(Object, ResourceType)}.
+     */
+    private void displayTarget(PreparedTarget prepared) {
+        if (prepared == null) {
+            setComponent(null);
+            return;
+        }
+        if (prepared.component == null) {
+            onTargetSet(prepared.me, prepared.resourceType);
+        } else if (prepared.suElement != null) {
+            prepared.component.setDisplayedSecureUmlElement(
+                prepared.suElement, prepared.resourceType, prepared.displayModel);
+            this.setComponent(prepared.component);
+            if (prepared.displayModel instanceof GenericResourcePermissionsTableModel) {
+                snapshots.resourceMapped(prepared.me,
+                    ((GenericResourcePermissionsTableModel) prepared.displayModel).getResourceWrapper());
+            }
+        } else {
+            setComponent(null);
+        }
+    }
+
+    /**
+     * shows a placeholder while the permissions of <code>me</code> are
+     * computed, with the permissions stored for it in an earlier session
+     * if there are any.
+     */
+    private void showProgress(ModelElement me) {
+        this.removeAll();
+        List<String[]> cells = snapshots.getStoredCells(me);
+        if (cells == null) {
+            this.add(new JLabel("Computing the permissions of " + me.getName() + " ...",
+                                SwingConstants.CENTER),
+                     BorderLayout.CENTER);
+        } else {
+            this.add(new JLabel("Stored permissions of " + me.getName()
+                                + ", computing the current ones ..."),
+                     BorderLayout.NORTH);
+            JTable table = new JTable(cells.toArray(new String[cells.size()][]),
+                                      STORED_PERMISSIONS_COLUMNS);
+            table.setEnabled(false);
+            this.add(new JScrollPane(table), BorderLayout.CENTER);
+        }
+        this.validate();
+        this.repaint();
+    }
+
+    /**
+     * ends the session of the current model, see
+     * {@link SnapshotWarmer#sessionEnded()}.
+     */
+    public void endSession() {
+        snapshots.sessionEnded();
     }
 
 
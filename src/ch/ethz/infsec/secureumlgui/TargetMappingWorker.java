@@ -0,0 +1,231 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.Cancellation;
+import ch.ethz.infsec.secureumlgui.modelmapping.MappingCancelledException;
+
+/**
+ * Runs the permission derivation for the selected target on a background
+ * thread, so that the ArgoUML user interface does not freeze while the
+ * permissions of a large resource are derived. The mapping writes to the
+ * model, so it stays on the event dispatch thread.
+ *
+ * Only the latest submitted task matters: a task starts after
+ * {@link #DEBOUNCE_MILLIS} without a newer one, and submitting a task
+ * cancels the previous one. The debounce runs on the event dispatch
+ * thread, where the task is prepared (see {@link Task#prepare()}), e.g.
+ * mapped, before it is computed on the background thread. Neither thread
+ * waits for the other. A running task is cancelled cooperatively, see
+ * {@link Cancellation}; its result is dropped in any case. The result is
+ * handed to {@link Task#done(Object)} on the event dispatch thread.
+ */
+public class TargetMappingWorker {
+
+    /** how long to wait for further target changes */
+    public static final long DEBOUNCE_MILLIS = 150;
+
+    /**
+     * work for a target.
+     */
+    public abstract static class Task {
+
+        /**
+         * prepares the task on the event dispatch thread, after the
+         * debounce delay; may write to the model.
+         *
+         * @return false, if there is nothing to compute
+         */
+        protected boolean prepare() throws Exception {
+            return true;
+        }
+
+        /**
+         * computes the result on the background thread. Must not touch
+         * Swing components nor write to the model.
+         */
+        protected abstract Object compute() throws Exception;
+
+        /** shows the result, on the event dispatch thread */
+        protected abstract void done(Object result);
+
+        /** reports a failure, on the event dispatch thread */
+        protected void failed(Exception e) {
+        }
+    }
+
+    private static Logger aLog = Logger.getLogger(TargetMappingWorker.class);
+
+    private final ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SecureUML mapping");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    /** the debounce of the latest task, on the event dispatch thread */
+    private Timer pending = null;
+
+    /** the token of the latest task */
+    private AtomicBoolean cancelled = null;
+
+    /** the latest task, until its result is handed over */
+    private Task current = null;
+
+    /**
+     * prepares <code>task</code> after the debounce delay and then
+     * computes it, cancelling the previous task. Call it on the event
+     * dispatch thread.
+     */
+    public synchronized void submit(final Task task) {
+        cancel();
+
+        final AtomicBoolean token = new AtomicBoolean(false);
+        cancelled = token;
+        current = task;
+        pending = new Timer((int) DEBOUNCE_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                prepare(task, token);
+            }
+        });
+        pending.setRepeats(false);
+        pending.start();
+    }
+
+    /**
+     * cancels the latest task; its result is not shown.
+     */
+    public synchronized void cancel() {
+        if ( pending != null ) {
+            pending.stop();
+            pending = null;
+        }
+        if ( cancelled != null ) {
+            cancelled.set(true);
+            cancelled = null;
+        }
+        current = null;
+    }
+
+    /**
+     * @return true, if a task was submitted and its result is not handed
+     *     over yet; background work of lower priority should wait
+     */
+    public synchronized boolean isBusy() {
+        return current != null;
+    }
+
+    /**
+     * runs <code>work</code> on the background thread after
+     * <code>delayMillis</code>, without cancelling the latest task. Long
+     * work should be split into short steps, each scheduling the next one,
+     * so that it does not hold up the tasks of new targets.
+     */
+    public void schedule(final Runnable work, long delayMillis) {
+        try {
+            executor.schedule(new Runnable() {
+                public void run() {
+                    try {
+                        work.run();
+                    } catch (RuntimeException e) {
+                        aLog.warn("background work failed", e);
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            aLog.debug("worker shut down, background work dropped");
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    /**
+     * prepares the task on the event dispatch thread and hands it to the
+     * background thread.
+     */
+    private void prepare(final Task task, final AtomicBoolean token) {
+        if ( token.get() ) {
+            return;
+        }
+
+        boolean compute;
+        try {
+            compute = task.prepare();
+        } catch (Exception e) {
+            finished(task);
+            task.failed(e);
+            return;
+        }
+        if ( !compute || token.get() ) {
+            finished(task);
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    execute(task, token);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished(task);
+            aLog.debug("worker shut down, task dropped");
+        }
+    }
+
+    private synchronized void finished(Task task) {
+        if ( current == task ) {
+            current = null;
+        }
+    }
+
+    private void execute(final Task task, final AtomicBoolean token) {
+        if ( token.get() ) {
+            return;
+        }
+
+        Cancellation.setToken(token);
+        try {
+            final Object result = task.compute();
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    finished(task);
+                    if ( !token.get() ) {
+                        task.done(result);
+                    }
+                }
+            });
+        } catch (MappingCancelledException e) {
+            aLog.debug("stale target, mapping cancelled");
+        } catch (final Exception e) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    finished(task);
+                    if ( !token.get() ) {
+                        task.failed(e);
+                    }
+                }
+            });
+        } finally {
+            Cancellation.setToken(null);
+        }
+    }
+}
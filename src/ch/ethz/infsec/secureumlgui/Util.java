@@ -1,6 +1,7 @@
 package ch.ethz.infsec.secureumlgui;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Iterator;
@@ -8,6 +9,10 @@ import java.util.Iterator;
 import org.omg.uml.foundation.core.Stereotype;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelConst;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
+import ch.ethz.infsec.secureumlgui.modelmapping.StereotypeIndex;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+import ch.ethz.infsec.secureumlgui.util.PropertyAccessors;
 
 /**
  * Misc. Utility methods.
@@ -85,111 +90,106 @@ public class Util
     public static boolean hasStereotype(
         org.omg.uml.foundation.core.ModelElement element, String stereotype)
     {
-        if (element == null || stereotype == null || stereotype.length() == 0)
-            return false;
+        return StereotypeIndex.getInstance().hasStereotype(element, stereotype);
+    }
 
-        Collection stereotypes = element.getStereotype();
-        int nofStereotypes = stereotypes.size();
+    public static Object invokeParameterlessMethod(Object object, String methodName)
+    {
+        if (object == null)
+        {
+            logger.error("trying to invoke "+methodName+" on null object");
+            return null;
+        }
 
-        if (stereotypes == null || stereotypes.size() == 0)
-            return false;
+        MethodHandle method =
+            PropertyAccessors.getMethodHandle(object.getClass(), methodName);
 
-        for (Iterator it = stereotypes.iterator(); it.hasNext();)
+        if (method == null)
         {
-            Stereotype s = (Stereotype) it.next();
-            if (s.getName().equals(stereotype))
-            {
-                return true;
-            }
+            logger.info("Problem invoking method '"
+                        + methodName + "' on: " + object
+                        + " - no such method");
+            return null;
         }
-        return false;
-    }
 
-    public static Object invokeParameterlessMethod(Object object, String methodName)
-    {
+        long start = MappingMetrics.start();
         try
         {
-            java.lang.reflect.Method getter =
-                object.getClass().getMethod(
-                    methodName, new Class[0]);
-
-            return getter.invoke(object, new Object[0]);
+            return PropertyAccessors.invoke(method, object);
         }
         catch (Exception e)
         {
             logger.info("Problem invoking method '"
                         + methodName + "' on: " + object);
-            Util.printInterfaces(object.getClass());
-
             logger.logException(e);
         }
+        finally
+        {
+            MappingMetrics.stop(Phase.PROPERTY_ACCESSOR, start);
+        }
         return null;
     }
 
     public static Object getProperty(Object object, String propertyName)
     {
-        // exception is only logged if both trys fail
-        Exception ex;
         if (object==null)
-            logger.error("trying to get property "+propertyName+" from null object");
-        try
         {
-            //logger.info("trying get"+capitalize(propertyName));
-            java.lang.reflect.Method getter = object.getClass().getMethod(
-                                                  "get" + capitalize(propertyName), new Class[0]);
-
-            return getter.invoke(object, new Object[0]);
+            logger.error("trying to get property "+propertyName+" from null object");
+            return null;
         }
-        catch (Exception e)
+
+        MethodHandle getter =
+            PropertyAccessors.getGetterHandle(object.getClass(), propertyName);
+
+        if (getter == null)
         {
-            ex = e;
+            logger.info("Problem getting property '"
+                        + propertyName + "' from: " + object
+                        + " - no getter");
+            return null;
         }
-        // boolean case
+
+        long start = MappingMetrics.start();
         try
         {
-            //logger.info("trying is"+capitalize(propertyName));
-            java.lang.reflect.Method getter = object.getClass().getMethod(
-                                                  "is" + capitalize(propertyName), new Class[0]);
-
-            return getter.invoke(object, new Object[0]);
+            return PropertyAccessors.invoke(getter, object);
         }
         catch (Exception e)
         {
             logger.info("Problem getting property '"
                         + propertyName + "' from: " + object);
-            Util.printInterfaces(object.getClass());
-
-            logger.logException(ex);
             logger.logException(e);
         }
+        finally
+        {
+            MappingMetrics.stop(Phase.PROPERTY_ACCESSOR, start);
+        }
         return null;
     }
 
     public static Object tryGetProperty(Object object, String propertyName)
     {
+        if (object == null)
+            return null;
+
+        MethodHandle getter =
+            PropertyAccessors.getGetterHandle(object.getClass(), propertyName);
+
+        if (getter == null)
+            return null;
+
+        long start = MappingMetrics.start();
         try
         {
-            java.lang.reflect.Method getter = object.getClass().getMethod(
-                                                  "get" + capitalize(propertyName), new Class[0]);
-
-            return getter.invoke(object, new Object[0]);
+            return PropertyAccessors.invoke(getter, object);
         }
         catch (Exception e)
         {
             //logger.logException(e);
-
-            // case for boolean properties
-            try
-            {
-                java.lang.reflect.Method getter = object.getClass().getMethod(
-                                                      "is" + capitalize(propertyName), new Class[0]);
-
-                return getter.invoke(object, new Object[0]);
-            }
-            catch (Exception ex)
-            {
-                //    logger.logException(e);
-            }
+        }
+        finally
+        {
+            MappingMetrics.stop(Phase.PROPERTY_ACCESSOR, start);
         }
         return null;
     }
@@ -201,35 +201,32 @@ public class Util
      */
     public static void setProperty(Object object, String propertyName, Object value)
     {
+        if (object == null)
+        {
+            logger.error("trying to set property "+propertyName+" on null object");
+            return;
+        }
+
+        long start = MappingMetrics.start();
         try
         {
-            java.lang.reflect.Method getter = null;
-            try
-            {
-                getter = object.getClass().getMethod(
-                             "get" + capitalize(propertyName), new Class[0]);
-            }
-            catch (Exception e)
-            {
-            }
+            java.lang.reflect.Method getter =
+                PropertyAccessors.getGetter(object.getClass(), propertyName);
+
             if(getter == null)
             {
-                try
-                {
-                    getter = object.getClass().getMethod(
-                                 "is" + capitalize(propertyName), new Class[0]);
-                }
-                catch (Exception e)
-                {
-                    logger.logException(e);
-                }
+                logger.error("Getter Method for Property '"
+                             + propertyName
+                             + "' not found on " + object);
+                return;
             }
 
-            if(getter.getReturnType() == Collection.class
-                    && getter.getParameterTypes().length == 0)
+            if(getter.getReturnType() == Collection.class)
             {
                 Collection collectionValue = (Collection)
-                                             getter.invoke(object, new Object[0]);
+                    PropertyAccessors.invoke(
+                        PropertyAccessors.getGetterHandle(object.getClass(), propertyName),
+                        object);
 
                 if(collectionValue != null)
                 {
@@ -238,28 +235,28 @@ public class Util
             }
             else
             {
-                Class[] setterArgTypes = { getter.getReturnType() };
+                MethodHandle setter =
+                    PropertyAccessors.getSetterHandle(object.getClass(), propertyName);
 
-                java.lang.reflect.Method setter = object.getClass().getMethod(
-                                                      "set" + capitalize(propertyName), setterArgTypes);
+                if(setter == null)
+                {
+                    logger.error("Setter Method for Property '"
+                                 + propertyName
+                                 + "' not found on " + object);
+                    return;
+                }
 
-                Object[] setterArgs = { value };
-                setter.invoke(object, setterArgs);
+                PropertyAccessors.invoke(setter, object, value);
             }
         }
-        catch(NoSuchMethodException e)
-        {
-            logger.error("Setter Method for Property '"
-                         + propertyName
-                         + "' not found: \n"
-                         + "Available Methods: \n");
-            Util.printInterfaces(object.getClass());
-
-        }
         catch (Exception e)
         {
             logger.logException(e);
         }
+        finally
+        {
+            MappingMetrics.stop(Phase.PROPERTY_ACCESSOR, start);
+        }
     }
 
     static MultiContextLogger logger = MultiContextLogger.getDefault();
@@ -1,18 +1,27 @@
 package ch.ethz.infsec.secureumlgui;
 
+import java.awt.BorderLayout;
+import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-
-import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
-
 import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javax.jmi.reflect.RefPackage;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
 
-import org.netbeans.api.xmi.XMIWriter;
-import org.netbeans.api.xmi.XMIWriterFactory;
+import org.apache.log4j.Logger;
 
-import java.io.FileOutputStream;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
 
 /**
  * ActionListener for the Write Xmi Menu item (FIXME: move to proper
@@ -20,17 +29,26 @@ import java.io.FileOutputStream;
  * contents of the repository. We should be more careful here to make
  * sure that really everything gets mapped. I.e., transform with a
  * "MapAll" strategie into a separate extent, and write from there.
+ *
+ * The file is written by an {@link XmiExport} on a background thread,
+ * while a modal dialog shows the progress and allows to cancel. The
+ * dialog keeps the user from changing the model during the export.
 
  * @version 1.0
  */
 // FIXME (JD): this can be made an inner class of SecureUmlModule?
 public class WriteXmiActionListener implements ActionListener {
 
+    private static Logger aLog = Logger.getLogger(WriteXmiActionListener.class);
 
     JFileChooser fc;
 
+    JCheckBox compressBox;
+
     WriteXmiActionListener() {
         fc = new JFileChooser();
+        compressBox = new JCheckBox("Compress (gzip)");
+        fc.setAccessory(compressBox);
     }
 
     /**
@@ -43,18 +61,93 @@ public class WriteXmiActionListener implements ActionListener {
 
         if (val == JFileChooser.APPROVE_OPTION) {
             File file = fc.getSelectedFile();
+            boolean compressed = compressBox.isSelected()
+                || file.getName().endsWith(XmiExport.GZIP_SUFFIX);
+            if ( compressed && !file.getName().endsWith(XmiExport.GZIP_SUFFIX) ) {
+                file = new File(file.getPath() + XmiExport.GZIP_SUFFIX);
+            }
 
             RefPackage model = (RefPackage) GenericDialectModelMapper.getInstance().dialectMetaModelInfo.getDialectExtent();
-            //System.out.print(mof);
-
-            XMIWriter writer = XMIWriterFactory.getDefault().createXMIWriter();
-            try {
-                FileOutputStream out = new FileOutputStream(file);
-                writer.write(out, model, null);
-            } catch (Exception e) {
-                System.out.println("Fatal error writing XMI.");
-                e.printStackTrace();
-            }
+
+            start(new XmiExport(model, file, compressed));
         }
     }
+
+    /**
+     * runs <code>export</code> on a background thread with a progress
+     * dialog.
+     */
+    private void start(final XmiExport export) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        final JLabel status = new JLabel("Writing " + export.getFile().getName() + " ...");
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        JButton cancel = new JButton("Cancel");
+
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(status, BorderLayout.NORTH);
+        panel.add(bar, BorderLayout.CENTER);
+        panel.add(cancel, BorderLayout.SOUTH);
+
+        // modal, so the model cannot be edited while it is written
+        final JDialog dialog = new JDialog((Frame) null, "Write XMI", true);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.getContentPane().add(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(null);
+
+        cancel.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                cancelled.set(true);
+                status.setText("Cancelling ...");
+            }
+        });
+
+        final XmiExport.Progress progress = new XmiExport.Progress() {
+            public void written(final long bytes) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if ( !cancelled.get() ) {
+                            status.setText("Writing " + export.getFile().getName() + " ... "
+                                           + bytes / 1024 + " KB");
+                        }
+                    }
+                });
+            }
+        };
+
+        Thread writer = new Thread("SecureUML XMI export") {
+            public void run() {
+                String error = null;
+                boolean done = false;
+                try {
+                    done = export.write(cancelled, progress);
+                } catch (Exception e) {
+                    aLog.error("Fatal error writing XMI to " + export.getFile(), e);
+                    error = "Could not write " + export.getFile() + ": " + e;
+                }
+                finish(dialog, done, error);
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+
+        // blocks until finish() disposes the dialog
+        dialog.setVisible(true);
+    }
+
+    private static void finish(final JDialog dialog, final boolean done, final String error) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                dialog.dispose();
+                if ( error != null ) {
+                    JOptionPane.showMessageDialog(null, error, "Write XMI", JOptionPane.ERROR_MESSAGE);
+                } else if ( !done ) {
+                    aLog.info("XMI export cancelled");
+                }
+            }
+        });
+    }
 }
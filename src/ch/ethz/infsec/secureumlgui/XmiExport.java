@@ -0,0 +1,177 @@
+package ch.ethz.infsec.secureumlgui;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import javax.jmi.reflect.RefPackage;
+
+import org.apache.log4j.Logger;
+import org.netbeans.api.xmi.XMIWriter;
+import org.netbeans.api.xmi.XMIWriterFactory;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+
+/**
+ * Writes an extent as XMI to a file, optionally gzip compressed.
+ *
+ * The XMI goes through a buffer to the channel of a temporary file next
+ * to the target, which replaces the target only when it is complete; a
+ * failed or cancelled export leaves the target as it was. The export
+ * can be cancelled through the token passed to {@link #write}, which is
+ * checked at every write of the XMI writer. The bytes written and the
+ * throughput are recorded in the {@link MappingMetrics}.
+ */
+public class XmiExport {
+
+    /** the extension of compressed exports */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** the bytes between two progress reports */
+    private static final long PROGRESS_STEP = 256 * 1024;
+
+    public interface Progress {
+        /** @param bytes the XMI bytes written so far, before compression */
+        void written(long bytes);
+    }
+
+    private static Logger aLog = Logger.getLogger(XmiExport.class);
+
+    private final RefPackage extent;
+
+    private final File file;
+
+    private final boolean compressed;
+
+    private long bytes;
+
+    /**
+     * @param compressed whether to write gzip compressed XMI
+     */
+    public XmiExport(RefPackage extent, File file, boolean compressed) {
+        this.extent = extent;
+        this.file = file;
+        this.compressed = compressed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** @return the XMI bytes written, before compression */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * writes the extent.
+     *
+     * @param cancelled cancels the export when set
+     * @param progress receives the progress, may be null
+     * @return false, if the export was cancelled
+     */
+    public boolean write(AtomicBoolean cancelled, Progress progress) throws IOException {
+        long start = MappingMetrics.start();
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            FileChannel channel = new FileOutputStream(temp).getChannel();
+            CountingOutputStream counter;
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            try {
+                if ( compressed ) {
+                    out = new GZIPOutputStream(out, BUFFER_SIZE);
+                }
+                counter = new CountingOutputStream(out, cancelled, progress);
+                out = counter;
+
+                XMIWriter writer = XMIWriterFactory.getDefault().createXMIWriter();
+                writer.write(out, extent, null);
+                out.flush();
+            } catch (IOException e) {
+                if ( cancelled.get() ) {
+                    return false;
+                }
+                throw e;
+            } finally {
+                // also finishes the compression
+                out.close();
+            }
+            bytes = counter.count;
+
+            if ( !temp.renameTo(file) ) {
+                // renaming onto an existing file fails on some platforms
+                file.delete();
+                if ( !temp.renameTo(file) ) {
+                    throw new IOException("could not rename " + temp + " to " + file);
+                }
+            }
+        } finally {
+            temp.delete();
+        }
+
+        MappingMetrics.stopExport(bytes, start);
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("wrote " + bytes + " bytes of XMI to " + file
+                       + (compressed ? " (" + file.length() + " compressed)" : ""));
+        }
+        return true;
+    }
+
+    /**
+     * counts the bytes, reports the progress and stops the export when
+     * it is cancelled.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private final AtomicBoolean cancelled;
+
+        private final Progress progress;
+
+        private long count;
+
+        private long reported;
+
+        CountingOutputStream(OutputStream out, AtomicBoolean cancelled, Progress progress) {
+            super(out);
+            this.cancelled = cancelled;
+            this.progress = progress;
+        }
+
+        public void write(int b) throws IOException {
+            check();
+            out.write(b);
+            written(1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            check();
+            out.write(b, off, len);
+            written(len);
+        }
+
+        private void check() throws IOException {
+            if ( cancelled.get() ) {
+                throw new InterruptedIOException("XMI export cancelled");
+            }
+        }
+
+        private void written(int len) {
+            count += len;
+            if ( progress != null && count - reported >= PROGRESS_STEP ) {
+                reported = count;
+                progress.written(count);
+            }
+        }
+    }
+}
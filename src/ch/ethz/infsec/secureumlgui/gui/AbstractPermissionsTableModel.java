@@ -27,6 +27,7 @@ import ch.ethz.infsec.secureumlgui.modelmapping.permissions.ActionPermissionSet;
 
 import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 import ch.ethz.infsec.secureumlgui.securemodelimpl.SecureModelFactory;
 import ch.ethz.infsec.secureumlgui.transformation.ModelMap;
 
@@ -56,7 +57,7 @@ public abstract class AbstractPermissionsTableModel
         roleWrappers.clear();
 
         for (Object role : ModuleController.getInstance().getAllRoles(resource)) {
-            RoleWrapper rw = new RoleWrapper(role);
+            RoleWrapper rw = WrapperFactory.getRoleWrapper(role);
             roleWrappers.add(rw);
         }
     }
@@ -175,7 +176,7 @@ public abstract class AbstractPermissionsTableModel
             SecureModelFactory.getInstance().
             createPermission();
 
-        PermissionWrapper p = new PermissionWrapper(o);
+        PermissionWrapper p = WrapperFactory.getPermissionWrapper(o);
         p.setRoleWrapper(roleWrapper);
 
 
@@ -54,6 +54,32 @@ public abstract class AbstractSecureUmlComponent
 
     }
 
+    /**
+     * computes what is displayed for <code>suElement</code>, e.g. the
+     * table model of its permissions. Called on a background thread by
+     * {@link ch.ethz.infsec.secureumlgui.TabSecureUml}, so it must not
+     * touch Swing components.
+     *
+     * @return the model to be passed to
+     *     {@link #setDisplayedSecureUmlElement(Object, ResourceType, Object)},
+     *     null if there is nothing to prepare
+     */
+    public Object createDisplayModel(Object suElement, ResourceType rt)
+    {
+        return null;
+    }
+
+    /**
+     * displays <code>suElement</code> with the model computed by
+     * {@link #createDisplayModel(Object, ResourceType)}, on the event
+     * dispatch thread.
+     */
+    public void setDisplayedSecureUmlElement(
+        Object suElement, ResourceType rt, Object displayModel)
+    {
+        setDisplayedSecureUmlElement(suElement, rt);
+    }
+
     /**
      *
      */
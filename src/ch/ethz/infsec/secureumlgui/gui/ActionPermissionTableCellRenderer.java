@@ -18,6 +18,7 @@ import ch.ethz.infsec.secureumlgui.ModuleController;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.ActionPermissionSet;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  *
@@ -65,7 +66,7 @@ public class ActionPermissionTableCellRenderer
 
             container = new
             ActionPermissionsTableCellRendererComponent(
-                actionPermissions, new PolicyWrapper(ModuleController.getInstance().getModelMap().getElement(currentPolicy)));
+                actionPermissions, WrapperFactory.getPolicyWrapper(ModuleController.getInstance().getModelMap().getElement(currentPolicy)));
 
             return container;
 
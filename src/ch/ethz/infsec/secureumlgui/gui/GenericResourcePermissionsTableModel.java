@@ -11,6 +11,7 @@ import org.omg.uml.foundation.core.ModelElement;
 
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.ActionPermissionSet;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.EffectivePermissionsCache;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPolicyExplorer;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
@@ -24,6 +25,7 @@ import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * Swing table model for the permission table displayed in the
@@ -40,6 +42,9 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
     Collection<ActionWrapper> actionWrappers;
     private static Logger aLog = Logger.getLogger(GenericResourcePermissionsTableModel.class);
 
+    /** the view of the permission sets of this table in the cache */
+    private static final String RESOURCE_TABLE_VIEW = "resourceTable";
+
 
     public GenericResourcePermissionsTableModel(
         ResourceWrapper resourceWrapper)
@@ -50,6 +55,22 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
     }
 
 
+    /**
+     * @return the permissions of <code>resource</code> as computed for a
+     *         table and still cached, null if there are none
+     */
+    public static PermissionSet getCachedPermissions(ResourceWrapper resource)
+    {
+        return EffectivePermissionsCache.getInstance().getCachedPermissions(resource, RESOURCE_TABLE_VIEW);
+    }
+
+
+    public ResourceWrapper getResourceWrapper()
+    {
+        return resourceWrapper;
+    }
+
+
     /**
      * @param resourceWrapper
      */
@@ -59,8 +80,6 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
 
         this.resourceWrapper = resourceWrapper;
 
-        initActionPermissionSets();
-
         // init
 //		TODO realy needed????
 //		Object suModelElement = resourceWrapper.getModelElement();
@@ -70,11 +89,31 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
 
         actionWrappers = resourceWrapper.getActionWrapper();
 
-        initExplicitPermissions(resourceWrapper);
+        permissions = EffectivePermissionsCache.getInstance().getPermissions(resourceWrapper, RESOURCE_TABLE_VIEW,
+        new EffectivePermissionsCache.Loader() {
+            public PermissionSet load(ResourceWrapper resource) {
+                return createPermissions(resource);
+            }
+        });
+    }
+
+
+    /**
+     * computes the explicit and non explicit permissions of all roles on
+     * the resource.
+     */
+    private PermissionSet createPermissions(ResourceWrapper resource) {
+        permissions = new PermissionSet();
+
+        initActionPermissionSets();
+
+        initExplicitPermissions(resource);
 
         HierarchicalPermissionsExplorer permissionsExplorer = new HierarchicalPermissionsExplorer();
 
-        permissionsExplorer.collectNonExplicitPermissions(resourceWrapper, permissions);
+        permissionsExplorer.collectNonExplicitPermissions(resource, permissions);
+
+        return permissions;
     }
 
 
@@ -151,7 +190,7 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
 //					}
 
                     ResourcePermissionsSet rps = permissions.getResourcePermissionsSet(
-                                                     new RoleWrapper(role.getModelElement()));
+                                                     WrapperFactory.getRoleWrapper(role.getModelElement()));
 
                     //hel ActionPermissionSet aps = rps.getPermissions(actionName);
                     ActionPermissionSet aps = rps.getPermissions(action.getName());
@@ -191,8 +230,11 @@ public class GenericResourcePermissionsTableModel extends AbstractPermissionsTab
         else  { // other columns - i.e. return ROLEs and the assigned permissions
             RoleWrapper roleWrapper = roleWrappers.get(col-1);
 
+            // the set may be shared by the cache, don't add roles to it
             ResourcePermissionsSet resourcePermissions =
-                permissions.getResourcePermissionsSet(roleWrapper);
+                permissions.findResourcePermissionsSet(roleWrapper);
+            if(resourcePermissions == null)
+                return new ActionPermissionSet();
 
             ActionPermissionSet actionPermissions =
                 resourcePermissions.getPermissions(aw.getName());
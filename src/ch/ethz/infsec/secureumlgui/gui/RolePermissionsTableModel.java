@@ -109,12 +109,13 @@ public class RolePermissionsTableModel extends AbstractTableModel
 ////                            + "\n");
 //                }
 
-                PermissionSet permissions = hps.getExplicitPermissions(permission.getActionWrapper().getResourceWrapper());
-
-                hps.collectNonExplicitPermissions(permission.getActionWrapper().getResourceWrapper(), permissions);
+                PermissionSet permissions = hps.getEffectivePermissions(permission.getActionWrapper().getResourceWrapper());
 
+                // the set is shared by the cache, don't add roles to it
                 ResourcePermissionsSet rps =
-                    permissions.getResourcePermissionsSet(roleWrapper);
+                    permissions.findResourcePermissionsSet(roleWrapper);
+                if (rps == null)
+                    continue;
 
                 // collect implicit permissions
                 for (Iterator iterator = rps.getActions().iterator(); iterator
@@ -123,7 +124,7 @@ public class RolePermissionsTableModel extends AbstractTableModel
                     Object action = iterator.next();
 
                     ActionPermissionSet aps =
-                        rps.getPermissions(action);
+                        rps.findPermissions(action);
 
                     aLog.warn("setCurrentRole: which policy? using default policy");
 
@@ -46,6 +46,7 @@ import ch.ethz.infsec.secureumlgui.wrapper.CompositeActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
 import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * generic SecureUML properties component for Resources.
@@ -399,13 +400,28 @@ public class SecureUmlComponent
 
     public void setDisplayedSecureUmlElement(
         Object suElement, ResourceType rt)
+    {
+        setDisplayedSecureUmlElement(suElement, rt,
+                                     createDisplayModel(suElement, rt));
+    }
+
+    @Override
+    public Object createDisplayModel(Object suElement, ResourceType rt)
+    {
+        return new GenericResourcePermissionsTableModel(
+                   WrapperFactory.getResourceWrapper(suElement));
+    }
+
+    @Override
+    public void setDisplayedSecureUmlElement(
+        Object suElement, ResourceType rt, Object displayModel)
     {
         aLog.debug("setDisplayedSecureUmlElement");
         updatePolicyTabs();
         super.setDisplayedSecureUmlElement(suElement, rt);
         lbType.setText(rt.getName());
-        this.displayedResourceWrapper = new ResourceWrapper(suElement);
-        this.tableModel = new GenericResourcePermissionsTableModel(displayedResourceWrapper);
+        this.displayedResourceWrapper = WrapperFactory.getResourceWrapper(suElement);
+        this.tableModel = (GenericResourcePermissionsTableModel) displayModel;
 
         //setDisplayedResourceWrapper(tableModel);
         setDisplayedResourceWrapper();
@@ -22,6 +22,7 @@ import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionValue;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * SecureUML Properties component for Roles.
@@ -119,9 +120,23 @@ public class SecureUmlRoleComponent extends AbstractSecureUmlComponent
     {
         try
         {
-            RolePermissionsTableModel tableModel =
-                new RolePermissionsTableModel(
-                displayedRoleWrapper);
+            displayPermissions(new RolePermissionsTableModel(
+                                   displayedRoleWrapper));
+        }
+        catch (Exception e)
+        {
+            logger.logException(e);
+        }
+    }
+
+    /**
+     * displays the permissions of <code>tableModel</code>, which may
+     * have been computed in the background.
+     */
+    protected void displayPermissions(RolePermissionsTableModel tableModel)
+    {
+        try
+        {
 
             //tblPermissions.setModel(tableModel);
 
@@ -154,8 +169,31 @@ public class SecureUmlRoleComponent extends AbstractSecureUmlComponent
         // TODO Auto-generated method stub
         super.setDisplayedSecureUmlElement(suElement, rt);
 
-        setDisplayedRoleWrapper(new RoleWrapper(suElement));
+        setDisplayedRoleWrapper(WrapperFactory.getRoleWrapper(suElement));
+
+    }
+
+    @Override
+    public Object createDisplayModel(Object suElement, ResourceType rt)
+    {
+        return new RolePermissionsTableModel(
+                   WrapperFactory.getRoleWrapper(suElement));
+    }
+
+    @Override
+    public void setDisplayedSecureUmlElement(
+        Object suElement, ResourceType rt, Object displayModel)
+    {
+        super.setDisplayedSecureUmlElement(suElement, rt);
+
+        RoleWrapper roleWrapper = WrapperFactory.getRoleWrapper(suElement);
+        this.displayedRoleWrapper = roleWrapper;
+        tblPermissions.setDefaultRenderer(
+            PermissionValue.class,
+            new PermissionIconTableCellRenderer());
+        txName.setText(roleWrapper.getName());
 
+        displayPermissions((RolePermissionsTableModel) displayModel);
     }
 
 }
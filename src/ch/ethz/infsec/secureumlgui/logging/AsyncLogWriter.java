@@ -0,0 +1,196 @@
+package ch.ethz.infsec.secureumlgui.logging;
+
+import java.io.PrintStream;
+
+/**
+ * Writes the messages of the {@link SimpleLogger}s on a background
+ * thread, so that logging does not slow down the mapping: a message is
+ * put into a preallocated ring buffer together with the indentation it
+ * was logged with, and split, wrapped and printed by the writer thread.
+ * Queuing a message allocates nothing.
+ *
+ * If the buffer is full, the logging thread waits until the writer has
+ * made room, so no message is lost. The buffer is flushed when the JVM
+ * exits, see {@link #flush(long)}. Errors of the writer thread are
+ * reported to the fallback stream.
+ */
+public class AsyncLogWriter implements Runnable
+{
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // the slots of the ring buffer, one entry per field of a message
+    private final PrintStream[] outs;
+    private final String[] indents;
+    private final String[] additionalLineIndents;
+    private final int[] maxCharactersPerLines;
+    private final String[] messages;
+
+    private final PrintStream fallback;
+
+    private final Object lock = new Object();
+
+    /** number of messages put into the buffer, guarded by lock */
+    private long enqueued = 0;
+
+    /** number of messages taken from the buffer and written, guarded by lock */
+    private long written = 0;
+
+    /**
+     * creates the writer and starts its thread, reporting errors to
+     * <code>System.err</code>.
+     */
+    public AsyncLogWriter(int capacity)
+    {
+        this(capacity, System.err);
+    }
+
+    /**
+     * @param fallback the stream errors of the writer thread are reported
+     *        to
+     */
+    public AsyncLogWriter(int capacity, PrintStream fallback)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity);
+
+        outs = new PrintStream[capacity];
+        indents = new String[capacity];
+        additionalLineIndents = new String[capacity];
+        maxCharactersPerLines = new int[capacity];
+        messages = new String[capacity];
+        this.fallback = fallback;
+
+        Thread writer = new Thread(this, "SecureUML log writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread("SecureUML log flush")
+        {
+            public void run()
+            {
+                flush(1000);
+            }
+        });
+    }
+
+    /**
+     * queues <code>message</code> to be printed to <code>out</code>, see
+     * {@link SimpleLogger#writeString}. Waits while the buffer is full;
+     * if interrupted meanwhile, writes the message itself.
+     */
+    public void write(PrintStream out, String indent, String additionalLineIndent,
+                      int maxCharactersPerLine, String message)
+    {
+        synchronized (lock)
+        {
+            while (enqueued - written == messages.length)
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    SimpleLogger.writeString(out, indent, additionalLineIndent,
+                                             maxCharactersPerLine, message);
+                    return;
+                }
+            }
+
+            int slot = (int) (enqueued % messages.length);
+            outs[slot] = out;
+            indents[slot] = indent;
+            additionalLineIndents[slot] = additionalLineIndent;
+            maxCharactersPerLines[slot] = maxCharactersPerLine;
+            messages[slot] = message;
+            enqueued++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * waits until the messages queued so far are written.
+     *
+     * @param timeoutMillis how long to wait at most
+     */
+    public void flush(long timeoutMillis)
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock)
+        {
+            long target = enqueued;
+            while (written < target)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return;
+                try
+                {
+                    lock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void run()
+    {
+        while (true)
+        {
+            PrintStream out;
+            String indent;
+            String additionalLineIndent;
+            int maxCharactersPerLine;
+            String message;
+
+            synchronized (lock)
+            {
+                while (written == enqueued)
+                {
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+
+                // the slot stays reserved until the message is written
+                int slot = (int) (written % messages.length);
+                out = outs[slot];
+                indent = indents[slot];
+                additionalLineIndent = additionalLineIndents[slot];
+                maxCharactersPerLine = maxCharactersPerLines[slot];
+                message = messages[slot];
+                outs[slot] = null;
+                indents[slot] = null;
+                additionalLineIndents[slot] = null;
+                messages[slot] = null;
+            }
+
+            try
+            {
+                SimpleLogger.writeString(out, indent, additionalLineIndent,
+                                         maxCharactersPerLine, message);
+            }
+            catch (RuntimeException e)
+            {
+                fallback.println("[ERROR] could not write a log message: " + e);
+                fallback.println(message);
+            }
+
+            synchronized (lock)
+            {
+                written++;
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ch.ethz.infsec.secureumlgui.logging;
+
+/**
+ * A log message which is only built if it is logged, e.g.
+ *
+ * <pre>
+ * logger.info(MultiContextLogger.MODELMAPPER_DETAILLED, new LogMessage()
+ * {
+ *     public String getMessage()
+ *     {
+ *         return "found " + elements.size() + " elements";
+ *     }
+ * });
+ * </pre>
+ *
+ * On hot paths, guarding the call with
+ * {@link MultiContextLogger#isEnabled(int, LoggerContext)} avoids even
+ * the allocation of the message object.
+ */
+public interface LogMessage
+{
+    String getMessage();
+}
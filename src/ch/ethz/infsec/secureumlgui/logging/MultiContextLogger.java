@@ -1,6 +1,8 @@
 package ch.ethz.infsec.secureumlgui.logging;
 
-import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
 import ch.ethz.infsec.secureumlgui.util.NotImplementedException;
 
 public class MultiContextLogger extends SimpleLogger
@@ -66,7 +68,8 @@ public class MultiContextLogger extends SimpleLogger
     }
 
     // disabling / enabling contexts
-    HashSet<LoggerContext> disabledLoggers = new HashSet<LoggerContext>();
+    // read on every log call, changed rarely
+    Set<LoggerContext> disabledLoggers = new CopyOnWriteArraySet<LoggerContext>();
 
     public boolean isLoggerContextDisabled(LoggerContext context)
     {
@@ -81,7 +84,28 @@ public class MultiContextLogger extends SimpleLogger
 
     public void disableLoggerContext(LoggerContext context)
     {
-        //disabledLoggers.add(context);
+        disabledLoggers.add(context);
+    }
+
+    /**
+     * @return true, if messages of <code>type</code> in
+     *     <code>context</code> are logged. Use it to guard messages which
+     *     are expensive to build.
+     */
+    public boolean isEnabled(int type, LoggerContext context)
+    {
+        return isLevelEnabled(type)
+            && context != null && !isLoggerContextDisabled(context);
+    }
+
+    public boolean isInfoEnabled()
+    {
+        return isLevelEnabled(INFORMATIONAL);
+    }
+
+    public boolean isInfoEnabled(LoggerContext context)
+    {
+        return isEnabled(INFORMATIONAL, context);
     }
 
 
@@ -156,6 +180,8 @@ public class MultiContextLogger extends SimpleLogger
 
     public void log(int type, LoggerContext context, String message)
     {
+        if (!isLevelEnabled(type))
+            return;
 //        if(context != null && !isLoggerContextDisabled(context))
 //        {
         logContext(context);
@@ -169,10 +195,22 @@ public class MultiContextLogger extends SimpleLogger
 
     public void log(int type, String message)
     {
+        if (!isLevelEnabled(type))
+            return;
         logContext(getDefaultContext());
         super.log(type, message);
     }
 
+    /**
+     * logs the message of <code>message</code>, which is only built if
+     * <code>context</code> is enabled for <code>type</code>.
+     */
+    public void log(int type, LoggerContext context, LogMessage message)
+    {
+        if (isEnabled(type, context))
+            log(type, context, message.getMessage());
+    }
+
 //    public void log(String message)
 //    {
 //        logContext(getCurrentContext());
@@ -184,6 +222,12 @@ public class MultiContextLogger extends SimpleLogger
         //For release, just log warnings and errors, not informational messages.
         log(2,message);
     }
+
+    public void info(LogMessage message)
+    {
+        if (isInfoEnabled())
+            info(message.getMessage());
+    }
     public void warn(String message)
     {
         log(1,message);
@@ -273,6 +317,12 @@ public class MultiContextLogger extends SimpleLogger
 
     }
 
+    public void info(LoggerContext context, LogMessage message)
+    {
+        if (isInfoEnabled(context))
+            info(context, message.getMessage());
+    }
+
     public void warn(LoggerContext context, String message)
     {
         if(context != null && !isLoggerContextDisabled(context))
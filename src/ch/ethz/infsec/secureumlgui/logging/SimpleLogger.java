@@ -1,5 +1,6 @@
 package ch.ethz.infsec.secureumlgui.logging;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 
 
@@ -20,6 +21,92 @@ public class SimpleLogger implements SimpleMessageSink
 
     /* Logger Properties */
 
+    /** where all loggers print to */
+    private static PrintStream out = System.out;
+
+    /**
+     * print the messages of all loggers to <code>stream</code>, e.g. to
+     * keep the standard output of a batch run free.
+     */
+    public static void setOutput(PrintStream stream)
+    {
+        out = stream;
+    }
+
+    /** the least important type of messages logged by all loggers */
+    private static volatile int level = INFORMATIONAL;
+
+    /**
+     * log only messages of type <code>level</code> or more important,
+     * e.g. {@link #WARNING} for warnings and errors.
+     */
+    public static void setLevel(int level)
+    {
+        SimpleLogger.level = level;
+    }
+
+    public static int getLevel()
+    {
+        return level;
+    }
+
+    /** @return true, if messages of <code>type</code> are logged */
+    public static boolean isLevelEnabled(int type)
+    {
+        return type <= level;
+    }
+
+    /**
+     * the system property enabling the {@link AsyncLogWriter} at startup,
+     * e.g. <code>-Dsecureuml.log.async=true</code>
+     */
+    public static final String ASYNCHRONOUS_PROPERTY = "secureuml.log.async";
+
+    private static boolean asynchronous = Boolean.getBoolean(ASYNCHRONOUS_PROPERTY);
+
+    /** null, if not asynchronous or nothing was logged yet */
+    private static AsyncLogWriter asyncWriter = null;
+
+    /**
+     * if true, the messages are written by an {@link AsyncLogWriter},
+     * otherwise (the default, unless {@link #ASYNCHRONOUS_PROPERTY} is
+     * set) by the logging thread.
+     */
+    public static synchronized void setAsynchronous(boolean asynchronous)
+    {
+        if (!asynchronous)
+            flush();
+        SimpleLogger.asynchronous = asynchronous;
+    }
+
+    public static synchronized boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    /**
+     * waits (at most a second) until the messages logged so far are
+     * written.
+     */
+    public static void flush()
+    {
+        AsyncLogWriter writer;
+        synchronized (SimpleLogger.class)
+        {
+            writer = asyncWriter;
+        }
+        if (writer != null)
+            writer.flush(1000);
+    }
+
+    /** @return the writer, or null if not asynchronous */
+    private static synchronized AsyncLogWriter getAsyncWriter()
+    {
+        if (asynchronous && asyncWriter == null)
+            asyncWriter = new AsyncLogWriter(AsyncLogWriter.DEFAULT_CAPACITY);
+        return asynchronous ? asyncWriter : null;
+    }
+
     protected boolean verbose = true;
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
@@ -87,6 +174,9 @@ public class SimpleLogger implements SimpleMessageSink
 
     public void log(int type, String message)
     {
+        if (!isLevelEnabled(type))
+            return;
+
         String out_message = "";
         try
         {
@@ -143,49 +233,67 @@ public class SimpleLogger implements SimpleMessageSink
 //        }
 //    }
 
-    // advanced multiline support
+    /**
+     * prints <code>s</code>, see {@link #writeString}. Asynchronously, if
+     * {@link #isAsynchronous()}.
+     */
     public void printString(String s)
     {
-        if(maxCharactersPerLine < 1)
+        if(maxCharactersPerLine < 1 || s == null)
             return;
+
+        AsyncLogWriter writer = getAsyncWriter();
+        if (writer != null)
+            writer.write(out, indent, additionalLineIndent, maxCharactersPerLine, s);
+        else
+            writeString(out, indent, additionalLineIndent, maxCharactersPerLine, s);
+    }
+
+    // advanced multiline support
+    /**
+     * prints the lines of <code>s</code> to <code>out</code>, wrapped
+     * after <code>maxCharactersPerLine</code> characters. The first line
+     * is indented with <code>indent</code>, the others with
+     * <code>additionalLineIndent</code>.
+     */
+    static void writeString(PrintStream out, String indent,
+                            String additionalLineIndent,
+                            int maxCharactersPerLine, String s)
+    {
         try
         {
-            if(s!=null)
-            {
+            String[] lines = s.split("\n");
 
-                String[] lines = s.split("\n");
+            //if(lines.length > 1)
+            //System.out.println("@@@@@ logging " + lines.length + " lines");
 
-                //if(lines.length > 1)
-                //System.out.println("@@@@@ logging " + lines.length + " lines");
+            String firstline = lines[0];
+            int startindex = 0;
+            // print first line - with original indent
+            if(firstline.length() <= maxCharactersPerLine)
+            {
+                out.println(indent + firstline);
+                startindex = 1;
+            }
+            else
+            {
+                out.println(indent + firstline.substring(0, maxCharactersPerLine));
+                lines[0] = firstline.substring(maxCharactersPerLine);
+                startindex = 0;
+            }
 
-                String firstline = lines[0];
-                int startindex = 0;
-                // print first line - with original indent
-                if(firstline.length() <= maxCharactersPerLine)
-                {
-                    System.out.println(indent + firstline);
-                    startindex = 1;
-                }
-                else
+            // print other lines with empty indent
+            // one longer than the orignial indent
+            for (int i = startindex; i < lines.length; i++)
+            {
+                String line = lines[i];
+                while(line.length() > maxCharactersPerLine)
                 {
-                    System.out.println(indent + firstline.substring(0, maxCharactersPerLine));
-                    lines[0] = firstline.substring(maxCharactersPerLine);
-                    startindex = 0;
+                    out.println(additionalLineIndent + line.substring(0, maxCharactersPerLine));
+                    line = line.substring(maxCharactersPerLine);
                 }
 
-                // print other lines with empty indent
-                // one longer than the orignial indent
-                for (int i = startindex; i < lines.length; i++)
-                {
-                    String line = lines[i];
-                    while(line.length() > maxCharactersPerLine)
-                    {
-                        System.out.println(additionalLineIndent + line.substring(0, maxCharactersPerLine));
-                        line = line.substring(maxCharactersPerLine);
-                    }
-
-                    System.out.println(additionalLineIndent + line);
-                }
+                out.println(additionalLineIndent + line);
             }
         }
         catch (Exception e)
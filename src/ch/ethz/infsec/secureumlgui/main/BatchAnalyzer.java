@@ -0,0 +1,375 @@
+package ch.ethz.infsec.secureumlgui.main;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.argouml.model.Model;
+import org.netbeans.mdr.handlers.BaseObjectHandler;
+import org.omg.uml.foundation.core.ModelElement;
+import org.xml.sax.InputSource;
+
+import ch.ethz.infsec.secureumlgui.ModuleController;
+import ch.ethz.infsec.secureumlgui.logging.SimpleLogger;
+import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionDerivationEngine;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionReport;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionSet;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PolicyDecisionCompiler;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.PolicyDecisionTable;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.MappingSnapshot;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.ModelDigest;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.SnapshotStore;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.DialectMetaModelParser;
+import ch.ethz.infsec.secureumlgui.transformation.ModelMap;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
+
+/**
+ * Maps a model and computes the effective permissions of all its
+ * resources without the ArgoUML GUI, e.g. in batch jobs.
+ *
+ * <pre>
+ * java ch.ethz.infsec.secureumlgui.main.BatchAnalyzer
+ *     [-dialect metamodels/securecomponentuml_mof.xmi]
+ *     [-format csv|json] [-out report.csv] [-sequential]
+ *     [-snapshots ~/.argouml/secureuml-snapshots] [-table decisions.table]
+ *     model.zargo|model.xmi
+ * </pre>
+ *
+ * The classpath must contain the ArgoUML jars. The report (see
+ * {@link PermissionReport}) goes to the standard output unless
+ * <code>-out</code> is given; the messages of the mapping and the timing
+ * of the phases go to the standard error.
+ *
+ * With <code>-snapshots</code>, the effective permissions are stored in
+ * the given directory (see {@link SnapshotStore}), and the report of an
+ * unchanged model analyzed before with the same dialect is written from
+ * the snapshot, without mapping the model again.
+ *
+ * With <code>-table</code>, the effective permissions are also compiled
+ * into a {@link PolicyDecisionTable} written to the given file. The
+ * table needs the derived permissions, so a snapshot is not used then.
+ */
+public class BatchAnalyzer {
+
+    private static Logger aLog = Logger.getLogger(BatchAnalyzer.class);
+
+    /** the MDR based model implementation of ArgoUML */
+    private static final String MODEL_IMPLEMENTATION =
+        "org.argouml.model.mdr.MDRModelImplementation";
+
+    private static final String DEFAULT_DIALECT =
+        "metamodels/securecomponentuml_mof.xmi";
+
+    private File dialectFile = new File(DEFAULT_DIALECT);
+
+    private File modelFile;
+
+    private File outputFile;
+
+    private PermissionReport.Format format = PermissionReport.Format.CSV;
+
+    private boolean parallel = true;
+
+    /** null, if no snapshots are used */
+    private File snapshotDirectory;
+
+    /** null, if no decision table is compiled */
+    private File tableFile;
+
+    private PrintStream messages = System.err;
+
+    private long phaseStart;
+
+    public static void main(String[] args) {
+        BatchAnalyzer analyzer = new BatchAnalyzer();
+        if ( !analyzer.parseArguments(args) ) {
+            System.err.println("usage: BatchAnalyzer [-dialect <dialect_mof.xmi>] [-format csv|json]"
+                               + " [-out <file>] [-sequential] [-snapshots <directory>] [-table <file>]"
+                               + " <model.zargo|model.xmi>");
+            System.exit(2);
+        }
+
+        try {
+            analyzer.run();
+        } catch (Exception e) {
+            aLog.error("analysis failed", e);
+            System.err.println("analysis failed: " + e);
+            System.exit(1);
+        }
+        // the model implementation may keep non daemon threads
+        System.exit(0);
+    }
+
+    /**
+     * @return false, if the arguments are invalid
+     */
+    public boolean parseArguments(String[] args) {
+        for ( int i = 0; i < args.length; i++ ) {
+            String arg = args[i];
+            if ( arg.equals("-sequential") ) {
+                parallel = false;
+            } else if ( arg.startsWith("-") ) {
+                if ( i + 1 >= args.length ) {
+                    return false;
+                }
+                String value = args[++i];
+                if ( arg.equals("-dialect") ) {
+                    dialectFile = new File(value);
+                } else if ( arg.equals("-snapshots") ) {
+                    snapshotDirectory = new File(value);
+                } else if ( arg.equals("-table") ) {
+                    tableFile = new File(value);
+                } else if ( arg.equals("-out") ) {
+                    outputFile = new File(value);
+                } else if ( arg.equals("-format") && value.equalsIgnoreCase("csv") ) {
+                    format = PermissionReport.Format.CSV;
+                } else if ( arg.equals("-format") && value.equalsIgnoreCase("json") ) {
+                    format = PermissionReport.Format.JSON;
+                } else {
+                    return false;
+                }
+            } else if ( modelFile == null ) {
+                modelFile = new File(arg);
+            } else {
+                return false;
+            }
+        }
+        return modelFile != null;
+    }
+
+    /**
+     * loads the dialect and the model, maps all resources and writes the
+     * report.
+     */
+    public void run() throws Exception {
+        // the mapper logs to the standard output
+        SimpleLogger.setOutput(messages);
+
+        startPhase();
+        initialiseRepository();
+        endPhase("initialise model repository", 0);
+
+        startPhase();
+        DialectMetaModelInfo mmInfo = new DialectMetaModelParser().loadDialect(dialectFile);
+        endPhase("load dialect " + dialectFile.getName(), mmInfo.getResourceTypes().size());
+
+        startPhase();
+        ModelElement root = loadModel(modelFile);
+        endPhase("load model " + modelFile.getName(), 1);
+
+        SnapshotStore store = null;
+        ModelDigest digest = new ModelDigest();
+        String key = null;
+        String modelDigest = null;
+        if ( snapshotDirectory != null && mmInfo.getSourceDigest() != null ) {
+            startPhase();
+            store = new SnapshotStore(snapshotDirectory);
+            key = SnapshotStore.getKey(ModelDigest.getUuidOf(root), mmInfo.getSourceDigest());
+            modelDigest = digest.compute(root);
+            MappingSnapshot snapshot = store.load(key);
+            endPhase("look up snapshot", snapshot == null ? 0 : snapshot.getResources().size());
+
+            if ( snapshot != null && snapshot.isComplete() && snapshot.isOf(modelDigest) && tableFile == null ) {
+                startPhase();
+                PermissionReport report = createReport(snapshot);
+                writeReport(report);
+                endPhase("write report from snapshot", report.size());
+                return;
+            }
+        }
+
+        startPhase();
+        Map<ResourceWrapper, PermissionSet> permissions = mapResources(root, mmInfo);
+        endPhase("map resources", permissions.size());
+
+        startPhase();
+        HierarchicalPermissionsExplorer explorer = new HierarchicalPermissionsExplorer();
+        List<PolicyWrapper> policies = explorer.getSortedPolicyWrappers();
+        for ( Map.Entry<ResourceWrapper, PermissionSet> entry : permissions.entrySet() ) {
+            entry.setValue(explorer.getExplicitPermissions(entry.getKey()));
+        }
+        endPhase("collect explicit permissions", policies.size());
+
+        startPhase();
+        boolean wasParallel = PermissionDerivationEngine.isParallelEnabled();
+        PermissionDerivationEngine.setParallelEnabled(parallel);
+        try {
+            explorer.collectNonExplicitPermissions(permissions);
+        } finally {
+            PermissionDerivationEngine.setParallelEnabled(wasParallel);
+        }
+        endPhase("derive permissions" + (parallel ? " (parallel)" : ""), permissions.size());
+
+        startPhase();
+        PermissionReport report = new PermissionReport(policies);
+        MappingSnapshot snapshot = new MappingSnapshot(key, modelDigest, true);
+        for ( Map.Entry<ResourceWrapper, PermissionSet> entry : permissions.entrySet() ) {
+            int first = report.size();
+            report.add(entry.getKey(), entry.getValue());
+            if ( store != null ) {
+                snapshot.addResource(createSnapshotResource(entry.getKey(), digest,
+                                     report.getRows().subList(first, report.size())));
+            }
+        }
+        writeReport(report);
+        endPhase("write report", report.size());
+
+        if ( tableFile != null ) {
+            startPhase();
+            PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(policies);
+            for ( Map.Entry<ResourceWrapper, PermissionSet> entry : permissions.entrySet() ) {
+                compiler.add(entry.getKey(), entry.getValue());
+            }
+            PolicyDecisionTable table = compiler.compile();
+            table.write(tableFile);
+            endPhase("compile decision table " + tableFile.getName(), table.getCellCount());
+        }
+
+        if ( store != null ) {
+            startPhase();
+            try {
+                store.save(snapshot);
+            } catch (IOException e) {
+                aLog.warn("could not save the snapshot", e);
+                messages.println("could not save the snapshot: " + e);
+            }
+            endPhase("save snapshot", snapshot.getResources().size());
+        }
+    }
+
+    /**
+     * @return the report of the permissions stored in a complete snapshot
+     */
+    private static PermissionReport createReport(MappingSnapshot snapshot) {
+        PermissionReport report = new PermissionReport(Collections.<PolicyWrapper>emptyList());
+        for ( MappingSnapshot.Resource resource : snapshot.getResources() ) {
+            for ( String[] cell : resource.getCells() ) {
+                report.addRow(cell[0], resource.getName(), cell[1], cell[2], cell[3]);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @param rows the rows of the report of <code>resource</code>
+     */
+    private static MappingSnapshot.Resource createSnapshotResource(ResourceWrapper resource,
+            ModelDigest digest, List<String[]> rows) {
+        Object umlElement = ModelMap.getDefault().getUmlElement(resource.getModelElement());
+        MappingSnapshot.Resource result = new MappingSnapshot.Resource(
+            umlElement == null ? null : digest.getUuid(umlElement), resource.getName());
+        for ( String[] row : rows ) {
+            result.addCell(row[0], row[2], row[3], row[4]);
+        }
+        return result;
+    }
+
+    /**
+     * initialises the MDR repository of ArgoUML, as the module does when
+     * ArgoUML starts.
+     */
+    public static void initialiseRepository() {
+        BaseObjectHandler.setClassLoaderProvider(new ClassLoaderProviderImpl());
+        Model.initialise(MODEL_IMPLEMENTATION);
+    }
+
+    /**
+     * reads the XMI of <code>file</code> (a .zargo project or a .xmi
+     * file) into the ArgoUML repository.
+     *
+     * @return the first model element read
+     */
+    private ModelElement loadModel(File file) throws Exception {
+        File xmiFile = file;
+        String name = file.getName().toLowerCase();
+        if ( name.endsWith(".zargo") ) {
+            xmiFile = FileLoader.loadXmiFromArgoFile(file.getPath());
+            if ( xmiFile == null ) {
+                throw new IllegalArgumentException("no model found in " + file);
+            }
+        }
+
+        Collection elements = Model.getXmiReader().parse(new InputSource(xmiFile.toURI().toString()), false);
+        for ( Object element : elements ) {
+            if ( element instanceof ModelElement ) {
+                return (ModelElement) element;
+            }
+        }
+        throw new IllegalArgumentException("no model element found in " + file);
+    }
+
+    /**
+     * maps every resource of the model, like selecting it in the GUI.
+     *
+     * @return the mapped resources, with empty permission sets
+     */
+    public static Map<ResourceWrapper, PermissionSet> mapResources(ModelElement root, DialectMetaModelInfo mmInfo) {
+        GenericDialectHelper helper = GenericDialectHelper.getInstance();
+
+        Set<ModelElement> resourceElements = new LinkedHashSet<ModelElement>();
+        for ( ResourceType resourceType : mmInfo.getResourceTypes() ) {
+            for ( ModelElement element : helper.getReverseAssociationIndex().getElementsOfType(root, resourceType) ) {
+                if ( helper.getResourceType(element) != null ) {
+                    resourceElements.add(element);
+                }
+            }
+        }
+
+        ModuleController controller = ModuleController.getInstance();
+        if ( controller == null ) {
+            throw new IllegalStateException("no model mapper for dialect " + mmInfo.getDialectName());
+        }
+
+        Map<ResourceWrapper, PermissionSet> result = new LinkedHashMap<ResourceWrapper, PermissionSet>();
+        for ( ModelElement element : resourceElements ) {
+            Object resource = controller.mapTarget(element);
+            if ( resource == null ) {
+                aLog.warn("could not map resource " + element.getName());
+            } else {
+                result.put(WrapperFactory.getResourceWrapper(resource), null);
+            }
+        }
+        return result;
+    }
+
+    private void writeReport(PermissionReport report) throws Exception {
+        Writer out;
+        if ( outputFile == null ) {
+            out = new OutputStreamWriter(System.out, "UTF-8");
+        } else {
+            out = new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8");
+        }
+        try {
+            report.write(out, format);
+        } finally {
+            if ( outputFile != null ) {
+                out.close();
+            }
+        }
+    }
+
+    private void startPhase() {
+        phaseStart = System.currentTimeMillis();
+    }
+
+    private void endPhase(String phase, int count) {
+        messages.println("[TIME] " + phase + ": " + (System.currentTimeMillis() - phaseStart) + " ms (" + count + ")");
+    }
+}
@@ -3,6 +3,8 @@
  */
 package ch.ethz.infsec.secureumlgui.main;
 
+import java.io.File;
+
 import org.omg.uml.foundation.core.Classifier;
 
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
@@ -16,6 +18,18 @@ public class SecureUmlConstants
 {
 //    public static final String STEREOTYPE_COMPUML_ENTITY = "compuml.entity";
 
+    /** the version of the module, also the version of its caches */
+    public static final String MODULE_VERSION = "0.42";
+
+    /**
+     * @return the ArgoUML settings directory of the user, where the
+     * module keeps its caches
+     */
+    public static File getSettingsDirectory()
+    {
+        return new File(System.getProperty("user.home"), ".argouml");
+    }
+
     public static final String BASE_CLASS = "Class";
     public static final String BASE_ASSOCCLASS = "AssociationClass";
 
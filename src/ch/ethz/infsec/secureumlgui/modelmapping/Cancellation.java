@@ -0,0 +1,60 @@
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cooperative cancellation of the work running on the current thread.
+ *
+ * A background task installs a token with {@link #setToken(AtomicBoolean)}
+ * and sets it to cancel the task; the long running loops of the mapping
+ * and of the permission derivation call {@link #check()} at points where
+ * stopping leaves no half-changed state behind. Threads without a token
+ * are never cancelled.
+ *
+ * Thread interruption is not used, since the model repository does not
+ * expect to be interrupted.
+ */
+public final class Cancellation {
+
+    private static final ThreadLocal<AtomicBoolean> token = new ThreadLocal<AtomicBoolean>();
+
+    private Cancellation() {
+    }
+
+    /**
+     * @param cancelled the token of the task running on the current
+     *     thread, null when it is done
+     */
+    public static void setToken(AtomicBoolean cancelled) {
+        if ( cancelled == null ) {
+            token.remove();
+        } else {
+            token.set(cancelled);
+        }
+    }
+
+    /**
+     * @return the token of the task running on the current thread, null if
+     *     there is none; a task handing work to other threads installs it
+     *     there, see {@link #setToken(AtomicBoolean)}
+     */
+    public static AtomicBoolean getToken() {
+        return token.get();
+    }
+
+    /** @return true, if the task on the current thread was cancelled */
+    public static boolean isCancelled() {
+        AtomicBoolean cancelled = token.get();
+        return cancelled != null && cancelled.get();
+    }
+
+    /**
+     * @throws MappingCancelledException if the task on the current thread
+     *     was cancelled
+     */
+    public static void check() {
+        if ( isCancelled() ) {
+            throw new MappingCancelledException();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelClass;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelConst;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
+
+/**
+ * Caches the classification of UML model elements for the
+ * {@link GenericDialectHelper}.
+ *
+ * The candidate {@link MetaModelClass}es and {@link ResourceType}s only
+ * depend on the MDR implementation class of an element, so they are
+ * computed once per implementation class (dispatch table). The resource
+ * type of a single element additionally depends on its stereotypes and on
+ * its anchor; it is memoized per element and has to be invalidated with
+ * {@link #classificationChanged(ModelElement)} when these change.
+ */
+public class ElementClassifier
+{
+    /** the candidates of one MDR implementation class */
+    private static class Candidates
+    {
+        /** the first metamodel class matching by type, or null */
+        MetaModelClass metaModelClass;
+
+        /** the resource types matching by type, in dialect order */
+        List<ResourceType> resourceTypes = new LinkedList<ResourceType>();
+    }
+
+    /** marker for "not a resource" (memoized as well) */
+    private static final Object NO_RESOURCE_TYPE = new Object();
+
+    private static Logger aLog = Logger.getLogger(ElementClassifier.class);
+
+    private DialectMetaModelInfo dialectMetaModelInfo;
+
+    /** MDR implementation class -> candidates */
+    private Map<Class, Candidates> dispatchTable =
+        new HashMap<Class, Candidates>();
+
+    /** (MDR implementation class, uml class name) -> hasType */
+    private Map<Class, Map<String, Boolean>> typeTable =
+        new HashMap<Class, Map<String, Boolean>>();
+
+    /** model element -> ResourceType or NO_RESOURCE_TYPE */
+    private Map<ModelElement, Object> resourceTypes =
+        new HashMap<ModelElement, Object>();
+
+    /**
+     * use the classes of another dialect, all cached results are dropped.
+     */
+    public synchronized void setDialectMetaModelInfo(
+        DialectMetaModelInfo dialectMetaModelInfo)
+    {
+        this.dialectMetaModelInfo = dialectMetaModelInfo;
+        dispatchTable.clear();
+        resourceTypes.clear();
+    }
+
+    /**
+     * @return true, if the MDR implementation class of
+     *     <code>modelElement</code> implements the UML metaclass
+     *     <code>umlClassName</code>
+     */
+    public synchronized boolean hasType(ModelElement modelElement,
+                                        String umlClassName)
+    {
+        if (modelElement == null || umlClassName == null)
+            return false;
+
+        Map<String, Boolean> types = typeTable.get(modelElement.getClass());
+        if (types == null)
+        {
+            types = new HashMap<String, Boolean>();
+            typeTable.put(modelElement.getClass(), types);
+        }
+
+        Boolean result = types.get(umlClassName);
+        if (result == null)
+        {
+            result = Boolean.valueOf(
+                         modelElement.getClass().getSimpleName().startsWith(
+                             umlClassName + MetaModelConst.MDR_IMPL_SUFFIX));
+            types.put(umlClassName, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * @return the first metamodel class of the dialect whose UML class
+     *     matches the type of <code>modelElement</code>, or null
+     */
+    public synchronized MetaModelClass getMetaModelClassByType(
+        ModelElement modelElement)
+    {
+        return getCandidates(modelElement).metaModelClass;
+    }
+
+    /**
+     * @return the resource types of the dialect whose UML class matches
+     *     the type of <code>modelElement</code>
+     */
+    public synchronized Collection<ResourceType> getResourceTypeCandidates(
+        ModelElement modelElement)
+    {
+        return getCandidates(modelElement).resourceTypes;
+    }
+
+    /**
+     * @return true, if the resource type of <code>modelElement</code> is
+     *     known, i.e. {@link #getResourceType(ModelElement)} may be used
+     */
+    public synchronized boolean isResourceTypeKnown(ModelElement modelElement)
+    {
+        return resourceTypes.containsKey(modelElement);
+    }
+
+    /**
+     * @return the memoized resource type, null if the element is no
+     *     resource or its resource type is not known.
+     */
+    public synchronized ResourceType getResourceType(ModelElement modelElement)
+    {
+        Object resourceType = resourceTypes.get(modelElement);
+        if (resourceType instanceof ResourceType)
+            return (ResourceType) resourceType;
+        else
+            return null;
+    }
+
+    /**
+     * memoize the resource type (null: no resource) of
+     * <code>modelElement</code>.
+     */
+    public synchronized void putResourceType(ModelElement modelElement,
+            ResourceType resourceType)
+    {
+        if (modelElement == null)
+            return;
+
+        resourceTypes.put(modelElement,
+                          resourceType != null ? resourceType : NO_RESOURCE_TYPE);
+    }
+
+    /**
+     * the stereotypes or the namespace of <code>modelElement</code>
+     * changed. Since other elements may use it as their anchor, all
+     * memoized resource types are dropped.
+     */
+    public synchronized void classificationChanged(ModelElement modelElement)
+    {
+        if (aLog.isDebugEnabled() && !resourceTypes.isEmpty())
+            aLog.debug("classification of " + modelElement
+                       + " changed, dropping " + resourceTypes.size()
+                       + " memoized resource types");
+
+        resourceTypes.clear();
+    }
+
+    /**
+     * <code>modelElement</code> was deleted from the model.
+     */
+    public synchronized void elementRemoved(ModelElement modelElement)
+    {
+        resourceTypes.remove(modelElement);
+    }
+
+    /** drop all memoized resource types */
+    public synchronized void clear()
+    {
+        resourceTypes.clear();
+    }
+
+    private Candidates getCandidates(ModelElement modelElement)
+    {
+        if (modelElement == null || dialectMetaModelInfo == null)
+            return new Candidates();
+
+        Candidates candidates = dispatchTable.get(modelElement.getClass());
+        if (candidates == null)
+        {
+            candidates = new Candidates();
+
+            for (MetaModelClass mmc : dialectMetaModelInfo.getMetaModelClasses())
+            {
+                if (hasType(modelElement, mmc.getUmlClassName()))
+                {
+                    candidates.metaModelClass = mmc;
+                    break;
+                }
+            }
+
+            Collection<ResourceType> allResourceTypes =
+                dialectMetaModelInfo.getResourceTypes();
+            if (allResourceTypes == null)
+                allResourceTypes = Collections.emptyList();
+
+            for (ResourceType resourceType : allResourceTypes)
+            {
+                if (hasType(modelElement, resourceType.getUmlClassName()))
+                    candidates.resourceTypes.add(resourceType);
+            }
+
+            if (aLog.isDebugEnabled())
+                aLog.debug(modelElement.getClass().getSimpleName()
+                           + ": metamodel class " + candidates.metaModelClass
+                           + ", " + candidates.resourceTypes.size()
+                           + " resource type candidates");
+
+            dispatchTable.put(modelElement.getClass(), candidates);
+        }
+        return candidates;
+    }
+}
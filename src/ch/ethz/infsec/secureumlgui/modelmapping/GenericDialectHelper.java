@@ -3,7 +3,7 @@
  */
 package ch.ethz.infsec.secureumlgui.modelmapping;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -32,12 +32,12 @@ import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclEvaluatorException;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionEvaluator;
-import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionsParser;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclUmlExpressionEvaluator;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.transformation.MetaModelMap;
 import ch.ethz.infsec.secureumlgui.transformation.ModelMap;
+import ch.ethz.infsec.secureumlgui.util.PropertyAccessors;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 
 /**
@@ -83,6 +83,29 @@ public class GenericDialectHelper
 
     private static Logger aLog = Logger.getLogger(GenericDialectHelper.class);
 
+    private ReverseAssociationIndex reverseAssociationIndex =
+        new ReverseAssociationIndex(this);
+
+    /**
+     * @return the index used to navigate associations backwards
+     */
+    public ReverseAssociationIndex getReverseAssociationIndex()
+    {
+        return reverseAssociationIndex;
+    }
+
+    private ElementClassifier elementClassifier = new ElementClassifier();
+
+    /**
+     * @return the cache of the classifications computed by
+     *     {@link #getMetaModelClass(ModelElement)} and
+     *     {@link #getResourceType(ModelElement)}
+     */
+    public ElementClassifier getElementClassifier()
+    {
+        return elementClassifier;
+    }
+
     public MetaModelClass getMetaModelClass(ModelElement m)
     {
         if (m == null || dialectMetaModelInfo == null) {
@@ -90,19 +113,9 @@ public class GenericDialectHelper
             return null;
         }
 
-        Collection<MetaModelClass> mmcs = dialectMetaModelInfo
-                                          .getMetaModelClasses();
-
-
-        for (MetaModelClass mmc : mmcs)
-        {
-            String umlClassNameTag = mmc.getUmlClassName();
-
-            if (hasType(m, umlClassNameTag))
-            {
-                return mmc;
-            }
-        }
+        MetaModelClass mmc = elementClassifier.getMetaModelClassByType(m);
+        if (mmc != null)
+            return mmc;
 
         // if mmc not found until here
 
@@ -146,29 +159,35 @@ public class GenericDialectHelper
         if (m == null || dialectMetaModelInfo == null)
             return null;
 
-        for (ResourceType resourceType : dialectMetaModelInfo.getResourceTypes() ) {
-            // Assume m is of Resource-Type r
+        if (elementClassifier.isResourceTypeKnown(m))
+            return elementClassifier.getResourceType(m);
 
-            logger.info(MultiContextLogger.MODELMAPPER_DETAILLED, "is "
-                        + m.getName() + " a " + resourceType.getName() + "?");
+        // provisional: an anchor path leading back to m must not recurse
+        elementClassifier.putResourceType(m, null);
 
-            if (!hasType(m, resourceType.getUmlClassName())) {
-                logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
-                            "no! (wrong class: " + m.getClass().getSimpleName());
-                continue;
-            }
-            // if anchorPath == 'self'
+        ResourceType result = classifyResource(m);
+        elementClassifier.putResourceType(m, result);
+
+        if (aLog.isDebugEnabled())
+            aLog.debug("ResourceType of " + m.getName() + ": " + result);
+
+        return result;
+    }
+
+    /**
+     * examines the ResourceType of m, see {@link #getResourceType(ModelElement)}
+     * for the memoized result.
+     */
+    private ResourceType classifyResource(ModelElement m) {
+
+        for (ResourceType resourceType :
+                elementClassifier.getResourceTypeCandidates(m) ) {
+            // Assume m is of Resource-Type r
 
-            String anchorPath = resourceType.getAnchorPath();
             String modelElementStereotype = resourceType.getModelElementStereotype();
 
             if (hasStereotype(m, modelElementStereotype)) {
                 resourcePath = m.getName();
-                logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
-                            "ModelElement " + m.getName() + " is of ResourceType "
-                            + resourceType.getName());
-                logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
-                            "... yes, marked explicitly!");
                 // found the right resource Type
                 return resourceType;
             } else if (modelElementStereotype == null
@@ -181,16 +200,8 @@ public class GenericDialectHelper
                         && anchorType != null
                         && hasStereotype(anchor, anchorType
                                          .getModelElementStereotype())) {
-                    String anchorName = Util.getProperty(anchor, "name")
-                                        .toString();
-                    // logger.info("ModelElement "
-                    // + m.getName()
-                    // + " is of ResourceType "
-                    // + r.getName());
-                    // found the right Resource Type
-                    logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
-                                "... yes, implicitly " + "- because the anchor '"
-                                + anchorName + "' is a resource!");
+                    // found the right Resource Type - implicitly, because
+                    // the anchor is a resource
                     return resourceType;
                 }
             }
@@ -199,26 +210,6 @@ public class GenericDialectHelper
         // - if arrived here,
         // the ModelElement m is not a ResourceType
 
-        // Collection<MetaModelClass> mmClasses =
-        // dialectMetaModelInfo.getMetaModelClasses();
-        // for (Iterator iter = mmClasses.iterator(); iter.hasNext();)
-        // {
-        // MetaModelClass mmClass = (MetaModelClass) iter.next();
-
-        // logger.info(MultiContextLogger.MODELMAPPER_DETAILLED, "is "
-        // + m.getName() + " a " + mmClass.getName() + "?");
-
-        // if (hasType(m, mmClass.getUmlClassName()))
-        // {
-        // logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
-        // "ModelElement " + m.getName()
-        // + " is of MetamodelClass " + mmClass.getName());
-
-        // }
-        // }
-
-        logger.info(MultiContextLogger.MODELMAPPER_DETAILLED, "... no!");
-
         return null;
     }
 
@@ -410,12 +401,14 @@ public class GenericDialectHelper
         // TODO: follow startPointResourceType.getAnchorPath()
         // from startPoint
 
-        String anchorPath = startPointResourceType.getAnchorPath();
+        OclExpression anchorExpression = getAnchorExpression(resourceType);
+        if (anchorExpression == null)
+            return null;
 
         ModelElement result =
             //evaluateUniquePathExpression(
             evaluateUniqueOclExpression(
-                resource, resourceType, anchorPath);
+                resource, resourceType, anchorExpression);
 
         if (result instanceof UmlClass)
             return (UmlClass) result;
@@ -424,23 +417,27 @@ public class GenericDialectHelper
     }
 
 
+    /**
+     * @return the anchor path of the resource type, as parsed when the
+     *     dialect was loaded, or null if it has none or it is invalid
+     *     (reported by the DialectMetaModelAnalyzer)
+     */
+    private OclExpression getAnchorExpression(ResourceType resourceType)
+    {
+        if (dialectMetaModelInfo == null)
+            return null;
+
+        return dialectMetaModelInfo.getAnchorExpression(resourceType);
+    }
+
     private ModelElement evaluateUniqueOclExpression(
         ModelElement startpoint,
         MetaModelClass metaModelClass,
         /*ModelElement modelElement,*/
-        String oclExpression)
+        OclExpression expression)
     {
         //Object startpoint = map.getElement(modelElement);
 
-        logger.info("parsing OCL-Expression: "
-                    + oclExpression);
-
-        OclExpressionsParser parser =
-            new OclExpressionsParser();
-
-        OclExpression expression =
-            parser.parseOclExpression(oclExpression);
-
 //    logger.info("OCL-Expression parsed - starting at "
 //        + startpoint.getClass().getSimpleName() + " "
 //        + startpoint.getName()
@@ -538,7 +535,9 @@ public class GenericDialectHelper
             {
                 String step = pathSteps[i];
 
-                logger.info("evaluatePathExpression - step: " + step );
+                if (logger.isInfoEnabled(MultiContextLogger.MODELMAPPER_DETAILLED))
+                    logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
+                                "evaluatePathExpression - step: " + step );
 
                 //                boolean stepTaken = false;
 
@@ -571,10 +570,12 @@ public class GenericDialectHelper
                             if(condition.charAt(0)==OPENING_BRACKET_CHAR)
                                 condition = condition.substring(1);
 
-                            logger.info(
-                                "evaluatePathExpression: " +
-                                "evaluating selection with condition"
-                                + condition);
+                            if (logger.isInfoEnabled(MultiContextLogger.MODELMAPPER_DETAILLED))
+                                logger.info(
+                                    MultiContextLogger.MODELMAPPER_DETAILLED,
+                                    "evaluatePathExpression: " +
+                                    "evaluating selection with condition"
+                                    + condition);
 
                             Collection c = null;
                             c = navigateAssociation(modelElement, otherEnd);
@@ -652,10 +653,12 @@ public class GenericDialectHelper
                                         rightpart, maxdepth);
                                 }
 
-                                logger.info("Condition compares "
-                                            + leftModelElement
-                                            + " and "
-                                            + rightModelElement);
+                                if (logger.isInfoEnabled(MultiContextLogger.MODELMAPPER_DETAILLED))
+                                    logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
+                                                "Condition compares "
+                                                + leftModelElement
+                                                + " and "
+                                                + rightModelElement);
 
                                 boolean equals =
                                     leftModelElement.equals(rightModelElement);
@@ -1160,14 +1163,16 @@ public class GenericDialectHelper
 
         try
         {
-            Method umlPropertyGetter = null;
+            MethodHandle umlPropertyGetter = null;
             if(methodName != null && methodName.length() != 0)
             {
                 umlPropertyGetter =
-                    from.getClass().getMethod(
-                        methodName, new Class[0]);
+                    PropertyAccessors.getMethodHandle(from.getClass(), methodName);
+                if(umlPropertyGetter == null)
+                    throw new NoSuchMethodException(
+                        from.getClass().getName() + "." + methodName);
 
-                result = umlPropertyGetter.invoke(from, new Object[0]);
+                result = PropertyAccessors.invoke(umlPropertyGetter, from);
             }
             // else
             if(result == null ||
@@ -1193,70 +1198,9 @@ public class GenericDialectHelper
 
                 if(methodName != null && methodName.length() != 0)
                 {
-//          logger.info(
-//              "navigateAssociation - Navigating backwards:"
-//              + " using Method " + methodName);
-                    Collection/*<ModelElement>*/ relatedElements =
-                        new LinkedList/*<ModelElement>*/();
-                    result = relatedElements;
-
-                    Set<RefObject> allUmlElements =
-                        ModelMap.getDefault().getAllUmlElements();
-
-                    //          logger.info("trying to start from "
-                    //+ allUmlElements.size() + "  Uml ModelElements "
-                    //+ " via Method " + methodName);
-                    for (Iterator iter = allUmlElements.iterator(); iter.hasNext();)
-                    {
-                        RefObject modelElement = (RefObject) iter.next();
-
-                        //MetaModelClass mmc = getMetaModelClass(modelElement);
-
-                        //if(mmc == )
-                        //result == null;
-                        try
-                        {
-                            umlPropertyGetter = modelElement.getClass().
-                                                getMethod(methodName,new Class[0]);
-
-                            Object res = umlPropertyGetter.invoke(
-                                             modelElement, new Object[0]);
-
-                            if (res instanceof ModelElement)
-                            {
-                                ModelElement resMe = (ModelElement) res;
-
-                                logger.info(" ... invoked - method returned: "
-                                            + resMe.getName());
-
-                            }
-
-                            if (res instanceof Collection)
-                            {
-                                Collection resultCollection = (Collection) result;
-                                if(resultCollection.contains(from))
-                                {
-                                    //result = modelElement;
-                                    //break;
-                                    relatedElements.add(modelElement);
-                                }
-                            }
-                            else if (res != null)
-                            {
-                                if(res == from)
-                                {
-//                  result = modelElement;
-//                  break;
-                                    relatedElements.add(modelElement);
-                                }
-                            }
-                        }
-                        catch (Exception e)
-                        {
-                            //logger.logException(e);
-                        }
-                        //result = null;
-                    }
+                    result = reverseAssociationIndex.getSources(
+                                 from, otherEnd,
+                                 targetAssociationEnd.getType());
                 }
             }
 
@@ -1298,49 +1242,12 @@ public class GenericDialectHelper
 
     public boolean hasType(ModelElement modelElement, String className)
     {
-        className += MetaModelConst.MDR_IMPL_SUFFIX;
-
-//    logger.info("hasType("
-//        + modelElement.getClass().getSimpleName()
-//        + ", "
-//        + className);
-
-        if (modelElement != null && className != null)
-        {
-            boolean result = modelElement.getClass().getSimpleName().
-                             startsWith(className);
-//      logger.info("... " + result);
-
-            return result;
-        }
-        else
-            return false;
+        return elementClassifier.hasType(modelElement, className);
     }
 
     public boolean hasStereotype(ModelElement element, String stereotype)
     {
-        if (element == null || stereotype == null || stereotype.length() == 0)
-            return false;
-
-        Collection stereotypes = element.getStereotype();
-        int nofStereotypes = stereotypes.size();
-
-//    logger.info("hasStereotype(sterotype:" + stereotype
-//        + " - searching among " + nofStereotypes);
-
-        if (stereotypes == null || stereotypes.size() == 0)
-            return false;
-
-        for (Iterator it = stereotypes.iterator(); it.hasNext();)
-        {
-            Stereotype s = (Stereotype) it.next();
-            if (s.getName().equals(stereotype))
-            {
-//        logger.info("... found");
-                return true;
-            }
-        }
-        return false;
+        return StereotypeIndex.getInstance().hasStereotype(element, stereotype);
     }
 
     public boolean haveStereotype(Collection<ModelElement> elements,
@@ -1386,6 +1293,16 @@ public class GenericDialectHelper
     public void setDialectMetaModelInfo(DialectMetaModelInfo dialectMetaModelInfo)
     {
         this.dialectMetaModelInfo = dialectMetaModelInfo;
+        elementClassifier.setDialectMetaModelInfo(dialectMetaModelInfo);
+
+        Collection<String> stereotypes = new LinkedList<String>();
+        if (dialectMetaModelInfo != null
+                && dialectMetaModelInfo.getResourceTypes() != null)
+        {
+            for (ResourceType resourceType : dialectMetaModelInfo.getResourceTypes())
+                stereotypes.add(resourceType.getModelElementStereotype());
+        }
+        StereotypeIndex.getInstance().dialectChanged(stereotypes);
     }
 
     /**
@@ -4,6 +4,7 @@ import java.beans.PropertyVetoException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -56,17 +57,23 @@ import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelClass
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionEvaluator;
-import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionsParser;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants.SECUML_STEREOTYPES;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants.UML_OCL;
 import ch.ethz.infsec.secureumlgui.modelmanagement.ModelConst;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.MappingEvents;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.EventHandle;
 //FIXME: is this missing intentionally? ask Marcel...
 //import ch.ethz.infsec.secureumlgui.modelmapping.strategies.MapAll;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.EffectivePermissionsCache;
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPolicyExplorer;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchyIndex;
 import ch.ethz.infsec.secureumlgui.modelmapping.strategies.MapSelfAndAssociatedResources;
 import ch.ethz.infsec.secureumlgui.modelmapping.strategies.MappingScopeStrategy;
 
@@ -93,6 +100,9 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
     /** all actions for resources in the model */
     Set<Object> actions = new LinkedHashSet<Object>();
 
+    /** actions created since the last call of {@link #initActionHierarchies()} */
+    Set<Object> newActions = new LinkedHashSet<Object>();
+
     /** all uml classes representing polices */
     Set<UmlClass> policyClasses = new LinkedHashSet<UmlClass>();
 
@@ -118,6 +128,30 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
 
     Map<UML_OCL, UmlClass> oclMappings = new HashMap<UML_OCL, UmlClass>();
 
+    /** applies model changes as deltas when in incremental mode */
+    private ModelChangeTracker changeTracker = new ModelChangeTracker(this);
+
+    /** keep the mapping between selections, and only update it on changes */
+    private boolean incrementalMapping = false;
+
+    /** true, if the SecureUML element sets above reflect the whole model */
+    private boolean secumlElementsFound = false;
+
+    /** true, if roles and policies of the current mapping are transformed */
+    private boolean secumlElementsTransformed = false;
+
+    /** true, if a model change invalidated the current mapping */
+    private boolean mappingDirty = false;
+
+    /** set during {@link #transform(ModelElement)}: our own model changes */
+    private boolean transforming = false;
+
+    /** the size of the mapping scope of the last transformation */
+    private int scopeSize = 0;
+
+    /** the start points whose mapping scope is part of the current mapping */
+    private Set<ModelElement> mappedStartPoints = new HashSet<ModelElement>();
+
     private static Logger aLog = Logger.getLogger(GenericDialectModelMapper.class);
 
     private Namespace root_namespace = null;
@@ -141,6 +175,8 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
         instance = this;
 
         logger.disableLoggerContext(logger.MODELMAPPER_DETAILLED);
+
+        setIncrementalMapping(true);
     }
 
 
@@ -150,20 +186,40 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
      * Also deletes and recreated the dialect model extent, so that we don't
      * accumulate duplicate elements in the repository.
      */
-    public void init() {
+    public synchronized void init() {
         super.init();
 
-        roleClasses.clear();
-        policyClasses.clear();
-        permissionsAssociations.clear();
-        roleHierarchyGeneralizations.clear();
-        policyHierarchyGeneralizations.clear();
-        policyAssignments.clear();
+        if (!incrementalMapping || !secumlElementsFound) {
+            // in incremental mode, the change tracker keeps these up to date
+            roleClasses.clear();
+            policyClasses.clear();
+            permissionsAssociations.clear();
+            roleHierarchyGeneralizations.clear();
+            policyHierarchyGeneralizations.clear();
+            policyAssignments.clear();
+            secumlElementsFound = false;
+        }
+        secumlElementsTransformed = false;
+        mappingDirty = false;
+        mappedStartPoints.clear();
+
+        if (!incrementalMapping) {
+            // otherwise, the index and the classifications are kept up
+            // to date by the change tracker
+            helper.getReverseAssociationIndex().clear();
+            helper.getElementClassifier().clear();
+        }
 
         actions.clear();
+        newActions.clear();
 
         permissionsPerPolicy.clear();
 
+        // the dialect elements are recreated, and with them the hierarchies
+        // and the permissions computed from them
+        HierarchyIndex.getInstance().clear();
+        EffectivePermissionsCache.getInstance().clear();
+
         // equivalent: dialectMetaModelInfo.getDialectExtent().refDelete();
         MDRManager.getDefault().getDefaultRepository().getExtent(
             "mySecureModel").refDelete();
@@ -185,6 +241,16 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
         //ensureNeededElementsExist(null);
     }
 
+    @Override
+    protected void clearMap() {
+        if (incrementalMapping && secumlElementsFound) {
+            // stereotypes and action classes are tracked incrementally
+            map.clearMappings();
+        } else {
+            map.clear();
+        }
+    }
+
     public static GenericDialectModelMapper getInstance() {
         if (instance == null)
             logger.info("GenericDialectModelMapper not yet instantiated!");
@@ -201,6 +267,278 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
         this.modelWriter = modelWriter;
     }
 
+    /**
+     * @return true, if the mapping is kept between selections and updated
+     *         by the model change events
+     */
+    public boolean isIncrementalMapping() {
+        return incrementalMapping;
+    }
+
+    /**
+     * switch the incremental mapping mode on or off. If the model event pump
+     * is not available, the mapper stays in the non-incremental mode, i.e.
+     * the model is re-transformed on each selection.
+     */
+    public synchronized void setIncrementalMapping(boolean incrementalMapping) {
+        if (incrementalMapping) {
+            this.incrementalMapping = changeTracker.register();
+        } else {
+            changeTracker.unregister();
+            this.incrementalMapping = false;
+        }
+        secumlElementsFound = false;
+        mappingDirty = true;
+    }
+
+    /**
+     * returns the mapped element for <code>modelElement</code>, if it has
+     * been transformed as start point and the model did not change in a
+     * way that affects the mapping since then.
+     *
+     * @return the mapped element or null, if a transformation is needed
+     */
+    public synchronized Object getUpToDateElement(ModelElement modelElement) {
+        if (!incrementalMapping || mappingDirty
+                || !mappedStartPoints.contains(modelElement)) {
+            return null;
+        }
+        return map.getElement(modelElement);
+    }
+
+    /**
+     * @return true, if the current mapping has to be discarded with
+     *         {@link #init()} before the next transformation
+     */
+    public synchronized boolean needsInit() {
+        return !incrementalMapping || mappingDirty;
+    }
+
+    /** forget everything, the next transformation starts from scratch. */
+    public synchronized void invalidateMapping() {
+        secumlElementsFound = false;
+        mappingDirty = true;
+        helper.getReverseAssociationIndex().clear();
+        helper.getElementClassifier().clear();
+        EffectivePermissionsCache.getInstance().clear();
+        WrapperFactory.clear();
+    }
+
+    /**
+     * delta: a model element was added to the model.
+     */
+    public synchronized void elementAdded(ModelElement modelElement) {
+        evictPermissions(modelElement, true);
+        helper.getReverseAssociationIndex().elementChanged(modelElement);
+        if (secumlElementsFound) {
+            findSecumlModelElements(Collections.singletonList(modelElement));
+        }
+        if (isMappingRelevant(modelElement)) {
+            markDirty();
+        }
+    }
+
+    /**
+     * delta: a model element was removed from the model.
+     */
+    public synchronized void elementRemoved(ModelElement modelElement) {
+        evictPermissions(modelElement, true);
+        helper.getReverseAssociationIndex().elementRemoved(modelElement);
+        helper.getElementClassifier().elementRemoved(modelElement);
+        boolean relevant = isMappingRelevant(modelElement);
+        hierarchyElementRemoved(modelElement);
+
+        forgetSecumlModelElement(modelElement);
+        mappedStartPoints.remove(modelElement);
+
+        if (relevant) {
+            map.remove(modelElement);
+            markDirty();
+        }
+    }
+
+    /**
+     * delta: a model element was renamed. Roles and policies are renamed in
+     * place, other renames (resources are referenced by name from
+     * permissions) invalidate the mapping.
+     */
+    public synchronized void elementRenamed(ModelElement modelElement,
+                                            String oldName, String newName) {
+        evictPermissions(modelElement, false);
+        if (roleClasses.contains(modelElement)
+                || policyClasses.contains(modelElement)) {
+            if (map.mapContainsKey(modelElement)) {
+                Util.setProperty(map.getElement(modelElement), "name", newName);
+            }
+            return;
+        }
+
+        if (permissionsAssociations.contains(modelElement) && oldName != null) {
+            UmlClass policy = policyAssignments.remove(oldName);
+            if (policy != null && newName != null) {
+                policyAssignments.put(newName, policy);
+            }
+        } else if (modelElement instanceof Stereotype) {
+            map.removeStereotype((Stereotype) modelElement);
+            map.putStereotype((Stereotype) modelElement);
+            // the classification of all stereotyped elements may change
+            invalidateMapping();
+            return;
+        } else if (modelElement instanceof Classifier
+                   && map.getActionClass(oldName) == modelElement) {
+            map.removeActionClass((Classifier) modelElement);
+            map.putActionClass(newName, (Classifier) modelElement);
+        }
+
+        if (isMappingRelevant(modelElement)) {
+            markDirty();
+        }
+    }
+
+    /**
+     * delta: the stereotypes or the namespace of a model element changed,
+     * which may change its resource type and those of the elements
+     * anchored at it.
+     */
+    public synchronized void elementReclassified(ModelElement modelElement) {
+        helper.getElementClassifier().classificationChanged(modelElement);
+        elementChanged(modelElement);
+    }
+
+    /**
+     * delta: a property of a model element changed (stereotypes,
+     * generalizations, features, ...). Re-classifies the element.
+     */
+    public synchronized void elementChanged(ModelElement modelElement) {
+        evictPermissions(modelElement, true);
+        helper.getReverseAssociationIndex().elementChanged(modelElement);
+        if (secumlElementsFound) {
+            if (modelElement instanceof UmlAssociation
+                    && !(modelElement instanceof AssociationClass)) {
+                // policy assignments are keyed by permission name, the
+                // association itself can't be forgotten
+                invalidateMapping();
+                return;
+            }
+            forgetSecumlModelElement(modelElement);
+            if (!(modelElement instanceof Namespace)
+                    || modelElement instanceof Classifier) {
+                // don't re-walk whole packages on each change
+                findSecumlModelElements(
+                    Collections.singletonList(modelElement));
+            }
+        }
+        if (isMappingRelevant(modelElement)) {
+            markDirty();
+        }
+    }
+
+    /**
+     * @return true, if a change of <code>modelElement</code> may affect the
+     *         current mapping
+     */
+    private boolean isMappingRelevant(ModelElement modelElement) {
+        return map.mapContainsKey(modelElement)
+               || modelElement instanceof Stereotype
+               || roleClasses.contains(modelElement)
+               || policyClasses.contains(modelElement)
+               || permissionsAssociations.contains(modelElement)
+               || roleHierarchyGeneralizations.contains(modelElement)
+               || policyHierarchyGeneralizations.contains(modelElement)
+               || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_ROLE)
+               || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_POLICY)
+               || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_PERMISSION);
+    }
+
+    /**
+     * evicts the cached permission sets depending on
+     * <code>modelElement</code>. All of them depend on the policies, and
+     * on the roles and permissions of the model: a new role, generalization
+     * or permission may add a role to a set that does not know it yet.
+     *
+     * @param structural true, if the element was added, removed or
+     *        changed, false if it was only renamed
+     */
+    private void evictPermissions(ModelElement modelElement, boolean structural) {
+        EffectivePermissionsCache cache = EffectivePermissionsCache.getInstance();
+        if (policyClasses.contains(modelElement)
+                || policyHierarchyGeneralizations.contains(modelElement)
+                || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_POLICY)) {
+            cache.clear();
+        } else if (structural
+                   && (roleClasses.contains(modelElement)
+                       || permissionsAssociations.contains(modelElement)
+                       || roleHierarchyGeneralizations.contains(modelElement)
+                       || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_ROLE)
+                       || isOfType(modelElement, SecureUmlConstants.STEREOTYPE_SECUML_PERMISSION))) {
+            cache.rolesChanged();
+        } else {
+            cache.elementChanged(modelElement);
+        }
+    }
+
+    /**
+     * removes the generalization, the role or policy, or the actions of a
+     * resource from the {@link HierarchyIndex}, so that only the closures
+     * containing it have to be recomputed.
+     */
+    private void hierarchyElementRemoved(ModelElement modelElement) {
+        HierarchyIndex index = HierarchyIndex.getInstance();
+        if (modelElement instanceof Generalization) {
+            Generalization generalization = (Generalization) modelElement;
+            boolean role = roleHierarchyGeneralizations.contains(generalization);
+            boolean policy = policyHierarchyGeneralizations.contains(generalization);
+            if ((role || policy)
+                    && map.mapContainsKey(generalization.getChild())
+                    && map.mapContainsKey(generalization.getParent())) {
+                Object child = map.getElement(generalization.getChild());
+                Object parent = map.getElement(generalization.getParent());
+                if (role) {
+                    index.getRoles().removeGeneralization(child, parent);
+                } else {
+                    index.getPolicies().removeGeneralization(child, parent);
+                }
+            }
+        } else if (map.mapContainsKey(modelElement)) {
+            if (roleClasses.contains(modelElement)) {
+                index.getRoles().elementRemoved(map.getElement(modelElement));
+            } else if (policyClasses.contains(modelElement)) {
+                index.getPolicies().elementRemoved(map.getElement(modelElement));
+            } else {
+                Collection actions = (Collection) Util.tryGetProperty(
+                                         map.getElement(modelElement), "action");
+                if (actions != null) {
+                    for (Object action : actions) {
+                        index.getActions().elementRemoved(action);
+                    }
+                }
+            }
+        }
+    }
+
+    /** remove the element from the SecureUML element sets */
+    private void forgetSecumlModelElement(ModelElement modelElement) {
+        roleClasses.remove(modelElement);
+        policyClasses.remove(modelElement);
+        permissionsAssociations.remove(modelElement);
+        roleHierarchyGeneralizations.remove(modelElement);
+        policyHierarchyGeneralizations.remove(modelElement);
+        policyAssignments.values().remove(modelElement);
+
+        if (modelElement instanceof Stereotype) {
+            map.removeStereotype((Stereotype) modelElement);
+        } else if (modelElement instanceof Classifier) {
+            map.removeActionClass((Classifier) modelElement);
+        }
+    }
+
+    private void markDirty() {
+        // changes made by ourselves while transforming are already mapped
+        if (!transforming) {
+            mappingDirty = true;
+        }
+    }
+
     // = new MapNamespaceContents();
     /**
      * @return the mappingScopeStrategy
@@ -229,9 +567,6 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
             aLog.error("#######################################");
             aLog.error("modelElement == null!!!!");
             aLog.error("#######################################");
-            System.out.println("#######################################");
-            System.out.println("modelElement == null!!!!");
-            System.out.println("#######################################");
 //			try {
 //				throw new Exception();
 //			} catch(Exception e) {
@@ -268,8 +603,13 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
 
         RefObject metaModelObject = null;
         if (metaModelClass != null) {
-            aLog.info("mapping model element " + modelElement.getName() + " metaModelClass: " + metaModelClass.getName());
-            logger.info("mapping model element " + modelElement.getName());
+            if (aLog.isDebugEnabled()) {
+                aLog.debug("mapping model element " + modelElement.getName() + " metaModelClass: " + metaModelClass.getName());
+            }
+            if (logger.isInfoEnabled(logger.MODELMAPPER_DETAILLED)) {
+                logger.info(logger.MODELMAPPER_DETAILLED,
+                            "mapping model element " + modelElement.getName());
+            }
             metaModelObject = createMetaModelClass(metaModelClass, modelElement);
             setProperties(metaModelClass, metaModelObject, modelElement);
             instantiateAllActions(resourceType, metaModelObject);
@@ -356,6 +696,7 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
                         && !resourceActions.contains(newActionObject)) {
                     resourceActions.add(newActionObject);
                     actions.add(newActionObject);
+                    newActions.add(newActionObject);
                 }
             }
         } else {
@@ -738,49 +1079,120 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
      * @param startPoint
      * @return the transformed object
      */
-    public Object transform(ModelElement startPoint) // , Package
+    public synchronized Object transform(ModelElement startPoint) // , Package
     // sourcePackage)
     {
         // logger.info("transform started at "+startPoint.getName());
 
 
         if (startPoint != null) {
-            // (JD) this is a hack. apparently, the navigationDepth in the
-            // mappingScopeStrategy gets messed up sometimes. So we just create
-            // a new one
-            // each time...
-            mappingScopeStrategy = new MapSelfAndAssociatedResources(
-                dialectMetaModelInfo);
-            Collection<ModelElement> mappingScope = mappingScopeStrategy
-                                                    .getMappingScope(startPoint);
-            logger.info("found_" + mappingScope.size()
-                        + " elements to transform");
+            // the transformation changes the model map, so it can only be
+            // cancelled before it starts
+            Cancellation.check();
+            transforming = true;
+            long start = MappingMetrics.start();
+            EventHandle event = MappingEvents.beginPhase(Phase.TRANSFORM, startPoint);
+            try {
+                return transformStartPoint(startPoint);
+            } finally {
+                transforming = false;
+                MappingMetrics.stop(Phase.TRANSFORM, start);
+                MappingEvents.end(event, scopeSize);
+            }
+        } else
+            return null;
+    }
+
+    private Object transformStartPoint(ModelElement startPoint) {
+        // (JD) this is a hack. apparently, the navigationDepth in the
+        // mappingScopeStrategy gets messed up sometimes. So we just create
+        // a new one
+        // each time...
+        mappingScopeStrategy = new MapSelfAndAssociatedResources(
+            dialectMetaModelInfo);
+        long start = MappingMetrics.start();
+        EventHandle event = MappingEvents.beginPhase(Phase.SCOPE, startPoint);
+        Collection<ModelElement> mappingScope = mappingScopeStrategy
+                                                .getMappingScope(startPoint);
+        scopeSize = mappingScope.size();
+        MappingMetrics.stop(Phase.SCOPE, start);
+        MappingEvents.end(event, scopeSize);
+        logger.info("found_" + mappingScope.size()
+                    + " elements to transform");
+        if (logger.isInfoEnabled(logger.MODELMAPPER_DETAILLED)) {
             for (ModelElement me : mappingScope) {
                 if (me == null) {
-                    logger.info("model element = null");
+                    logger.info(logger.MODELMAPPER_DETAILLED,
+                                "model element = null");
                 } else if (me.getName() == null) {
-                    logger.info("model element name = null. type = "
+                    logger.info(logger.MODELMAPPER_DETAILLED,
+                                "model element name = null. type = "
                                 + me.getClass().getName());
                 } else {
-                    logger.info(me.getName());
+                    logger.info(logger.MODELMAPPER_DETAILLED, me.getName());
+                }
+            }
+        }
+        if (incrementalMapping) {
+            // extend the current mapping by the not yet mapped elements
+            Collection<ModelElement> unmapped = new ArrayList<ModelElement>();
+            for (ModelElement me : mappingScope) {
+                if (me != null && !map.mapContainsKey(me)) {
+                    unmapped.add(me);
                 }
             }
+            mappingScope = unmapped;
+        }
+        if (mappingScope.size() > 0 || !incrementalMapping) {
+            start = MappingMetrics.start();
+            event = MappingEvents.beginPhase(Phase.ELEMENTS, startPoint);
             transformModelElements(mappingScope);
-            transformAssociations(mappingScope);
-            initActionHierarchies();
+            MappingMetrics.stop(Phase.ELEMENTS, start);
+            MappingEvents.end(event, mappingScope.size());
 
-            // TODO: transform only relevant permissions
-            // (such attached to Resources in the mappingScope)
+            start = MappingMetrics.start();
+            event = MappingEvents.beginPhase(Phase.ASSOCIATIONS, startPoint);
+            transformAssociations(mappingScope);
+            MappingMetrics.stop(Phase.ASSOCIATIONS, start);
+            MappingEvents.end(event, mappingScope.size());
+        }
+        start = MappingMetrics.start();
+        event = MappingEvents.beginPhase(Phase.ACTION_HIERARCHIES, startPoint);
+        initActionHierarchies();
+        MappingMetrics.stop(Phase.ACTION_HIERARCHIES, start);
+        MappingEvents.end(event, mappingScope.size());
+
+        // TODO: transform only relevant permissions
+        // (such attached to Resources in the mappingScope)
+        if (!incrementalMapping || !secumlElementsFound) {
             findSecumlModelElements(startPoint);
+            secumlElementsFound = true;
+        }
+        if (!incrementalMapping || !secumlElementsTransformed) {
+            start = MappingMetrics.start();
+            event = MappingEvents.beginPhase(Phase.ROLES, startPoint);
             transformAllRoles();
+            MappingMetrics.stop(Phase.ROLES, start);
+            MappingEvents.end(event, roleClasses.size());
+
+            start = MappingMetrics.start();
+            event = MappingEvents.beginPhase(Phase.POLICIES, startPoint);
             tramsformAllPolicies();
-            transformAllPermisssions();
+            MappingMetrics.stop(Phase.POLICIES, start);
+            MappingEvents.end(event, policyClasses.size());
+            secumlElementsTransformed = true;
+        }
+        start = MappingMetrics.start();
+        event = MappingEvents.beginPhase(Phase.PERMISSIONS, startPoint);
+        transformAllPermisssions();
+        MappingMetrics.stop(Phase.PERMISSIONS, start);
+        MappingEvents.end(event, permissionsAssociations.size());
 
-            ensureNeededElementsExist(startPoint);
+        ensureNeededElementsExist(startPoint);
 
-            return map.getElement(startPoint);
-        } else
-            return null;
+        mappedStartPoints.add(startPoint);
+
+        return map.getElement(startPoint);
     }
 
     /**
@@ -880,12 +1292,15 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
     }
 
     private void initActionHierarchies() {
-        for (Iterator iter = actions.iterator(); iter.hasNext();) {
+        Collection<Object> actionsToLink = new ArrayList<Object>(newActions);
+        newActions.clear();
+
+        for (Iterator iter = actionsToLink.iterator(); iter.hasNext();) {
             try {
 
                 Object action = (Object) iter.next();
 
-                ActionWrapper actionWrapper = new ActionWrapper(action);
+                ActionWrapper actionWrapper = WrapperFactory.getActionWrapper(action);
 
                 Object resource = actionWrapper.getResource();
                 ModelElement resourceUml = (ModelElement) map
@@ -897,21 +1312,22 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
                                 // getActionTypeByName(actionWrapper.getName());
                                 getActionType(rt, actionWrapper.getName());
 
-                if (at != null && at.getSubactionsDefinition() != null) {
-                    logger.info(logger.MODELMAPPER_DETAILLED,
-                                "examining Action Hierarchy of " + at.getName());
+                // parsed when the dialect was loaded
+                OclExpression subactionsDefinition = null;
+                if (at != null) {
+                    subactionsDefinition =
+                        dialectMetaModelInfo.getSubactionsExpression(at);
+                }
+
+                if (subactionsDefinition != null) {
+                    if (logger.isInfoEnabled(logger.MODELMAPPER_DETAILLED)) {
+                        logger.info(logger.MODELMAPPER_DETAILLED,
+                                    "examining Action Hierarchy of " + at.getName());
+                    }
                     try {
                         // CompositeActionType compositeActionType =
                         // (CompositeActionType) at;
 
-                        String subactionsDefinitionString = at
-                                                            .getSubactionsDefinition();
-
-                        OclExpressionsParser parser = new OclExpressionsParser();
-
-                        OclExpression subactionsDefinition = parser
-                                                             .parseOclExpression(subactionsDefinitionString);
-
                         OclExpressionEvaluator evaluator = new OclExpressionEvaluator(
                             subactionsDefinition, actionWrapper
                             .getModelElement());
@@ -922,12 +1338,14 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
                                 .hasNext();) {
                             Object subaction = (Object) iterator.next();
 
-                            logger.info(logger.MODELMAPPER_DETAILLED,
-                                        "found Action Hierarchy: "
-                                        + actionWrapper.getName()
-                                        + "->"
-                                        + Util.getProperty(subaction,
-                                                           "name"));
+                            if (logger.isInfoEnabled(logger.MODELMAPPER_DETAILLED)) {
+                                logger.info(logger.MODELMAPPER_DETAILLED,
+                                            "found Action Hierarchy: "
+                                            + actionWrapper.getName()
+                                            + "->"
+                                            + Util.getProperty(subaction,
+                                                               "name"));
+                            }
 
                             Collection actionSubactions = (Collection) Util
                                                           .getProperty(action, "subactions");
@@ -936,6 +1354,8 @@ public class GenericDialectModelMapper extends SecureUmlModelMapper {
 
                             actionSubactions.add(subaction);
                             subactionSuperactions.add(action);
+                            HierarchyIndex.getInstance().getActions()
+                            .addGeneralization(subaction, action);
                         }
 
                     } catch (Exception e) {
@@ -0,0 +1,15 @@
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+/**
+ * Thrown by {@link Cancellation#check()} when the result of the mapping
+ * or of the permission derivation running on the current thread is not
+ * needed anymore, e.g. because another element was selected meanwhile.
+ */
+public class MappingCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MappingCancelledException() {
+        super("mapping cancelled");
+    }
+}
@@ -0,0 +1,168 @@
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.argouml.model.AddAssociationEvent;
+import org.argouml.model.AttributeChangeEvent;
+import org.argouml.model.DeleteInstanceEvent;
+import org.argouml.model.Model;
+import org.argouml.model.RemoveAssociationEvent;
+import org.omg.uml.foundation.core.ModelElement;
+
+/**
+ * Listens to the ArgoUML model event pump and forwards the changes of the
+ * UML model as deltas to the {@link GenericDialectModelMapper}.
+ *
+ * This allows the mapper to keep the {@link
+ * ch.ethz.infsec.secureumlgui.transformation.ModelMap} and its sets of
+ * roles, policies and permissions up to date, instead of re-transforming
+ * the whole model each time a new target is selected.
+ */
+public class ModelChangeTracker implements PropertyChangeListener {
+
+    /** the model properties whose changes affect the mapping */
+    static final String[] TRACKED_PROPERTIES = new String[] {
+        "name",
+        "stereotype",
+        "namespace",
+        "ownedElement",
+        "generalization",
+        "specialization",
+        "child",
+        "parent",
+        "connection",
+        "association",
+        "feature",
+        "taggedValue",
+        "remove"
+    };
+
+    /**
+     * the properties whose changes may change the resource type of an
+     * element, see {@link GenericDialectModelMapper#elementReclassified}
+     */
+    static final List<String> CLASSIFYING_PROPERTIES = Arrays.asList(
+        new String[] {"stereotype", "namespace", "ownedElement"});
+
+    private static Logger aLog = Logger.getLogger(ModelChangeTracker.class);
+
+    private GenericDialectModelMapper mapper;
+
+    private boolean registered = false;
+
+    public ModelChangeTracker(GenericDialectModelMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * subscribe to the changes of all model elements.
+     *
+     * @return true, if the tracker is listening to the model event pump
+     */
+    public boolean register() {
+        if (registered) {
+            return true;
+        }
+        try {
+            Model.getPump().addClassModelEventListener(this,
+                    Model.getMetaTypes().getModelElement(),
+                    TRACKED_PROPERTIES);
+            registered = true;
+        } catch (Exception e) {
+            aLog.warn("could not register for model events, "
+                      + "incremental mapping disabled: " + e);
+        }
+        return registered;
+    }
+
+    public void unregister() {
+        if (!registered) {
+            return;
+        }
+        try {
+            Model.getPump().removeClassModelEventListener(this,
+                    Model.getMetaTypes().getModelElement(),
+                    TRACKED_PROPERTIES);
+        } catch (Exception e) {
+            aLog.warn("could not unregister from model events: " + e);
+        }
+        registered = false;
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * translates a model event into a delta on the mapper.
+     */
+    public void propertyChange(PropertyChangeEvent evt) {
+        if (!(evt.getSource() instanceof ModelElement)) {
+            return;
+        }
+        ModelElement source = (ModelElement) evt.getSource();
+        String property = evt.getPropertyName();
+
+        if (aLog.isDebugEnabled()) {
+            aLog.debug("model event: " + property + " on " + source.getName());
+        }
+
+        try {
+            if (evt instanceof DeleteInstanceEvent) {
+                mapper.elementRemoved(source);
+            } else if (evt instanceof AttributeChangeEvent
+                       && "name".equals(property)) {
+                mapper.elementRenamed(source,
+                                      (String) evt.getOldValue(),
+                                      (String) evt.getNewValue());
+            } else if (CLASSIFYING_PROPERTIES.contains(property)) {
+                if ("ownedElement".equals(property)
+                        && evt instanceof AddAssociationEvent) {
+                    Object added = ((AddAssociationEvent) evt).getChangedValue();
+                    if (added instanceof ModelElement) {
+                        mapper.elementAdded((ModelElement) added);
+                    }
+                } else if ("ownedElement".equals(property)
+                           && evt instanceof RemoveAssociationEvent) {
+                    Object removed =
+                        ((RemoveAssociationEvent) evt).getChangedValue();
+                    if (removed instanceof ModelElement) {
+                        mapper.elementRemoved((ModelElement) removed);
+                    }
+                }
+                mapper.elementReclassified(source);
+            } else if (evt instanceof AddAssociationEvent) {
+                Object added = ((AddAssociationEvent) evt).getChangedValue();
+                if (added instanceof ModelElement) {
+                    if ("ownedElement".equals(property)) {
+                        mapper.elementAdded((ModelElement) added);
+                    } else {
+                        // e.g. a generalization or association end
+                        mapper.elementChanged((ModelElement) added);
+                    }
+                }
+                mapper.elementChanged(source);
+            } else if (evt instanceof RemoveAssociationEvent) {
+                Object removed = ((RemoveAssociationEvent) evt).getChangedValue();
+                if (removed instanceof ModelElement) {
+                    if ("ownedElement".equals(property)) {
+                        mapper.elementRemoved((ModelElement) removed);
+                    } else {
+                        mapper.elementChanged((ModelElement) removed);
+                    }
+                }
+                mapper.elementChanged(source);
+            } else {
+                mapper.elementChanged(source);
+            }
+        } catch (Exception e) {
+            // never let a mapping problem break the model event dispatch
+            aLog.error("applying model change failed: " + e);
+            mapper.invalidateMapping();
+        }
+    }
+}
@@ -28,6 +28,12 @@ public class ModelMapper
     }
 
     public void init()
+    {
+        clearMap();
+    }
+
+    /** drop the cached mapped elements, called by {@link #init()} */
+    protected void clearMap()
     {
         map.clear();
     }
@@ -34,6 +34,8 @@ import ch.ethz.infsec.secureumlgui.Util;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.modelmanagement.ModelConst;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ActionType;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelConst;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
@@ -597,6 +599,16 @@ public class ModelWriter {
      */
     public void addPermission(ActionWrapper actionWrapper,
                               RoleWrapper roleWrapper, Set<PolicyWrapper> policies) {
+        long start = MappingMetrics.start();
+        try {
+            addPermissionUml(actionWrapper, roleWrapper, policies);
+        } finally {
+            MappingMetrics.stop(Phase.MODEL_WRITER, start);
+        }
+    }
+
+    private void addPermissionUml(ActionWrapper actionWrapper,
+                                  RoleWrapper roleWrapper, Set<PolicyWrapper> policies) {
         ResourceWrapper resourceWrapper = actionWrapper.getResourceWrapper();
 
         ModelElement resourceUml = (ModelElement) modelmap
@@ -623,12 +635,15 @@ public class ModelWriter {
     }
 
     public void deletePermission(PermissionWrapper permissionWrapper) {
+        long start = MappingMetrics.start();
 
         deletePermissionViaModelUml(permissionWrapper);
 
+        MappingMetrics.stop(Phase.MODEL_WRITER, start);
     }
 
     public UmlClass createRole(String roleName, Namespace namespace) {
+        long start = MappingMetrics.start();
         try {
             // check if Class
             // with same Name already exists!
@@ -672,11 +687,14 @@ public class ModelWriter {
         } catch (Exception e) {
             logger.logException(e);
             return null;
+        } finally {
+            MappingMetrics.stop(Phase.MODEL_WRITER, start);
         }
     }
 
     public UmlClass createPolicy(String policyName, Namespace namespace) {
         // TODO assure that the policy does not exist
+        long start = MappingMetrics.start();
 
         aLog.debug("createPolicy: Model.getCoreFactory().buildClass(policyName)");
         UmlClass newPolicy = (UmlClass) Model.getCoreFactory().buildClass(
@@ -689,6 +707,7 @@ public class ModelWriter {
         newPolicy.setNamespace(namespace);
         newPolicy.setActive(true);
 
+        MappingMetrics.stop(Phase.MODEL_WRITER, start);
         return newPolicy;
     }
 
@@ -0,0 +1,360 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jmi.reflect.RefClass;
+import javax.jmi.reflect.RefPackage;
+
+import org.apache.log4j.Logger;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.AssociationEnd;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelClass;
+import ch.ethz.infsec.secureumlgui.util.PropertyAccessors;
+
+/**
+ * Index for navigating dialect associations backwards in the UML model.
+ *
+ * For an association end <code>e</code> and a UML element
+ * <code>target</code>, the index returns all UML elements
+ * <code>s</code> for which the UML property getter of <code>e</code>
+ * returns (or contains) <code>target</code>.
+ *
+ * The index of an association end is built on its first use by
+ * invoking the getter once on all UML elements of the type of the
+ * opposite end, and is updated afterwards with
+ * {@link #elementChanged(ModelElement)} and
+ * {@link #elementRemoved(ModelElement)}.
+ *
+ * The index covers the extent (outermost package) of the elements it was
+ * queried with; a query with an element of another extent, e.g. after
+ * another project was opened, drops the index first.
+ */
+public class ReverseAssociationIndex
+{
+    /** one index per association end */
+    private static class EndIndex
+    {
+        /** target -> sources */
+        Map<Object, Set<ModelElement>> sources =
+            new HashMap<Object, Set<ModelElement>>();
+
+        /** source -> targets, used to update the index */
+        Map<ModelElement, Collection<Object>> targets =
+            new HashMap<ModelElement, Collection<Object>>();
+    }
+
+    private static Logger aLog = Logger.getLogger(ReverseAssociationIndex.class);
+
+    private Map<AssociationEnd, EndIndex> endIndices =
+        new HashMap<AssociationEnd, EndIndex>();
+
+    /** uml class name -> all elements of this type */
+    private Map<String, Set<ModelElement>> typeExtents =
+        new HashMap<String, Set<ModelElement>>();
+
+    /** the outermost package the index was built for, null if empty */
+    private RefPackage extent = null;
+
+    private GenericDialectHelper helper;
+
+    public ReverseAssociationIndex(GenericDialectHelper helper)
+    {
+        this.helper = helper;
+    }
+
+    /**
+     * @param target the element to navigate backwards from
+     * @param end the association end pointing to the type of target
+     * @param sourceType the type of the elements to navigate to
+     * @return all elements of type <code>sourceType</code> whose getter
+     *     of <code>end</code> leads to <code>target</code>
+     */
+    public synchronized Collection<ModelElement> getSources(
+        ModelElement target,
+        AssociationEnd end,
+        MetaModelClass sourceType)
+    {
+        useExtentOf(target);
+        EndIndex endIndex = endIndices.get(end);
+        if (endIndex == null)
+        {
+            endIndex = buildEndIndex(target, end, sourceType);
+            endIndices.put(end, endIndex);
+        }
+
+        Set<ModelElement> result = endIndex.sources.get(target);
+        if (result == null)
+            return Collections.emptyList();
+        else
+            return new LinkedList<ModelElement>(result);
+    }
+
+    /**
+     * @param anyElement an element of the model to search in
+     * @param type the type of the elements to return
+     * @return all UML elements of the given type in the model
+     */
+    public synchronized Collection<ModelElement> getElementsOfType(
+        ModelElement anyElement,
+        MetaModelClass type)
+    {
+        if (type == null || type.getUmlClassName() == null)
+            return Collections.emptyList();
+
+        useExtentOf(anyElement);
+        return new LinkedList<ModelElement>(
+                   getTypeExtent(anyElement, type.getUmlClassName()));
+    }
+
+    /** drop the index, it will be rebuilt lazily. */
+    public synchronized void clear()
+    {
+        endIndices.clear();
+        typeExtents.clear();
+        extent = null;
+    }
+
+    /**
+     * drops the index if it was built for another extent than the one of
+     * <code>anyElement</code>.
+     */
+    private void useExtentOf(ModelElement anyElement)
+    {
+        RefPackage outermost = anyElement.refOutermostPackage();
+        if (outermost != extent)
+        {
+            if (extent != null && aLog.isDebugEnabled())
+                aLog.debug("model extent changed, dropping the index");
+            endIndices.clear();
+            typeExtents.clear();
+            extent = outermost;
+        }
+    }
+
+    /**
+     * @return true, if <code>modelElement</code> belongs to another extent
+     *     than the one indexed
+     */
+    private boolean isForeign(ModelElement modelElement)
+    {
+        return extent == null || modelElement.refOutermostPackage() != extent;
+    }
+
+    /**
+     * update the index entries of a changed element.
+     */
+    public synchronized void elementChanged(ModelElement modelElement)
+    {
+        if (isForeign(modelElement))
+            return;
+
+        for (Iterator<Map.Entry<AssociationEnd, EndIndex>> iter =
+                    endIndices.entrySet().iterator(); iter.hasNext();)
+        {
+            Map.Entry<AssociationEnd, EndIndex> entry = iter.next();
+            EndIndex endIndex = entry.getValue();
+
+            if (endIndex.targets.containsKey(modelElement))
+            {
+                removeSource(endIndex, modelElement);
+                addSource(endIndex, modelElement,
+                          entry.getKey().getUmlPropertyGetter());
+            }
+            else if (isOfSourceType(modelElement, entry.getKey()))
+            {
+                addSource(endIndex, modelElement,
+                          entry.getKey().getUmlPropertyGetter());
+            }
+        }
+
+        for (Map.Entry<String, Set<ModelElement>> entry : typeExtents.entrySet())
+        {
+            if (helper.hasType(modelElement, entry.getKey()))
+                entry.getValue().add(modelElement);
+        }
+    }
+
+    /**
+     * remove an element, both as source and as target, from the index.
+     */
+    public synchronized void elementRemoved(ModelElement modelElement)
+    {
+        for (EndIndex endIndex : endIndices.values())
+        {
+            removeSource(endIndex, modelElement);
+            endIndex.sources.remove(modelElement);
+        }
+        for (Set<ModelElement> extent : typeExtents.values())
+        {
+            extent.remove(modelElement);
+        }
+    }
+
+    private boolean isOfSourceType(ModelElement modelElement, AssociationEnd end)
+    {
+        AssociationEnd otherEnd = end.getOwner().getEnd1();
+        if (otherEnd == end)
+            otherEnd = end.getOwner().getEnd2();
+
+        return otherEnd.getType() != null
+               && helper.hasType(modelElement,
+                                 otherEnd.getType().getUmlClassName());
+    }
+
+    private EndIndex buildEndIndex(
+        ModelElement anyElement,
+        AssociationEnd end,
+        MetaModelClass sourceType)
+    {
+        EndIndex endIndex = new EndIndex();
+
+        String getterName = end.getUmlPropertyGetter();
+        if (getterName == null || getterName.length() == 0
+                || sourceType == null)
+            return endIndex;
+
+        for (ModelElement candidate :
+                getTypeExtent(anyElement, sourceType.getUmlClassName()))
+        {
+            addSource(endIndex, candidate, getterName);
+        }
+
+        if (aLog.isDebugEnabled())
+            aLog.debug("indexed " + end + " on " + endIndex.targets.size()
+                       + " elements of type " + sourceType.getName());
+
+        return endIndex;
+    }
+
+    private void addSource(EndIndex endIndex, ModelElement source,
+                           String getterName)
+    {
+        MethodHandle getter =
+            PropertyAccessors.getMethodHandle(source.getClass(), getterName);
+        if (getter == null)
+            // the element has no such property
+            return;
+
+        Object value = null;
+        try
+        {
+            value = PropertyAccessors.invoke(getter, source);
+        }
+        catch (Exception e)
+        {
+            return;
+        }
+
+        Collection<Object> values = new LinkedList<Object>();
+        if (value instanceof Collection)
+            values.addAll((Collection) value);
+        else if (value != null)
+            values.add(value);
+
+        endIndex.targets.put(source, values);
+
+        for (Object target : values)
+        {
+            Set<ModelElement> sources = endIndex.sources.get(target);
+            if (sources == null)
+            {
+                sources = new LinkedHashSet<ModelElement>();
+                endIndex.sources.put(target, sources);
+            }
+            sources.add(source);
+        }
+    }
+
+    private void removeSource(EndIndex endIndex, ModelElement source)
+    {
+        Collection<Object> values = endIndex.targets.remove(source);
+        if (values == null)
+            return;
+
+        for (Object target : values)
+        {
+            Set<ModelElement> sources = endIndex.sources.get(target);
+            if (sources != null)
+            {
+                sources.remove(source);
+                if (sources.isEmpty())
+                    endIndex.sources.remove(target);
+            }
+        }
+    }
+
+    private Set<ModelElement> getTypeExtent(ModelElement anyElement,
+                                            String umlClassName)
+    {
+        Set<ModelElement> extent = typeExtents.get(umlClassName);
+        if (extent == null)
+        {
+            extent = new LinkedHashSet<ModelElement>();
+            for (Iterator iter = getAllOfType(
+                                     anyElement.refOutermostPackage(),
+                                     umlClassName).iterator(); iter.hasNext();)
+            {
+                Object item = iter.next();
+                if (item instanceof ModelElement)
+                    extent.add((ModelElement) item);
+            }
+            typeExtents.put(umlClassName, extent);
+        }
+        return extent;
+    }
+
+    /**
+     * @return all instances of the UML metaclass <code>umlClassName</code>
+     *     (and its subclasses) in the extent of <code>p</code>.
+     */
+    private Collection getAllOfType(RefPackage p, String umlClassName)
+    {
+        if (p == null || umlClassName == null)
+            return Collections.EMPTY_LIST;
+
+        RefClass proxy = findClassProxy(p, umlClassName);
+        if (proxy == null && umlClassName.startsWith("Uml"))
+            // JMI names UmlClass, UmlAssociation, ... are Class, Association
+            // in the metamodel
+            proxy = findClassProxy(p, umlClassName.substring(3));
+
+        if (proxy == null)
+        {
+            aLog.warn("no class proxy found for " + umlClassName);
+            return Collections.EMPTY_LIST;
+        }
+        return proxy.refAllOfType();
+    }
+
+    private RefClass findClassProxy(RefPackage p, String className)
+    {
+        try
+        {
+            return p.refClass(className);
+        }
+        catch (Exception e)
+        {
+            // not in this package
+        }
+
+        for (Iterator iter = p.refAllPackages().iterator(); iter.hasNext();)
+        {
+            RefClass proxy = findClassProxy((RefPackage) iter.next(), className);
+            if (proxy != null)
+                return proxy;
+        }
+        return null;
+    }
+}
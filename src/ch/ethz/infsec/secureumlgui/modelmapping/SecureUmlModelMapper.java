@@ -18,7 +18,6 @@ import org.omg.uml.foundation.core.Classifier;
 import org.omg.uml.foundation.core.Feature;
 import org.omg.uml.foundation.core.Generalization;
 import org.omg.uml.foundation.core.ModelElement;
-import org.omg.uml.foundation.core.Stereotype;
 import org.omg.uml.foundation.core.AssociationClass;
 import org.omg.uml.foundation.core.TaggedValue;
 import org.omg.uml.foundation.core.UmlClass;
@@ -26,7 +25,9 @@ import org.omg.uml.foundation.core.UmlClass;
 //import tudresden.ocl20.core.MetaModelConst;
 import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.Util;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
 import ch.ethz.infsec.secureumlgui.modelmapping.counters.SecureUmlMappingCounter;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchyIndex;
 //import ch.ethz.infsec.secureumlgui.oclconstraintloader.ConstraintLoader;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
 import ch.ethz.infsec.secureumlgui.util.PermissionDummy;
@@ -35,6 +36,7 @@ import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 import ch.ethz.infsec.secureumlgui.securemodelimpl.SecureModelFactory;
 
@@ -76,6 +78,7 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
         super.init();
 
         counter = new SecureUmlMappingCounter();
+        MappingMetrics.getInstance().setMappingCounter(counter);
 
         permissionAnchors.clear();
     }
@@ -130,6 +133,9 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
 
     @SuppressWarnings("unchecked")
     protected void transformPermissionClass(AssociationClass associationClass) {
+        if (map.mapContainsKey(associationClass))
+            return;
+
         Classifier roleClassifier = null;
         Classifier policyClassifier = null;
         Classifier anchorClassifier = null;
@@ -243,7 +249,7 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
                 Object permission = map.getElement(a);
 
                 if (permission != null) {
-                    PermissionWrapper pw = new PermissionWrapper(permission);
+                    PermissionWrapper pw = WrapperFactory.getPermissionWrapper(permission);
                     pw.setAuthorizationConstraint(authorizationConstraint);
 
                     //PermissionWrapper permissionWrapper = new PermissionWrapper(permission);
@@ -359,7 +365,7 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
 
 //				Util.setProperty(permission, "policy", suPolicy);
 //				aLog.debug("SET POLICY " + suPolicy + " to PERMISSION " + permission);
-                PermissionWrapper perm = new PermissionWrapper(permission);
+                PermissionWrapper perm = WrapperFactory.getPermissionWrapper(permission);
 
                 perm.setPolicy(suPolicy);
 
@@ -398,21 +404,23 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
             aw.addPermission(permission);
 
             Object suRole = map.getElement(roleClassifier);
-            RoleWrapper roleWrapper = new RoleWrapper(suRole);
+            RoleWrapper roleWrapper = WrapperFactory.getRoleWrapper(suRole);
 
             roleWrapper.addPermission(permission);
 
-            PermissionWrapper permissionwrapper = new PermissionWrapper(
-                permission);
+            PermissionWrapper permissionwrapper =
+                WrapperFactory.getPermissionWrapper(permission);
             permissionwrapper.setRole(suRole);
             permissionwrapper.setAction(suAction);
             if ( suPolicy != null ) {
-                aLog.debug("set policy for permission " + permissionwrapper.getName() + " policy " + suPolicy + " " + new PermissionWrapper(suPolicy).getName());
+                if (aLog.isDebugEnabled()) {
+                    aLog.debug("set policy for permission " + permissionwrapper.getName() + " policy " + suPolicy + " " + WrapperFactory.getPolicyWrapper(suPolicy).getName());
+                }
                 permissionwrapper.setPolicy(suPolicy);
             }
 
-            ResourceWrapper resourceWrapper = new ResourceWrapper(
-                suTargetResource);
+            ResourceWrapper resourceWrapper =
+                WrapperFactory.getResourceWrapper(suTargetResource);
             resourceWrapper.getAction().add(suAction);
 
             //PolicyWrapper policy = new PolicyWrapper(suPolicy);
@@ -476,6 +484,7 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
         Util.setProperty(role, propertyName, roleClass.getName());
 
         map.put(roleClass, role);
+        HierarchyIndex.getInstance().getRoles().elementAdded(role);
         // map.addForDeletion(roleClass);
         counter.incRoleCount();
     }
@@ -491,6 +500,8 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
         Util.setProperty(policy, "name", policyClass.getName());
 
         map.put(policyClass, policy);
+        // a new policy changes the order of the policies
+        HierarchyIndex.getInstance().getPolicies().elementAdded(policy);
 
         counter.incPolicyCount();
     }
@@ -515,6 +526,8 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
             // parent.getSubroles().add(child);
             Util.setProperty(parent, "subroles", child);
 
+            HierarchyIndex.getInstance().getRoles().addGeneralization(child, parent);
+
             counter.incRoleInheritance();
         }
     }
@@ -541,6 +554,8 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
             Util.setProperty(child, SecureUmlConstants.POLICY_INHERITANCE_REFINEDBY, parent);
             Util.setProperty(parent, SecureUmlConstants.POLICY_INHERITANCE_REFINES, child);
 
+            HierarchyIndex.getInstance().getPolicies().addGeneralization(child, parent);
+
             counter.incPolicyInheritanceCount();
         }
     }
@@ -548,22 +563,7 @@ public abstract class SecureUmlModelMapper extends ModelMapper {
     /* utility methods */
 
     protected boolean isOfType(ModelElement element, String stereotype) {
-        if (element == null || stereotype == null)
-            return false;
-
-        Collection stereotypes = element.getStereotype();
-        int nofStereotypes = stereotypes.size();
-
-        if (stereotypes == null || stereotypes.size() == 0)
-            return false;
-
-        for (Iterator it = stereotypes.iterator(); it.hasNext();) {
-            Stereotype s = (Stereotype) it.next();
-            if (s.getName().equals(stereotype)) {
-                return true;
-            }
-        }
-        return false;
+        return StereotypeIndex.getInstance().hasStereotype(element, stereotype);
     }
 
     protected boolean isOfType(Collection<ModelElement> elements,
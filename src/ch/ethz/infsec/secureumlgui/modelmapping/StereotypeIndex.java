@@ -0,0 +1,264 @@
+package ch.ethz.infsec.secureumlgui.modelmapping;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.argouml.model.DeleteInstanceEvent;
+import org.argouml.model.Model;
+import org.omg.uml.foundation.core.ModelElement;
+import org.omg.uml.foundation.core.Stereotype;
+
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants.SECUML_STEREOTYPES;
+
+/**
+ * Answers "has this element that stereotype?" with a bit test instead of
+ * comparing the names of all stereotypes of the element.
+ *
+ * The stereotype names of SecureUML and of the dialect are interned to
+ * small ids (at most {@link #MAX_STEREOTYPES}), and the stereotypes of an
+ * element are cached as a bitmask of these ids. Names interned after the
+ * mask of an element was computed cause it to be recomputed. Queries do
+ * not intern: other names, and names beyond the limit, are compared by
+ * scanning as before. The ids are reset when another dialect is selected,
+ * see {@link #dialectChanged(Collection)}.
+ *
+ * The masks are only cached while the index listens to the model event
+ * pump (see {@link #register()}), which drops the mask of an element when
+ * a stereotype is added to or removed from it, and all masks when a
+ * stereotype is renamed. The elements are referenced weakly.
+ */
+public class StereotypeIndex implements PropertyChangeListener {
+
+    /** number of bits of a mask */
+    public static final int MAX_STEREOTYPES = 64;
+
+    /** the model properties whose changes affect the masks */
+    static final String[] TRACKED_PROPERTIES = new String[] {
+        "stereotype",
+        "name",
+        "remove"
+    };
+
+    /** the stereotypes of an element */
+    private static class Mask {
+        /** bit i is set, if the element has the stereotype with id i */
+        final long bits;
+
+        /** the number of ids interned when the mask was computed */
+        final int knownIds;
+
+        Mask(long bits, int knownIds) {
+            this.bits = bits;
+            this.knownIds = knownIds;
+        }
+    }
+
+    private static Logger aLog = Logger.getLogger(StereotypeIndex.class);
+
+    private static StereotypeIndex instance = new StereotypeIndex();
+
+    public static StereotypeIndex getInstance() {
+        return instance;
+    }
+
+    /** stereotype name -> id */
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    private final Map<ModelElement, Mask> masks = new WeakHashMap<ModelElement, Mask>();
+
+    private boolean registered = false;
+
+    StereotypeIndex() {
+        internSecureUml();
+    }
+
+    private void internSecureUml() {
+        for (SECUML_STEREOTYPES stereotype : SECUML_STEREOTYPES.values()) {
+            intern(stereotype.toString());
+        }
+        intern(SecureUmlConstants.STEREOTYPE_OCL_TYPE);
+    }
+
+    /**
+     * @return the id of the stereotype named <code>name</code>, -1 if all
+     *     ids are taken
+     */
+    public synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            if (ids.size() >= MAX_STEREOTYPES) {
+                return -1;
+            }
+            id = Integer.valueOf(ids.size());
+            ids.put(name, id);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * interns the stereotypes the resource types of a dialect are marked
+     * with.
+     */
+    public void internAll(Collection<String> names) {
+        for (String name : names) {
+            if (name != null && name.length() > 0) {
+                intern(name);
+            }
+        }
+    }
+
+    /**
+     * forgets the ids of the stereotypes of the former dialect, and
+     * interns the ones of the new dialect.
+     */
+    public synchronized void dialectChanged(Collection<String> names) {
+        ids.clear();
+        masks.clear();
+        internSecureUml();
+        internAll(names);
+    }
+
+    /**
+     * @return the id of the stereotype named <code>name</code>, -1 if it
+     *     is not interned
+     */
+    public synchronized int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * @return true, if <code>element</code> has a stereotype named
+     *     <code>stereotype</code>
+     */
+    public boolean hasStereotype(ModelElement element, String stereotype) {
+        if (element == null || stereotype == null || stereotype.length() == 0) {
+            return false;
+        }
+
+        int id = getId(stereotype);
+        if (id < 0) {
+            return scan(element, stereotype);
+        }
+        return (getMask(element) & (1L << id)) != 0;
+    }
+
+    /**
+     * @return the bits of the interned stereotypes of <code>element</code>
+     */
+    public synchronized long getMask(ModelElement element) {
+        Mask mask = masks.get(element);
+        if (mask == null || mask.knownIds < ids.size()) {
+            mask = new Mask(computeMask(element), ids.size());
+            if (registered) {
+                masks.put(element, mask);
+            }
+        }
+        return mask.bits;
+    }
+
+    /** the stereotypes of <code>element</code> changed */
+    public synchronized void stereotypesChanged(ModelElement element) {
+        masks.remove(element);
+    }
+
+    /** drop all cached masks */
+    public synchronized void clear() {
+        masks.clear();
+    }
+
+    /**
+     * subscribe to the stereotype changes of all model elements; the
+     * masks are cached from now on.
+     *
+     * @return true, if the index is listening to the model event pump
+     */
+    public synchronized boolean register() {
+        if (registered) {
+            return true;
+        }
+        try {
+            Model.getPump().addClassModelEventListener(this,
+                    Model.getMetaTypes().getModelElement(),
+                    TRACKED_PROPERTIES);
+            registered = true;
+        } catch (Exception e) {
+            aLog.warn("could not register for model events, "
+                      + "stereotype masks are not cached: " + e);
+        }
+        return registered;
+    }
+
+    public synchronized void unregister() {
+        if (!registered) {
+            return;
+        }
+        try {
+            Model.getPump().removeClassModelEventListener(this,
+                    Model.getMetaTypes().getModelElement(),
+                    TRACKED_PROPERTIES);
+        } catch (Exception e) {
+            aLog.warn("could not unregister from model events: " + e);
+        }
+        registered = false;
+        masks.clear();
+    }
+
+    public synchronized boolean isRegistered() {
+        return registered;
+    }
+
+    public void propertyChange(PropertyChangeEvent evt) {
+        if (!(evt.getSource() instanceof ModelElement)) {
+            return;
+        }
+        ModelElement source = (ModelElement) evt.getSource();
+
+        if (source instanceof Stereotype
+                && ("name".equals(evt.getPropertyName())
+                    || evt instanceof DeleteInstanceEvent)) {
+            // the bits of all elements with this stereotype change
+            clear();
+        } else if ("stereotype".equals(evt.getPropertyName())
+                   || evt instanceof DeleteInstanceEvent) {
+            stereotypesChanged(source);
+        }
+    }
+
+    private long computeMask(ModelElement element) {
+        long bits = 0;
+        Collection stereotypes = element.getStereotype();
+        if (stereotypes == null) {
+            return bits;
+        }
+        for (Iterator it = stereotypes.iterator(); it.hasNext();) {
+            Stereotype s = (Stereotype) it.next();
+            Integer id = s.getName() != null ? ids.get(s.getName()) : null;
+            if (id != null) {
+                bits |= 1L << id.intValue();
+            }
+        }
+        return bits;
+    }
+
+    private static boolean scan(ModelElement element, String stereotype) {
+        Collection stereotypes = element.getStereotype();
+        if (stereotypes == null) {
+            return false;
+        }
+        for (Iterator it = stereotypes.iterator(); it.hasNext();) {
+            Stereotype s = (Stereotype) it.next();
+            if (stereotype.equals(s.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,216 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.counters;
+
+import java.lang.management.ManagementFactory;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counters and latency histograms of the phases of the mapping and the
+ * permission derivation, see {@link Phase}. A phase is measured with
+ *
+ * <pre>
+ * long start = MappingMetrics.start();
+ * ...
+ * MappingMetrics.stop(Phase.SCOPE, start);
+ * </pre>
+ *
+ * Recording takes two <code>System.nanoTime()</code> calls and a few
+ * atomic increments; if the metrics are disabled (the default), nothing is
+ * recorded. They are enabled by the "Record Mapping Metrics" item of the
+ * SecureUML menu or through JMX.
+ *
+ * Snapshots are available through JMX (see {@link #register()}) and the
+ * "Dump Mapping Metrics" item of the SecureUML menu. They include the
+ * element counts of the last mapping, see
+ * {@link #setMappingCounter(SecureUmlMappingCounter)}.
+ */
+public class MappingMetrics implements MappingMetricsMBean {
+
+    public static final String OBJECT_NAME = "ch.ethz.infsec.secureumlgui:type=MappingMetrics";
+
+    public enum Phase {
+        TRANSFORM("transform"),
+        SCOPE("scope computation"),
+        ELEMENTS("element transform"),
+        ASSOCIATIONS("association transform"),
+        ACTION_HIERARCHIES("action hierarchies"),
+        ROLES("role transform"),
+        POLICIES("policy transform"),
+        PERMISSIONS("permission transform"),
+        DERIVATION("permission derivation"),
+        EXPLORER_ROUND("explorer round"),
+        OCL_EVALUATION("OCL evaluation"),
+        PROPERTY_ACCESSOR("reflective accessor call"),
+        MODEL_WRITER("model writer operation"),
+        XMI_EXPORT("XMI export");
+
+        private final String description;
+
+        private Phase(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final MappingMetrics instance = new MappingMetrics();
+
+    private static Logger aLog = Logger.getLogger(MappingMetrics.class);
+
+    private static volatile boolean enabled = false;
+
+    private final PhaseStatistics[] statistics = new PhaseStatistics[Phase.values().length];
+
+    private volatile SecureUmlMappingCounter mappingCounter;
+
+    private final AtomicLong exportedBytes = new AtomicLong();
+
+    private MappingMetrics() {
+        for ( int i = 0; i < statistics.length; i++ ) {
+            statistics[i] = new PhaseStatistics();
+        }
+    }
+
+    public static MappingMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the start time of a phase, to be passed to
+     *     {@link #stop(Phase, long)}; 0 if the metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * records the duration of <code>phase</code> since
+     * <code>start</code>.
+     */
+    public static void stop(Phase phase, long start) {
+        if ( start != 0 ) {
+            instance.statistics[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * registers the metrics with the platform MBean server, if not done
+     * yet.
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if ( !server.isRegistered(name) ) {
+                server.registerMBean(instance, name);
+            }
+        } catch (JMException e) {
+            aLog.warn("could not register the mapping metrics with JMX", e);
+        }
+    }
+
+    /**
+     * records an XMI export of <code>bytes</code> (before compression)
+     * since <code>start</code>, see {@link #getExportThroughput()}.
+     */
+    public static void stopExport(long bytes, long start) {
+        if ( start != 0 ) {
+            stop(Phase.XMI_EXPORT, start);
+            instance.exportedBytes.addAndGet(bytes);
+        }
+    }
+
+    public PhaseStatistics getStatistics(Phase phase) {
+        return statistics[phase.ordinal()];
+    }
+
+    /**
+     * @param counter the element counts of the last mapping
+     */
+    public void setMappingCounter(SecureUmlMappingCounter counter) {
+        this.mappingCounter = counter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        MappingMetrics.enabled = enabled;
+    }
+
+    public String[] getPhaseNames() {
+        Phase[] phases = Phase.values();
+        String[] result = new String[phases.length];
+        for ( int i = 0; i < phases.length; i++ ) {
+            result[i] = phases[i].name();
+        }
+        return result;
+    }
+
+    public String getSnapshot() {
+        Formatter table = new Formatter();
+        table.format("%-26s %9s %11s %10s %9s %9s %9s%n",
+                     "phase", "count", "total ms", "mean µs", "p50 µs", "p99 µs", "max µs");
+        for ( Phase phase : Phase.values() ) {
+            PhaseStatistics s = getStatistics(phase);
+            table.format("%-26s %9d %11d %10.1f %9d %9d %9d%n", phase.getDescription(), s.getCount(),
+                         s.getTotalNanos() / 1000000, s.getMeanMicros(), s.getPercentileMicros(50),
+                         s.getPercentileMicros(99), s.getMaxNanos() / 1000);
+        }
+
+        if ( getStatistics(Phase.XMI_EXPORT).getCount() > 0 ) {
+            table.format("%nXMI export: %d bytes, %.1f MB/s%n", getExportedBytes(), getExportThroughput());
+        }
+
+        SecureUmlMappingCounter counter = mappingCounter;
+        if ( counter != null ) {
+            table.format("%nlast mapping:%n%s", counter);
+        }
+        return table.toString();
+    }
+
+    public long getCount(String phase) {
+        return getStatistics(Phase.valueOf(phase)).getCount();
+    }
+
+    public long getTotalMillis(String phase) {
+        return getStatistics(Phase.valueOf(phase)).getTotalNanos() / 1000000;
+    }
+
+    public double getMeanMicros(String phase) {
+        return getStatistics(Phase.valueOf(phase)).getMeanMicros();
+    }
+
+    public long getMaxMicros(String phase) {
+        return getStatistics(Phase.valueOf(phase)).getMaxNanos() / 1000;
+    }
+
+    public long getPercentileMicros(String phase, double percentile) {
+        return getStatistics(Phase.valueOf(phase)).getPercentileMicros(percentile);
+    }
+
+    public long getExportedBytes() {
+        return exportedBytes.get();
+    }
+
+    public double getExportThroughput() {
+        long nanos = getStatistics(Phase.XMI_EXPORT).getTotalNanos();
+        return nanos == 0 ? 0 : exportedBytes.get() * 1000.0 / nanos;
+    }
+
+    public void reset() {
+        for ( PhaseStatistics s : statistics ) {
+            s.reset();
+        }
+        exportedBytes.set(0);
+    }
+}
@@ -0,0 +1,38 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.counters;
+
+/**
+ * JMX view of the {@link MappingMetrics}, registered as
+ * {@link MappingMetrics#OBJECT_NAME}. Phases are given by the names of
+ * {@link MappingMetrics.Phase}, e.g. <code>SCOPE</code>.
+ */
+public interface MappingMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /** @return the names of all phases */
+    String[] getPhaseNames();
+
+    /** @return a table of all phases, as shown by the dump action */
+    String getSnapshot();
+
+    long getCount(String phase);
+
+    long getTotalMillis(String phase);
+
+    double getMeanMicros(String phase);
+
+    long getMaxMicros(String phase);
+
+    /** @return the upper bound in µs of the percentile (0 - 100) */
+    long getPercentileMicros(String phase, double percentile);
+
+    /** @return the bytes written by the XMI exports, before compression */
+    long getExportedBytes();
+
+    /** @return the mean throughput of the XMI exports in MB/s */
+    double getExportThroughput();
+
+    void reset();
+}
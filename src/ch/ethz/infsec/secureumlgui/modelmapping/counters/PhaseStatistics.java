@@ -0,0 +1,94 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.counters;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count, total and maximum time and a latency histogram of one phase,
+ * see {@link MappingMetrics}. Recording is lock free, so that the
+ * parallel derivation can record concurrently.
+ *
+ * The histogram has one bucket per power of two microseconds: bucket
+ * <i>i</i> counts the durations below 2<sup><i>i</i></sup> µs (and at
+ * least 2<sup><i>i</i>-1</sup> µs), the last bucket all longer ones.
+ */
+public class PhaseStatistics {
+
+    static final int BUCKETS = 32;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while ( nanos > max && !maxNanos.compareAndSet(max, nanos) ) {
+            max = maxNanos.get();
+        }
+
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        histogram.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+    }
+
+    void reset() {
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            histogram.set(i, 0);
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /** @return the mean duration in µs, 0 if nothing was recorded */
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / 1000.0 / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound in µs of the histogram bucket of the
+     *     percentile, 0 if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] buckets = new long[BUCKETS];
+        long n = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            buckets[i] = histogram.get(i);
+            n += buckets[i];
+        }
+        if ( n == 0 ) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ ) {
+            seen += buckets[i];
+            if ( seen >= rank && seen > 0 ) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+}
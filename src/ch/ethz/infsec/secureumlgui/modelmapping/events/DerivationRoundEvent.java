@@ -0,0 +1,35 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A round of the fixpoint derivation of the permissions of one policy,
+ * see {@link ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionDerivationEngine}.
+ */
+@Name("ch.ethz.infsec.secureumlgui.DerivationRound")
+@Label("Permission Derivation Round")
+@Category({"SecureUML", "Permissions"})
+@Description("A round of deriving the inherited and implicit permissions")
+@StackTrace(false)
+class DerivationRoundEvent extends Event implements EventHandle {
+
+    @Label("Policy")
+    String policy;
+
+    @Label("Round")
+    int round;
+
+    @Label("Derived Permissions")
+    @Description("The number of permissions derived in the round")
+    int derivedPermissions;
+
+    public void end(int size) {
+        derivedPermissions = size;
+        commit();
+    }
+}
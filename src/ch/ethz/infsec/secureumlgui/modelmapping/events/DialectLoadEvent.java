@@ -0,0 +1,31 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Loading and analyzing a dialect metamodel.
+ */
+@Name("ch.ethz.infsec.secureumlgui.DialectLoad")
+@Label("Dialect Load")
+@Category({"SecureUML", "Mapping"})
+@Description("Loading and analyzing a dialect metamodel")
+@StackTrace(false)
+class DialectLoadEvent extends Event implements EventHandle {
+
+    @Label("Dialect")
+    @Description("The file of the dialect metamodel")
+    String dialect;
+
+    @Label("Resource Types")
+    int resourceTypes;
+
+    public void end(int size) {
+        resourceTypes = size;
+        commit();
+    }
+}
@@ -0,0 +1,18 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+
+/**
+ * Creates the Flight Recorder events, see {@link JfrEventFactory}. The
+ * methods return null if the event type is not recorded.
+ */
+interface EventFactory {
+
+    EventHandle beginPhase(Phase phase, Object target);
+
+    EventHandle beginRound(String policy, int round);
+
+    EventHandle beginOclEvaluation(Object expression, Object target);
+
+    EventHandle beginDialectLoad(String dialect);
+}
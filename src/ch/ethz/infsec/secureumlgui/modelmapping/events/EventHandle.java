@@ -0,0 +1,15 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+/**
+ * An event which has begun and is committed by
+ * {@link MappingEvents#end(EventHandle, int)}.
+ */
+public interface EventHandle {
+
+    /**
+     * ends and commits the event.
+     *
+     * @param size the number of elements processed, see the event type
+     */
+    void end(int size);
+}
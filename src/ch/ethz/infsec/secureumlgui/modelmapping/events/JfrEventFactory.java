@@ -0,0 +1,67 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import jdk.jfr.EventType;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+
+/**
+ * Creates the Flight Recorder events. The only class, with the events
+ * themselves, which uses the Flight Recorder API (Java 11); it is loaded
+ * by {@link MappingEvents} if the API is available.
+ *
+ * An event is only created if its type is enabled in a running
+ * recording; the check does not allocate.
+ */
+class JfrEventFactory implements EventFactory {
+
+    private final EventType phaseType = EventType.getEventType(MappingPhaseEvent.class);
+
+    private final EventType roundType = EventType.getEventType(DerivationRoundEvent.class);
+
+    private final EventType oclType = EventType.getEventType(OclEvaluationEvent.class);
+
+    private final EventType dialectType = EventType.getEventType(DialectLoadEvent.class);
+
+    public EventHandle beginPhase(Phase phase, Object target) {
+        if ( !phaseType.isEnabled() ) {
+            return null;
+        }
+        MappingPhaseEvent event = new MappingPhaseEvent();
+        event.phase = phase.getDescription();
+        event.target = MappingEvents.getName(target);
+        event.begin();
+        return event;
+    }
+
+    public EventHandle beginRound(String policy, int round) {
+        if ( !roundType.isEnabled() ) {
+            return null;
+        }
+        DerivationRoundEvent event = new DerivationRoundEvent();
+        event.policy = policy;
+        event.round = round;
+        event.begin();
+        return event;
+    }
+
+    public EventHandle beginOclEvaluation(Object expression, Object target) {
+        if ( !oclType.isEnabled() ) {
+            return null;
+        }
+        OclEvaluationEvent event = new OclEvaluationEvent();
+        event.expression = String.valueOf(expression);
+        event.target = MappingEvents.getName(target);
+        event.begin();
+        return event;
+    }
+
+    public EventHandle beginDialectLoad(String dialect) {
+        if ( !dialectType.isEnabled() ) {
+            return null;
+        }
+        DialectLoadEvent event = new DialectLoadEvent();
+        event.dialect = dialect;
+        event.begin();
+        return event;
+    }
+}
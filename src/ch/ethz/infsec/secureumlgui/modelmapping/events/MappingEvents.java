@@ -0,0 +1,117 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import org.apache.log4j.Logger;
+import org.omg.uml.foundation.core.ModelElement;
+
+import ch.ethz.infsec.secureumlgui.Util;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+
+/**
+ * Emits Java Flight Recorder events for the phases of the mapping and
+ * the permission derivation, so that a recording of a slow session shows
+ * which phase is hot. An event is measured with
+ *
+ * <pre>
+ * EventHandle event = MappingEvents.beginPhase(Phase.SCOPE, startPoint);
+ * ...
+ * MappingEvents.end(event, mappingScope.size());
+ * </pre>
+ *
+ * The events are only created while a recording with the event type
+ * enabled is running; otherwise <code>begin...</code> returns null
+ * without allocating anything. On JVMs without Flight Recorder (before
+ * Java 11), nothing is emitted. The event types are in the category
+ * "SecureUML", see {@link JfrEventFactory}.
+ */
+public final class MappingEvents {
+
+    private static final String FACTORY_CLASS =
+        "ch.ethz.infsec.secureumlgui.modelmapping.events.JfrEventFactory";
+
+    private static Logger aLog = Logger.getLogger(MappingEvents.class);
+
+    /** null, if Flight Recorder is not available */
+    private static final EventFactory factory = createFactory();
+
+    private MappingEvents() {
+    }
+
+    /**
+     * @param phase a phase of the mapping, as measured by
+     *     {@link ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics}
+     * @param target the element the phase works on, usually the start
+     *     point of the mapping
+     */
+    public static EventHandle beginPhase(Phase phase, Object target) {
+        return factory == null ? null : factory.beginPhase(phase, target);
+    }
+
+    /**
+     * a round of the fixpoint derivation of the permissions of
+     * <code>policy</code>, see
+     * {@link ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionDerivationEngine}.
+     * Its size is the number of permissions derived in the round.
+     */
+    public static EventHandle beginRound(String policy, int round) {
+        return factory == null ? null : factory.beginRound(policy, round);
+    }
+
+    /**
+     * the evaluation of <code>expression</code> on <code>target</code>.
+     * Its size is the number of results.
+     */
+    public static EventHandle beginOclEvaluation(Object expression, Object target) {
+        return factory == null ? null : factory.beginOclEvaluation(expression, target);
+    }
+
+    /**
+     * loading the dialect metamodel <code>dialect</code>. Its size is the
+     * number of resource types.
+     */
+    public static EventHandle beginDialectLoad(String dialect) {
+        return factory == null ? null : factory.beginDialectLoad(dialect);
+    }
+
+    /**
+     * commits <code>event</code>, if it was begun.
+     */
+    public static void end(EventHandle event, int size) {
+        if ( event != null ) {
+            event.end(size);
+        }
+    }
+
+    /**
+     * @return the name of a model element, for the events
+     */
+    static String getName(Object element) {
+        if ( element == null ) {
+            return null;
+        }
+        if ( element instanceof ModelElement ) {
+            return ((ModelElement) element).getName();
+        }
+        Object name = Util.tryGetProperty(element, "name");
+        return name != null ? name.toString() : element.getClass().getName();
+    }
+
+    /**
+     * the factory is loaded by name, so that this class does not depend
+     * on the Flight Recorder API.
+     */
+    private static EventFactory createFactory() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            EventFactory result = (EventFactory) Class.forName(FACTORY_CLASS).newInstance();
+            aLog.debug("Flight Recorder events enabled");
+            return result;
+        } catch (ClassNotFoundException e) {
+            aLog.debug("Flight Recorder not available, no events are emitted");
+        } catch (LinkageError e) {
+            aLog.debug("Flight Recorder not available, no events are emitted");
+        } catch (Exception e) {
+            aLog.warn("could not create the Flight Recorder events", e);
+        }
+        return null;
+    }
+}
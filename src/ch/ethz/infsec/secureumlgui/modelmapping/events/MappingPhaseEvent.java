@@ -0,0 +1,35 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of {@link ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper#transform}.
+ */
+@Name("ch.ethz.infsec.secureumlgui.MappingPhase")
+@Label("Mapping Phase")
+@Category({"SecureUML", "Mapping"})
+@Description("A phase of mapping the UML model to the dialect model")
+@StackTrace(false)
+class MappingPhaseEvent extends Event implements EventHandle {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Target")
+    @Description("The element the mapping started at")
+    String target;
+
+    @Label("Elements")
+    @Description("The number of elements the phase processed")
+    int elements;
+
+    public void end(int size) {
+        elements = size;
+        commit();
+    }
+}
@@ -0,0 +1,38 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The evaluation of an OCL expression of the dialect, e.g. an anchor
+ * path. There are many evaluations, so the event is only recorded if
+ * enabled in the recording settings.
+ */
+@Name("ch.ethz.infsec.secureumlgui.OclEvaluation")
+@Label("OCL Evaluation")
+@Category({"SecureUML", "OCL"})
+@Description("The evaluation of an OCL expression of the dialect")
+@StackTrace(false)
+@Enabled(false)
+class OclEvaluationEvent extends Event implements EventHandle {
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Target")
+    @Description("The element the expression is evaluated on")
+    String target;
+
+    @Label("Results")
+    int results;
+
+    public void end(int size) {
+        results = size;
+        commit();
+    }
+}
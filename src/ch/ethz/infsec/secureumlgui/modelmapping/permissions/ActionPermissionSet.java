@@ -4,6 +4,7 @@
 package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -21,7 +22,8 @@ import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
 
 /**
  * the set of permissions for role {@link #explicitRoleWrapper} on
- * action {@link #explicitActionWrapper}.
+ * action {@link #explicitActionWrapper}, a row of the
+ * {@link PermissionMatrix} with one {@link PolicyPermissionSet} per policy.
  *
  */
 public class ActionPermissionSet
@@ -34,17 +36,26 @@ public class ActionPermissionSet
     private static Logger aLog = Logger.getLogger(ActionPermissionSet.class);
     private boolean inserted_default = false; //Very, very bad hack..
 
+    private final PermissionMatrix matrix;
+    private final int roleId;
+    private final int actionId;
 
-    public ActionPermissionSet() {
-
-        PolicyWrapper defaultPolicy = HierarchicalPolicyExplorer.getInstance().getDefaultPolicyWrapper();
 
-        defaultPermissions = new PolicyPermissionSet(defaultPolicy);
+    /**
+     * creates a permission set of its own matrix.
+     */
+    public ActionPermissionSet() {
+        this(new PermissionMatrix(), 0, 0);
+    }
 
-        if ( defaultPolicy != null ) {
-            permissions.put(defaultPolicy.getModelElement(), defaultPermissions);
-            inserted_default = true;
-        }
+    ActionPermissionSet(PermissionMatrix matrix, int roleId, int actionId) {
+        this.matrix = matrix;
+        this.roleId = roleId;
+        this.actionId = actionId;
+        // the default policy is looked up with the first policy, see
+        // getPolicyPermissionSet(); these sets are created for every
+        // (role, action) pair while deriving permissions
+        defaultPermissions = new PolicyPermissionSet(matrix, roleId, actionId, PermissionMatrix.DEFAULT_POLICY);
     }
 
 
@@ -74,7 +85,7 @@ public class ActionPermissionSet
         return defaultPermissions;
     }
 
-    public PolicyPermissionSet getPolicyPermissionSet(PolicyWrapper policy) {
+    public synchronized PolicyPermissionSet getPolicyPermissionSet(PolicyWrapper policy) {
 
         if ( policy == null ) {
             return getDefaultPolicyPermissionSet();
@@ -83,6 +94,7 @@ public class ActionPermissionSet
         if ( ! inserted_default ) {
             PolicyWrapper defaultPolicy = HierarchicalPolicyExplorer.getInstance().getDefaultPolicyWrapper();
             if ( defaultPolicy != null ) {
+                matrix.setDefaultPolicy(defaultPolicy.getModelElement());
                 permissions.put(defaultPolicy.getModelElement(), defaultPermissions);
                 inserted_default = true;
             }
@@ -92,19 +104,46 @@ public class ActionPermissionSet
         if ( permissions.containsKey(policy.getModelElement())) {
             return permissions.get(policy.getModelElement());
         } else {
-            PolicyPermissionSet policyPermissionSet = new PolicyPermissionSet(policy);
+            PolicyPermissionSet policyPermissionSet = new PolicyPermissionSet(matrix, roleId, actionId, matrix.getPolicyId(policy.getModelElement()));
             permissions.put(policy.getModelElement(), policyPermissionSet);
             return policyPermissionSet;
         }
     }
 
 
+    /**
+     * returns the permission set of the policy (the default permissions
+     * for null), null if there is none. Unlike
+     * {@link #getPolicyPermissionSet(PolicyWrapper)}, this does not change
+     * the set, so it can be used on shared sets.
+     */
+    public synchronized PolicyPermissionSet findPolicyPermissionSet(PolicyWrapper policy) {
+
+        if ( policy == null ) {
+            return getDefaultPolicyPermissionSet();
+        }
+
+        PolicyPermissionSet result = permissions.get(policy.getModelElement());
+        if ( result == null ) {
+            PolicyWrapper defaultPolicy = HierarchicalPolicyExplorer.getInstance().getDefaultPolicyWrapper();
+            if ( defaultPolicy != null && defaultPolicy.getModelElement() == policy.getModelElement() ) {
+                result = defaultPermissions;
+            }
+        }
+        return result;
+    }
+
+
     public Collection<PermissionValue> getPermissions(PolicyWrapper policy) {
 
         //aLog.debug("getPermissions of policy " +( policy == null ? "NULL" : policy.getName()+  "_" + policy.getModelElement()) + "(" + permissions.size() + ")" );
 
-
-        return getPolicyPermissionSet(policy).getPermissions();
+        // only reads, the set may be shared by the cache
+        PolicyPermissionSet policyPermissions = findPolicyPermissionSet(policy);
+        if ( policyPermissions == null ) {
+            return Collections.emptyList();
+        }
+        return policyPermissions.getPermissions();
     }
 
 
@@ -136,11 +175,13 @@ public class ActionPermissionSet
     }
 
     public boolean isExplicitPermitted(PolicyWrapper policy) {
-        return getPolicyPermissionSet(policy).isExplicitPermitted();
+        PolicyPermissionSet policyPermissions = findPolicyPermissionSet(policy);
+        return policyPermissions != null && policyPermissions.isExplicitPermitted();
     }
 
     public PermissionWrapper getExplicitPermittedPermission(PolicyWrapper policy) {
-        return getPolicyPermissionSet(policy).getExplicitPermittedPermission();
+        PolicyPermissionSet policyPermissions = findPolicyPermissionSet(policy);
+        return policyPermissions == null ? null : policyPermissions.getExplicitPermittedPermission();
     }
 
 
@@ -1,137 +1,59 @@
 package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
 
-import java.util.Collection;
-import java.util.List;
-
-import javax.jmi.reflect.RefClass;
-import javax.jmi.reflect.RefException;
-import javax.jmi.reflect.RefFeatured;
-import javax.jmi.reflect.RefObject;
-import javax.jmi.reflect.RefPackage;
-
-import ch.ethz.infsec.secureumlgui.securemodel.secureuml.AuthorizationConstraint;
-import ch.ethz.infsec.secureumlgui.securemodel.secureuml.Permission;
-import ch.ethz.infsec.secureumlgui.securemodel.secureuml.Role;
-
-public class CompositePermission implements Permission {
-
-    //public CompositePermission(String name,
-
-    public Collection getAction() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public AuthorizationConstraint getAuthorizationConstraint() {
-        // TODO Auto-generated method stub
-        return null;
+/**
+ * The permission of a role on a composite action whose subactions are all
+ * permitted, see {@link PermissionValue#createComposite(ResourcePermissionsSet,
+ * ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper,
+ * ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper)}.
+ *
+ * It is derived, not part of the model, so it is a plain value instead of
+ * an element created by the SecureModelFactory: it can be created while
+ * the model is read on another thread, and it never ends up in the saved
+ * model. A {@link ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper}
+ * reads its properties like the ones of a model element.
+ */
+public class CompositePermission {
+
+    private final String name;
+
+    private final Object role;
+
+    private final Object action;
+
+    /**
+     * @param name the name of the permission
+     * @param role the permitted role, a model element
+     * @param action the composite action, a model element
+     */
+    public CompositePermission(String name, Object role, Object action) {
+        this.name = name;
+        this.role = role;
+        this.action = action;
     }
 
     public String getName() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public Role getRole() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public void setAuthorizationConstraint(AuthorizationConstraint newValue) {
-        // TODO Auto-generated method stub
-
-    }
-
-    public void setName(String newValue) {
-        // TODO Auto-generated method stub
-
-    }
-
-    public void setRole(Role newValue) {
-        // TODO Auto-generated method stub
-
-    }
-
-    public RefClass refClass() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public void refDelete() {
-        // TODO Auto-generated method stub
-
-    }
-
-    public RefFeatured refImmediateComposite() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public boolean refIsInstanceOf(RefObject arg0, boolean arg1) {
-        // TODO Auto-generated method stub
-        return false;
+        return name;
     }
 
-    public RefFeatured refOutermostComposite() {
-        // TODO Auto-generated method stub
-        return null;
+    public Object getRole() {
+        return role;
     }
 
-    public Object refGetValue(RefObject arg0) {
-        // TODO Auto-generated method stub
-        return null;
+    public Object getAction() {
+        return action;
     }
 
-    public Object refGetValue(String arg0) {
-        // TODO Auto-generated method stub
+    /** @return null, the permission is derived for each policy */
+    public Object getPolicy() {
         return null;
     }
 
-    public Object refInvokeOperation(RefObject arg0, List arg1)
-    throws RefException {
-        // TODO Auto-generated method stub
+    /** @return null, the permission is not constrained itself */
+    public Object getAuthorizationConstraint() {
         return null;
     }
 
-    public Object refInvokeOperation(String arg0, List arg1)
-    throws RefException {
-        // TODO Auto-generated method stub
-        return null;
+    public String toString() {
+        return name;
     }
-
-    public void refSetValue(RefObject arg0, Object arg1) {
-        // TODO Auto-generated method stub
-
-    }
-
-    public void refSetValue(String arg0, Object arg1) {
-        // TODO Auto-generated method stub
-
-    }
-
-    public RefPackage refImmediatePackage() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public RefObject refMetaObject() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public String refMofId() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public RefPackage refOutermostPackage() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    public Collection refVerifyConstraints(boolean arg0) {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
 }
@@ -0,0 +1,270 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.transformation.ModelMap;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Model wide cache of the computed (explicit and derived)
+ * {@link PermissionSet}s of the resources, shared by the permission
+ * tables of the GUI.
+ *
+ * An entry is kept per resource and view, a view being one way of
+ * computing the permissions (e.g. with all roles of the model, or with the
+ * roles having a permission only). For each entry, the cache records the
+ * elements it depends on: the resource, its actions, their super- and
+ * subactions and permissions, and the roles of the permission set with
+ * their super- and subroles, both as dialect and as UML elements. A change
+ * of one of these elements evicts the entry, the other entries are kept.
+ *
+ * Every entry depends on the policy hierarchy, on the collection of the
+ * roles and permissions and on the dialect model itself: the roles of a
+ * set are only known once they have a permission. So the mapper clears
+ * the whole cache when a policy changes, when a role, role generalization
+ * or permission is added, removed or changed (see
+ * {@link #rolesChanged()}), or when it discards the mapping.
+ */
+public class EffectivePermissionsCache {
+
+    private static Logger aLog = Logger.getLogger(EffectivePermissionsCache.class);
+
+    private static EffectivePermissionsCache INSTANCE = new EffectivePermissionsCache();
+
+    /**
+     * @return the cache of the current mapping
+     */
+    public static EffectivePermissionsCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the permissions of a resource for one view.
+     */
+    public interface Loader {
+        /**
+         * @return the new permission set of <code>resource</code>
+         */
+        PermissionSet load(ResourceWrapper resource);
+    }
+
+    private static class Entry {
+        final String view;
+        final Object resource;
+        final PermissionSet permissions;
+        final Set<Object> dependencies;
+
+        Entry(String view, Object resource, PermissionSet permissions, Set<Object> dependencies) {
+            this.view = view;
+            this.resource = resource;
+            this.permissions = permissions;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /** view -> resource -> entry */
+    private final Map<String, Map<Object, Entry>> entries =
+        new HashMap<String, Map<Object, Entry>>();
+
+    /** element -> entries depending on it */
+    private final Map<Object, Set<Entry>> dependents =
+        new HashMap<Object, Set<Entry>>();
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    /**
+     * creates an empty cache; the GUI uses {@link #getInstance()}.
+     */
+    public EffectivePermissionsCache() {
+    }
+
+    /**
+     * returns the permissions of <code>resource</code> for
+     * <code>view</code>, loading them with <code>loader</code> if they
+     * are not cached.
+     *
+     * The returned set is shared, it must not be changed.
+     */
+    public synchronized PermissionSet getPermissions(ResourceWrapper resource, String view, Loader loader) {
+        Map<Object, Entry> viewEntries = entries.get(view);
+        if ( viewEntries == null ) {
+            viewEntries = new HashMap<Object, Entry>();
+            entries.put(view, viewEntries);
+        }
+
+        Entry entry = viewEntries.get(resource.getModelElement());
+        if ( entry != null ) {
+            hits++;
+            return entry.permissions;
+        }
+
+        misses++;
+        PermissionSet permissions = loader.load(resource);
+
+        entry = new Entry(view, resource.getModelElement(), permissions, collectDependencies(resource, permissions));
+        viewEntries.put(resource.getModelElement(), entry);
+        for ( Object dependency : entry.dependencies ) {
+            Set<Entry> elementDependents = dependents.get(dependency);
+            if ( elementDependents == null ) {
+                elementDependents = new HashSet<Entry>();
+                dependents.put(dependency, elementDependents);
+            }
+            elementDependents.add(entry);
+        }
+
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("cached " + view + " permissions of " + resource.getName() + " with " + entry.dependencies.size() + " dependencies");
+        }
+        return permissions;
+    }
+
+    /**
+     * @return the cached permissions of <code>resource</code> for
+     *     <code>view</code>, null if they are not cached. Does not count
+     *     as a hit or a miss.
+     */
+    public synchronized PermissionSet getCachedPermissions(ResourceWrapper resource, String view) {
+        Map<Object, Entry> viewEntries = entries.get(view);
+        if ( viewEntries == null ) {
+            return null;
+        }
+        Entry entry = viewEntries.get(resource.getModelElement());
+        return entry == null ? null : entry.permissions;
+    }
+
+    /**
+     * the (dialect or UML) element changed: evict the entries depending
+     * on it.
+     *
+     * @return the number of evicted entries
+     */
+    public synchronized int elementChanged(Object element) {
+        Set<Entry> elementDependents = dependents.remove(element);
+        if ( elementDependents == null ) {
+            return 0;
+        }
+
+        for ( Entry entry : elementDependents ) {
+            Map<Object, Entry> viewEntries = entries.get(entry.view);
+            if ( viewEntries != null && viewEntries.get(entry.resource) == entry ) {
+                viewEntries.remove(entry.resource);
+            }
+            for ( Object dependency : entry.dependencies ) {
+                Set<Entry> others = dependents.get(dependency);
+                if ( others != null ) {
+                    others.remove(entry);
+                    if ( others.isEmpty() ) {
+                        dependents.remove(dependency);
+                    }
+                }
+            }
+        }
+
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("evicted " + elementDependents.size() + " permission sets");
+        }
+        return elementDependents.size();
+    }
+
+    /**
+     * a role, role generalization or permission was added, removed or
+     * changed: a role may have to be added to any of the sets, so all
+     * entries are evicted.
+     *
+     * @return the number of evicted entries
+     */
+    public synchronized int rolesChanged() {
+        int evicted = size();
+        clear();
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("roles changed, evicted " + evicted + " permission sets");
+        }
+        return evicted;
+    }
+
+    /**
+     * forget all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        dependents.clear();
+    }
+
+    /** @return the number of cached permission sets */
+    public synchronized int size() {
+        int size = 0;
+        for ( Map<Object, Entry> viewEntries : entries.values() ) {
+            size += viewEntries.size();
+        }
+        return size;
+    }
+
+    /** @return the number of requests answered from the cache */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /** @return the number of requests which loaded the permissions */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private Set<Object> collectDependencies(ResourceWrapper resource, PermissionSet permissions) {
+        HierarchyIndex hierarchy = HierarchyIndex.getInstance();
+        Set<Object> dependencies = new HashSet<Object>();
+
+        addDependency(dependencies, resource.getModelElement());
+
+        Set<ActionWrapper> actions = new HashSet<ActionWrapper>();
+        for ( ActionWrapper action : resource.getActionWrapper() ) {
+            actions.add(action);
+            actions.addAll(hierarchy.getActions().getAncestors(action));
+            actions.addAll(hierarchy.getActions().getDescendants(action));
+        }
+        for ( ActionWrapper action : actions ) {
+            addDependency(dependencies, action.getModelElement());
+            for ( PermissionWrapper permission : action.getPermissionWrappers() ) {
+                addDependency(dependencies, permission.getModelElement());
+            }
+        }
+
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            addDependency(dependencies, role.getModelElement());
+            for ( RoleWrapper superRole : hierarchy.getRoles().getAncestors(role) ) {
+                addDependency(dependencies, superRole.getModelElement());
+            }
+            for ( RoleWrapper subRole : hierarchy.getRoles().getDescendants(role) ) {
+                addDependency(dependencies, subRole.getModelElement());
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * adds the dialect element and the UML element it is mapped from.
+     */
+    private static void addDependency(Set<Object> dependencies, Object element) {
+        if ( element == null ) {
+            return;
+        }
+        dependencies.add(element);
+
+        ModelMap map = ModelMap.getDefault();
+        if ( map.reverseMapContainsKey(element) ) {
+            dependencies.add(map.getUmlElement(element));
+        }
+    }
+}
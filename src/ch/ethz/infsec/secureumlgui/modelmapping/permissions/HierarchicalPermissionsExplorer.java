@@ -3,23 +3,25 @@
  */
 package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
 
-import java.util.Collection;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
-import org.omg.uml.UmlPackage;
 import org.omg.uml.foundation.core.UmlClass;
 
 import ch.ethz.infsec.secureumlgui.ModuleController;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * Explore the permission hierarchy generated by role inheritance and
@@ -34,283 +36,88 @@ public class HierarchicalPermissionsExplorer
 
     private static HierarchicalPolicyExplorer policyExplorer = HierarchicalPolicyExplorer.getInstance();
 
+    /** the view of {@link #getEffectivePermissions(ResourceWrapper)} */
+    private static final String EFFECTIVE_PERMISSIONS_VIEW = "effective";
+
     public enum CHANGES {
         EXPLICIT, INHERITED, IMPLICIT_SUB, IMPLICIT_SUPER, INHERITED_POLIY
     }
 
+    /**
+     * derives the inherited and implicit permissions of
+     * <code>resource</code> for all policies, see
+     * {@link PermissionDerivationEngine}.
+     */
     public void collectNonExplicitPermissions(ResourceWrapper resource, PermissionSet permissions) {
 
         aLog.debug("collectNonExplicitPermissions: (roles: " + permissions.getAllRoleWrappers().size() + ")");
 
-        Date start = new Date();
-
-        //List<PolicyWrapper> policies = policyExplorer.getSortedPolicies();
-        List<UmlClass> policies = policyExplorer.getSortedPolicies();
-//		PolicyWrapper defaultPolicy = HierarchicalPolicyExplorer.getInstance().getDefaultPolicy();
-//
-//		if ( defaultPolicy == null ) {
-//			policies.add(0, defaultPolicy);
-//		}
-
-        for ( UmlClass policyClass : policies) {
-
-            PolicyWrapper policy = new PolicyWrapper(ModuleController.getInstance().getModelMap().getElement(policyClass));
-
-            aLog.debug("collecting directly policy-inherited permissions for resruce " + resource + " and policy: " + policy.getName());
-            collectPolicyInheritedPermissions(resource, permissions, policy);
-
-            aLog.debug("collecting directly implicit, from explicit, permissions for resource " + resource + " and policy: " + policy.getName());
-            //collect implicit permissions, without taking into account dependencies between implicit and inheritied
-            collectImplicitPermissions(resource, permissions, policy);
-
-            aLog.debug("colling directly inherited, from explicit, permissions for resource " + resource + " and policy: " + policy.getName());
-            collectInheritedPermissions(resource, permissions, policy);
-
-            aLog.debug("collection directly permission END");
-            //
-            PermissionSet next, last;
-
-            //create an empty next set
-            next = new PermissionSet();
-            //for the first run, iterate over all permissions
-            aLog.debug("collecting indirect implicit permissions, iterating over all permissions");
-            collectImplicitPermissions(policy, resource, permissions, permissions, next);
-
-            while (true) {
-                last = next;
-                next = new PermissionSet();
-                if ( last.getAllRoleWrappers().size() == 0 ) { //nothing changed, finished
-                    aLog.debug("recursion did not find any further permissions by collecting implicit permissions... DONE!");
-                    break;
-                } else {
-                    if ( aLog.isDebugEnabled() ) {
-                        aLog.debug("starting with search of indirectly inherited permissions, number of roles: " + next.getAllRoleWrappers().size());
-                    }
-                    collectInheritedPermissions(policy, resource, last, permissions, next );
-                }
+        long start = MappingMetrics.start();
 
-                last = next;
-                next = new PermissionSet();
-                if ( last.getAllRoleWrappers().size() == 0 ) { //nothing changed, finished
-                    aLog.debug("recursion did not find any further permissions by collecting inherited permissions... DONE!");
-                    break;
-                } else {
-                    if ( aLog.isDebugEnabled() ) {
-                        aLog.debug("starting with search of indirectly implicit permissions, number of roles: " + next.getAllRoleWrappers().size());
-                    }
-                    collectImplicitPermissions(policy, resource, last, permissions, next );
-                }
-            }
-
-        }
+        new PermissionDerivationEngine(resource, permissions).derive(getSortedPolicyWrappers());
 
-        long duration = new Date().getTime() - start.getTime();
-        aLog.debug("needed: " + duration);
-    }
-
-    private void collectPolicyInheritedPermissions(ResourceWrapper resource, PermissionSet permissions, PolicyWrapper policy) {
-        aLog.debug("collectPolicyInheritedPermissions for policy (" + policy.getName() + ") START");
-
-        Collection refinedBy = policy.getRefinedBy();
-        if ( refinedBy != null && refinedBy.size() > 0 ) {
-            for ( PolicyWrapper supPol : policy.getRefinedByWrappers() ) {
-                aLog.debug("start with policy " + supPol.getName());
-
-                for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
-
-                    ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
-
-                    for (ActionWrapper action : resource.getActionWrapper()) {
-                        ActionPermissionSet actionPermissions = resourcePermissions.getPermissions(action);
-
-                        for (PermissionValue permission : actionPermissions.getPermissions(supPol)) {
-                            actionPermissions.addPermission(policy, PermissionValue.createInheritedPolicy(permission), CHANGES.INHERITED_POLIY);
-                        }
-                    }
-                }
-                aLog.debug("end with policy " + supPol.getName());
-            }
-        }
-
-
-        aLog.debug("collectPolicyInheritedPermissions END");
+        MappingMetrics.stop(Phase.DERIVATION, start);
     }
 
     /**
-     * collects all permissions, which are DIRECTLY IMPLICIT from the explicit permissions
-     * @param resource
-     * @param permissions
+     * derives the inherited and implicit permissions of several
+     * resources, e.g. of the whole model. The resources are independent,
+     * they are derived in parallel if
+     * {@link PermissionDerivationEngine#setParallelEnabled(boolean)} is
+     * set.
      */
-    private void collectImplicitPermissions(ResourceWrapper resource, PermissionSet permissions, PolicyWrapper policy)  {
-        aLog.debug("collectImplicitPermissions START");
-        //PermissionSet superactionResourcePermissions = getExplicitPermissions(resource);
-        // for a fixed resource, iterate over ALL roles
-        for (RoleWrapper role : permissions.getAllRoleWrappers()) {
-            aLog.debug("  role: " + role.getName());
-            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
-            //iterate over all actions of the fixed resource and get the permissions assigned to this action and role, saved in actionPermissions
-            for (ActionWrapper action : resource.getActionWrapper()) {
-                aLog.debug("    action: " + action.getName());
-                ActionPermissionSet actionPermissions = resourcePermissions.getPermissions(action);
-                //iterate over all super actions (i.e., all composite actions of which this action is part of), =>  implicit permission from SUPER actions
-                for ( ActionWrapper superAction : getSuperActionWrappersDeep(action) ) {
-                    //and get all explicit permissions assigned to this resource (any role and action?)
-
-                    Collection<PermissionValue> superActionPermissions =
-                        permissions.getResourcePermissionsSet(role).getPermissions(superAction).getPermissions(policy);
-//					Collection<PermissionValue> superActionPermissions =
-//							superactionResourcePermissions.getResourcePermissionsSet(role).getPermissions(superAction).getPermissions(policy);
-//					if ( aLog.isDebugEnabled() ) {
-//						aLog.debug("      superAction: " + superAction.getName() + " with " + superActionPermissions.size() + " permissions");
-//					}
-                    for (PermissionValue permission : superActionPermissions) {
-                        actionPermissions.addPermission(policy, PermissionValue.createImplicite(permission), CHANGES.IMPLICIT_SUPER);
-                    }
-                }
-
-                //implicit permissions from SUB actions
-                if ( action.hasSubActions() && isPermittedImplicitBySubactions ( permissions, role, action, policy ) ) {
+    public void collectNonExplicitPermissions(Map<ResourceWrapper, PermissionSet> resourcePermissions) {
 
-                    aLog.debug("IMPLICIT BY SUBACTION: " + role.getName() + " on " + action.getName());
+        aLog.debug("collectNonExplicitPermissions: (resources: " + resourcePermissions.size() + ")");
 
-                    PermissionValue composite = PermissionValue.createComposite(null, action, role);
+        long start = MappingMetrics.start();
 
-                    actionPermissions.addPermission(policy, composite, CHANGES.IMPLICIT_SUB);
-                }
-            }
+        List<PermissionDerivationEngine> engines = new ArrayList<PermissionDerivationEngine>(resourcePermissions.size());
+        for ( Map.Entry<ResourceWrapper, PermissionSet> entry : resourcePermissions.entrySet() ) {
+            engines.add(new PermissionDerivationEngine(entry.getKey(), entry.getValue()));
         }
-        aLog.debug("collectImplicitPermissions END");
+        PermissionDerivationEngine.deriveAll(engines, getSortedPolicyWrappers());
+
+        MappingMetrics.stop(Phase.DERIVATION, start);
     }
 
     /**
-     * collects all permissions, which are DIRECTLY INHERITED from explicit permissions
-     * @param resource
-     * @param permissions
+     * @return the policies of the model, the refining policies before the
+     *     policies they refine
      */
-    private void collectInheritedPermissions(ResourceWrapper resource, PermissionSet permissions, PolicyWrapper policy) {
-        aLog.debug("collectInheritedPermissions START");
-        // for a fixed resource, iterate over ALL roles
-        for (RoleWrapper role : permissions.getAllRoleWrappers()) {
-            aLog.debug("  role: " + role.getName());
-            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
-            // get super Roles for this role
-            Set<RoleWrapper> superRoles = getSuperRoleWrappersDeep(role);
-            //iterate over all actions of the fixed resources and get the permissions assigned to this action and role, saved in actionPermissions
-            for (ActionWrapper action : resource.getActionWrapper()) {
-                aLog.debug("    action: " + action.getName());
-                ActionPermissionSet actionPermissions = resourcePermissions.getPermissions(action);
-                //iterate over all super Roles for the current role
-                for (RoleWrapper superRole : superRoles ) {
-                    Collection<PermissionValue> superRolePermissions =
-                        permissions.getResourcePermissionsSet(superRole).getPermissions(action).getPermissions(policy);
-//					if ( aLog.isDebugEnabled() ) {
-//						aLog.debug("      superRole: " + superRole.getName() + " with " + superRolePermissions.size() + " permissions");
-//					}
-                    aLog.debug("for superrole " + superRole.getName() + " found " + superRolePermissions.size() + " permissions");
-                    //iterate over all permissions, the superrole has and assign as inherited to current role
-                    for (PermissionValue permission : superRolePermissions) {
-                        permission = PermissionValue.createInheritedRole(permission);
-                        //use permission of super role to create an inherited permission for current role
-                        actionPermissions.addPermission(policy, permission, CHANGES.INHERITED);
-                    }
-                }
-            }
+    public List<PolicyWrapper> getSortedPolicyWrappers() {
+        List<UmlClass> policyClasses = policyExplorer.getSortedPolicies();
+        List<PolicyWrapper> policies = new ArrayList<PolicyWrapper>(policyClasses.size());
+        for ( UmlClass policyClass : policyClasses ) {
+            policies.add(WrapperFactory.getPolicyWrapper(ModuleController.getInstance().getModelMap().getElement(policyClass)));
         }
-        aLog.debug("collectInheritedPermissions END");
+        return policies;
     }
 
-    /**
-     * collects all permissions, which are INDIRECT IMPLICIT
-     * @param resource
-     * @param permissions_last contains the elements which have changed in the last round, i.e., where it is required to look at a second time
-     * @param permissions_dst contains ALL the permissions which have been calculated so far (i.e., which are the end result and are required to come to a decision if something is permitted or not)
-     * @param permissions_next in this, the information are stored, which element have to be treated in the next round
-     */
-    private void collectImplicitPermissions(PolicyWrapper policy, ResourceWrapper resource, PermissionSet permissions_last,
-                                            PermissionSet permissions_dst, PermissionSet permissions_next) {
-        aLog.debug("collectImplicitPermissions INDIRECT START");
-        for (RoleWrapper role : permissions_last.getAllRoleWrappers()) {
-            aLog.debug("  role: " + role.getName());
-            ResourcePermissionsSet resourcePermissions = permissions_last.getResourcePermissionsSet(role);
-
-            for (Object action : resourcePermissions.getActions()) {
-                ActionWrapper actionWrapper = ActionWrapper.createActionWrapper(action);
-                aLog.debug("    action: " + actionWrapper.getName());
-                ActionPermissionSet actionPermissions = permissions_dst.getResourcePermissionsSet(role).getPermissions(actionWrapper);
-
-                for ( ActionWrapper superAction : getSuperActionWrappersDeep(actionWrapper) ) {
-
-                    Collection<PermissionValue> superActionPermissions = permissions_dst.getResourcePermissionsSet(role).getPermissions(superAction).getPermissions(policy);
-//					if ( aLog.isDebugEnabled() ) {
-//						aLog.debug("      superAction: " + superAction.getName() + " with " + superActionPermissions.size() + " permissions");
-//					}
-
-                    for (PermissionValue permission : superActionPermissions) {
-                        //permission = PermissionValue.create(PermissionValue.IMPLICIT, permission.getPermissionWrapper()); //TODO add info about etc
-                        permission = PermissionValue.createImplicite(permission);
-
-                        actionPermissions.getPolicyPermissionSet(policy).addPermission(permission, permissions_next, CHANGES.IMPLICIT_SUPER, superAction, role);
-                    }
-                }
+//	public PermissionSet getExplicitPermission(ResourceWrapper resource, PolicyWrapper policy) {
+//		return null;
+//	}
 
-                //implicit permissions from SUB actions
-                if ( actionWrapper.hasSubActions() && isPermittedImplicitBySubactions ( permissions_dst, role, actionWrapper, policy ) ) {
-                    aLog.debug("IMPLICIT BY SUBACTION: " + role.getName() + " on " + actionWrapper.getName());
 
-                    PermissionValue composite = PermissionValue.createComposite(null, actionWrapper, role);
-                    //TODO is there a problem caused throw actionWrapper received from permissions_last?
 
-                    actionPermissions.getPolicyPermissionSet(policy).addPermission(composite, permissions_next, CHANGES.IMPLICIT_SUB, actionWrapper, role);
-                }
-            }
-        }
-        aLog.debug("collectImplicitPermissions INDIRECT END");
-    }
 
     /**
-     * collects all permissions, which are INDIRECT INHERITED
-     * @param resource
-     * @param permissions_last
-     * @param permissions_dst
-     * @param permissions_next
+     * returns the explicit and derived permissions of
+     * <code>resource</code>, for the roles having a permission on it. The
+     * result is shared through the {@link EffectivePermissionsCache} and
+     * must not be changed.
      */
-    private void collectInheritedPermissions(PolicyWrapper policy, ResourceWrapper resource, PermissionSet permissions_last,
-            PermissionSet permissions_dst, PermissionSet permissions_next) {
-        aLog.debug("collectInheritedPermissions INDIRECT START");
-        for (RoleWrapper role : permissions_last.getAllRoleWrappers()) {
-            ResourcePermissionsSet resourcePermissions = permissions_last.getResourcePermissionsSet(role);
-            aLog.debug("  role: " + role.getName());
-
-            for (Object action : resourcePermissions.getActions()) {
-                ActionWrapper actionWrapper = ActionWrapper.createActionWrapper(action);
-                aLog.debug("    action: " + actionWrapper.getName());
-                ActionPermissionSet actionPermissions = permissions_dst.getResourcePermissionsSet(role).getPermissions(actionWrapper);
-
-                for (RoleWrapper superRole :  getSuperRoleWrappersDeep(role)) {
-                    Collection<PermissionValue> superRolePermissions = permissions_dst.getResourcePermissionsSet(superRole).getPermissions(action).getPermissions(policy);
-                    if ( aLog.isDebugEnabled() ) {
-                        aLog.debug("      superRole: " + superRole.getName() + " with " + superRolePermissions.size() + " permissions");
-                    }
-
-                    for (PermissionValue permission : superRolePermissions) {
-                        permission = PermissionValue.createInheritedRole(permission);
-                        //use permission of super role to create an inherited permission for current role
-                        actionPermissions.getPolicyPermissionSet(policy).addPermission(permission, permissions_next, CHANGES.INHERITED, actionWrapper, role);
-                    }
-                }
+    public PermissionSet getEffectivePermissions(ResourceWrapper resource) {
+        return EffectivePermissionsCache.getInstance().getPermissions(resource, EFFECTIVE_PERMISSIONS_VIEW,
+        new EffectivePermissionsCache.Loader() {
+            public PermissionSet load(ResourceWrapper resource) {
+                PermissionSet permissions = getExplicitPermissions(resource);
+                collectNonExplicitPermissions(resource, permissions);
+                return permissions;
             }
-        }
-        aLog.debug("collectInheritedPermissions INDIRECT END");
+        });
     }
 
-
-//	public PermissionSet getExplicitPermission(ResourceWrapper resource, PolicyWrapper policy) {
-//		return null;
-//	}
-
-
-
-
     public PermissionSet getExplicitPermissions(ResourceWrapper resource)
     {
         PermissionSet result = new PermissionSet();
@@ -352,7 +159,7 @@ public class HierarchicalPermissionsExplorer
 
 
                     ResourcePermissionsSet rps = result.getResourcePermissionsSet(
-                                                     new RoleWrapper(role.getModelElement()));
+                                                     WrapperFactory.getRoleWrapper(role.getModelElement()));
 
                     ActionPermissionSet aps = rps.getPermissions(action.getName());
 
@@ -369,42 +176,18 @@ public class HierarchicalPermissionsExplorer
      * @return the set of superroles
      */
     public Set<RoleWrapper> getSuperRoleWrappersDeep(RoleWrapper roleWrapper) {
-        Set<RoleWrapper> result = new LinkedHashSet<RoleWrapper>();
+        Set<RoleWrapper> result = new LinkedHashSet<RoleWrapper>(
+            HierarchyIndex.getInstance().getRoles().getAncestors(roleWrapper));
 
-        collectSuperroles(roleWrapper, result);
-
-        aLog.debug("for role " + roleWrapper.getName() + " found " + result.size() + " superroles");
-        return result;
-    }
-
-    private static void collectSuperroles(RoleWrapper role,  Set<RoleWrapper> roles) {
-        if(roles != null && role.getSuperroles() != null) {
-            for ( RoleWrapper superRole  : role.getSuperrolesWrappers() ) {
-                roles.add(superRole);
-
-                // recursion
-                collectSuperroles(superRole, roles);
-            }
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("for role " + roleWrapper.getName() + " found " + result.size() + " superroles");
         }
-    }
-
-    public static Set<RoleWrapper> getSubRoleWrapperDeep(RoleWrapper roleWrapper) {
-        Set<RoleWrapper> result = new LinkedHashSet<RoleWrapper>();
-
-        collectSubRoles(roleWrapper, result);
-
         return result;
     }
 
-    private static void collectSubRoles(RoleWrapper role, Set<RoleWrapper> roles) {
-        if (roles != null && role.getSubroles() != null ) {
-            for ( RoleWrapper subRole : role.getSubrolesWrappers() ) {
-                roles.add(subRole);
-
-                collectSubRoles(subRole, roles);
-            }
-        }
-
+    public static Set<RoleWrapper> getSubRoleWrapperDeep(RoleWrapper roleWrapper) {
+        return new LinkedHashSet<RoleWrapper>(
+                   HierarchyIndex.getInstance().getRoles().getDescendants(roleWrapper));
     }
 
     /** gets all direct and indirect superactions
@@ -413,69 +196,20 @@ public class HierarchicalPermissionsExplorer
      * @return the set of superactions.
      */
     public static Set<ActionWrapper> getSuperActionWrappersDeep(ActionWrapper action) {
-        Set<ActionWrapper> result = new LinkedHashSet<ActionWrapper>();
-
-        collectSuperActions(action, result);
-
-        return result;
+        return new LinkedHashSet<ActionWrapper>(
+                   HierarchyIndex.getInstance().getActions().getAncestors(action));
     }
 
     public static Set<ActionWrapper> getSubActionWrappersDeep(ActionWrapper action) {
-        Set<ActionWrapper> result = new LinkedHashSet<ActionWrapper>();
-
-        collectSubActions(action, result);
-
-        return result;
-
+        return new LinkedHashSet<ActionWrapper>(
+                   HierarchyIndex.getInstance().getActions().getDescendants(action));
     }
 
     public static Set<ActionWrapper> getSubAndSuperActionWrappersDeep(ActionWrapper action) {
 
         Set<ActionWrapper> result = getSuperActionWrappersDeep(action);
-        collectSubActions(action, result);
+        result.addAll(HierarchyIndex.getInstance().getActions().getDescendants(action));
 
         return result;
     }
-
-    private static void collectSuperActions(ActionWrapper action, Set<ActionWrapper> result) {
-        if(action.getSuperActions() != null) {
-            for ( ActionWrapper superAction : action.getSuperActionWrappers()) {
-                result.add(superAction);
-
-                collectSuperActions(superAction, result);
-            }
-        }
-    }
-
-    private static void collectSubActions(ActionWrapper action, Set<ActionWrapper> result) {
-        if ( action .getSubActions() != null ) {
-            for ( ActionWrapper superAction : action.getSubActionWrappers()) {
-                result.add(superAction);
-
-                collectSubActions(superAction, result);
-            }
-        }
-    }
-
-
-    private boolean isPermittedImplicitBySubactions(PermissionSet permissions, RoleWrapper role, ActionWrapper action, PolicyWrapper policy) {
-        //check if explicit permitted
-        if ( permissions.getResourcePermissionsSet(role).getPermissions(action).getPolicyPermissionSet(policy).isPermitted()) {
-            return true;
-        }
-        else { //check, if implicit permitted by all permitted subactions
-            Set<ActionWrapper> subActions = action.getSubActionWrappers();
-            if ( subActions != null && subActions.size() > 0 ) {
-                for (ActionWrapper subAction : action.getSubActionWrappers()) {
-                    if ( ! isPermittedImplicitBySubactions(permissions, role, subAction, policy) ) {
-                        return false;
-                    }
-                }
-                return true;
-            }
-            else {
-                return false;
-            }
-        }
-    }
 }
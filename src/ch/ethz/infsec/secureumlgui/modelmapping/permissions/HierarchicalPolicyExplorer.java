@@ -2,6 +2,7 @@ package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -15,6 +16,7 @@ import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
 import ch.ethz.infsec.secureumlgui.transformation.ModelMap;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 public class HierarchicalPolicyExplorer {
 
@@ -131,8 +133,17 @@ public class HierarchicalPolicyExplorer {
 //		return defaultPolicy;
 //	}
 
+    /**
+     * @return the wrapper of the default policy, null without a model
+     *     (e.g. in the tests) or without a default policy
+     */
     public PolicyWrapper getDefaultPolicyWrapper() {
-        return new PolicyWrapper(ModuleController.getInstance().getModelMap().getElement(getDefaultPolicy()));
+        UmlClass policy = getDefaultPolicy();
+        ModuleController moduleController = ModuleController.getInstance();
+        if ( policy == null || moduleController == null ) {
+            return null;
+        }
+        return WrapperFactory.getPolicyWrapper(moduleController.getModelMap().getElement(policy));
     }
 
 
@@ -149,7 +160,7 @@ public class HierarchicalPolicyExplorer {
             boolean default_exists = false;
 
             for ( Object policy : allPolicies) {
-                PolicyWrapper policyWrapper = new PolicyWrapper(policy);
+                PolicyWrapper policyWrapper = WrapperFactory.getPolicyWrapper(policy);
                 Collection refinedBy = policyWrapper.getRefinedBy();
                 if ( policyWrapper.getRefinedBy() == null || refinedBy.size() == 0 ) {
                     policies.add(policyWrapper);
@@ -171,32 +182,61 @@ public class HierarchicalPolicyExplorer {
         }
     }
 
+    /** the result of the last sorting */
+    private List<UmlClass> sortedPolicies;
+
+    /** the version of the policy hierarchy {@link #sortedPolicies} is for */
+    private int sortedPoliciesVersion;
+
+    /**
+     * returns the policies, each one after the policies refining it. The
+     * order is kept until the policy hierarchy of the {@link HierarchyIndex}
+     * changes, i.e. until the mapping is discarded or a policy or a
+     * policy generalization is added or removed.
+     */
     //public List<PolicyWrapper> getSortedPolicies() {
     public List<UmlClass> getSortedPolicies() {
+        HierarchyIndex.Hierarchy<PolicyWrapper> hierarchy = HierarchyIndex.getInstance().getPolicies();
+        if ( sortedPolicies == null || sortedPoliciesVersion != hierarchy.getVersion() ) {
+            sortedPolicies = Collections.unmodifiableList(sortPolicies());
+            // sorting adds the policies it reads to the index
+            sortedPoliciesVersion = hierarchy.getVersion();
+        } else if ( aLog.isDebugEnabled() ) {
+            aLog.debug("getSortedPolicies: cached " + sortedPolicies.size() + " policies");
+        }
+        return sortedPolicies;
+    }
+
+    private List<UmlClass> sortPolicies() {
+
+        HierarchyIndex.Hierarchy<PolicyWrapper> hierarchy = HierarchyIndex.getInstance().getPolicies();
 
         PolicyWrapper defaultPolicyWrapper = getDefaultPolicyWrapper();
 
 
         //list which contains the end result
         List<PolicyWrapper> sortedPolicies = new ArrayList<PolicyWrapper>();
-        //hash set for fast lookup, if a policy is already inserted
-        Set<PolicyWrapper> alreadyInserted = new HashSet<PolicyWrapper>();
+        //hash set for fast lookup, if a policy is already inserted (model
+        //elements, the wrappers are compared by identity)
+        Set<Object> alreadyInserted = new HashSet<Object>();
+        //all policies in sortedPolicies
+        Set<Object> sorted = new HashSet<Object>();
 
         if (defaultPolicyWrapper == null) {
             aLog.debug("no default policy found... adding unrefined policies");
 
             //hack... currently the adding of the policy requires a reload.. should be eleminated sooner or later..
-            alreadyInserted = getUnrefinedPolicies();
-
             sortedPolicies.add(null);
 
-            for (PolicyWrapper pol : alreadyInserted) {
+            for (PolicyWrapper pol : getUnrefinedPolicies()) {
                 sortedPolicies.add(pol);
+                alreadyInserted.add(pol.getModelElement());
             }
         } else {
             sortedPolicies.add(defaultPolicyWrapper);
-            alreadyInserted.add(defaultPolicyWrapper);//?? needed?
+            alreadyInserted.add(defaultPolicyWrapper.getModelElement());//?? needed?
         }
+        sorted.addAll(alreadyInserted);
 
 
         int start, end;
@@ -215,27 +255,28 @@ public class HierarchicalPolicyExplorer {
             // for every policy in the last round
             for (int i = start; i < end; ++i) {
                 //get the policies which refine this policy
-                Collection<PolicyWrapper> refinesPolicies = sortedPolicies.get(i).getRefinesWrappers();
-                if ( refinesPolicies != null && refinesPolicies.size() > 0 ) {
-                    //for all refining polices
-                    for ( PolicyWrapper refines : refinesPolicies) {
-                        //if the policy only is refined by one policy, we can add it
-                        if ( refines.getRefinedBy().size() == 1) {
-                            sortedPolicies.add(refines);
-                            added = true;
-                        } else {
-                            allIn = true;
-                            for ( PolicyWrapper supPol : refines.getRefinedByWrappers() ) {
-                                if ( ! alreadyInserted.contains(supPol) ) {
-                                    allIn = false;
-                                }
-                            }
-                            if ( allIn ) {
-                                sortedPolicies.add(refines);
-                                added = true;
-                            }
+                PolicyWrapper policy = sortedPolicies.get(i);
+                if ( policy == null ) {
+                    continue;
+                }
+                Collection<PolicyWrapper> refinesPolicies = hierarchy.getChildren(policy);
+                //for all refining polices
+                for ( PolicyWrapper refines : refinesPolicies) {
+                    if ( sorted.contains(refines.getModelElement()) ) {
+                        continue;
+                    }
+                    //if all policies refining it are inserted, we can add it
+                    allIn = true;
+                    for ( PolicyWrapper supPol : hierarchy.getParents(refines) ) {
+                        if ( ! alreadyInserted.contains(supPol.getModelElement()) ) {
+                            allIn = false;
                         }
                     }
+                    if ( allIn ) {
+                        sortedPolicies.add(refines);
+                        sorted.add(refines.getModelElement());
+                        added = true;
+                    }
                 }
             }
             //last, we add all this round added policies in the "lookup" set:
@@ -253,7 +294,7 @@ public class HierarchicalPolicyExplorer {
             // resulting in L0 -> L1 -> L2 -> L3 -> L4 -> L6 -> L5
             if ( added ) {
                 for ( int i = end; i < sortedPolicies.size(); ++i ) {
-                    alreadyInserted.add(sortedPolicies.get(i));
+                    alreadyInserted.add(sortedPolicies.get(i).getModelElement());
                 }
             }
         }
@@ -264,7 +305,7 @@ public class HierarchicalPolicyExplorer {
 
         List<UmlClass> sortedPoliciesResolved = new ArrayList<UmlClass>();
         for ( PolicyWrapper policy : sortedPolicies) {
-            sortedPoliciesResolved.add((UmlClass) map.getUmlElement(policy.getModelElement()));
+            sortedPoliciesResolved.add(policy == null ? null : (UmlClass) map.getUmlElement(policy.getModelElement()));
         }
 
         return sortedPoliciesResolved;
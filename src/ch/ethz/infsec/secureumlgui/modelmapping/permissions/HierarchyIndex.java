@@ -0,0 +1,440 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ModelElementWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
+
+/**
+ * Index of the role, action and policy hierarchies of the current
+ * mapping.
+ *
+ * The direct super- and subelements are read from the dialect model once
+ * per element. The transitive closures (all super- resp. subelements) are
+ * computed on first use and kept as ordered lists, for the derivation, and
+ * as bitsets over dense element ids, so that ancestor queries take
+ * constant time.
+ *
+ * The mapper clears the index when it discards the mapping and reports
+ * single added or removed elements and generalizations of all three
+ * hierarchies; a changed generalization only drops the closures that
+ * contain the changed edge. Every change, including a new element,
+ * changes the version of the hierarchy.
+ *
+ * The hierarchies are synchronized, as the permissions of independent
+ * policies and resources may be derived in parallel.
+ */
+public class HierarchyIndex {
+
+    private static Logger aLog = Logger.getLogger(HierarchyIndex.class);
+
+    private static HierarchyIndex INSTANCE = new HierarchyIndex();
+
+    /**
+     * @return the index of the current mapping
+     */
+    public static HierarchyIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * One hierarchy: direct edges and closures per element.
+     */
+    public abstract static class Hierarchy<W extends ModelElementWrapper> {
+
+        private final Map<Object, Node<W>> nodes = new HashMap<Object, Node<W>>();
+
+        private int nextId = 0;
+
+        private int version = 0;
+
+        /** creates the wrapper of a model element */
+        protected abstract W wrap(Object element);
+
+        /** reads the direct superelements from the model */
+        protected abstract Collection readParents(W wrapper);
+
+        /** reads the direct subelements from the model */
+        protected abstract Collection readChildren(W wrapper);
+
+        /**
+         * @return the direct superelements
+         */
+        public synchronized List<W> getParents(W element) {
+            return wrappers(parents(node(element.getModelElement(), element)));
+        }
+
+        /**
+         * @return the direct subelements
+         */
+        public synchronized List<W> getChildren(W element) {
+            return wrappers(children(node(element.getModelElement(), element)));
+        }
+
+        /**
+         * @return all direct and indirect superelements, depth first
+         */
+        public synchronized List<W> getAncestors(W element) {
+            return closure(node(element.getModelElement(), element), true).wrappers;
+        }
+
+        /**
+         * @return all direct and indirect subelements, depth first
+         */
+        public synchronized List<W> getDescendants(W element) {
+            return closure(node(element.getModelElement(), element), false).wrappers;
+        }
+
+        /**
+         * @return true, if <code>ancestor</code> is a direct or indirect
+         *     superelement of <code>element</code>
+         */
+        public synchronized boolean isAncestor(W element, W ancestor) {
+            Node<W> ancestorNode = node(ancestor.getModelElement(), ancestor);
+            return closure(node(element.getModelElement(), element), true).ids.get(ancestorNode.id);
+        }
+
+        /**
+         * the model element was added to the model, e.g. a policy, which
+         * does not refine or is refined by another one yet.
+         */
+        public synchronized void elementAdded(Object element) {
+            node(element, null);
+        }
+
+        /**
+         * a generalization from <code>child</code> to <code>parent</code>
+         * (model elements) was added to the model.
+         */
+        public synchronized void addGeneralization(Object child, Object parent) {
+            Node<W> childNode = nodes.get(child);
+            Node<W> parentNode = nodes.get(parent);
+
+            invalidate(childNode, parentNode);
+
+            if ( childNode != null && childNode.parents != null ) {
+                parentNode = node(parent, null);
+                if ( !childNode.parents.contains(parentNode) ) {
+                    childNode.parents.add(parentNode);
+                }
+            }
+            if ( parentNode != null && parentNode.children != null ) {
+                childNode = node(child, null);
+                if ( !parentNode.children.contains(childNode) ) {
+                    parentNode.children.add(childNode);
+                }
+            }
+        }
+
+        /**
+         * a generalization from <code>child</code> to <code>parent</code>
+         * (model elements) was removed from the model.
+         */
+        public synchronized void removeGeneralization(Object child, Object parent) {
+            Node<W> childNode = nodes.get(child);
+            Node<W> parentNode = nodes.get(parent);
+
+            invalidate(childNode, parentNode);
+
+            if ( childNode != null && childNode.parents != null && parentNode != null ) {
+                childNode.parents.remove(parentNode);
+            }
+            if ( parentNode != null && parentNode.children != null && childNode != null ) {
+                parentNode.children.remove(childNode);
+            }
+        }
+
+        /**
+         * the model element was removed, together with its
+         * generalizations.
+         */
+        public synchronized void elementRemoved(Object element) {
+            Node<W> node = nodes.get(element);
+            if ( node == null ) {
+                return;
+            }
+            for ( Node<W> parent : new ArrayList<Node<W>>(parents(node)) ) {
+                removeGeneralization(element, parent.wrapper.getModelElement());
+            }
+            for ( Node<W> child : new ArrayList<Node<W>>(children(node)) ) {
+                removeGeneralization(child.wrapper.getModelElement(), element);
+            }
+            nodes.remove(element);
+            version++;
+        }
+
+        /**
+         * forget all elements.
+         */
+        public synchronized void clear() {
+            nodes.clear();
+            nextId = 0;
+            version++;
+        }
+
+        /**
+         * @return a number, which changes whenever the hierarchy changes
+         */
+        public synchronized int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the number of elements known to the index
+         */
+        public synchronized int size() {
+            return nodes.size();
+        }
+
+        /**
+         * drops the closures which may change by a changed edge between
+         * <code>child</code> and <code>parent</code>: the superelements of
+         * <code>child</code> and its subelements, and the subelements of
+         * <code>parent</code> and its superelements.
+         */
+        private void invalidate(Node<W> child, Node<W> parent) {
+            version++;
+
+            int dropped = 0;
+            for ( Node<W> node : nodes.values() ) {
+                if ( child != null && node.up != null
+                        && (node == child || node.up.ids.get(child.id)) ) {
+                    node.up = null;
+                    dropped++;
+                }
+                if ( parent != null && node.down != null
+                        && (node == parent || node.down.ids.get(parent.id)) ) {
+                    node.down = null;
+                    dropped++;
+                }
+            }
+
+            if ( aLog.isDebugEnabled() ) {
+                aLog.debug("hierarchy changed, dropped " + dropped + " closures");
+            }
+        }
+
+        private Node<W> node(Object element, W wrapper) {
+            Node<W> node = nodes.get(element);
+            if ( node == null ) {
+                node = new Node<W>(wrapper != null ? wrapper : wrap(element), nextId++);
+                nodes.put(element, node);
+                version++;
+            }
+            return node;
+        }
+
+        private List<Node<W>> parents(Node<W> node) {
+            if ( node.parents == null ) {
+                node.parents = read(readParents(node.wrapper));
+            }
+            return node.parents;
+        }
+
+        private List<Node<W>> children(Node<W> node) {
+            if ( node.children == null ) {
+                node.children = read(readChildren(node.wrapper));
+            }
+            return node.children;
+        }
+
+        private List<Node<W>> read(Collection elements) {
+            List<Node<W>> result = new ArrayList<Node<W>>();
+            if ( elements != null ) {
+                for ( Object element : elements ) {
+                    Node<W> node = node(element, null);
+                    if ( !result.contains(node) ) {
+                        result.add(node);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * the closure of <code>node</code>, depth first. Equals the order
+         * of a depth first search, as the closure of an already visited
+         * element has already been added completely. Cycles are cut.
+         */
+        private Closure<W> closure(Node<W> node, boolean up) {
+            return closure(node, up, 0, new int[1]);
+        }
+
+        /**
+         * @param depth the number of nodes on the path of the search to
+         *     <code>node</code>
+         * @param cut receives the lowest depth of a node on the path at
+         *     which the search cut a cycle, {@link Integer#MAX_VALUE} if
+         *     none
+         */
+        private Closure<W> closure(Node<W> node, boolean up, int depth, int[] cut) {
+            Closure<W> closure = up ? node.up : node.down;
+            if ( closure != null ) {
+                cut[0] = Integer.MAX_VALUE;
+                return closure;
+            }
+
+            closure = new Closure<W>();
+            int lowest = Integer.MAX_VALUE;
+            int[] nextCut = new int[1];
+            node.depth = depth;
+            try {
+                for ( Node<W> next : up ? parents(node) : children(node) ) {
+                    closure.add(next);
+                    if ( next.depth >= 0 ) {
+                        lowest = Math.min(lowest, next.depth);
+                        continue;
+                    }
+                    for ( Node<W> indirect : closure(next, up, depth + 1, nextCut).nodes ) {
+                        closure.add(indirect);
+                    }
+                    lowest = Math.min(lowest, nextCut[0]);
+                }
+            } finally {
+                node.depth = -1;
+            }
+            closure.wrappers = wrappers(closure.nodes);
+
+            // cut at a node above on the path, the closure misses what is
+            // only reachable through that node, so it is not kept
+            if ( lowest >= depth ) {
+                if ( up ) {
+                    node.up = closure;
+                } else {
+                    node.down = closure;
+                }
+            }
+            cut[0] = lowest;
+            return closure;
+        }
+
+        private List<W> wrappers(List<Node<W>> nodes) {
+            List<W> result = new ArrayList<W>(nodes.size());
+            for ( Node<W> node : nodes ) {
+                result.add(node.wrapper);
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    private static class Node<W> {
+        final W wrapper;
+        final int id;
+
+        /** direct edges, null until read from the model */
+        List<Node<W>> parents;
+        List<Node<W>> children;
+
+        /** closures, null until computed */
+        Closure<W> up;
+        Closure<W> down;
+
+        /** the depth on the path of the running search, -1 if not on it */
+        int depth = -1;
+
+        Node(W wrapper, int id) {
+            this.wrapper = wrapper;
+            this.id = id;
+        }
+    }
+
+    private static class Closure<W> {
+        final List<Node<W>> nodes = new ArrayList<Node<W>>();
+        final BitSet ids = new BitSet();
+        List<W> wrappers;
+
+        void add(Node<W> node) {
+            if ( !ids.get(node.id) ) {
+                ids.set(node.id);
+                nodes.add(node);
+            }
+        }
+    }
+
+    private final Hierarchy<RoleWrapper> roles = new Hierarchy<RoleWrapper>() {
+        protected RoleWrapper wrap(Object element) {
+            return WrapperFactory.getRoleWrapper(element);
+        }
+
+        protected Collection readParents(RoleWrapper role) {
+            return role.getSuperroles();
+        }
+
+        protected Collection readChildren(RoleWrapper role) {
+            return role.getSubroles();
+        }
+    };
+
+    private final Hierarchy<ActionWrapper> actions = new Hierarchy<ActionWrapper>() {
+        protected ActionWrapper wrap(Object element) {
+            return WrapperFactory.getActionWrapper(element);
+        }
+
+        protected Collection readParents(ActionWrapper action) {
+            return action.getSuperActions();
+        }
+
+        protected Collection readChildren(ActionWrapper action) {
+            return action.getSubActions();
+        }
+    };
+
+    /** a policy is below the policies refining it */
+    private final Hierarchy<PolicyWrapper> policies = new Hierarchy<PolicyWrapper>() {
+        protected PolicyWrapper wrap(Object element) {
+            return WrapperFactory.getPolicyWrapper(element);
+        }
+
+        protected Collection readParents(PolicyWrapper policy) {
+            return policy.getRefinedBy();
+        }
+
+        protected Collection readChildren(PolicyWrapper policy) {
+            return policy.getRefines();
+        }
+    };
+
+    /**
+     * creates an empty index; the mapping uses {@link #getInstance()}.
+     */
+    public HierarchyIndex() {
+    }
+
+    /** @return the role hierarchy: superroles and subroles */
+    public Hierarchy<RoleWrapper> getRoles() {
+        return roles;
+    }
+
+    /** @return the action hierarchy: superactions and subactions */
+    public Hierarchy<ActionWrapper> getActions() {
+        return actions;
+    }
+
+    /** @return the policy hierarchy: refinedBy and refines */
+    public Hierarchy<PolicyWrapper> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * forget all hierarchies, e.g. because the mapping is discarded.
+     */
+    public void clear() {
+        roles.clear();
+        actions.clear();
+        policies.clear();
+    }
+}
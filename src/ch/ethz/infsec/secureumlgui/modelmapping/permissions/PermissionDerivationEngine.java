@@ -0,0 +1,789 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.Cancellation;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.MappingEvents;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.EventHandle;
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer.CHANGES;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ModelElementWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
+
+/**
+ * Derives the non explicit permissions of one resource from its explicit
+ * permissions, by applying the derivation rules until nothing changes:
+ *
+ * <ul>
+ * <li>policy refinement: a policy gets the permissions of the policies
+ *     refining it</li>
+ * <li>inheritance: a role gets the permissions of its superroles</li>
+ * <li>implicit super: an action gets the permissions of its composite
+ *     superactions</li>
+ * <li>implicit sub: a composite action is permitted, if all its
+ *     subactions are</li>
+ * </ul>
+ *
+ * The rules are evaluated semi-naively: after a first round over all
+ * permissions, a round only looks at the (role, action) pairs which got a
+ * new permission in the previous round, alternating the implicit and the
+ * inheritance rules. The deep super- and subroles and -actions are
+ * taken from the {@link HierarchyIndex} of the mapping.
+ *
+ * The rules add the permissions to the given {@link PermissionSet} in the
+ * same order as the former round based exploration, so the resulting
+ * {@link PermissionValue}s are the same.
+ *
+ * A policy only reads its own sets and the ones of the policies refining
+ * it; therefore, with {@link #setParallelEnabled(boolean)}, the policies of
+ * one refinement level are derived in parallel, and
+ * {@link #deriveAll(Collection, List)} derives independent resources in
+ * parallel. Before deriving a level in parallel, the engine creates all
+ * (role, action, policy) sets the rules may touch, so the derivation does
+ * not change the structure of the shared permission set. The parallel
+ * work runs as {@link RecursiveAction}s on a {@link ForkJoinPool}, each
+ * with the {@link Cancellation} token of the calling thread. The composite
+ * permissions are plain values ({@link CompositePermission}), not elements
+ * of the model, so the derivation only reads the model. Subclasses may
+ * create them differently, though, so the pool threads hand their creation
+ * to the calling thread, one at a time. Both modes derive the same
+ * permissions.
+ */
+public class PermissionDerivationEngine implements Cloneable {
+
+    private static Logger aLog = Logger.getLogger(PermissionDerivationEngine.class);
+
+    private static volatile boolean parallelEnabled = false;
+
+    /** the worker threads of the parallel mode, created on first use */
+    private static ForkJoinPool pool;
+
+    /** composite permissions are created one at a time */
+    private static final Object COMPOSITE_LOCK = new Object();
+
+    /** how long the calling thread waits for composite requests at a time */
+    private static final long REQUEST_POLL_MILLIS = 10;
+
+    /** the actions of the resource */
+    private final Collection<ActionWrapper> actions;
+
+    /** all permissions of the resource, explicit and derived */
+    private final PermissionSet permissions;
+
+    /** the role, action and policy hierarchies */
+    private final HierarchyIndex hierarchy;
+
+    /** action -> deep super- and subactions */
+    private Map<Object, Collection<ActionWrapper>> relatedActions =
+        new HashMap<Object, Collection<ActionWrapper>>();
+
+    private int rounds;
+
+    private int derivedPermissions;
+
+    /**
+     * the composite permissions requested by a worker thread, created by
+     * the calling thread; null when deriving on the calling thread.
+     */
+    private BlockingQueue<FutureTask<PermissionValue>> compositeRequests;
+
+    /**
+     * (role, action) pairs with new permissions, in the order they were
+     * found.
+     */
+    private static class Delta {
+        Map<Object, Set<Object>> actions = new LinkedHashMap<Object, Set<Object>>();
+
+        void add(RoleWrapper role, ActionWrapper action) {
+            Set<Object> roleActions = actions.get(role.getModelElement());
+            if ( roleActions == null ) {
+                roleActions = new LinkedHashSet<Object>();
+                actions.put(role.getModelElement(), roleActions);
+            }
+            roleActions.add(action.getModelElement());
+        }
+
+        boolean isEmpty() {
+            return actions.isEmpty();
+        }
+    }
+
+    public PermissionDerivationEngine(ResourceWrapper resource, PermissionSet permissions) {
+        this(resource.getActionWrapper(), permissions);
+    }
+
+    public PermissionDerivationEngine(Collection<ActionWrapper> actions, PermissionSet permissions) {
+        this(actions, permissions, HierarchyIndex.getInstance());
+    }
+
+    public PermissionDerivationEngine(Collection<ActionWrapper> actions, PermissionSet permissions, HierarchyIndex hierarchy) {
+        this.actions = actions;
+        this.permissions = permissions;
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * @return true, if independent policies and resources are derived in
+     *     parallel
+     */
+    public static boolean isParallelEnabled() {
+        return parallelEnabled;
+    }
+
+    /**
+     * derive independent policies and resources in parallel, or one after
+     * the other (the default).
+     */
+    public static void setParallelEnabled(boolean parallelEnabled) {
+        PermissionDerivationEngine.parallelEnabled = parallelEnabled;
+    }
+
+    /**
+     * derive the permissions of several resources for the given policies,
+     * in parallel if enabled. The engines must not share their permission
+     * sets.
+     */
+    public static void deriveAll(Collection<PermissionDerivationEngine> engines, final List<PolicyWrapper> policies) {
+        if ( !parallelEnabled || engines.size() < 2 ) {
+            for ( PermissionDerivationEngine engine : engines ) {
+                engine.derive(policies);
+            }
+            return;
+        }
+
+        BlockingQueue<FutureTask<PermissionValue>> requests =
+            new LinkedBlockingQueue<FutureTask<PermissionValue>>();
+        List<Runnable> tasks = new ArrayList<Runnable>(engines.size());
+        for ( final PermissionDerivationEngine engine : engines ) {
+            engine.compositeRequests = requests;
+            tasks.add(new Runnable() {
+                public void run() {
+                    // one task per resource, its policies one after the other
+                    engine.deriveSequentially(policies);
+                }
+            });
+        }
+        try {
+            invokeAll(tasks, requests);
+        } finally {
+            for ( PermissionDerivationEngine engine : engines ) {
+                engine.compositeRequests = null;
+            }
+        }
+    }
+
+    /**
+     * derive the permissions for the given policies, in this order, resp.
+     * level by level if parallel derivation is enabled.
+     */
+    public void derive(List<PolicyWrapper> policies) {
+        List<List<PolicyWrapper>> levels = null;
+        if ( parallelEnabled && policies.size() > 1 ) {
+            levels = getLevels(policies);
+        }
+        if ( levels == null || levels.size() == policies.size() ) {
+            deriveSequentially(policies);
+            return;
+        }
+
+        prepare(policies);
+        BlockingQueue<FutureTask<PermissionValue>> requests =
+            new LinkedBlockingQueue<FutureTask<PermissionValue>>();
+        for ( List<PolicyWrapper> level : levels ) {
+            if ( level.size() == 1 ) {
+                derive(level.get(0));
+                continue;
+            }
+
+            List<PermissionDerivationEngine> forks = new ArrayList<PermissionDerivationEngine>(level.size());
+            List<Runnable> tasks = new ArrayList<Runnable>(level.size());
+            for ( final PolicyWrapper policy : level ) {
+                final PermissionDerivationEngine fork = fork(requests);
+                forks.add(fork);
+                tasks.add(new Runnable() {
+                    public void run() {
+                        fork.derive(policy);
+                    }
+                });
+            }
+            invokeAll(tasks, requests);
+
+            for ( PermissionDerivationEngine fork : forks ) {
+                rounds += fork.rounds;
+                derivedPermissions += fork.derivedPermissions;
+            }
+        }
+    }
+
+    private void deriveSequentially(List<PolicyWrapper> policies) {
+        for ( PolicyWrapper policy : policies ) {
+            derive(policy);
+        }
+    }
+
+    /**
+     * derive the permissions for one policy.
+     */
+    public void derive(PolicyWrapper policy) {
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("derive permissions for policy " + (policy == null ? "NULL" : policy.getName()));
+        }
+
+        String policyName = policy == null ? null : policy.getName();
+
+        Cancellation.check();
+
+        // first round: all permissions
+        long start = MappingMetrics.start();
+        int derived = derivedPermissions;
+        EventHandle event = MappingEvents.beginRound(policyName, 0);
+        applyPolicyRefinement(policy);
+        applyImplicit(policy);
+        applyInheritance(policy);
+
+        Delta delta = new Delta();
+        applyImplicitToAll(policy, delta);
+        rounds++;
+        MappingMetrics.stop(Phase.EXPLORER_ROUND, start);
+        MappingEvents.end(event, derivedPermissions - derived);
+
+        // following rounds: the pairs changed in the previous round
+        boolean inheritance = true;
+        int round = 1;
+        while ( !delta.isEmpty() ) {
+            Cancellation.check();
+            start = MappingMetrics.start();
+            derived = derivedPermissions;
+            event = MappingEvents.beginRound(policyName, round++);
+            Delta last = delta;
+            delta = new Delta();
+
+            if ( inheritance ) {
+                applyInheritance(policy, last, delta);
+            } else {
+                applyImplicit(policy, last, delta);
+            }
+            inheritance = !inheritance;
+            rounds++;
+            MappingMetrics.stop(Phase.EXPLORER_ROUND, start);
+            MappingEvents.end(event, derivedPermissions - derived);
+        }
+
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("derived " + derivedPermissions + " permissions in " + rounds + " rounds");
+        }
+    }
+
+    /** @return the number of semi-naive rounds evaluated so far */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /** @return the number of permissions derived so far */
+    public int getDerivedPermissions() {
+        return derivedPermissions;
+    }
+
+    /**
+     * creates the permission of <code>role</code> on the composite
+     * <code>action</code>, whose subactions are all permitted.
+     */
+    protected PermissionValue createComposite(ActionWrapper action, RoleWrapper role) {
+        return PermissionValue.createComposite(null, action, role);
+    }
+
+    /**
+     * creates the composite permission on this thread, or on the calling
+     * thread when deriving on a worker thread.
+     */
+    private PermissionValue newComposite(final ActionWrapper action, final RoleWrapper role) {
+        if ( compositeRequests == null ) {
+            return newCompositeNow(action, role);
+        }
+
+        FutureTask<PermissionValue> request = new FutureTask<PermissionValue>(new Callable<PermissionValue>() {
+            public PermissionValue call() {
+                return newCompositeNow(action, role);
+            }
+        });
+        compositeRequests.add(request);
+        return getResult(request);
+    }
+
+    private PermissionValue newCompositeNow(ActionWrapper action, RoleWrapper role) {
+        synchronized ( COMPOSITE_LOCK ) {
+            return createComposite(action, role);
+        }
+    }
+
+    /**
+     * creates the (role, action, policy) sets the rules may touch, in a
+     * fixed order: the roles of the set and the ones connected to them by
+     * the role hierarchy, times the actions of the resource and of the
+     * roles and the ones connected to them by the action hierarchy.
+     */
+    private void prepare(List<PolicyWrapper> policies) {
+        Map<Object, RoleWrapper> roles = new LinkedHashMap<Object, RoleWrapper>();
+        Map<Object, ActionWrapper> allActions = new LinkedHashMap<Object, ActionWrapper>();
+
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            roles.put(role.getModelElement(), role);
+            for ( Object action : new ArrayList<Object>(permissions.getResourcePermissionsSet(role).getActions()) ) {
+                if ( !allActions.containsKey(action) ) {
+                    allActions.put(action, WrapperFactory.getActionWrapper(action));
+                }
+            }
+        }
+        for ( ActionWrapper action : actions ) {
+            if ( !allActions.containsKey(action.getModelElement()) ) {
+                allActions.put(action.getModelElement(), action);
+            }
+        }
+        connect(roles, hierarchy.getRoles());
+        connect(allActions, hierarchy.getActions());
+
+        for ( RoleWrapper role : roles.values() ) {
+            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+            for ( Object action : allActions.keySet() ) {
+                ActionPermissionSet actionPermissions = resourcePermissions.getPermissions(action);
+                for ( PolicyWrapper policy : policies ) {
+                    actionPermissions.getPolicyPermissionSet(policy);
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the elements connected to <code>elements</code> by
+     * <code>hierarchy</code>, breadth first.
+     */
+    private static <W extends ModelElementWrapper> void connect(Map<Object, W> elements, HierarchyIndex.Hierarchy<W> hierarchy) {
+        List<W> pending = new ArrayList<W>(elements.values());
+        for ( int i = 0; i < pending.size(); i++ ) {
+            W element = pending.get(i);
+            List<W> connected = new ArrayList<W>(hierarchy.getAncestors(element));
+            connected.addAll(hierarchy.getDescendants(element));
+
+            for ( W next : connected ) {
+                if ( !elements.containsKey(next.getModelElement()) ) {
+                    elements.put(next.getModelElement(), next);
+                    pending.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * groups the policies by refinement level: a policy is one level
+     * below the lowest of the policies refining it.
+     *
+     * @return the levels, or null if a policy comes before a policy
+     *     refining it
+     */
+    private List<List<PolicyWrapper>> getLevels(List<PolicyWrapper> policies) {
+        Map<Object, Integer> positions = new HashMap<Object, Integer>();
+        for ( int i = 0; i < policies.size(); i++ ) {
+            PolicyWrapper policy = policies.get(i);
+            positions.put(policy == null ? null : policy.getModelElement(), Integer.valueOf(i));
+        }
+
+        List<List<PolicyWrapper>> levels = new ArrayList<List<PolicyWrapper>>();
+        int[] policyLevels = new int[policies.size()];
+        for ( int i = 0; i < policies.size(); i++ ) {
+            PolicyWrapper policy = policies.get(i);
+            int level = 0;
+            if ( policy != null ) {
+                for ( PolicyWrapper supPol : hierarchy.getPolicies().getParents(policy) ) {
+                    Integer position = positions.get(supPol.getModelElement());
+                    if ( position == null ) {
+                        continue;
+                    }
+                    if ( position.intValue() >= i ) {
+                        return null;
+                    }
+                    level = Math.max(level, policyLevels[position.intValue()] + 1);
+                }
+            }
+            policyLevels[i] = level;
+
+            while ( levels.size() <= level ) {
+                levels.add(new ArrayList<PolicyWrapper>());
+            }
+            levels.get(level).add(policy);
+        }
+        return levels;
+    }
+
+    /**
+     * @param requests the queue of the composite permission requests of the
+     *     fork
+     * @return a copy of this engine for another thread, with its own
+     *     caches and counters
+     */
+    private PermissionDerivationEngine fork(BlockingQueue<FutureTask<PermissionValue>> requests) {
+        try {
+            PermissionDerivationEngine fork = (PermissionDerivationEngine) clone();
+            fork.compositeRequests = requests;
+            fork.relatedActions = new HashMap<Object, Collection<ActionWrapper>>();
+            fork.rounds = 0;
+            fork.derivedPermissions = 0;
+            return fork;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /**
+     * runs the tasks in parallel, splitting them in halves, with the
+     * cancellation token of the thread that created the task.
+     */
+    private static class DerivationTask extends RecursiveAction {
+        private final List<Runnable> tasks;
+
+        private final AtomicBoolean token;
+
+        DerivationTask(List<Runnable> tasks, AtomicBoolean token) {
+            this.tasks = tasks;
+            this.token = token;
+        }
+
+        protected void compute() {
+            if ( tasks.size() > 1 ) {
+                int middle = tasks.size() / 2;
+                invokeAll(new DerivationTask(tasks.subList(0, middle), token),
+                          new DerivationTask(tasks.subList(middle, tasks.size()), token));
+                return;
+            }
+
+            // a pool thread may run the task while joining another one
+            AtomicBoolean previous = Cancellation.getToken();
+            Cancellation.setToken(token);
+            try {
+                tasks.get(0).run();
+            } finally {
+                Cancellation.setToken(previous);
+            }
+        }
+    }
+
+    /**
+     * runs the tasks on the pool and waits for all of them, creating the
+     * composite permissions they request meanwhile.
+     */
+    private static void invokeAll(List<Runnable> tasks, BlockingQueue<FutureTask<PermissionValue>> requests) {
+        DerivationTask task = new DerivationTask(tasks, Cancellation.getToken());
+        getPool().execute(task);
+
+        try {
+            // a task waiting for a composite is not done
+            while ( !task.isDone() ) {
+                FutureTask<PermissionValue> request = requests.poll(REQUEST_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if ( request != null ) {
+                    request.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while deriving permissions");
+        }
+
+        getResult(task);
+    }
+
+    /**
+     * waits for <code>result</code>, rethrowing the exception of its task.
+     */
+    private static <T> T getResult(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while deriving permissions");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("error at deriving permissions: " + cause);
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if ( pool == null ) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                private int threads = 0;
+
+                public synchronized ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("permission-derivation-" + ++threads);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * policy refinement: the permissions of the refining policies.
+     */
+    private void applyPolicyRefinement(PolicyWrapper policy) {
+        if ( policy == null ) {
+            return;
+        }
+
+        for ( PolicyWrapper supPol : hierarchy.getPolicies().getParents(policy) ) {
+            for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+                ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+
+                for ( ActionWrapper action : actions ) {
+                    ActionPermissionSet actionPermissions = resourcePermissions.getPermissions(action);
+
+                    for ( PermissionValue permission : actionPermissions.getPermissions(supPol) ) {
+                        add(actionPermissions.getPolicyPermissionSet(policy),
+                            PermissionValue.createInheritedPolicy(permission), CHANGES.INHERITED_POLIY);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * implicit super and sub, from the explicit permissions.
+     */
+    private void applyImplicit(PolicyWrapper policy) {
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+
+            for ( ActionWrapper action : actions ) {
+                PolicyPermissionSet actionPermissions =
+                    resourcePermissions.getPermissions(action).getPolicyPermissionSet(policy);
+
+                for ( ActionWrapper superAction : getSuperActions(action) ) {
+                    for ( PermissionValue permission : resourcePermissions.getPermissions(superAction).getPermissions(policy) ) {
+                        add(actionPermissions, PermissionValue.createImplicite(permission), CHANGES.IMPLICIT_SUPER);
+                    }
+                }
+
+                if ( isComposite(action) && isPermittedImplicitBySubactions(resourcePermissions, action, policy) ) {
+                    add(actionPermissions, newComposite(action, role), CHANGES.IMPLICIT_SUB);
+                }
+            }
+        }
+    }
+
+    /**
+     * inheritance, from the explicit permissions.
+     */
+    private void applyInheritance(PolicyWrapper policy) {
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+            Collection<RoleWrapper> roleSuperRoles = getSuperRoles(role);
+
+            for ( ActionWrapper action : actions ) {
+                PolicyPermissionSet actionPermissions =
+                    resourcePermissions.getPermissions(action).getPolicyPermissionSet(policy);
+
+                for ( RoleWrapper superRole : roleSuperRoles ) {
+                    for ( PermissionValue permission : permissions.getResourcePermissionsSet(superRole).getPermissions(action).getPermissions(policy) ) {
+                        add(actionPermissions, PermissionValue.createInheritedRole(permission), CHANGES.INHERITED);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * implicit super and sub on all (role, action) pairs, including the
+     * ones of actions of other resources.
+     */
+    private void applyImplicitToAll(PolicyWrapper policy, Delta next) {
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            List<Object> roleActions =
+                new ArrayList<Object>(permissions.getResourcePermissionsSet(role).getActions());
+
+            for ( Object action : roleActions ) {
+                applyImplicit(policy, role, WrapperFactory.getActionWrapper(action), next);
+            }
+        }
+    }
+
+    /**
+     * implicit super and sub on the pairs of <code>last</code>.
+     */
+    private void applyImplicit(PolicyWrapper policy, Delta last, Delta next) {
+        for ( Map.Entry<Object, Set<Object>> entry : last.actions.entrySet() ) {
+            RoleWrapper role = WrapperFactory.getRoleWrapper(entry.getKey());
+
+            for ( Object action : entry.getValue() ) {
+                applyImplicit(policy, role, WrapperFactory.getActionWrapper(action), next);
+            }
+        }
+    }
+
+    private void applyImplicit(PolicyWrapper policy, RoleWrapper role, ActionWrapper action, Delta next) {
+        ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+        PolicyPermissionSet actionPermissions =
+            resourcePermissions.getPermissions(action).getPolicyPermissionSet(policy);
+
+        for ( ActionWrapper superAction : getSuperActions(action) ) {
+            for ( PermissionValue permission : resourcePermissions.getPermissions(superAction).getPermissions(policy) ) {
+                PermissionValue implicit = PermissionValue.createImplicite(permission);
+                if ( add(actionPermissions, implicit, CHANGES.IMPLICIT_SUPER) ) {
+                    implicitAdded(implicit, superAction, next);
+                }
+            }
+        }
+
+        if ( isComposite(action) && isPermittedImplicitBySubactions(resourcePermissions, action, policy) ) {
+            PermissionValue composite = newComposite(action, role);
+            if ( add(actionPermissions, composite, CHANGES.IMPLICIT_SUB) ) {
+                implicitAdded(composite, action, next);
+            }
+        }
+    }
+
+    /**
+     * inheritance on the pairs of <code>last</code>.
+     */
+    private void applyInheritance(PolicyWrapper policy, Delta last, Delta next) {
+        for ( Map.Entry<Object, Set<Object>> entry : last.actions.entrySet() ) {
+            RoleWrapper role = WrapperFactory.getRoleWrapper(entry.getKey());
+            ResourcePermissionsSet resourcePermissions = permissions.getResourcePermissionsSet(role);
+            Collection<RoleWrapper> roleSuperRoles = getSuperRoles(role);
+
+            for ( Object action : entry.getValue() ) {
+                PolicyPermissionSet actionPermissions =
+                    resourcePermissions.getPermissions(WrapperFactory.getActionWrapper(action)).getPolicyPermissionSet(policy);
+
+                for ( RoleWrapper superRole : roleSuperRoles ) {
+                    for ( PermissionValue permission : permissions.getResourcePermissionsSet(superRole).getPermissions(action).getPermissions(policy) ) {
+                        PermissionValue inherited = PermissionValue.createInheritedRole(permission);
+                        if ( add(actionPermissions, inherited, CHANGES.INHERITED) ) {
+                            inheritedAdded(inherited, role, next);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * an inherited permission may make the related actions of its
+     * action implicitly permitted.
+     */
+    private void inheritedAdded(PermissionValue permission, RoleWrapper role, Delta next) {
+        for ( ActionWrapper action : getRelatedActions(permission.getPermissionWrapper().getActionWrapper()) ) {
+            next.add(role, action);
+        }
+    }
+
+    /**
+     * an implicit permission may be inherited by the subroles of its role
+     * (on the superaction it was taken from, resp. the composite action).
+     */
+    private void implicitAdded(PermissionValue permission, ActionWrapper action, Delta next) {
+        for ( RoleWrapper subRole : getSubRoles(permission.getPermissionWrapper().getRoleWrapper()) ) {
+            next.add(subRole, action);
+        }
+    }
+
+    private boolean add(PolicyPermissionSet actionPermissions, PermissionValue permission, CHANGES changeReason) {
+        if ( actionPermissions.addPermission(permission, changeReason) ) {
+            derivedPermissions++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isPermittedImplicitBySubactions(ResourcePermissionsSet resourcePermissions, ActionWrapper action, PolicyWrapper policy) {
+        //check if explicit permitted
+        if ( resourcePermissions.getPermissions(action).getPolicyPermissionSet(policy).isPermitted() ) {
+            return true;
+        }
+
+        //check, if implicit permitted by all permitted subactions
+        Collection<ActionWrapper> actionSubActions = getSubActions(action);
+        if ( actionSubActions.size() == 0 ) {
+            return false;
+        }
+        for ( ActionWrapper subAction : actionSubActions ) {
+            if ( !isPermittedImplicitBySubactions(resourcePermissions, subAction, policy) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isComposite(ActionWrapper action) {
+        return getSubActions(action).size() > 0;
+    }
+
+    private Collection<RoleWrapper> getSuperRoles(RoleWrapper role) {
+        return hierarchy.getRoles().getAncestors(role);
+    }
+
+    private Collection<RoleWrapper> getSubRoles(RoleWrapper role) {
+        return hierarchy.getRoles().getDescendants(role);
+    }
+
+    private Collection<ActionWrapper> getSuperActions(ActionWrapper action) {
+        return hierarchy.getActions().getAncestors(action);
+    }
+
+    private Collection<ActionWrapper> getSubActions(ActionWrapper action) {
+        return hierarchy.getActions().getChildren(action);
+    }
+
+    private Collection<ActionWrapper> getRelatedActions(ActionWrapper action) {
+        Collection<ActionWrapper> result = relatedActions.get(action.getModelElement());
+        if ( result == null ) {
+            Map<Object, ActionWrapper> collected = new LinkedHashMap<Object, ActionWrapper>();
+            for ( ActionWrapper superAction : getSuperActions(action) ) {
+                collected.put(superAction.getModelElement(), superAction);
+            }
+            for ( ActionWrapper subAction : hierarchy.getActions().getDescendants(action) ) {
+                if ( !collected.containsKey(subAction.getModelElement()) ) {
+                    collected.put(subAction.getModelElement(), subAction);
+                }
+            }
+
+            result = collected.values();
+            relatedActions.put(action.getModelElement(), result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,379 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact store of the permissions of a {@link PermissionSet}.
+ *
+ * Roles, actions, policies and permissions get dense integer ids, every
+ * (role, action, policy) triple a dense cell id. For each cell, a summary
+ * of the flags of its permissions is packed into a bitset (8 bits per
+ * cell), and the (permission, flags) pairs of all cells are kept in one
+ * hash set of packed longs. Therefore checking whether a permission is
+ * already there or whether a cell is permitted takes constant time,
+ * regardless of the number of derivations of the cell.
+ *
+ * {@link ResourcePermissionsSet}, {@link ActionPermissionSet} and
+ * {@link PolicyPermissionSet} are views on the cells of the matrix; they
+ * still keep the {@link PermissionValue}s themselves for the tooltips and
+ * derivation details of the GUI.
+ *
+ * A matrix holds at most 2^21 roles, actions and policies each, and 2^25
+ * distinct permissions; beyond that, the ids do not fit into the packed
+ * keys and an {@link IllegalStateException} is thrown. The storage grows
+ * with the cells, so that the matrices of single, standalone permission
+ * sets stay small.
+ *
+ * The matrix is synchronized: the policies of one refinement level are
+ * derived in parallel, see {@link PermissionDerivationEngine}, and the
+ * summaries of their cells share words.
+ */
+public class PermissionMatrix {
+
+    /** the policy id of the default policy (unknown policy) */
+    public static final int DEFAULT_POLICY = 0;
+
+    /** cell summary: the cell has a permission */
+    public static final int PERMITTED = 0x1;
+    /** cell summary: the cell has a permission with exactly INT_GRANTED */
+    public static final int EXPLICIT = 0x2;
+    /** cell summary: a permission has INT_GRANTED */
+    public static final int GRANTED = 0x4;
+    /** cell summary: a permission has INT_INHERITED_ROLE */
+    public static final int INHERITED_ROLE = 0x8;
+    /** cell summary: a permission has INT_INHERITED_POLICY */
+    public static final int INHERITED_POLICY = 0x10;
+    /** cell summary: a permission has INT_IMPLICIT */
+    public static final int IMPLICIT = 0x20;
+    /** cell summary: a permission has INT_COMPOSITE */
+    public static final int COMPOSITE = 0x40;
+    /** cell summary: a permission has INT_CONSTRAINED */
+    public static final int CONSTRAINED = 0x80;
+
+    /** the PermissionValue flags, in the order of their packed bits */
+    private static final int[] FLAGS = {
+        PermissionValue.INT_GRANTED,
+        PermissionValue.INT_EMERGENCY,
+        PermissionValue.INT_INHERITED_ROLE,
+        PermissionValue.INT_INHERITED_POLICY,
+        PermissionValue.INT_IMPLICIT,
+        PermissionValue.INT_COMPOSITE,
+        PermissionValue.INT_CONSTRAINED
+    };
+
+    private static final int KNOWN_FLAGS;
+    static {
+        int known = 0;
+        for (int i = 0; i < FLAGS.length; i++) {
+            known |= FLAGS[i];
+        }
+        KNOWN_FLAGS = known;
+    }
+
+    private static final int FLAG_BITS = 7;
+
+    /** bits of the role, action and policy ids in a packed cell */
+    private static final int ID_BITS = 21;
+
+    /** bits of the permission id next to the flags in a packed permission */
+    private static final int PERMISSION_ID_BITS = 32 - FLAG_BITS;
+
+    private final Map<Object, Integer> roleIds = new HashMap<Object, Integer>();
+    private final Map<Object, Integer> actionIds = new HashMap<Object, Integer>();
+    private final Map<Object, Integer> policyIds = new HashMap<Object, Integer>();
+    private final Map<Object, Integer> permissionIds = new HashMap<Object, Integer>();
+
+    /** packed (role, action, policy) -> cell */
+    private final Map<Long, Integer> cells = new HashMap<Long, Integer>();
+
+    /** 8 bits summary per cell */
+    private long[] summaries = new long[1];
+
+    /** packed (cell, permission, flags) */
+    private final LongSet permissions = new LongSet();
+
+    public PermissionMatrix() {
+        policyIds.put(null, Integer.valueOf(DEFAULT_POLICY));
+    }
+
+    /**
+     * @throws IllegalStateException if the matrix has no more role ids
+     */
+    public synchronized int getRoleId(Object role) {
+        return getId(roleIds, role, ID_BITS, "roles");
+    }
+
+    /**
+     * @throws IllegalStateException if the matrix has no more action ids
+     */
+    public synchronized int getActionId(Object action) {
+        return getId(actionIds, action, ID_BITS, "actions");
+    }
+
+    /**
+     * @param policy the policy model element, null for the default policy
+     * @throws IllegalStateException if the matrix has no more policy ids
+     */
+    public synchronized int getPolicyId(Object policy) {
+        return getId(policyIds, policy, ID_BITS, "policies");
+    }
+
+    /**
+     * use the id of the default policy for <code>policy</code>, unless it
+     * already has an id.
+     */
+    public synchronized void setDefaultPolicy(Object policy) {
+        if ( !policyIds.containsKey(policy) ) {
+            policyIds.put(policy, Integer.valueOf(DEFAULT_POLICY));
+        }
+    }
+
+    /**
+     * @return the cell of the given ids, a new one if necessary
+     * @throws IllegalArgumentException if an id is out of range
+     */
+    public synchronized int getCell(int roleId, int actionId, int policyId) {
+        Long key = Long.valueOf(packCell(roleId, actionId, policyId));
+        Integer cell = cells.get(key);
+        if ( cell == null ) {
+            cell = Integer.valueOf(cells.size());
+            cells.put(key, cell);
+
+            if ( (cell.intValue() >> 3) >= summaries.length ) {
+                long[] grown = new long[Math.max(summaries.length * 2, (cell.intValue() >> 3) + 1)];
+                System.arraycopy(summaries, 0, grown, 0, summaries.length);
+                summaries = grown;
+            }
+        }
+        return cell.intValue();
+    }
+
+    /**
+     * @return the cell of the given model elements, or -1 if there is none
+     */
+    public synchronized int findCell(Object role, Object action, Object policy) {
+        Integer roleId = roleIds.get(role);
+        Integer actionId = actionIds.get(action);
+        Integer policyId = policyIds.get(policy);
+        if ( roleId == null || actionId == null || policyId == null ) {
+            return -1;
+        }
+        Integer cell = cells.get(Long.valueOf(packCell(roleId.intValue(), actionId.intValue(), policyId.intValue())));
+        return cell == null ? -1 : cell.intValue();
+    }
+
+    /**
+     * @return the summary bits (PERMITTED, EXPLICIT, GRANTED, ...) of the
+     *     permissions of <code>cell</code>
+     */
+    public synchronized int getSummary(int cell) {
+        return (int) (summaries[cell >> 3] >>> ((cell & 7) << 3)) & 0xff;
+    }
+
+    /**
+     * @return the summary bits of the given model elements, 0 if there is
+     *     no such cell
+     */
+    public synchronized int getSummary(Object role, Object action, Object policy) {
+        int cell = findCell(role, action, policy);
+        return cell < 0 ? 0 : getSummary(cell);
+    }
+
+    public synchronized boolean isPermitted(int cell) {
+        return (getSummary(cell) & PERMITTED) != 0;
+    }
+
+    public synchronized boolean isExplicitPermitted(int cell) {
+        return (getSummary(cell) & EXPLICIT) != 0;
+    }
+
+    /**
+     * @return true, if a permission with the flags and permission of
+     *     <code>value</code> is in <code>cell</code>
+     * @throws IllegalArgumentException if the flags of <code>value</code>
+     *     cannot be packed, see {@link #isPackable(PermissionValue)}
+     */
+    public synchronized boolean contains(int cell, PermissionValue value) {
+        return permissions.contains(packPermission(cell, value));
+    }
+
+    /**
+     * record <code>value</code> in <code>cell</code>.
+     * @return false, if it was already there
+     */
+    public synchronized boolean add(int cell, PermissionValue value) {
+        int flags = value.getFlags();
+        int summary = PERMITTED | summarize(flags);
+        if ( flags == PermissionValue.INT_GRANTED ) {
+            summary |= EXPLICIT;
+        }
+        summaries[cell >> 3] |= ((long) summary) << ((cell & 7) << 3);
+
+        if ( isPackable(value) ) {
+            return permissions.add(packPermission(cell, value));
+        }
+        return true;
+    }
+
+    /**
+     * @return true, if the flags of <code>value</code> can be packed, i.e.
+     *     {@link #contains(int, PermissionValue)} may be used
+     */
+    public static boolean isPackable(PermissionValue value) {
+        return (value.getFlags() & ~KNOWN_FLAGS) == 0;
+    }
+
+    /** @return the number of cells */
+    public synchronized int getCellCount() {
+        return cells.size();
+    }
+
+    /** @return the number of distinct (cell, permission, flags) entries */
+    public synchronized int getPermissionCount() {
+        return permissions.size();
+    }
+
+    /**
+     * @param bits the number of bits the ids must fit into
+     * @param kind the elements numbered, for the message
+     */
+    private static int getId(Map<Object, Integer> ids, Object element, int bits, String kind) {
+        Integer id = ids.get(element);
+        if ( id == null ) {
+            if ( ids.size() >= 1 << bits ) {
+                throw new IllegalStateException("more than " + (1 << bits) + " " + kind + " in a permission matrix");
+            }
+            id = Integer.valueOf(ids.size());
+            ids.put(element, id);
+        }
+        return id.intValue();
+    }
+
+    private static long packCell(int roleId, int actionId, int policyId) {
+        checkId(roleId, "role");
+        checkId(actionId, "action");
+        checkId(policyId, "policy");
+        return ((long) roleId << (2 * ID_BITS)) | ((long) actionId << ID_BITS) | policyId;
+    }
+
+    private static void checkId(int id, String kind) {
+        if ( id < 0 || id >= 1 << ID_BITS ) {
+            throw new IllegalArgumentException(kind + " id out of range: " + id);
+        }
+    }
+
+    private long packPermission(int cell, PermissionValue value) {
+        if ( !isPackable(value) ) {
+            throw new IllegalArgumentException("cannot pack flags 0x" + Integer.toHexString(value.getFlags()));
+        }
+        Object permission = value.getPermissionWrapper() == null ? null : value.getPermissionWrapper().getModelElement();
+        int permissionId = getId(permissionIds, permission, PERMISSION_ID_BITS, "permissions");
+        return ((long) cell << 32) | ((long) permissionId << FLAG_BITS) | pack(value.getFlags());
+    }
+
+    private static int pack(int flags) {
+        int packed = 0;
+        for (int i = 0; i < FLAGS.length; i++) {
+            if ( (flags & FLAGS[i]) != 0 ) {
+                packed |= 1 << i;
+            }
+        }
+        return packed;
+    }
+
+    private static int summarize(int flags) {
+        int summary = 0;
+        if ( (flags & PermissionValue.INT_GRANTED) != 0 ) {
+            summary |= GRANTED;
+        }
+        if ( (flags & PermissionValue.INT_INHERITED_ROLE) != 0 ) {
+            summary |= INHERITED_ROLE;
+        }
+        if ( (flags & PermissionValue.INT_INHERITED_POLICY) != 0 ) {
+            summary |= INHERITED_POLICY;
+        }
+        if ( (flags & PermissionValue.INT_IMPLICIT) != 0 ) {
+            summary |= IMPLICIT;
+        }
+        if ( (flags & PermissionValue.INT_COMPOSITE) != 0 ) {
+            summary |= COMPOSITE;
+        }
+        if ( (flags & PermissionValue.INT_CONSTRAINED) != 0 ) {
+            summary |= CONSTRAINED;
+        }
+        return summary;
+    }
+
+    /**
+     * open addressing hash set of longs, without boxing.
+     */
+    private static class LongSet {
+        private static final long FREE = Long.MIN_VALUE;
+
+        /** null until the first key is added */
+        private long[] entries;
+        private int size = 0;
+
+        boolean contains(long key) {
+            if ( entries == null ) {
+                return false;
+            }
+            int mask = entries.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if ( entries[i] == key ) {
+                    return true;
+                }
+                if ( entries[i] == FREE ) {
+                    return false;
+                }
+            }
+        }
+
+        boolean add(long key) {
+            if ( entries == null ) {
+                entries = newTable(16);
+            }
+            if ( (size + 1) * 2 > entries.length ) {
+                long[] old = entries;
+                entries = newTable(old.length * 2);
+                size = 0;
+                for (int i = 0; i < old.length; i++) {
+                    if ( old[i] != FREE ) {
+                        add(old[i]);
+                    }
+                }
+            }
+
+            int mask = entries.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if ( entries[i] == key ) {
+                    return false;
+                }
+                if ( entries[i] == FREE ) {
+                    entries[i] = key;
+                    size++;
+                    return true;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static long[] newTable(int capacity) {
+            long[] table = new long[capacity];
+            java.util.Arrays.fill(table, FREE);
+            return table;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Table of the effective permissions of a model: one row per permitted
+ * (role, resource, action, policy) cell, with the ways the permission was
+ * derived. Written as CSV or JSON by the
+ * {@link ch.ethz.infsec.secureumlgui.main.BatchAnalyzer}.
+ */
+public class PermissionReport {
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    /** the name of the default policy (null) in the report */
+    public static final String DEFAULT_POLICY_NAME = "default";
+
+    /** the summary bits of {@link PermissionMatrix} reported, and their names */
+    private static final int[] FLAGS = {
+        PermissionMatrix.EXPLICIT, PermissionMatrix.INHERITED_ROLE,
+        PermissionMatrix.INHERITED_POLICY, PermissionMatrix.IMPLICIT,
+        PermissionMatrix.COMPOSITE, PermissionMatrix.CONSTRAINED
+    };
+
+    private static final String[] FLAG_NAMES = {
+        "explicit", "inherited-role", "inherited-policy", "implicit",
+        "composite", "constrained"
+    };
+
+    private static final String[] COLUMNS = {
+        "role", "resource", "action", "policy", "flags"
+    };
+
+    private final List<PolicyWrapper> policies;
+
+    private final List<String[]> rows = new ArrayList<String[]>();
+
+    /**
+     * @param policies the policies to report, null for the default policy
+     */
+    public PermissionReport(List<PolicyWrapper> policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * adds the permitted cells of the actions of <code>resource</code>.
+     */
+    public void add(ResourceWrapper resource, PermissionSet permissions) {
+        String resourceName = resource.getName();
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            // the permissions may be shared by the cache, only read them
+            ResourcePermissionsSet resourcePermissions = permissions.findResourcePermissionsSet(role);
+            if ( resourcePermissions == null ) {
+                continue;
+            }
+
+            for ( ActionWrapper action : resource.getActionWrapper() ) {
+                ActionPermissionSet actionPermissions = resourcePermissions.findPermissions(action);
+                if ( actionPermissions == null ) {
+                    continue;
+                }
+
+                for ( PolicyWrapper policy : policies ) {
+                    PolicyPermissionSet policyPermissions = actionPermissions.findPolicyPermissionSet(policy);
+                    int summary = policyPermissions == null ? 0 : policyPermissions.getSummary();
+                    if ( (summary & PermissionMatrix.PERMITTED) != 0 ) {
+                        addRow(role.getName(), resourceName, action.getName(),
+                               policy == null ? DEFAULT_POLICY_NAME : policy.getName(),
+                               getFlagNames(summary));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds a row computed before, e.g. read from a
+     * {@link ch.ethz.infsec.secureumlgui.modelmapping.snapshot.MappingSnapshot}.
+     */
+    public void addRow(String role, String resource, String action, String policy, String flags) {
+        rows.add(new String[] { role, resource, action, policy, flags });
+    }
+
+    /** @return the number of rows */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return the rows, each with the columns role, resource, action,
+     *     policy and flags
+     */
+    public List<String[]> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    public void write(Writer out, Format format) throws IOException {
+        if ( format == Format.JSON ) {
+            writeJson(out);
+        } else {
+            writeCsv(out);
+        }
+        out.flush();
+    }
+
+    private void writeCsv(Writer out) throws IOException {
+        writeCsvLine(out, COLUMNS);
+        for ( String[] row : rows ) {
+            writeCsvLine(out, row);
+        }
+    }
+
+    private static void writeCsvLine(Writer out, String[] values) throws IOException {
+        for ( int i = 0; i < values.length; i++ ) {
+            if ( i > 0 ) {
+                out.write(',');
+            }
+            String value = values[i] == null ? "" : values[i];
+            if ( value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 ) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private void writeJson(Writer out) throws IOException {
+        out.write("[");
+        for ( int i = 0; i < rows.size(); i++ ) {
+            String[] row = rows.get(i);
+            out.write(i == 0 ? "\n  {" : ",\n  {");
+            for ( int column = 0; column < COLUMNS.length; column++ ) {
+                if ( column > 0 ) {
+                    out.write(", ");
+                }
+                writeJsonString(out, COLUMNS[column]);
+                out.write(": ");
+                if ( row[column] == null ) {
+                    out.write("null");
+                } else {
+                    writeJsonString(out, row[column]);
+                }
+            }
+            out.write("}");
+        }
+        out.write("\n]\n");
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for ( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt(i);
+            switch ( c ) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                if ( c < 0x20 ) {
+                    String hex = Integer.toHexString(c);
+                    out.write("\\u0000".substring(0, 6 - hex.length()) + hex);
+                } else {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * @return the names of the reported summary bits, separated by '|'
+     */
+    static String getFlagNames(int summary) {
+        StringBuilder result = new StringBuilder();
+        for ( int i = 0; i < FLAGS.length; i++ ) {
+            if ( (summary & FLAGS[i]) != 0 ) {
+                if ( result.length() > 0 ) {
+                    result.append('|');
+                }
+                result.append(FLAG_NAMES[i]);
+            }
+        }
+        return result.toString();
+    }
+}
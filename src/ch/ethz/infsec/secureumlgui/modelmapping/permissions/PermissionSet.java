@@ -9,7 +9,10 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * A mapping from Roles to {@link ResourcePermissionsSet}s. In the
@@ -34,23 +37,27 @@ import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
  *                    {@link ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper}
  * </pre>
  *
+ * The sets are views on one {@link PermissionMatrix}, which stores the
+ * flags of all (role, action, policy) cells in packed bitsets.
+ *
  */
 public class PermissionSet
 {
     Map<Object, ResourcePermissionsSet> permissions =
         new LinkedHashMap<Object, ResourcePermissionsSet>();
 
+    private final PermissionMatrix matrix = new PermissionMatrix();
 
     /**
      * returns the resource permission set associated to the roleWrapper's UML model element.
      * creates a new, empty one, if necessary.
      */
-    public ResourcePermissionsSet getResourcePermissionsSet(RoleWrapper roleWrapper)
+    public synchronized ResourcePermissionsSet getResourcePermissionsSet(RoleWrapper roleWrapper)
     {
         ResourcePermissionsSet result = permissions.get(roleWrapper.getModelElement());
         if(result == null)
         {
-            result = new ResourcePermissionsSet();
+            result = new ResourcePermissionsSet(matrix, matrix.getRoleId(roleWrapper.getModelElement()));
             permissions.put(roleWrapper.getModelElement(), result);
         }
 
@@ -58,10 +65,20 @@ public class PermissionSet
         return result;
     }
 
+    /**
+     * returns the resource permission set associated to the roleWrapper's UML model element,
+     * null if there is none. Unlike {@link #getResourcePermissionsSet(RoleWrapper)}, this
+     * does not change the set, so it can be used on shared sets.
+     */
+    public synchronized ResourcePermissionsSet findResourcePermissionsSet(RoleWrapper roleWrapper)
+    {
+        return permissions.get(roleWrapper.getModelElement());
+    }
+
     /**
      * creates a (copy) of the set of all role wrappers.
      */
-    public Set<RoleWrapper> getAllRoleWrappers()
+    public synchronized Set<RoleWrapper> getAllRoleWrappers()
     {
         Set<RoleWrapper> roleWrappers =
             new LinkedHashSet<RoleWrapper>();
@@ -70,9 +87,28 @@ public class PermissionSet
         {
             Object role = (Object) iter.next();
 
-            roleWrappers.add(new RoleWrapper(role));
+            roleWrappers.add(WrapperFactory.getRoleWrapper(role));
         }
 
         return roleWrappers;
     }
+
+    /**
+     * returns the matrix of the permissions.
+     */
+    public PermissionMatrix getMatrix()
+    {
+        return matrix;
+    }
+
+    /**
+     * returns true, if the role has a permission for the action and policy
+     * (null for the default policy), without creating empty sets.
+     */
+    public boolean isPermitted(RoleWrapper role, ActionWrapper action, PolicyWrapper policy)
+    {
+        int cell = matrix.findCell(role.getModelElement(), action.getModelElement(),
+                                   policy == null ? null : policy.getModelElement());
+        return cell >= 0 && matrix.isPermitted(cell);
+    }
 }
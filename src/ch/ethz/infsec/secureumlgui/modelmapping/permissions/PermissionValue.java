@@ -8,10 +8,10 @@ import java.util.Stack;
 import org.apache.log4j.Logger;
 
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
-import ch.ethz.infsec.secureumlgui.securemodelimpl.SecureModelFactory;
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * The value of a Permission (i.e., denied, granted, inherited, etc).
@@ -189,15 +189,9 @@ public class PermissionValue implements Comparable<PermissionValue>
      * @return
      */
     public static PermissionValue createComposite(ResourcePermissionsSet resourcePermissions, ActionWrapper action, RoleWrapper role) {
-        //create a new SecureUML Permission and assign role and action
-        PermissionWrapper newPermission = new PermissionWrapper(SecureModelFactory.getInstance().createPermission("tmp_perm_" + ++tmp_perm));
-        newPermission.setAction(action.getModelElement());
-        newPermission.setRoleWrapper(role);
-
-        PermissionValue newPermVal = new PermissionValue();
-        newPermVal.permittedSubActions = action.getSubActionWrappers();
-        newPermVal.flags = INT_COMPOSITE;
-        newPermVal.permission = newPermission;
+        //create a permission of the role on the action, not in the model
+        PermissionWrapper newPermission = WrapperFactory.getPermissionWrapper(
+            new CompositePermission("tmp_perm_" + ++tmp_perm, role.getModelElement(), action.getModelElement()));
 
 //		//TODO collect the flags of the subactions! is not distinct...
 //		for ( ActionWrapper subaction : newPermVal.permittedSubActions ) {
@@ -208,6 +202,21 @@ public class PermissionValue implements Comparable<PermissionValue>
 //		}
 //		newPermVal.flags =  ~(~newPermVal.flags | INT_GRANTED);
 
+        return createComposite(newPermission, action);
+    }
+
+    /**
+     * creates a COMPOSITE Permission
+     * @param permission the permission of the role on the composite action
+     * @param action the composite action
+     * @return
+     */
+    public static PermissionValue createComposite(PermissionWrapper permission, ActionWrapper action) {
+        PermissionValue newPermVal = new PermissionValue();
+        newPermVal.permittedSubActions = action.getSubActionWrappers();
+        newPermVal.flags = INT_COMPOSITE;
+        newPermVal.permission = permission;
+
         newPermVal.checkConstrained();
 
         return newPermVal;
@@ -0,0 +1,192 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * Compiles the effective permissions of the resources of a model into a
+ * {@link PolicyDecisionTable}. The permissions are derived as for the
+ * GUI and the {@link PermissionReport}, i.e. by the
+ * {@link PermissionDerivationEngine} with the role and action
+ * hierarchies and the policy refinement, so that the decisions are the
+ * summaries of the derived {@link PermissionValue}s.
+ *
+ * <pre>
+ * PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(policies);
+ * for ( Map.Entry&lt;ResourceWrapper, PermissionSet&gt; entry : permissions.entrySet() ) {
+ *     compiler.add(entry.getKey(), entry.getValue());
+ * }
+ * compiler.compile().write(file);
+ * </pre>
+ *
+ * The table is keyed by names. Roles, policies, resources and actions of
+ * a resource with the same name as one added before get the suffix "#2",
+ * "#3", ...
+ */
+public class PolicyDecisionCompiler {
+
+    private static Logger aLog = Logger.getLogger(PolicyDecisionCompiler.class);
+
+    private final List<PolicyWrapper> policies;
+
+    private final Map<Object, Integer> roleIds = new HashMap<Object, Integer>();
+
+    private final List<String> roleNames = new ArrayList<String>();
+
+    private final Set<String> usedRoleNames = new HashSet<String>();
+
+    private final List<String> resourceNames = new ArrayList<String>();
+
+    private final Set<String> usedResourceNames = new HashSet<String>();
+
+    private final List<String[]> actionNames = new ArrayList<String[]>();
+
+    /** per resource: (role, action, policy, decision) of its permitted cells */
+    private final List<int[]> resourceCells = new ArrayList<int[]>();
+
+    /**
+     * @param policies the policies to compile, null for the default policy
+     */
+    public PolicyDecisionCompiler(List<PolicyWrapper> policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * adds the cells of the actions of <code>resource</code>.
+     *
+     * @param permissions the explicit and derived permissions of
+     *     <code>resource</code>
+     */
+    public void add(ResourceWrapper resource, PermissionSet permissions) {
+        List<ActionWrapper> actions = new ArrayList<ActionWrapper>(resource.getActionWrapper());
+        String[] names = new String[actions.size()];
+        Set<String> usedActionNames = new HashSet<String>();
+        for ( int i = 0; i < names.length; i++ ) {
+            names[i] = getUniqueName(usedActionNames, actions.get(i).getName());
+        }
+        resourceNames.add(getUniqueName(usedResourceNames, resource.getName()));
+        actionNames.add(names);
+
+        int[] cells = new int[16];
+        int size = 0;
+        for ( RoleWrapper role : permissions.getAllRoleWrappers() ) {
+            int roleId = getRoleId(role);
+            // the permissions may be shared by the cache, only read them
+            ResourcePermissionsSet resourcePermissions = permissions.findResourcePermissionsSet(role);
+            if ( resourcePermissions == null ) {
+                continue;
+            }
+
+            for ( int action = 0; action < names.length; action++ ) {
+                ActionPermissionSet actionPermissions = resourcePermissions.findPermissions(actions.get(action));
+                if ( actionPermissions == null ) {
+                    continue;
+                }
+
+                for ( int policy = 0; policy < policies.size(); policy++ ) {
+                    PolicyPermissionSet policyPermissions =
+                        actionPermissions.findPolicyPermissionSet(policies.get(policy));
+                    int summary = policyPermissions == null ? 0 : policyPermissions.getSummary();
+                    if ( summary != 0 ) {
+                        if ( size + 4 > cells.length ) {
+                            int[] grown = new int[cells.length * 2];
+                            System.arraycopy(cells, 0, grown, 0, size);
+                            cells = grown;
+                        }
+                        cells[size++] = roleId;
+                        cells[size++] = action;
+                        cells[size++] = policy;
+                        cells[size++] = summary;
+                    }
+                }
+            }
+        }
+        int[] trimmed = new int[size];
+        System.arraycopy(cells, 0, trimmed, 0, size);
+        resourceCells.add(trimmed);
+    }
+
+    /**
+     * @return the table of the resources added
+     * @throws IllegalStateException if the table would not fit into an
+     *     array
+     */
+    public PolicyDecisionTable compile() {
+        int roleCount = roleNames.size();
+        int policyCount = policies.size();
+
+        int actionCount = 0;
+        for ( String[] names : actionNames ) {
+            actionCount += names.length;
+        }
+        long size = (long) actionCount * roleCount * policyCount;
+        if ( size > Integer.MAX_VALUE ) {
+            throw new IllegalStateException("too many cells for a decision table: " + size);
+        }
+
+        ByteBuffer decisions = ByteBuffer.allocate((int) size);
+        int offset = 0;
+        for ( int resource = 0; resource < resourceCells.size(); resource++ ) {
+            int[] cells = resourceCells.get(resource);
+            for ( int i = 0; i < cells.length; i += 4 ) {
+                int cell = PolicyDecisionTable.getCell(offset + cells[i + 1], roleCount, policyCount,
+                                                       cells[i], cells[i + 2]);
+                decisions.put(cell, (byte) cells[i + 3]);
+            }
+            offset += actionNames.get(resource).length;
+        }
+
+        String[] policyNames = new String[policyCount];
+        Set<String> usedPolicyNames = new HashSet<String>();
+        for ( int i = 0; i < policyCount; i++ ) {
+            PolicyWrapper policy = policies.get(i);
+            policyNames[i] = getUniqueName(usedPolicyNames,
+                                           policy == null ? PermissionReport.DEFAULT_POLICY_NAME : policy.getName());
+        }
+
+        PolicyDecisionTable table = new PolicyDecisionTable(
+            roleNames.toArray(new String[roleCount]), policyNames,
+            resourceNames.toArray(new String[resourceNames.size()]),
+            actionNames.toArray(new String[actionNames.size()][]), decisions);
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("compiled a decision table of " + roleCount + " roles, " + resourceNames.size()
+                       + " resources, " + actionCount + " actions and " + policyCount + " policies");
+        }
+        return table;
+    }
+
+    private int getRoleId(RoleWrapper role) {
+        Object key = role.getModelElement();
+        Integer id = roleIds.get(key);
+        if ( id == null ) {
+            id = Integer.valueOf(roleNames.size());
+            roleIds.put(key, id);
+            roleNames.add(getUniqueName(usedRoleNames, role.getName()));
+        }
+        return id.intValue();
+    }
+
+    private static String getUniqueName(Set<String> used, String name) {
+        String base = name == null ? "" : name;
+        String result = base;
+        for ( int i = 2; !used.add(result); i++ ) {
+            result = base + "#" + i;
+        }
+        if ( !result.equals(base) ) {
+            aLog.warn("name " + name + " is not unique, compiled as " + result);
+        }
+        return result;
+    }
+}
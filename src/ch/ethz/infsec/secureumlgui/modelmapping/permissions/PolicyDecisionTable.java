@@ -0,0 +1,332 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The effective permissions of a model compiled into a table of
+ * decisions, one byte per (role, action, policy) cell, for access
+ * control decisions at run time without the model. Created by the
+ * {@link PolicyDecisionCompiler}.
+ *
+ * Roles, resources, policies and the actions of each resource are
+ * numbered densely; their ids are looked up by name once, e.g.
+ * {@link #getRoleId(String)}. {@link #check(int, int, int, int)} and
+ * {@link #getDecision(int, int, int, int)} then take constant time and
+ * allocate nothing. A decision is the summary of the permissions of the
+ * cell as kept by the {@link PermissionMatrix} (PERMITTED, EXPLICIT,
+ * INHERITED_ROLE, ...), 0 if there is none. If it has the CONSTRAINED
+ * bit, a permission of the cell has an authorization constraint, which
+ * the caller has to evaluate: {@link #check(int, int, int, int)} denies
+ * such cells, the caller reads them with
+ * {@link #getDecision(int, int, int, int)}.
+ *
+ * The names of the roles, the policies, the resources and the actions of
+ * a resource are unique.
+ *
+ * The file written by {@link #write(File)} starts with a header
+ * (magic number, format version and the names of the ids) followed by
+ * the cells, which {@link #map(File)} maps into memory instead of
+ * reading them.
+ */
+public class PolicyDecisionTable {
+
+    /** "SUDT" */
+    private static final int MAGIC = 0x53554454;
+
+    /** change when the format of the file changes */
+    public static final int FORMAT_VERSION = 1;
+
+    private final String[] roles;
+
+    private final String[] policies;
+
+    private final String[] resources;
+
+    private final String[][] actions;
+
+    /** the id of the first cell row of each resource, and the total */
+    private final int[] actionOffsets;
+
+    /** (action offset + action, role, policy) -> decision */
+    private final ByteBuffer cells;
+
+    private final Map<String, Integer> roleIds;
+
+    private final Map<String, Integer> policyIds;
+
+    private final Map<String, Integer> resourceIds;
+
+    private final Map<String, Integer>[] actionIds;
+
+    /**
+     * @param actions the names of the actions of each resource
+     * @param cells the decisions, see {@link #getCell}
+     * @throws IllegalArgumentException if the number of cells does not
+     *     match or a name is not unique
+     */
+    PolicyDecisionTable(String[] roles, String[] policies, String[] resources,
+                        String[][] actions, ByteBuffer cells) {
+        this.roles = roles;
+        this.policies = policies;
+        this.resources = resources;
+        this.actions = actions;
+        this.cells = cells;
+
+        actionOffsets = new int[resources.length + 1];
+        for ( int i = 0; i < resources.length; i++ ) {
+            actionOffsets[i + 1] = actionOffsets[i] + actions[i].length;
+        }
+        long size = (long) actionOffsets[resources.length] * roles.length * policies.length;
+        if ( size != cells.capacity() ) {
+            throw new IllegalArgumentException("expected " + size + " cells, found " + cells.capacity());
+        }
+
+        roleIds = index(roles);
+        policyIds = index(policies);
+        resourceIds = index(resources);
+        actionIds = new Map[resources.length];
+        for ( int i = 0; i < resources.length; i++ ) {
+            actionIds[i] = index(actions[i]);
+        }
+    }
+
+    /**
+     * maps the cells of the table written to <code>file</code> into
+     * memory.
+     */
+    public static PolicyDecisionTable map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+                throw new IOException(file + " is no decision table of version " + FORMAT_VERSION);
+            }
+            byte[] header = new byte[in.readInt()];
+            in.readFully(header);
+            long cellStart = in.getFilePointer();
+
+            DataInputStream names = new DataInputStream(new ByteArrayInputStream(header));
+            String[] roles = readNames(names);
+            String[] policies = readNames(names);
+            String[] resources = readNames(names);
+            String[][] actions = new String[resources.length][];
+            for ( int i = 0; i < resources.length; i++ ) {
+                actions[i] = readNames(names);
+            }
+
+            // the mapping stays valid after closing the file
+            ByteBuffer cells = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                                                   cellStart, in.length() - cellStart);
+            return new PolicyDecisionTable(roles, policies, resources, actions, cells);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * writes the table, replacing <code>file</code> when it is complete:
+     * the table is written to a temporary file, which is then moved onto
+     * <code>file</code> atomically where the file system supports it.
+     */
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream names = new DataOutputStream(header);
+        writeNames(names, roles);
+        writeNames(names, policies);
+        writeNames(names, resources);
+        for ( String[] resourceActions : actions ) {
+            writeNames(names, resourceActions);
+        }
+        names.close();
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            FileOutputStream stream = new FileOutputStream(temp);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(header.size());
+                header.writeTo(out);
+                out.flush();
+
+                // the cells in bulk, from a view so the table stays usable
+                // by other threads
+                ByteBuffer source = cells.duplicate();
+                source.clear();
+                FileChannel channel = stream.getChannel();
+                while ( source.hasRemaining() ) {
+                    channel.write(source);
+                }
+            } finally {
+                stream.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * @return true, if <code>role</code> may perform <code>action</code> on
+     *     <code>resource</code> under <code>policy</code> without an
+     *     authorization constraint; false if the permission is
+     *     constrained (the caller has to evaluate the constraint, see
+     *     {@link #getDecision(int, int, int, int)}) and for unknown ids
+     */
+    public boolean check(int role, int action, int resource, int policy) {
+        return (getDecision(role, action, resource, policy) & (PermissionMatrix.PERMITTED | PermissionMatrix.CONSTRAINED))
+            == PermissionMatrix.PERMITTED;
+    }
+
+    /**
+     * @param action the id of the action within <code>resource</code>
+     * @return the summary bits of the permissions of the cell (see
+     *     {@link PermissionMatrix}), 0 if there are none or an id is
+     *     unknown
+     */
+    public int getDecision(int role, int action, int resource, int policy) {
+        if ( resource < 0 || resource >= resources.length
+                || role < 0 || role >= roles.length
+                || policy < 0 || policy >= policies.length ) {
+            return 0;
+        }
+        int row = actionOffsets[resource] + action;
+        if ( action < 0 || row >= actionOffsets[resource + 1] ) {
+            return 0;
+        }
+        return cells.get(getCell(row, role, policy)) & 0xff;
+    }
+
+    /** @return the id of the role named <code>name</code>, -1 if unknown */
+    public int getRoleId(String name) {
+        return lookup(roleIds, name);
+    }
+
+    /**
+     * @param name the name of the policy, null for the default policy
+     * @return the id of the policy, -1 if unknown
+     */
+    public int getPolicyId(String name) {
+        return lookup(policyIds, name == null ? PermissionReport.DEFAULT_POLICY_NAME : name);
+    }
+
+    /** @return the id of the resource named <code>name</code>, -1 if unknown */
+    public int getResourceId(String name) {
+        return lookup(resourceIds, name);
+    }
+
+    /**
+     * @return the id of the action named <code>name</code> within
+     *     <code>resource</code>, -1 if unknown
+     */
+    public int getActionId(int resource, String name) {
+        if ( resource < 0 || resource >= resources.length ) {
+            return -1;
+        }
+        return lookup(actionIds[resource], name);
+    }
+
+    public int getRoleCount() {
+        return roles.length;
+    }
+
+    public int getPolicyCount() {
+        return policies.length;
+    }
+
+    public int getResourceCount() {
+        return resources.length;
+    }
+
+    public int getActionCount(int resource) {
+        return actions[resource].length;
+    }
+
+    public String getRoleName(int role) {
+        return roles[role];
+    }
+
+    public String getPolicyName(int policy) {
+        return policies[policy];
+    }
+
+    public String getResourceName(int resource) {
+        return resources[resource];
+    }
+
+    public String getActionName(int resource, int action) {
+        return actions[resource][action];
+    }
+
+    /** @return the number of cells, the size of the table in bytes */
+    public int getCellCount() {
+        return cells.capacity();
+    }
+
+    /**
+     * @param row the action offset of the resource plus the action id
+     * @return the index of the decision of the cell
+     */
+    static int getCell(int row, int roleCount, int policyCount, int role, int policy) {
+        return (row * roleCount + role) * policyCount + policy;
+    }
+
+    private int getCell(int row, int role, int policy) {
+        return getCell(row, roles.length, policies.length, role, policy);
+    }
+
+    private static int lookup(Map<String, Integer> ids, String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a name is not unique
+     */
+    private static Map<String, Integer> index(String[] names) {
+        Map<String, Integer> result = new HashMap<String, Integer>(names.length * 2);
+        for ( int i = 0; i < names.length; i++ ) {
+            if ( result.put(names[i], Integer.valueOf(i)) != null ) {
+                throw new IllegalArgumentException("name " + names[i] + " is not unique");
+            }
+        }
+        return result;
+    }
+
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        out.writeInt(names.length);
+        for ( String name : names ) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static String[] readNames(DataInputStream in) throws IOException {
+        String[] names = new String[in.readInt()];
+        for ( int i = 0; i < names.length; i++ ) {
+            names[i] = in.readUTF();
+        }
+        return names;
+    }
+}
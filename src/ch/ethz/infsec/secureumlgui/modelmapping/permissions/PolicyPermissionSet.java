@@ -1,125 +1,105 @@
 package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Set;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
 import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer.CHANGES;
-import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
-import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
 
+/**
+ * the permissions of one cell of a {@link PermissionMatrix}, i.e. for one
+ * role, action and policy. The matrix answers whether the cell is
+ * (explicitly) permitted and whether a permission is already there; the
+ * {@link PermissionValue}s are kept for their descriptions and
+ * derivations, which the matrix does not store. Most cells have no
+ * permission, so the list is only created with the first one.
+ */
 public class PolicyPermissionSet {
 
-    Collection<PermissionValue> permissions =
-        new LinkedList<PermissionValue>();
+    /** null until the first permission is added */
+    private List<PermissionValue> permissions;
 
     private static Logger aLog = Logger.getLogger(PolicyPermissionSet.class);
 
-    private PolicyWrapper policy;
+    private PolicyWrapper explicitPolicyWrapper;
 
+    private final PermissionMatrix matrix;
+    private final int cell;
 
-    private PolicyWrapper explicitPolicyWrapper;
 
+    /**
+     * creates a permission set of its own matrix.
+     */
+    public PolicyPermissionSet() {
+        this(new PermissionMatrix(), 0, 0, PermissionMatrix.DEFAULT_POLICY);
+    }
 
-    public PolicyPermissionSet(PolicyWrapper policy) {
-        this.policy = policy;
+    PolicyPermissionSet(PermissionMatrix matrix, int roleId, int actionId, int policyId) {
+        this.matrix = matrix;
+        this.cell = matrix.getCell(roleId, actionId, policyId);
     }
 
-    public void addPermission(PermissionValue permissionValue, CHANGES changeReason)
+
+    /**
+     * adds the permission, unless an equal one is already there or it is
+     * a non explicit implicit super permission of a permitted action.
+     * @return true, if the permission was added
+     */
+    public boolean addPermission(PermissionValue permissionValue, CHANGES changeReason)
     {
-        aLog.debug("add permission: " + permissionValue.getPermissionWrapper().getActionWrapper().getName() + " " + permissionValue.getPermissionWrapper().getRoleWrapper().getName() + " " + changeReason);
-        for (PermissionValue value : permissions ) {
-            if ( value.equals(permissionValue)) {
-                aLog.debug("Omitting redundant permission: already \nsaved: " + value + " \nnew:   " + permissionValue);
-                return; //alredy here...
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("add permission: " + permissionValue.getPermissionWrapper().getActionWrapper().getName() + " " + permissionValue.getPermissionWrapper().getRoleWrapper().getName() + " " + changeReason);
+        }
+        if ( contains(permissionValue) ) {
+            if ( aLog.isDebugEnabled() ) {
+                aLog.debug("Omitting redundant permission: " + permissionValue);
             }
+            return false; //alredy here...
         }
         if ( changeReason == CHANGES.IMPLICIT_SUPER //if this is a new permission
                 && isPermitted()
                 && (permissionValue.getFlags() & PermissionValue.INT_GRANTED) == 0 ) {
             aLog.debug("Omitting an implicit super permission: action already permitted and implicit super permission is not explicit!");
-            return;
+            return false;
         }
-        permissions.add(permissionValue);
-    }
-
-    public void addExplicitPermission(PermissionValue permissionValue) {
         addPermission(permissionValue);
+        return true;
     }
 
-    private void addPermission(PermissionValue permissionValue) {
-        permissions.add(permissionValue);
-    }
-
-    public void addPermission(PermissionValue permissionValue, PermissionSet permissions_next, CHANGES changeReason, ActionWrapper action, RoleWrapper role) {
-
-        for (PermissionValue value : permissions ) {
+    /**
+     * @return true, if a permission equal to <code>permissionValue</code>
+     *     is already there
+     */
+    private boolean contains(PermissionValue permissionValue) {
+        if ( PermissionMatrix.isPackable(permissionValue) ) {
+            return matrix.contains(cell, permissionValue);
+        }
+        for (PermissionValue value : getPermissions() ) {
             if ( value.equals(permissionValue)) {
-                aLog.debug("Omitting redundant permission: already \nsaved: " + value + " \nnew:   " + permissionValue);
-                return; //alredy here...
+                return true;
             }
         }
+        return false;
+    }
 
-        if ( changeReason == CHANGES.IMPLICIT_SUPER //if this is a new permission
-                && isPermitted()
-                && (permissionValue.getFlags() & PermissionValue.INT_GRANTED) == 0 ) {
-            aLog.debug("Omitting an implicit super permission: action already permitted and implicit super permission is not explicit!");
-            return;
-        }
-
-        if ( aLog.isDebugEnabled() ) {
-            aLog.debug("        addPermission to action: " + permissionValue + " changeReason: " + changeReason + " isPermitted: " + isPermitted());
-        }
-
-        PermissionWrapper permission = permissionValue.getPermissionWrapper();
-
-        switch ( changeReason ) {
-        case INHERITED:
-            //if change was caused by inerhitance, the implicit may change, i.e.,
-            Set<ActionWrapper> relatedActions = HierarchicalPermissionsExplorer.getSubAndSuperActionWrappersDeep(permission.getActionWrapper());
-            //RoleWrapper inh_role = permission.getRoleWrapper();
-            for ( ActionWrapper inh_action : relatedActions) {
-                aLog.debug("          Adding permission to next; action = " + inh_action.getName() + " role = " + role.getName());
-                //permissions_next.getResourcePermissionsSet(inh_role).getPermissions(inh_action).addPermission(permissionValue);
-                //TODO is CHANGES.INHERITED correct? not sure for now...
-                permissions_next.getResourcePermissionsSet(role).getPermissions(inh_action).addPermission(policy, permissionValue, changeReason);
-            }
-
-            break;
-        case IMPLICIT_SUPER://TODO for IMPLICIT_SUB we could "reroute" back and add a listener to do same stuff as inherited?
-//			relatedActions = HierarchicalPermissionsExplorer.getSubActionWrappersDeep(permission.getActionWrapper());
-//			inh_role = permission.getRoleWrapper();
-//			for ( ActionWrapper inh_action : relatedActions) {
-//			aLog.debug("          Adding permission to next; action = " + inh_action.getName());
-//			permissions_next.getResourcePermissionsSet(inh_role).getPermissions(inh_action).addPermission(permissionValue);
-//			}
+    public void addExplicitPermission(PermissionValue permissionValue) {
+        addPermission(permissionValue);
+    }
 
-//			//NO BREAK! need to add "indicators" for sub roles too!
-        case IMPLICIT_SUB:
-            //if change was caused by an implicit, the inheritance may change, i.e.,
-            Set<RoleWrapper> superRoles = HierarchicalPermissionsExplorer.getSubRoleWrapperDeep(permission.getRoleWrapper());
-            //ActionWrapper imp_action = permission.getActionWrapper();
-            for ( RoleWrapper imp_role : superRoles ) {
-                aLog.debug("          Adding permission to next; role = " + imp_role.getName() + " action = " + action.getName());
-                //permissions_next.getResourcePermissionsSet(imp_role).getPermissions(imp_action).addPermission(permissionValue);
-                //TODO as above - is changeReson correct? not sure
-                permissions_next.getResourcePermissionsSet(imp_role).getPermissions(action).addPermission(policy, permissionValue, changeReason);
-            }
-            break;
+    private void addPermission(PermissionValue permissionValue) {
+        if ( permissions == null ) {
+            permissions = new ArrayList<PermissionValue>(2);
         }
-
-        //finally, add permission
         permissions.add(permissionValue);
+        matrix.add(cell, permissionValue);
     }
 
-
-
-
 //	/** returns GRANTED if the permission was explicitly defined,
 //	 * DENIED in all other cases.
 //	 */
@@ -139,16 +119,14 @@ public class PolicyPermissionSet {
 //	}
 
     public boolean isExplicitPermitted() {
-        for ( PermissionValue permission : permissions) {
-            if ( permission.getFlags() == PermissionValue.INT_GRANTED) {
-                return true;
-            }
-        }
-        return false;
+        return matrix.isExplicitPermitted(cell);
     }
 
     public PermissionWrapper getExplicitPermittedPermission() {
-        for ( PermissionValue permission : permissions) {
+        if ( !isExplicitPermitted() ) {
+            return null;
+        }
+        for ( PermissionValue permission : getPermissions()) {
             if ( permission.getFlags() == PermissionValue.INT_GRANTED) {
                 return permission.getPermissionWrapper();
             }
@@ -159,18 +137,28 @@ public class PolicyPermissionSet {
 
     public boolean isPermitted() {
         //TODO only on default permissions
-        if (permissions.size() > 0 )
-            return true;
-        else
-            return false;
+        return matrix.isPermitted(cell);
+    }
 
+    /**
+     * @return the summary of the flags of the permissions, see
+     *     {@link PermissionMatrix#getSummary(int)}
+     */
+    public int getSummary() {
+        return matrix.getSummary(cell);
     }
 
 
+    /**
+     * @return the permissions (read only)
+     */
     public Collection<PermissionValue> getPermissions()
     {
         //TODO only default permissions
-        return permissions;
+        if ( permissions == null ) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(permissions);
     }
 
 
@@ -9,9 +9,11 @@ import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 
 import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
- * A mapping from actions to {@link ActionPermissionSet}s
+ * A mapping from actions to {@link ActionPermissionSet}s, the permissions
+ * of one role in a {@link PermissionMatrix}.
  *
  *
  */
@@ -20,43 +22,63 @@ public class ResourcePermissionsSet {
 
     MultiContextLogger logger = MultiContextLogger.getDefault();
 
+    private final PermissionMatrix matrix;
+    private final int roleId;
+
+    /**
+     * creates a permission set of its own matrix.
+     */
+    public ResourcePermissionsSet() {
+        this(new PermissionMatrix(), 0);
+    }
+
+    ResourcePermissionsSet(PermissionMatrix matrix, int roleId) {
+        this.matrix = matrix;
+        this.roleId = roleId;
+    }
+
     public void addPermission(ActionWrapper actionWrapper,
                               PermissionValue permissionValue, PolicyWrapper policy) {
         ActionPermissionSet actionPermissions = getPermissions(actionWrapper);
 
-        if (actionPermissions == null) {
-            actionPermissions = new ActionPermissionSet();
-            resourcePermissions.put(actionWrapper.getModelElement(),
-                                    actionPermissions);
-        }
         actionPermissions.addPermission(policy, permissionValue, HierarchicalPermissionsExplorer.CHANGES.EXPLICIT);
     }
 
-    public ActionPermissionSet getPermissions(Object action) {
+    public synchronized ActionPermissionSet getPermissions(Object action) {
         ActionPermissionSet result = resourcePermissions.get(action);
 
         if (result == null) {
-            result = new ActionPermissionSet();
-            resourcePermissions.put(action, result);
+            result = createActionPermissionSet(action);
 
-            result.setExplicitActionWrapper(new ActionWrapper(action));
+            result.setExplicitActionWrapper(WrapperFactory.getActionWrapper(action));
         }
 
         return result;
     }
 
-    public ActionPermissionSet getPermissions(ActionWrapper actionWrapper) {
+    public synchronized ActionPermissionSet getPermissions(ActionWrapper actionWrapper) {
         ActionPermissionSet result = resourcePermissions.get(actionWrapper
                                      .getModelElement());
 
         if (result == null) {
-            result = new ActionPermissionSet();
-            resourcePermissions.put(actionWrapper.getModelElement(), result);
+            result = createActionPermissionSet(actionWrapper.getModelElement());
         }
 
         return result;
     }
 
+    /**
+     * returns the permission set of the action (a model element or its
+     * wrapper), null if there is none. Unlike {@link #getPermissions(Object)},
+     * this does not change the set, so it can be used on shared sets.
+     */
+    public synchronized ActionPermissionSet findPermissions(Object action) {
+        if (action instanceof ActionWrapper) {
+            action = ((ActionWrapper) action).getModelElement();
+        }
+        return resourcePermissions.get(action);
+    }
+
     public Collection<Object> getActions() {
         return resourcePermissions.keySet();
     }
@@ -77,4 +99,11 @@ public class ResourcePermissionsSet {
         return new ActionPermissionSet();
     }
 
+    private ActionPermissionSet createActionPermissionSet(Object action) {
+        ActionPermissionSet result =
+            new ActionPermissionSet(matrix, roleId, matrix.getActionId(action));
+        resourcePermissions.put(action, result);
+        return result;
+    }
+
 }
@@ -0,0 +1,210 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The mapped resources of a model and their effective permissions, as
+ * stored by the {@link SnapshotStore}.
+ *
+ * The mapping itself (the dialect model elements in the repository)
+ * cannot be stored, so a snapshot records the resources by the UUID of
+ * their UML element; opening the model again maps them in advance. The
+ * permissions are the permitted (role, action, policy) cells of each
+ * resource, with the flags of
+ * {@link ch.ethz.infsec.secureumlgui.modelmapping.permissions.PermissionReport}.
+ * A snapshot is <i>complete</i> if it has the permissions of all
+ * resources of the model, e.g. when written by the
+ * {@link ch.ethz.infsec.secureumlgui.main.BatchAnalyzer}; otherwise it
+ * has the resources mapped in the sessions of the model, with the
+ * permissions still cached at the end of a session, see
+ * {@link ch.ethz.infsec.secureumlgui.SnapshotWarmer}.
+ *
+ * The key of a snapshot is cheap to compute and does not change with the
+ * model, so a snapshot also records the {@link ModelDigest} of the model
+ * it was taken of; it is used only if the model still has that digest.
+ *
+ * The names are written once, in a string table.
+ */
+public class MappingSnapshot {
+
+    /** a mapped resource */
+    public static class Resource {
+
+        private final String uuid;
+
+        private final String name;
+
+        /** role, action, policy and flags */
+        private final List<String[]> cells = new ArrayList<String[]>();
+
+        public Resource(String uuid, String name) {
+            this.uuid = uuid;
+            this.name = name;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void addCell(String role, String action, String policy, String flags) {
+            cells.add(new String[] { role, action, policy, flags });
+        }
+
+        /**
+         * @return the permitted cells, each with the columns role, action,
+         *     policy and flags
+         */
+        public List<String[]> getCells() {
+            return Collections.unmodifiableList(cells);
+        }
+    }
+
+    private final String key;
+
+    private final String modelDigest;
+
+    private final boolean complete;
+
+    private final List<Resource> resources = new ArrayList<Resource>();
+
+    /**
+     * @param key the key of the model and the dialect, see
+     *     {@link SnapshotStore#getKey(String, String)}
+     */
+    public MappingSnapshot(String key, boolean complete) {
+        this(key, null, complete);
+    }
+
+    /**
+     * @param key the key of the model and the dialect, see
+     *     {@link SnapshotStore#getKey(String, String)}
+     * @param modelDigest the digest of the model, see
+     *     {@link ModelDigest#compute}; null if unknown
+     */
+    public MappingSnapshot(String key, String modelDigest, boolean complete) {
+        this.key = key;
+        this.modelDigest = modelDigest;
+        this.complete = complete;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /** @return the digest of the model, null if unknown */
+    public String getModelDigest() {
+        return modelDigest;
+    }
+
+    /**
+     * @return true, if the snapshot was taken of a model with the digest
+     *     <code>modelDigest</code>; false if its digest is unknown
+     */
+    public boolean isOf(String modelDigest) {
+        return this.modelDigest != null && this.modelDigest.equals(modelDigest);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void addResource(Resource resource) {
+        resources.add(resource);
+    }
+
+    public List<Resource> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * writes the body of the snapshot; the header is written by the
+     * store.
+     */
+    void write(DataOutputStream out) throws IOException {
+        List<String> strings = new ArrayList<String>();
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for ( Resource resource : resources ) {
+            intern(resource.uuid, strings, ids);
+            intern(resource.name, strings, ids);
+            for ( String[] cell : resource.cells ) {
+                for ( String value : cell ) {
+                    intern(value, strings, ids);
+                }
+            }
+        }
+
+        out.writeInt(strings.size());
+        for ( String s : strings ) {
+            out.writeUTF(s);
+        }
+
+        out.writeInt(resources.size());
+        for ( Resource resource : resources ) {
+            out.writeInt(idOf(resource.uuid, ids));
+            out.writeInt(idOf(resource.name, ids));
+            out.writeInt(resource.cells.size());
+            for ( String[] cell : resource.cells ) {
+                for ( String value : cell ) {
+                    out.writeInt(idOf(value, ids));
+                }
+            }
+        }
+    }
+
+    /**
+     * reads the body written by {@link #write(DataOutputStream)}.
+     */
+    static MappingSnapshot read(DataInputStream in, String key, String modelDigest, boolean complete)
+        throws IOException {
+        String[] strings = new String[in.readInt()];
+        for ( int i = 0; i < strings.length; i++ ) {
+            strings[i] = in.readUTF();
+        }
+
+        MappingSnapshot snapshot = new MappingSnapshot(key, modelDigest, complete);
+        int resourceCount = in.readInt();
+        for ( int i = 0; i < resourceCount; i++ ) {
+            Resource resource = new Resource(lookup(strings, in.readInt()), lookup(strings, in.readInt()));
+            int cellCount = in.readInt();
+            for ( int j = 0; j < cellCount; j++ ) {
+                resource.addCell(lookup(strings, in.readInt()), lookup(strings, in.readInt()),
+                                 lookup(strings, in.readInt()), lookup(strings, in.readInt()));
+            }
+            snapshot.addResource(resource);
+        }
+        return snapshot;
+    }
+
+    private static void intern(String value, List<String> strings, Map<String, Integer> ids) {
+        if ( value != null && !ids.containsKey(value) ) {
+            ids.put(value, Integer.valueOf(strings.size()));
+            strings.add(value);
+        }
+    }
+
+    /** @return the id of <code>value</code>, -1 for null */
+    private static int idOf(String value, Map<String, Integer> ids) {
+        return value == null ? -1 : ids.get(value).intValue();
+    }
+
+    private static String lookup(String[] strings, int id) throws IOException {
+        if ( id == -1 ) {
+            return null;
+        }
+        if ( id < 0 || id >= strings.length ) {
+            throw new IOException("invalid string id " + id);
+        }
+        return strings[id];
+    }
+}
@@ -0,0 +1,339 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.snapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.jmi.model.AggregationKindEnum;
+import javax.jmi.model.Association;
+import javax.jmi.model.Attribute;
+import javax.jmi.model.MofClass;
+import javax.jmi.model.Reference;
+import javax.jmi.model.ScopeKindEnum;
+import javax.jmi.model.StructuralFeature;
+import javax.jmi.reflect.RefObject;
+import javax.jmi.reflect.RefStruct;
+
+import org.apache.log4j.Logger;
+import org.argouml.model.Model;
+import org.omg.uml.foundation.core.ModelElement;
+
+/**
+ * Computes a digest of the content of a UML model, to recognise a model
+ * that was mapped before.
+ *
+ * The model is walked along its composite associations from the
+ * outermost namespace. For every element, the digest covers its
+ * metaclass, its UUID, the values of its attributes and the UUIDs of the
+ * elements it references, i.e. everything the mapping can read. The
+ * features are found by reflection on the metaclasses, so that the
+ * digest does not depend on a dialect. Derived features are skipped.
+ *
+ * The walk also records the elements by UUID, see {@link #getElements()}.
+ */
+public class ModelDigest {
+
+    private static final String ALGORITHM = "SHA-1";
+
+    private static Logger aLog = Logger.getLogger(ModelDigest.class);
+
+    private final MessageDigest digest = createDigest();
+
+    /** metaclass -> its non derived instance level features */
+    private final Map<RefObject, List<StructuralFeature>> features =
+        new HashMap<RefObject, List<StructuralFeature>>();
+
+    private final Map<Object, String> uuids = new IdentityHashMap<Object, String>();
+
+    private final Map<String, ModelElement> elements = new HashMap<String, ModelElement>();
+
+    /**
+     * @return the outermost namespace containing <code>element</code>
+     */
+    public static ModelElement getRoot(ModelElement element) {
+        ModelElement root = element;
+        while ( root.getNamespace() != null ) {
+            root = root.getNamespace();
+        }
+        return root;
+    }
+
+    /**
+     * @return the hexadecimal digest of the content of <code>file</code>
+     */
+    public static String digestFile(File file) throws IOException {
+        MessageDigest fileDigest = createDigest();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( (read = in.read(buffer)) > 0 ) {
+                fileDigest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return toHex(fileDigest.digest());
+    }
+
+    /**
+     * @return the hexadecimal digest of <code>parts</code>
+     */
+    public static String digestStrings(String... parts) {
+        MessageDigest stringDigest = createDigest();
+        for ( String part : parts ) {
+            update(stringDigest, part);
+        }
+        return toHex(stringDigest.digest());
+    }
+
+    /**
+     * walks the model containing <code>element</code>.
+     *
+     * @return the hexadecimal digest of the model
+     */
+    public String compute(ModelElement element) {
+        long start = System.currentTimeMillis();
+        digest.reset();
+        elements.clear();
+
+        visit((RefObject) getRoot(element));
+
+        String result = toHex(digest.digest());
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("model digest " + result + " of " + elements.size() + " elements in "
+                       + (System.currentTimeMillis() - start) + " ms");
+        }
+        return result;
+    }
+
+    /**
+     * walks the elements <code>object</code> is the composite of, e.g.
+     * a class of a metamodel with its features.
+     *
+     * @return the hexadecimal digest of <code>object</code> and its parts
+     */
+    public String computeElement(RefObject object) {
+        digest.reset();
+        elements.clear();
+
+        visit(object);
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return the model elements visited by the last
+     *     {@link #compute(ModelElement)}, by UUID
+     */
+    public Map<String, ModelElement> getElements() {
+        return elements;
+    }
+
+    /**
+     * @return the UUID of a model element, its MOF id if it has none
+     */
+    public static String getUuidOf(Object element) {
+        String uuid;
+        try {
+            uuid = Model.getFacade().getUUID(element);
+        } catch (RuntimeException e) {
+            uuid = null;
+        }
+        return uuid != null ? uuid : ((RefObject) element).refMofId();
+    }
+
+    /**
+     * @return the UUID of a model element, see {@link #identify(Object)};
+     *     cached
+     */
+    public String getUuid(Object element) {
+        String uuid = uuids.get(element);
+        if ( uuid == null ) {
+            uuid = identify(element);
+            uuids.put(element, uuid);
+        }
+        return uuid;
+    }
+
+    /**
+     * @return the identifier the digest uses for <code>element</code>,
+     *     by default {@link #getUuidOf(Object)}. Override for elements
+     *     whose MOF id is not stable across loads.
+     */
+    protected String identify(Object element) {
+        return getUuidOf(element);
+    }
+
+    private void visit(RefObject object) {
+        String uuid = getUuid(object);
+        if ( object instanceof ModelElement ) {
+            elements.put(uuid, (ModelElement) object);
+        }
+
+        update(digest, "{");
+        update(digest, uuid);
+        List<RefObject> parts = new ArrayList<RefObject>();
+        updateContent(object, parts);
+
+        for ( RefObject part : parts ) {
+            visit(part);
+        }
+        update(digest, "}");
+    }
+
+    /**
+     * @param parts receives the elements <code>object</code> is the
+     *     composite of, null to skip them
+     */
+    private void updateContent(RefObject object, List<RefObject> parts) {
+        update(digest, ((javax.jmi.model.ModelElement) object.refMetaObject()).getName());
+        for ( StructuralFeature feature : getFeatures(object.refMetaObject()) ) {
+            Object value = object.refGetValue(feature);
+            update(digest, feature.getName());
+            if ( feature instanceof Reference ) {
+                updateReferences(value);
+                if ( parts != null && isComposite((Reference) feature) ) {
+                    addParts(parts, value);
+                }
+            } else {
+                updateValue(value);
+            }
+        }
+    }
+
+    private void updateReferences(Object value) {
+        if ( value instanceof Collection ) {
+            update(digest, "[");
+            for ( Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+                update(digest, getUuid(it.next()));
+            }
+            update(digest, "]");
+        } else if ( value != null ) {
+            update(digest, getUuid(value));
+        } else {
+            update(digest, null);
+        }
+    }
+
+    private void updateValue(Object value) {
+        if ( value instanceof Collection ) {
+            update(digest, "[");
+            for ( Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+                updateValue(it.next());
+            }
+            update(digest, "]");
+        } else if ( value instanceof RefStruct ) {
+            RefStruct struct = (RefStruct) value;
+            update(digest, "(");
+            for ( Iterator it = struct.refFieldNames().iterator(); it.hasNext();) {
+                String field = (String) it.next();
+                update(digest, field);
+                updateValue(struct.refGetValue(field));
+            }
+            update(digest, ")");
+        } else if ( value instanceof RefObject ) {
+            // the values of class typed attributes (e.g. the expressions
+            // of UML 1.4) have no UUID, only their content counts
+            update(digest, "(");
+            updateContent((RefObject) value, null);
+            update(digest, ")");
+        } else {
+            update(digest, value == null ? null : value.toString());
+        }
+    }
+
+    private static void addParts(List<RefObject> parts, Object value) {
+        if ( value instanceof Collection ) {
+            for ( Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+                parts.add((RefObject) it.next());
+            }
+        } else if ( value != null ) {
+            parts.add((RefObject) value);
+        }
+    }
+
+    /**
+     * @return true, if the referencing object is the composite of the
+     *     referenced ones
+     */
+    private static boolean isComposite(Reference reference) {
+        return reference.getExposedEnd().getAggregation() == AggregationKindEnum.COMPOSITE;
+    }
+
+    private List<StructuralFeature> getFeatures(RefObject metaClass) {
+        List<StructuralFeature> result = features.get(metaClass);
+        if ( result == null ) {
+            result = new ArrayList<StructuralFeature>();
+            MofClass mofClass = (MofClass) metaClass;
+            List<Object> classes = new ArrayList<Object>(mofClass.allSupertypes());
+            classes.add(mofClass);
+            for ( Object c : classes ) {
+                for ( Object content : ((MofClass) c).getContents() ) {
+                    if ( content instanceof StructuralFeature && isDigested((StructuralFeature) content) ) {
+                        result.add((StructuralFeature) content);
+                    }
+                }
+            }
+            features.put(metaClass, result);
+        }
+        return result;
+    }
+
+    private static boolean isDigested(StructuralFeature feature) {
+        if ( feature.getScope() == ScopeKindEnum.CLASSIFIER_LEVEL ) {
+            return false;
+        }
+        if ( feature instanceof Attribute ) {
+            return !((Attribute) feature).isDerived();
+        }
+        if ( feature instanceof Reference ) {
+            Association association =
+                (Association) ((Reference) feature).getReferencedEnd().getContainer();
+            return !association.isDerived();
+        }
+        return false;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if ( value == null ) {
+            digest.update((byte) 0);
+            return;
+        }
+        try {
+            digest.update(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        // separates the values, so that "ab","c" differs from "a","bc"
+        digest.update((byte) 0xff);
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for ( byte b : bytes ) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16));
+            result.append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
+
+/**
+ * Stores {@link MappingSnapshot}s in a directory, one file per key. The
+ * key is a digest of the id of the model and of the dialect (see
+ * {@link #getKey(String, String)}), so a changed dialect simply has no
+ * snapshot. A changed model has the snapshot of an earlier version, which
+ * the reader recognizes by its {@link MappingSnapshot#getModelDigest()
+ * model digest}; it is replaced by the next snapshot saved.
+ *
+ * A file starts with a header (magic number, format version, key, model
+ * digest and whether the snapshot is complete), which is checked before
+ * the body is read. Files are written to a temporary file first and moved
+ * onto the snapshot atomically, so that a crash leaves no half-written
+ * snapshot behind.
+ *
+ * Saving a snapshot deletes the least recently saved ones beyond the
+ * retention limit of the store, so the directory does not grow with
+ * every version of every model.
+ */
+public class SnapshotStore {
+
+    /** "SUMS" */
+    private static final int MAGIC = 0x53554d53;
+
+    /** change when the format or the content of the snapshots changes */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final String SUFFIX = ".snapshot";
+
+    /** how many snapshots a store keeps by default */
+    public static final int DEFAULT_RETAINED = 20;
+
+    private static Logger aLog = Logger.getLogger(SnapshotStore.class);
+
+    private final File directory;
+
+    private final int retained;
+
+    /**
+     * @return the store in the ArgoUML settings directory of the user
+     */
+    public static File getDefaultDirectory() {
+        return new File(SecureUmlConstants.getSettingsDirectory(), "secureuml-snapshots");
+    }
+
+    /**
+     * @param modelId the UUID of the outermost namespace of the model, see
+     *     {@link ModelDigest#getUuidOf}; unlike the digest of the model it
+     *     is known without reading the model
+     * @param dialectDigest the digest of the dialect metamodel file
+     * @return the key of the snapshots of the model mapped with the
+     *     dialect
+     */
+    public static String getKey(String modelId, String dialectDigest) {
+        return ModelDigest.digestStrings(String.valueOf(FORMAT_VERSION), modelId, dialectDigest);
+    }
+
+    public SnapshotStore(File directory) {
+        this(directory, DEFAULT_RETAINED);
+    }
+
+    /**
+     * @param retained how many snapshots to keep, the most recently saved
+     *     ones
+     */
+    public SnapshotStore(File directory, int retained) {
+        if ( retained < 1 ) {
+            throw new IllegalArgumentException("retained " + retained);
+        }
+        this.directory = directory;
+        this.retained = retained;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return true, if there is a snapshot with a valid header for
+     *     <code>key</code>. Does not read the body.
+     */
+    public boolean contains(String key) {
+        File file = getFile(key);
+        if ( !file.isFile() ) {
+            return false;
+        }
+        try {
+            DataInputStream in = open(file);
+            try {
+                return readHeader(in, key) != null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the snapshot stored for <code>key</code>, null if there is
+     *     none or it cannot be read
+     */
+    public MappingSnapshot load(String key) {
+        File file = getFile(key);
+        if ( !file.isFile() ) {
+            return null;
+        }
+        try {
+            DataInputStream in = open(file);
+            try {
+                MappingSnapshot header = readHeader(in, key);
+                if ( header == null ) {
+                    aLog.warn("ignoring invalid snapshot " + file);
+                    return null;
+                }
+                MappingSnapshot snapshot = MappingSnapshot.read(in, key, header.getModelDigest(),
+                                                                header.isComplete());
+                if ( aLog.isDebugEnabled() ) {
+                    aLog.debug("loaded snapshot " + file + " with "
+                               + snapshot.getResources().size() + " resources");
+                }
+                return snapshot;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            aLog.warn("could not read snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * writes <code>snapshot</code>, replacing the one with the same key.
+     */
+    public void save(MappingSnapshot snapshot) throws IOException {
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException("could not create " + directory);
+        }
+
+        File file = getFile(snapshot.getKey());
+        File temp = File.createTempFile(snapshot.getKey(), ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(snapshot.getKey());
+                out.writeUTF(snapshot.getModelDigest() == null ? "" : snapshot.getModelDigest());
+                out.writeBoolean(snapshot.isComplete());
+                snapshot.write(out);
+            } finally {
+                out.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+        }
+
+        if ( aLog.isDebugEnabled() ) {
+            aLog.debug("saved snapshot " + file + " with "
+                       + snapshot.getResources().size() + " resources");
+        }
+        retain(file);
+    }
+
+    /**
+     * deletes the least recently saved snapshots beyond the retention
+     * limit; <code>saved</code>, the one saved last, is always kept.
+     */
+    private void retain(File saved) {
+        File[] files = directory.listFiles();
+        if ( files == null ) {
+            return;
+        }
+
+        List<File> snapshots = new ArrayList<File>();
+        for ( File file : files ) {
+            if ( file.getName().endsWith(SUFFIX) && !file.equals(saved) ) {
+                snapshots.add(file);
+            }
+        }
+        if ( snapshots.size() < retained ) {
+            return;
+        }
+
+        Collections.sort(snapshots, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long difference = b.lastModified() - a.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for ( File file : snapshots.subList(retained - 1, snapshots.size()) ) {
+            if ( file.delete() ) {
+                if ( aLog.isDebugEnabled() ) {
+                    aLog.debug("deleted old snapshot " + file);
+                }
+            } else {
+                aLog.warn("could not delete old snapshot " + file);
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private static DataInputStream open(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * @return an empty snapshot with the model digest and the complete
+     *     flag of the header, null if the header is invalid
+     */
+    private static MappingSnapshot readHeader(DataInputStream in, String key) throws IOException {
+        if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                || !key.equals(in.readUTF()) ) {
+            return null;
+        }
+        String modelDigest = in.readUTF();
+        return new MappingSnapshot(key, modelDigest.length() == 0 ? null : modelDigest, in.readBoolean());
+    }
+}
@@ -9,6 +9,8 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Set;
 
+import javax.jmi.reflect.RefObject;
+
 import org.apache.log4j.Logger;
 import org.argouml.model.Model;
 import org.omg.uml.foundation.core.AssociationClass;
@@ -73,7 +75,7 @@ public class MapSelfAndAssociatedResources
         ModelElement startingPoint)
     {
 
-        System.out.println("---------------------------------");
+        aLog.debug("getMappingScope: depth " + currentNavigationDepth);
         if(currentNavigationDepth == navigationDepth)
             result = super.getMappingScope(startingPoint);
 
@@ -233,13 +235,12 @@ public class MapSelfAndAssociatedResources
                         logger.info("Association could not be navigated");
                         try
                         {
-                            // Association could not be navigated
-                            // - try it the other way round
-
-                            AssociationEnd end = association
-                                                 .getOtherEnd((MetaModelClass) otherEnd.getType());
+                            // Association could not be navigated, neither
+                            // forward nor backward (see
+                            // GenericDialectHelper.navigateAssociation)
+                            // - take the elements of the associated type
+                            // from the namespace of the starting point
 
-                            Collection allElementsInNamespace = new LinkedList();
                             Namespace n = startingPoint.getNamespace();
                             if(n==null) {
                                 //startingPoint doesn't have a namespace, so it has to be contained somewhere else:
@@ -250,32 +251,24 @@ public class MapSelfAndAssociatedResources
                                     n = ((Transition) startingPoint).getStateMachine().getNamespace();
                                 }
                             }
-                            Collection c1 = n.getOwnedElement();
-                            for (Iterator iterator = c1.iterator(); iterator.hasNext();)
-                            {
-                                Object temp = (Object) iterator.next();
 
-                                allElementsInNamespace.add(temp);
-                            }
-                            if(startingPoint instanceof Namespace) {
-                                logger.info("starting points is instance of Namespace");
-                                Collection c2 = ((Namespace) startingPoint).getOwnedElement();
-                                for (Iterator iterator = c2.iterator(); iterator.hasNext();) {
-                                    Object temp = (Object) iterator.next();
-                                    allElementsInNamespace.add(temp);
-                                }
+                            Collection<ModelElement> candidates =
+                                helper.getReverseAssociationIndex()
+                                .getElementsOfType(startingPoint,
+                                                   otherEnd.getType());
 
+                            int found = 0;
+                            for (ModelElement m : candidates)
+                            {
+                                if(isContainedIn(m, n)
+                                        || (startingPoint instanceof Namespace
+                                            && isContainedIn(m, startingPoint)))
+                                {
+                                    addModelElementToScope(otherEnd, m);
+                                    found++;
+                                }
                             }
-//               logger.info(
-//                   "try to navigate backwards from "
-//                   + allElementsInNamespace.size()
-//                   + " elements");
-                            Set visitedElements =
-                                tryNavigateBackwards(otherEnd, end,
-                                                     allElementsInNamespace);//, getNavigationDepth());
-                            logger.info("found "+visitedElements.size()+" elements by navigating backwards");
-                            result.addAll(visitedElements);
-                            //result.addAll(allElementsInNamespace);
+                            logger.info("found "+found+" elements by navigating backwards");
                         }
                         catch (Exception e)
                         {
@@ -389,177 +382,23 @@ public class MapSelfAndAssociatedResources
 
 
     /**
-     * @param otherEnd
-     * @param end
-     * @param modelElements
-     */
-    private Set tryNavigateBackwards(
-        AssociationEnd otherEnd,
-        AssociationEnd end,
-        Collection modelElements)//,int maxDepth)
-    {
-        Set visitedElements = new LinkedHashSet();
-        tryNavigateBackwards(otherEnd, end, modelElements, visitedElements);
-
-        return visitedElements;
-    }
-
-    /**
-     * @param otherEnd
-     * @param end
-     * @param modelElements
+     * @return true, if <code>container</code> (transitively)
+     *   contains <code>m</code>
      */
-    private void tryNavigateBackwards(AssociationEnd otherEnd, AssociationEnd end, Collection modelElements, Set visitedElements)
+    private boolean isContainedIn(ModelElement m, Object container)
     {
+        if(container == null)
+            return false;
 
-//    if(maxDepth <= 0)
-//      return;
-
-        if(modelElements == null || modelElements.size() == 0)
-            return;
-
-//    logger.info(logger.MODELMAPPER_DETAILLED,
-//        "Try to navigate Association the other way round - "
-//        + "iterating over all ModelElements in the Namespace - n = "
-//        + modelElements.size());
-
-
-        for (Iterator iterator = modelElements.iterator(); iterator
-                .hasNext();)
+        for (Object c = m.refImmediateComposite(); c != null;
+                c = ((RefObject) c).refImmediateComposite())
         {
-            Object object = iterator.next();
-
-//      if (object instanceof Namespace)
-//      {
-//        Namespace ns = (Namespace) object;
-//        tryNavigateBackwards(otherEnd, end, ns.getOwnedElement());
-////
-////        Util.addAllSave(allElementsInNamespace, ns.getOwnedElement());
-//      }
-            // TODO: replace this hardcoded hack by a generic solution
-
-            if (object instanceof ModelElement)
-            {
-
-                ModelElement m = (ModelElement) object;
-
-                if(visitedElements.contains(m))
-                    return;
-                else
-                    visitedElements.add(m);
-
-
-                if (helper.hasType(m, otherEnd.getType().getName()))
-                {
-                    logger
-                    .info("try to navigate Association in reverse Direction " +
-                          "from end: "
-                          + otherEnd.getName());
-
-                    Collection coll = helper.navigateAssociation(m, end);
-                    String s = "... leads to: ";
-                    if(coll.size()>1)
-                        s = s + " Collection containing: ";
-
-                    if(coll.size() > 0)
-                        s = s + Util.getProperty(coll.iterator().next(), "name");//+ coll);
-
-                    logger.info(s);
-//          if (coll instanceof Collection)
-//          {
-                    if(coll != null)
-                    {
-                        //Collection c1 = (Collection) coll;
-
-                        //addModelElementsToScope(otherEnd, coll);
-                        addModelElementToScope(otherEnd, m);
-                    }
-//          else if (c1 instanceof ModelElement)
-//          {
-//            try
-//            {
-//              addModelElementToScope(otherEnd, m);
-//            }
-//            catch (Exception e)
-//            {
-//              ;
-//            }
-//
-//          }
-
-                }
-                else
-                {
-
-                    //
-//          if(m instanceof Association)
-//          {
-//            Association a = (Association) m;
-//
-//            tryNavigateBackwards(otherEnd, end, a.getConnection(), maxDepth/1);
-//
-////
-////            Util.addAllSave(allElementsInNamespace, a.getConnection());
-//          }
-
-
-//          logger.info("wrong type: "
-//              + m.getClass().getSimpleName()
-//              + " : " + m.getName());
-
-//          logger.info(
-//              "can't reach the ModelElement directly, " +
-//              "try to reach it in several hops...");
-
-                    //  but can try to reach the source ModelElement via
-                    // more than one step
-
-                    MetaModelClass mmClass = helper.getMetaModelClass(m);
-
-                    if(mmClass != null && mmClass.getUmlClassName() != null)
-                    {
-//            logger.info("...from: "
-//                + m.getClass().getSimpleName()
-//                + " : "
-//                + m.getNameA());
-
-                        Collection associations = mmInfo.getInterResourceAssociations(mmClass);
-
-                        if(associations != null)
-                        {
-                            for (Iterator iter = associations.iterator(); iter.hasNext();)
-                            {
-                                InterResourceAssociation association = (InterResourceAssociation) iter.next();
-
-
-                                Object result = helper.navigateAssociation(m, association.getOtherEnd(mmClass));
-                                Collection coll;
-                                if (result instanceof Collection)
-                                {
-                                    coll = (Collection) result;
-
-                                }
-                                else
-                                {
-                                    coll = new LinkedList();
-                                    coll.add(result);
-                                }
-
-
-                                visitedElements.addAll(coll);
-
-                                //tryNavigateBackwards(otherEnd, end, coll, maxDepth-1);
-                                tryNavigateBackwards(otherEnd, end, coll, visitedElements);
-                            }
-                        }
-
-
-                    }
-
-
-                }
-            }
+            if(c == container)
+                return true;
+            if(!(c instanceof RefObject))
+                break;
         }
+        return false;
     }
 
     GenericDialectHelper helper = GenericDialectHelper.getInstance();
@@ -0,0 +1,340 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the analyzed structure of a dialect metamodel (see
+ * {@link DialectMetaModelInfo}) in a compact binary form and reads it
+ * back, so that the analysis of a dialect used before can be skipped.
+ *
+ * The metamodel classes, resource types, action types and
+ * inter-resource associations are written once each and referenced by
+ * their index; the order of all collections is kept. Not written are the
+ * MDR extents and the parsed OCL expressions, which are set up again
+ * after reading.
+ */
+public class DialectMetaModelCodec
+{
+    /** change when the written structure changes */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte KIND_CLASS = 0;
+    private static final byte KIND_RESOURCE_TYPE = 1;
+    private static final byte KIND_ATOMIC_ACTION = 0;
+    private static final byte KIND_COMPOSITE_ACTION = 1;
+
+    private DialectMetaModelCodec()
+    {
+    }
+
+    public static void write(DialectMetaModelInfo mmInfo, DataOutputStream out)
+    throws IOException
+    {
+        writeString(out, mmInfo.getDialectName());
+
+        // metamodel classes and resource types
+        Map<Object, Integer> classIds = new IdentityHashMap<Object, Integer>();
+        List<MetaModelClass> classes = new ArrayList<MetaModelClass>();
+        classes.addAll(mmInfo.getMetaModelClasses());
+        classes.addAll(mmInfo.getResourceTypes());
+        out.writeInt(classes.size());
+        for (MetaModelClass c : classes)
+        {
+            classIds.put(c, Integer.valueOf(classIds.size()));
+            writeClass(out, c);
+        }
+        for (ResourceType rt : mmInfo.getResourceTypes())
+        {
+            writeId(out, classIds, rt.getParentResourceType());
+        }
+
+        // action types
+        Map<Object, Integer> actionIds = new IdentityHashMap<Object, Integer>();
+        out.writeInt(mmInfo.getActionTypes().size());
+        for (ActionType a : mmInfo.getActionTypes())
+        {
+            actionIds.put(a, Integer.valueOf(actionIds.size()));
+            out.writeByte(a instanceof CompositeActionType
+                          ? KIND_COMPOSITE_ACTION : KIND_ATOMIC_ACTION);
+            writeString(out, a.getName());
+            writeString(out, a.getShortName());
+            writeString(out, a.getSubactionsDefinition());
+        }
+
+        // resource-action associations
+        for (ResourceType rt : mmInfo.getResourceTypes())
+        {
+            List<ActionResourceAssociation> associations =
+                new ArrayList<ActionResourceAssociation>(
+                mmInfo.getResourceActionAssociations(rt));
+            out.writeInt(associations.size());
+            for (ActionResourceAssociation association : associations)
+            {
+                writeString(out, association.getShortname());
+                writeId(out, actionIds, association.getActionType());
+            }
+        }
+
+        // inter-resource associations, each once, then by anchor
+        Map<MetaModelEntity, Set<InterResourceAssociation>> byEntity =
+            mmInfo.getInterResourceAssociationsByEntity();
+        Map<Object, Integer> associationIds = new IdentityHashMap<Object, Integer>();
+        List<InterResourceAssociation> associations =
+            new ArrayList<InterResourceAssociation>();
+        for (Set<InterResourceAssociation> set : byEntity.values())
+        {
+            for (InterResourceAssociation association : set)
+            {
+                if (!associationIds.containsKey(association))
+                {
+                    associationIds.put(association,
+                                       Integer.valueOf(associations.size()));
+                    associations.add(association);
+                }
+            }
+        }
+        out.writeInt(associations.size());
+        for (InterResourceAssociation association : associations)
+        {
+            writeString(out, association.getName());
+            writeEnd(out, classIds, association.getEnd1());
+            writeEnd(out, classIds, association.getEnd2());
+        }
+        out.writeInt(byEntity.size());
+        for (Map.Entry<MetaModelEntity, Set<InterResourceAssociation>> entry
+                : byEntity.entrySet())
+        {
+            writeId(out, classIds, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (InterResourceAssociation association : entry.getValue())
+            {
+                writeId(out, associationIds, association);
+            }
+        }
+    }
+
+    /**
+     * @return the dialect written by {@link #write}, without extents and
+     *     parsed expressions
+     */
+    public static DialectMetaModelInfo read(DataInputStream in)
+    throws IOException
+    {
+        DialectMetaModelInfo mmInfo = new DialectMetaModelInfo();
+        mmInfo.setDialectName(readString(in));
+
+        MetaModelClass[] classes = new MetaModelClass[in.readInt()];
+        List<ResourceType> resourceTypes = new ArrayList<ResourceType>();
+        for (int i = 0; i < classes.length; i++)
+        {
+            classes[i] = readClass(in);
+            if (classes[i] instanceof ResourceType)
+            {
+                resourceTypes.add((ResourceType) classes[i]);
+                mmInfo.addResourceType((ResourceType) classes[i]);
+            }
+            else
+            {
+                mmInfo.addMetaModelClass(classes[i]);
+            }
+        }
+        for (ResourceType rt : resourceTypes)
+        {
+            rt.setParentResourceType((ResourceType) lookup(classes, in.readInt()));
+        }
+
+        ActionType[] actionTypes = new ActionType[in.readInt()];
+        for (int i = 0; i < actionTypes.length; i++)
+        {
+            byte kind = in.readByte();
+            if (kind == KIND_COMPOSITE_ACTION)
+            {
+                CompositeActionType a =
+                    MetaModelFactory.getInstance().createCompositeActionType();
+                mmInfo.addCompositeActionType(a);
+                actionTypes[i] = a;
+            }
+            else if (kind == KIND_ATOMIC_ACTION)
+            {
+                AtomicActionType a =
+                    MetaModelFactory.getInstance().createAtomicActionType();
+                mmInfo.addAtomicActionType(a);
+                actionTypes[i] = a;
+            }
+            else
+            {
+                throw new IOException("invalid action kind " + kind);
+            }
+            actionTypes[i].setName(readString(in));
+            actionTypes[i].setShortName(readString(in));
+            actionTypes[i].setSubactionsDefinition(readString(in));
+        }
+
+        for (ResourceType rt : resourceTypes)
+        {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String shortname = readString(in);
+                mmInfo.addResourceActionAssociation(shortname, rt,
+                                                    (ActionType) lookup(actionTypes, in.readInt()));
+            }
+        }
+
+        InterResourceAssociation[] associations =
+            new InterResourceAssociation[in.readInt()];
+        for (int i = 0; i < associations.length; i++)
+        {
+            String name = readString(in);
+            AssociationEnd end1 = readEnd(in, classes);
+            AssociationEnd end2 = readEnd(in, classes);
+            associations[i] = new InterResourceAssociation(name, end1, end2);
+        }
+        Map<MetaModelEntity, Set<InterResourceAssociation>> byEntity =
+            mmInfo.getInterResourceAssociationsByEntity();
+        byEntity.clear();
+        int entityCount = in.readInt();
+        for (int i = 0; i < entityCount; i++)
+        {
+            MetaModelEntity entity = (MetaModelEntity) lookup(classes, in.readInt());
+            Set<InterResourceAssociation> set =
+                new LinkedHashSet<InterResourceAssociation>();
+            int count = in.readInt();
+            for (int j = 0; j < count; j++)
+            {
+                set.add((InterResourceAssociation) lookup(associations, in.readInt()));
+            }
+            byEntity.put(entity, set);
+        }
+
+        return mmInfo;
+    }
+
+    private static void writeClass(DataOutputStream out, MetaModelClass c)
+    throws IOException
+    {
+        out.writeByte(c instanceof ResourceType ? KIND_RESOURCE_TYPE : KIND_CLASS);
+        writeString(out, c.getName());
+        writeString(out, c.getUmlClassName());
+        out.writeInt(c.getAttributes().size());
+        for (MetaModelClassAttribute attribute : c.getAttributes())
+        {
+            writeString(out, attribute.getName());
+            writeString(out, attribute.getUmlName());
+            writeString(out, attribute.getTypeName());
+        }
+        if (c instanceof ResourceType)
+        {
+            ResourceType rt = (ResourceType) c;
+            writeString(out, rt.getModelElementStereotype());
+            writeString(out, rt.getAnchorPath());
+            writeString(out, rt.getActionStereotype());
+            writeString(out, rt.getResoucePath());
+        }
+    }
+
+    private static MetaModelClass readClass(DataInputStream in)
+    throws IOException
+    {
+        byte kind = in.readByte();
+        MetaModelClass c;
+        if (kind == KIND_RESOURCE_TYPE)
+            c = new ResourceType();
+        else if (kind == KIND_CLASS)
+            c = new MetaModelClass();
+        else
+            throw new IOException("invalid class kind " + kind);
+
+        c.setName(readString(in));
+        c.setUmlClassName(readString(in));
+        int attributeCount = in.readInt();
+        for (int i = 0; i < attributeCount; i++)
+        {
+            MetaModelClassAttribute attribute =
+                new MetaModelClassAttribute(readString(in));
+            attribute.setUmlName(readString(in));
+            attribute.setTypeName(readString(in));
+            c.getAttributes().add(attribute);
+        }
+        if (c instanceof ResourceType)
+        {
+            ResourceType rt = (ResourceType) c;
+            rt.setModelElementStereotype(readString(in));
+            rt.setAnchorPath(readString(in));
+            rt.setActionStereotype(readString(in));
+            rt.setResoucePath(readString(in));
+        }
+        return c;
+    }
+
+    private static void writeEnd(DataOutputStream out, Map<Object, Integer> classIds,
+                                 AssociationEnd end)
+    throws IOException
+    {
+        writeString(out, end.getName());
+        out.writeBoolean(end.isMultiple());
+        writeId(out, classIds, end.getType());
+        writeString(out, end.getUmlPropertyGetter());
+    }
+
+    private static AssociationEnd readEnd(DataInputStream in, MetaModelClass[] classes)
+    throws IOException
+    {
+        AssociationEnd end = new AssociationEnd();
+        end.setName(readString(in));
+        end.setMultiple(in.readBoolean());
+        end.setType((MetaModelClass) lookup(classes, in.readInt()));
+        end.setUmlPropertyGetter(readString(in));
+        return end;
+    }
+
+    /** writes the index of <code>o</code>, -1 for null */
+    private static void writeId(DataOutputStream out, Map<Object, Integer> ids, Object o)
+    throws IOException
+    {
+        if (o == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        Integer id = ids.get(o);
+        if (id == null)
+            throw new IOException("unknown metamodel element " + o);
+        out.writeInt(id.intValue());
+    }
+
+    private static Object lookup(Object[] elements, int id)
+    throws IOException
+    {
+        if (id == -1)
+            return null;
+        if (id < 0 || id >= elements.length)
+            throw new IOException("invalid element index " + id);
+        return elements[id];
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+    throws IOException
+    {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in)
+    throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Set;
 import javax.jmi.model.MofPackage;
 import ch.ethz.infsec.secureumlgui.Util;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
 
 /**
  *
@@ -43,6 +44,19 @@ public class DialectMetaModelInfo
         this.dialectName = dialectName;
     }
 
+    /** the digest of the .xmi file the dialect was loaded from, null if unknown. */
+    private String sourceDigest = null;
+
+    public String getSourceDigest()
+    {
+        return sourceDigest;
+    }
+
+    public void setSourceDigest(String sourceDigest)
+    {
+        this.sourceDigest = sourceDigest;
+    }
+
     /** the extent in which dialect metamodel instances are stored. */
     private Object dialectExtent;
 
@@ -113,6 +127,52 @@ public class DialectMetaModelInfo
         return null;
     }
 
+    /** the parsed anchor paths of the resource types */
+    private Map<ResourceType, OclExpression> anchorExpressions =
+        new LinkedHashMap<ResourceType, OclExpression>();
+
+    /**
+     * @return the parsed anchor path of the resource type, or null if
+     *     it has none or it could not be parsed
+     */
+    public OclExpression getAnchorExpression(ResourceType resourceType)
+    {
+        return anchorExpressions.get(resourceType);
+    }
+
+    /**
+     * set the parsed anchor path of the resource type. Done once, when
+     * the dialect is loaded.
+     */
+    public void setAnchorExpression(ResourceType resourceType,
+                                    OclExpression anchorExpression)
+    {
+        anchorExpressions.put(resourceType, anchorExpression);
+    }
+
+    /** the parsed subactions definitions of the action types */
+    private Map<ActionType, OclExpression> subactionsExpressions =
+        new LinkedHashMap<ActionType, OclExpression>();
+
+    /**
+     * @return the parsed subactions definition of the action type, or
+     *     null if it has none or it could not be parsed
+     */
+    public OclExpression getSubactionsExpression(ActionType actionType)
+    {
+        return subactionsExpressions.get(actionType);
+    }
+
+    /**
+     * set the parsed subactions definition of the action type. Done
+     * once, when the dialect is loaded.
+     */
+    public void setSubactionsExpression(ActionType actionType,
+                                        OclExpression subactionsExpression)
+    {
+        subactionsExpressions.put(actionType, subactionsExpression);
+    }
+
 //  public void setResourceTypes(Collection<ResourceType> resourceTypes)
 //  {
 //      this.resourceTypes = resourceTypes;
@@ -244,6 +304,15 @@ public class DialectMetaModelInfo
         return result;
     }
 
+    /**
+     * @return the InterResourceAssociations by anchor, for
+     * {@link DialectMetaModelCodec}
+     */
+    Map<MetaModelEntity, Set<InterResourceAssociation>> getInterResourceAssociationsByEntity()
+    {
+        return interResourceAssociationsByEntity;
+    }
+
     /**
      * @return all InterResourceAssociations
      * - in a newly created Collection
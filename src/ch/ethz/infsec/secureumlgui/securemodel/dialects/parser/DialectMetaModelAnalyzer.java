@@ -37,6 +37,8 @@ import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.TaggedValue;
 import ch.ethz.infsec.secureumlgui.logging.LoggerContext;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
 import ch.ethz.infsec.secureumlgui.modelmanagement.ModelConst;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpression;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions.OclExpressionsParser;
 //import ch.ethz.infsec.secureumlgui.modelmapping.Util;
 import ch.ethz.infsec.secureumlgui.transformation.MetaModelMap;
 import ch.ethz.infsec.secureumlgui.wrapper.AttributeWrapper;
@@ -426,6 +428,65 @@ public class DialectMetaModelAnalyzer
         examineMetamodelAssociations(actionResourceAssociations, otherAssociations, mmInfo);
 
         examineMofClassTags(mmInfo);
+
+        parseOclExpressions(mmInfo);
+    }
+
+    /**
+     * Parses the anchor paths of all ResourceTypes and the subactions
+     * definitions of all ActionTypes once, so that they are not parsed on
+     * each evaluation. Invalid expressions are reported here and not
+     * stored. Also used for the dialects read from the
+     * {@link DialectMetaModelCache}.
+     */
+    void parseOclExpressions(DialectMetaModelInfo mmInfo)
+    {
+        for (ResourceType resourceType : mmInfo.getResourceTypes())
+        {
+            OclExpression expression = parseOclExpression(
+                                           resourceType.getAnchorPath(),
+                                           "anchorPath of ResourceType " + resourceType.getName());
+            if(expression != null)
+                mmInfo.setAnchorExpression(resourceType, expression);
+        }
+
+        for (ActionType actionType : mmInfo.getActionTypes())
+        {
+            OclExpression expression = parseOclExpression(
+                                           actionType.getSubactionsDefinition(),
+                                           "subactionsDefinition of ActionType " + actionType.getName());
+            if(expression != null)
+                mmInfo.setSubactionsExpression(actionType, expression);
+        }
+    }
+
+    /**
+     * @return the parsed expression, or null if <code>s</code> is empty
+     *     or invalid
+     */
+    private OclExpression parseOclExpression(String s, String description)
+    {
+        if(s == null || s.length() == 0)
+            return null;
+
+        OclExpressionsParser parser = new OclExpressionsParser();
+        try
+        {
+            OclExpression expression = parser.parseOclExpression(s);
+
+            if(parser.getErrorCount() == 0)
+                return expression;
+
+            logger.error(metamodelValidation,
+                         "invalid " + description + ": " + s);
+        }
+        catch (Exception e)
+        {
+            logger.error(metamodelValidation,
+                         "invalid " + description + ": " + s
+                         + " (" + e + ")");
+        }
+        return null;
     }
 
     public boolean inheritsDirectlyFrom(Object mofClass, Object parentClass)
@@ -0,0 +1,139 @@
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelCodec;
+import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
+
+/**
+ * Caches analyzed dialect metamodels on disk, so that selecting a dialect
+ * used before does not run the {@link DialectMetaModelAnalyzer} again.
+ *
+ * An entry is stored under the digest of the dialect .xmi file, and
+ * carries the version of the module and of the
+ * {@link DialectMetaModelCodec} format in its header; an entry written by
+ * another version is ignored and overwritten. Entries are written to a
+ * temporary file first and renamed.
+ */
+public class DialectMetaModelCache
+{
+    /** "SUDM" */
+    private static final int MAGIC = 0x5355444d;
+
+    private static final String SUFFIX = ".dialect";
+
+    private static Logger aLog = Logger.getLogger(DialectMetaModelCache.class);
+
+    private final File directory;
+
+    /**
+     * @return the cache in the ArgoUML settings directory of the user
+     */
+    public static File getDefaultDirectory()
+    {
+        return new File(SecureUmlConstants.getSettingsDirectory(),
+                        "secureuml-dialects");
+    }
+
+    public DialectMetaModelCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * @param xmiDigest the digest of the dialect .xmi file
+     * @return the analyzed dialect, without extents and parsed
+     *     expressions; null if it is not cached or cannot be read
+     */
+    public DialectMetaModelInfo load(String xmiDigest)
+    {
+        File file = getFile(xmiDigest);
+        if (!file.isFile())
+            return null;
+
+        try
+        {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                if (in.readInt() != MAGIC
+                        || in.readInt() != DialectMetaModelCodec.FORMAT_VERSION
+                        || !SecureUmlConstants.MODULE_VERSION.equals(in.readUTF())
+                        || !xmiDigest.equals(in.readUTF()))
+                {
+                    aLog.debug("ignoring outdated dialect cache " + file);
+                    return null;
+                }
+                return DialectMetaModelCodec.read(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            aLog.warn("could not read dialect cache " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * stores the analyzed dialect <code>mmInfo</code> of the .xmi file
+     * with digest <code>xmiDigest</code>.
+     */
+    public void save(String xmiDigest, DialectMetaModelInfo mmInfo)
+    throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("could not create " + directory);
+
+        File file = getFile(xmiDigest);
+        File temp = File.createTempFile(xmiDigest, ".tmp", directory);
+        try
+        {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+            try
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(DialectMetaModelCodec.FORMAT_VERSION);
+                out.writeUTF(SecureUmlConstants.MODULE_VERSION);
+                out.writeUTF(xmiDigest);
+                DialectMetaModelCodec.write(mmInfo, out);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            if (!temp.renameTo(file))
+            {
+                // renaming onto an existing file fails on some platforms
+                file.delete();
+                if (!temp.renameTo(file))
+                    throw new IOException("could not rename " + temp + " to " + file);
+            }
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+
+    private File getFile(String xmiDigest)
+    {
+        return new File(directory, xmiDigest + SUFFIX);
+    }
+}
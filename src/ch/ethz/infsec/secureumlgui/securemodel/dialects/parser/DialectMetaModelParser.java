@@ -35,6 +35,9 @@ import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
 import ch.ethz.infsec.secureumlgui.modelmanagement.ModelConst;
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
 import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectModelMapper;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.MappingEvents;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.EventHandle;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.ModelDigest;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ResourceType;
 import ch.ethz.infsec.secureumlgui.securemodelimpl.SecureModelFactory;
@@ -77,6 +80,10 @@ public class DialectMetaModelParser
 
     private static Logger aLog = Logger.getLogger(DialectMetaModelParser.class);
 
+    /** the analyzed dialects used before */
+    private DialectMetaModelCache cache =
+        new DialectMetaModelCache(DialectMetaModelCache.getDefaultDirectory());
+
     // /** the file name of the .xmi file containing the dialect metamodel */
     // private String dialectMetamodelFilename;
 
@@ -91,42 +98,96 @@ public class DialectMetaModelParser
 
     public void dialectMetamodelSelected(File xmiFile)
     {
-        //String dialectMetamodelFilename = xmiFile.getPath();
+        EventHandle event = MappingEvents.beginDialectLoad(xmiFile.getPath());
+        DialectMetaModelInfo mmInfo = null;
+        try
+        {
+            mmInfo = loadDialect(xmiFile);
+
+            // only for developers, see DialectSourceGenerator
+            File sourcesDir = DialectSourceGenerator.getConfiguredDirectory();
+            if (sourcesDir != null)
+            {
+                try
+                {
+                    DialectMetaModelUtil.generateSrcFiles(mmInfo.getDialectExtent(), sourcesDir);
+                }
+                catch (IOException e)
+                {
+                    aLog.error("could not generate the sources of " + xmiFile, e);
+                }
+            }
 
+            registerSuComponents(mmInfo);
+        }
+        finally
+        {
+            MappingEvents.end(event,
+                              mmInfo == null ? 0 : mmInfo.getResourceTypes().size());
+        }
+    }
 
+    /**
+     * loads the dialect metamodel from <code>xmiFile</code>, analyzes it
+     * and creates the {@link GenericDialectModelMapper} for it. Does not
+     * need the GUI, see {@link ch.ethz.infsec.secureumlgui.main.BatchAnalyzer}.
+     *
+     * @return the analyzed dialect
+     */
+    public DialectMetaModelInfo loadDialect(File xmiFile)
+    {
         ModelPackage secureModelExtent    = createMetamodelExtent();
         MofPackage secureModelPackage   = readMetamodel(secureModelExtent, xmiFile);
         RefPackage mySecureModelPackage = createDialectInstanceExtent(secureModelPackage);
 
-        DialectMetaModelUtil.generateSrcFiles(mySecureModelPackage);
+        String xmiDigest = null;
+        try
+        {
+            xmiDigest = ModelDigest.digestFile(xmiFile);
+        }
+        catch (IOException e)
+        {
+            // neither cached nor snapshots for this dialect
+            aLog.warn("could not compute the digest of " + xmiFile + ": " + e);
+        }
 
         DialectMetaModelAnalyzer analyzer =
             new DialectMetaModelAnalyzer(secureModelPackage);
 
-        DialectMetaModelInfo mmInfo = analyzer.analyzeDialect( secureModelPackage);
-        mmInfo.setDialectExtent(mySecureModelPackage);
-        mmInfo.setDialectMetaExtent(secureModelPackage);
-
+        DialectMetaModelInfo mmInfo =
+            xmiDigest == null ? null : cache.load(xmiDigest);
+        if (mmInfo != null)
+        {
+            aLog.info("using the cached analysis of " + xmiFile.getName());
+            analyzer.parseOclExpressions(mmInfo);
+        }
+        else
+        {
+            mmInfo = analyzer.analyzeDialect( secureModelPackage);
 
+            DialectMetaModelUtil.printMetamodel(mmInfo);
 
-        DialectMetaModelUtil.printMetamodel(mmInfo);
+            if (xmiDigest != null && mmInfo != null)
+            {
+                try
+                {
+                    cache.save(xmiDigest, mmInfo);
+                }
+                catch (IOException e)
+                {
+                    aLog.warn("could not cache the analysis of " + xmiFile + ": " + e);
+                }
+            }
+        }
+        mmInfo.setDialectExtent(mySecureModelPackage);
+        mmInfo.setDialectMetaExtent(secureModelPackage);
+        mmInfo.setSourceDigest(xmiDigest);
 
         GenericDialectHelper.getInstance().setDialectMetaModelInfo(mmInfo);
 
-        registerSuComponents(mmInfo);
-
-        GenericDialectModelMapper modelMapper =
-            new GenericDialectModelMapper(mmInfo);
+        new GenericDialectModelMapper(mmInfo);
 
-
-
-//      System.out.println("try to load Policy class");
-//      try {
-//		Class.forName("ch.ethz.infsec.secureumlgui.securemodel.secureuml.Policy");
-//	} catch (ClassNotFoundException e) {
-//		// TODO Auto-generated catch block
-//		e.printStackTrace();
-//	}
+        return mmInfo;
     }
 
     /**
@@ -135,6 +196,11 @@ public class DialectMetaModelParser
     private void registerSuComponents(DialectMetaModelInfo mmInfo)
     {
         TabSecureUml tab = SecureUmlModule.getTab();
+        if (tab == null)
+        {
+            // not running in ArgoUML
+            return;
+        }
 
         SecureUmlRoleComponent suRoleComponent =
             new SecureUmlRoleComponent();
@@ -4,18 +4,15 @@
 package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
-import javax.jmi.reflect.RefAssociation;
-import javax.jmi.reflect.RefClass;
 import javax.jmi.reflect.RefPackage;
 
 import org.apache.log4j.Logger;
-import org.netbeans.lib.jmi.mapping.FileStreamFactory;
-import org.netbeans.lib.jmi.mapping.JMIMapperImpl;
 
 import ch.ethz.infsec.secureumlgui.Util;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.ActionResourceAssociation;
@@ -53,33 +50,21 @@ public class DialectMetaModelUtil
         return xmiFile.toURI().toString();
     }
 
-    public static void generateSrcFiles(RefPackage mySecureModelPackage) {
-        File destDir = new File("generated");
-        destDir.mkdirs();
+    /**
+     * generates the JMI interface sources of the dialect instance extent
+     * <code>mySecureModelPackage</code> to <code>destDir</code>; only
+     * the sources of changed metamodel elements are written.
+     *
+     * @see DialectSourceGenerator
+     */
+    public static DialectSourceGenerator generateSrcFiles(RefPackage mySecureModelPackage,
+            File destDir) throws IOException
+    {
         aLog.debug("generate mySecureModelPackage sources to: " + destDir.getAbsolutePath());
 
-
-        JMIMapperImpl mapperImpl = new JMIMapperImpl();
-        FileStreamFactory fileStreamFactory = new FileStreamFactory(destDir);
-
-        Collection<RefPackage> packages = (Collection<RefPackage>) mySecureModelPackage.refAllPackages();
-        try {
-            for (RefPackage packa : packages ) {
-                aLog.debug("Generate package: " + packa);
-                mapperImpl.generate(fileStreamFactory, packa.refMetaObject());
-                for ( RefClass cl : (Collection<RefClass>) packa.refAllClasses() ) {
-                    aLog.debug("Generate class: " + cl);
-                    mapperImpl.generate(fileStreamFactory, cl.refMetaObject());
-                }
-                for ( RefAssociation ass : (Collection<RefAssociation>) packa.refAllAssociations()) {
-                    aLog.debug("Generate association: " + ass);
-                    mapperImpl.generate(fileStreamFactory, ass.refMetaObject());
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            aLog.error(e);
-        }
+        DialectSourceGenerator generator = new DialectSourceGenerator(destDir);
+        generator.generate(mySecureModelPackage);
+        return generator;
     }
 
 
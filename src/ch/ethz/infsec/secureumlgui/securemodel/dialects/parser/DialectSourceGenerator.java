@@ -0,0 +1,416 @@
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.jmi.model.ModelElement;
+import javax.jmi.model.MofPackage;
+import javax.jmi.model.Tag;
+import javax.jmi.reflect.RefAssociation;
+import javax.jmi.reflect.RefClass;
+import javax.jmi.reflect.RefObject;
+import javax.jmi.reflect.RefPackage;
+
+import org.apache.log4j.Logger;
+import org.netbeans.api.mdr.JMIStreamFactory;
+import org.netbeans.lib.jmi.mapping.JMIMapperImpl;
+
+import ch.ethz.infsec.secureumlgui.main.SecureUmlConstants;
+import ch.ethz.infsec.secureumlgui.modelmapping.snapshot.ModelDigest;
+
+/**
+ * Generates the JMI interface sources of a dialect, for developers who
+ * want to program against the dialect. Not needed to run the module, so
+ * it only runs on request: from the SecureUML menu or, when a dialect
+ * is selected, if the system property {@link #PROPERTY} is set.
+ *
+ * The sources are generated per package, class and association of the
+ * metamodel. Every such element is hashed with its features (see
+ * {@link ModelDigest#computeElement}); an element whose hash is the one
+ * recorded at the last run, and whose files still exist, is skipped.
+ * The others are generated concurrently, each with its own mapper into
+ * memory, and then written with one channel write per file.
+ */
+public class DialectSourceGenerator
+{
+    /**
+     * the system property enabling the generation when a dialect is
+     * selected; its value is the target directory, or "true" for
+     * {@link #DEFAULT_DIRECTORY}
+     */
+    public static final String PROPERTY = "secureuml.generateSources";
+
+    public static final String DEFAULT_DIRECTORY = "generated";
+
+    /** the element hashes and files of the last run, in the target directory */
+    private static final String INDEX_FILE = ".jmi-sources.properties";
+
+    private static Logger aLog = Logger.getLogger(DialectSourceGenerator.class);
+
+    private final File destDir;
+
+    private int generated;
+
+    private int skipped;
+
+    /**
+     * @return the directory configured by {@link #PROPERTY}, null if the
+     *     generation is not enabled
+     */
+    public static File getConfiguredDirectory()
+    {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.length() == 0 || value.equalsIgnoreCase("false"))
+            return null;
+        if (value.equalsIgnoreCase("true"))
+            return new File(DEFAULT_DIRECTORY);
+        return new File(value);
+    }
+
+    public DialectSourceGenerator(File destDir)
+    {
+        this.destDir = destDir;
+    }
+
+    public File getDestDir()
+    {
+        return destDir;
+    }
+
+    /**
+     * @return the number of elements whose sources the last
+     *     {@link #generate} wrote
+     */
+    public int getGenerated()
+    {
+        return generated;
+    }
+
+    /**
+     * @return the number of unchanged elements the last {@link #generate}
+     *     skipped
+     */
+    public int getSkipped()
+    {
+        return skipped;
+    }
+
+    /**
+     * generates the sources of the packages in the dialect instance
+     * extent <code>mySecureModelPackage</code> and of their classes and
+     * associations.
+     */
+    public void generate(RefPackage mySecureModelPackage) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        if (!destDir.isDirectory() && !destDir.mkdirs())
+            throw new IOException("could not create " + destDir);
+
+        List<RefObject> units = new ArrayList<RefObject>();
+        List<Tag> tags = new ArrayList<Tag>();
+        for (RefPackage packa : (Collection<RefPackage>) mySecureModelPackage.refAllPackages())
+        {
+            units.add(packa.refMetaObject());
+            for (Object content : ((MofPackage) packa.refMetaObject()).getContents())
+            {
+                if (content instanceof Tag)
+                    tags.add((Tag) content);
+            }
+            for (RefClass cl : (Collection<RefClass>) packa.refAllClasses())
+            {
+                units.add(cl.refMetaObject());
+            }
+            for (RefAssociation ass : (Collection<RefAssociation>) packa.refAllAssociations())
+            {
+                units.add(ass.refMetaObject());
+            }
+        }
+
+        // tags, e.g. the java package prefix, change the sources of all elements
+        MetamodelDigest tagDigest = new MetamodelDigest();
+        String[] tagHashes = new String[tags.size() + 1];
+        tagHashes[0] = SecureUmlConstants.MODULE_VERSION;
+        for (int i = 0; i < tags.size(); i++)
+        {
+            tagHashes[i + 1] = tagDigest.computeElement(tags.get(i));
+        }
+        final String tagsHash = ModelDigest.digestStrings(tagHashes);
+
+        final Properties oldIndex = loadIndex();
+        final Properties newIndex = new Properties();
+
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (final RefObject unit : units)
+        {
+            tasks.add(new Callable<Boolean>()
+            {
+                public Boolean call() throws IOException
+                {
+                    return Boolean.valueOf(generateUnit(unit, tagsHash, oldIndex, newIndex));
+                }
+            });
+        }
+
+        generated = 0;
+        skipped = 0;
+        ExecutorService executor = createExecutor();
+        try
+        {
+            for (Future<Boolean> result : executor.invokeAll(tasks))
+            {
+                if (result.get().booleanValue())
+                    generated++;
+                else
+                    skipped++;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while generating sources");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException("error at generating sources: " + cause);
+        }
+        finally
+        {
+            executor.shutdown();
+            // keep what was generated, also if an element failed
+            saveIndex(newIndex);
+        }
+
+        aLog.info("generated the sources of " + generated + " metamodel elements to "
+                  + destDir.getAbsolutePath() + ", " + skipped + " unchanged, in "
+                  + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @return true, if the sources of <code>unit</code> were written,
+     *     false if they are up to date
+     */
+    private boolean generateUnit(RefObject unit, String tagsHash,
+                                 Properties oldIndex, Properties newIndex)
+    throws IOException
+    {
+        String name = getQualifiedName(unit);
+        String hash = ModelDigest.digestStrings(
+            tagsHash, new MetamodelDigest().computeElement(unit));
+
+        String entry = oldIndex.getProperty(name);
+        if (entry != null && isUpToDate(entry, hash))
+        {
+            synchronized (newIndex)
+            {
+                newIndex.setProperty(name, entry);
+            }
+            return false;
+        }
+
+        if (aLog.isDebugEnabled())
+            aLog.debug("Generate " + name);
+
+        BufferingStreamFactory streams = new BufferingStreamFactory();
+        new JMIMapperImpl().generate(streams, unit);
+
+        StringBuilder newEntry = new StringBuilder(hash);
+        for (Map.Entry<String, ByteArrayOutputStream> file : streams.files.entrySet())
+        {
+            write(new File(destDir, file.getKey()), file.getValue().toByteArray());
+            newEntry.append(' ').append(file.getKey());
+        }
+        synchronized (newIndex)
+        {
+            newIndex.setProperty(name, newEntry.toString());
+        }
+        return true;
+    }
+
+    /**
+     * @param entry the hash and the files of an element at the last run
+     */
+    private boolean isUpToDate(String entry, String hash)
+    {
+        String[] parts = entry.split(" ");
+        if (!parts[0].equals(hash))
+            return false;
+        for (int i = 1; i < parts.length; i++)
+        {
+            if (!new File(destDir, parts[i]).isFile())
+                return false;
+        }
+        return true;
+    }
+
+    private static void write(File file, byte[] content) throws IOException
+    {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("could not create " + dir);
+
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private Properties loadIndex()
+    {
+        Properties index = new Properties();
+        File file = new File(destDir, INDEX_FILE);
+        if (!file.isFile())
+            return index;
+        try
+        {
+            InputStream in = new FileInputStream(file);
+            try
+            {
+                index.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // all sources are generated again
+            aLog.warn("could not read " + file + ": " + e);
+            index.clear();
+        }
+        return index;
+    }
+
+    private void saveIndex(Properties index) throws IOException
+    {
+        File file = new File(destDir, INDEX_FILE);
+        File temp = File.createTempFile(INDEX_FILE, ".tmp", destDir);
+        try
+        {
+            OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                index.store(out, "SecureUML generated JMI sources");
+            }
+            finally
+            {
+                out.close();
+            }
+
+            if (!temp.renameTo(file))
+            {
+                // renaming onto an existing file fails on some platforms
+                file.delete();
+                if (!temp.renameTo(file))
+                    throw new IOException("could not rename " + temp + " to " + file);
+            }
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+
+    private static ExecutorService createExecutor()
+    {
+        return Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+        {
+            private int threads = 0;
+
+            public synchronized Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "jmi-source-generation-" + ++threads);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static String getQualifiedName(RefObject element)
+    {
+        StringBuilder name = new StringBuilder();
+        for (Iterator it = ((ModelElement) element).getQualifiedName().iterator(); it.hasNext();)
+        {
+            name.append(it.next());
+            if (it.hasNext())
+                name.append('.');
+        }
+        return name.toString();
+    }
+
+    /**
+     * identifies metamodel elements by their qualified name, as their
+     * MOF ids change whenever the dialect is read.
+     */
+    private static class MetamodelDigest extends ModelDigest
+    {
+        protected String identify(Object element)
+        {
+            if (element instanceof ModelElement)
+                return getQualifiedName((RefObject) element);
+            return super.identify(element);
+        }
+    }
+
+    /**
+     * keeps the sources of one element in memory, by path relative to
+     * the target directory.
+     */
+    private static class BufferingStreamFactory extends JMIStreamFactory
+    {
+        private final Map<String, ByteArrayOutputStream> files =
+            new LinkedHashMap<String, ByteArrayOutputStream>();
+
+        public OutputStream createStream(List packageName, String className,
+                                         String extension)
+        {
+            StringBuilder path = new StringBuilder();
+            for (Object part : packageName)
+            {
+                path.append(part).append('/');
+            }
+            path.append(className).append('.').append(extension);
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(4096);
+            files.put(path.toString(), stream);
+            return stream;
+        }
+    }
+}
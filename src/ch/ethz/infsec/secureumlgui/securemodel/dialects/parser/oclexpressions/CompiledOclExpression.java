@@ -0,0 +1,185 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An {@link OclExpression} compiled into a tree of evaluation steps (see
+ * {@link OclExpressionEvaluator#compile(OclExpression)}).
+ *
+ * The steps are bound once, at compile time: property names are trimmed,
+ * literals evaluated, set operators and the type of each condition
+ * resolved. A compiled expression holds no state of an evaluation - it
+ * gets the evaluator as parameter - so it can be shared by all evaluators
+ * with the same compilation key.
+ *
+ * The intermediate results of the steps are kept in two buffers per
+ * expression and thread, which are reused by the following evaluations.
+ */
+public class CompiledOclExpression
+{
+    /** a compiled path step */
+    public interface Step
+    {
+        /**
+         * add the result of the step, taken from
+         * <code>startPoints</code>, to <code>result</code>.
+         */
+        void evaluate(OclExpressionEvaluator evaluator,
+                      Set startPoints, Set result)
+        throws OclEvaluatorException;
+    }
+
+    /** a compiled selection condition */
+    public interface Condition
+    {
+        boolean evaluate(OclExpressionEvaluator evaluator, Object startPoint)
+        throws OclEvaluatorException;
+    }
+
+    /** a compiled part of an equation */
+    public interface Operand
+    {
+        Object evaluate(OclExpressionEvaluator evaluator, Object startPoint)
+        throws OclEvaluatorException;
+    }
+
+    /** the result buffers of one thread */
+    private static class Buffers
+    {
+        Set first = new LinkedHashSet();
+        Set second = new LinkedHashSet();
+        boolean inUse = false;
+
+        void clear()
+        {
+            first.clear();
+            second.clear();
+        }
+    }
+
+    private final Step[] steps;
+
+    /** the expressions used by the steps (conditions, set operations) */
+    private final CompiledOclExpression[] subexpressions;
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>()
+    {
+        @Override
+        protected Buffers initialValue()
+        {
+            return new Buffers();
+        }
+    };
+
+    public CompiledOclExpression(List<Step> steps,
+                                 List<CompiledOclExpression> subexpressions)
+    {
+        this.steps = steps.toArray(new Step[steps.size()]);
+        this.subexpressions = subexpressions.toArray(
+                                  new CompiledOclExpression[subexpressions.size()]);
+    }
+
+    /**
+     * @return the result of the expression, evaluated from
+     *     <code>startPoint</code>, in a newly created Set
+     */
+    public Set evaluate(OclExpressionEvaluator evaluator, Object startPoint)
+    throws OclEvaluatorException
+    {
+        try
+        {
+            return new LinkedHashSet(evaluateShared(evaluator, startPoint));
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * @return the result of the expression, evaluated from
+     *     <code>startPoint</code>. The Set is a buffer of this
+     *     expression: it must not be modified and is only valid until
+     *     the next evaluation of this expression in the same thread.
+     */
+    public Set evaluateShared(OclExpressionEvaluator evaluator,
+                              Object startPoint)
+    throws OclEvaluatorException
+    {
+        Buffers b = buffers.get();
+
+        Set startPoints;
+        Set result;
+        boolean reentered = b.inUse;
+        if (reentered)
+        {
+            // e.g. an anchor evaluated while evaluating an anchor of the
+            // same resource type
+            startPoints = new LinkedHashSet();
+            result = new LinkedHashSet();
+        }
+        else
+        {
+            startPoints = b.first;
+            result = b.second;
+            b.inUse = true;
+        }
+
+        try
+        {
+            startPoints.clear();
+            startPoints.add(startPoint);
+            result.clear();
+
+            for (int i = 0; i < steps.length; i++)
+            {
+                result.clear();
+                steps[i].evaluate(evaluator, startPoints, result);
+
+                Set swap = startPoints;
+                startPoints = result;
+                result = swap;
+            }
+
+            if (steps.length == 0)
+                // as the interpreter: no steps, no result
+                startPoints.clear();
+
+            return startPoints;
+        }
+        finally
+        {
+            if (!reentered)
+                b.inUse = false;
+        }
+    }
+
+    /**
+     * drop the references to the results of the last evaluation in this
+     * thread.
+     */
+    private void release()
+    {
+        Buffers b = buffers.get();
+        if (!b.inUse)
+            b.clear();
+
+        for (int i = 0; i < subexpressions.length; i++)
+            subexpressions[i].release();
+    }
+
+    /** add <code>value</code>, or all its elements, to <code>result</code> */
+    static void addValue(Set result, Object value)
+    {
+        if (value instanceof Collection)
+            result.addAll((Collection) value);
+        else if (value != null)
+            result.add(value);
+    }
+}
@@ -4,6 +4,7 @@
 package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.ArrayList;
 
@@ -22,9 +23,14 @@ public class OclExpression extends ExpressionFragment
 
     private ArrayList<PathStep> steps = new ArrayList<PathStep>();
 
+    /**
+     * @return the steps of the expression (read-only, parsed expressions
+     *     are shared, see {@link
+     *     ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo#getAnchorExpression})
+     */
     public Collection<PathStep> getSteps()
     {
-        return steps;
+        return Collections.unmodifiableList(steps);
     }
 
 //  public void setSteps(Collection<PathStep> steps)
@@ -3,14 +3,25 @@
  */
 package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
 
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import ch.ethz.infsec.secureumlgui.Util;
 import ch.ethz.infsec.secureumlgui.logging.LoggerContext;
 import ch.ethz.infsec.secureumlgui.logging.MultiContextLogger;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics;
+import ch.ethz.infsec.secureumlgui.modelmapping.counters.MappingMetrics.Phase;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.MappingEvents;
+import ch.ethz.infsec.secureumlgui.modelmapping.events.EventHandle;
+import ch.ethz.infsec.secureumlgui.util.PropertyAccessors;
 
 /**
  *
@@ -23,7 +34,7 @@ public class OclExpressionEvaluator
         Object self)
     {
         this.oclExpression = oclExpression;
-        this.initialStartPoint = initialStartPoint;
+        this.initialStartPoint = startPoint;
         this.self = self;
 
         logger.disableLoggerContext(OCL_EXPRESSION_EVALUATOR_DETAILLED);
@@ -63,12 +74,593 @@ public class OclExpressionEvaluator
 
     MultiContextLogger logger = new MultiContextLogger(OCL_EXPRESSION_EVALUATOR);
 
+    /** if true, expressions are compiled before they are evaluated */
+    private static volatile boolean compilationEnabled = true;
+
+    /** OclExpression -> (compilation key -> compiled expression) */
+    private static Map<OclExpression, Map<Object, CompiledOclExpression>>
+    compiledExpressions =
+        new WeakHashMap<OclExpression, Map<Object, CompiledOclExpression>>();
+
+    /**
+     * @return true, if {@link #evaluateExpression()} evaluates the
+     *     compiled expression, false if it interprets the steps
+     */
+    public static boolean isCompilationEnabled()
+    {
+        return compilationEnabled;
+    }
+
+    public static void setCompilationEnabled(boolean compilationEnabled)
+    {
+        OclExpressionEvaluator.compilationEnabled = compilationEnabled;
+    }
+
     public Set evaluateExpression()
     throws OclEvaluatorException
     {
-        return evaluateExpression(oclExpression, initialStartPoint, self);
+        long start = MappingMetrics.start();
+        EventHandle event =
+            MappingEvents.beginOclEvaluation(oclExpression, initialStartPoint);
+        Set result = null;
+        try
+        {
+            if (compilationEnabled && oclExpression != null)
+                result = getCompiledExpression(oclExpression)
+                         .evaluate(this, initialStartPoint);
+            else
+                result = evaluateExpression(oclExpression, initialStartPoint, self);
+            return result;
+        }
+        finally
+        {
+            MappingMetrics.stop(Phase.OCL_EVALUATION, start);
+            MappingEvents.end(event, result == null ? 0 : result.size());
+        }
+    }
+
+    protected Object getSelf()
+    {
+        return self;
+    }
+
+    /* compilation */
+
+    /**
+     * @return the compiled expression, compiled once for all evaluators
+     *     with the same {@link #getCompilationKey()}
+     */
+    protected CompiledOclExpression getCompiledExpression(
+        OclExpression expression)
+    {
+        synchronized (compiledExpressions)
+        {
+            Map<Object, CompiledOclExpression> compiled =
+                compiledExpressions.get(expression);
+            if (compiled == null)
+            {
+                compiled = new HashMap<Object, CompiledOclExpression>();
+                compiledExpressions.put(expression, compiled);
+            }
+
+            Object key = getCompilationKey();
+            CompiledOclExpression result = compiled.get(key);
+            if (result == null)
+            {
+                result = compile(expression);
+                compiled.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return the key of the compiled expressions which can be used by
+     *     this evaluator. Subclasses which compile the steps depending on
+     *     their state have to include it in the key.
+     */
+    protected Object getCompilationKey()
+    {
+        return getClass();
+    }
+
+    public CompiledOclExpression compile(OclExpression expression)
+    {
+        List<CompiledOclExpression.Step> steps =
+            new ArrayList<CompiledOclExpression.Step>();
+        List<CompiledOclExpression> subexpressions =
+            new ArrayList<CompiledOclExpression>();
+
+        for (PathStep step : expression.getSteps())
+        {
+            steps.add(compileStep(step, subexpressions));
+        }
+        return new CompiledOclExpression(steps, subexpressions);
     }
 
+    protected CompiledOclExpression.Step compileStep(
+        PathStep step, List<CompiledOclExpression> subexpressions)
+    {
+        if(step instanceof Self)
+        {
+            return SELF_STEP;
+        }
+        else if (step instanceof PropertyAccessStep)
+        {
+            return compilePropertyAccessStep((PropertyAccessStep) step);
+        }
+        else if (step instanceof SelectionStep)
+        {
+            return selectionStep(compileCondition(
+                                     ((SelectionStep) step).getCondition(),
+                                     subexpressions));
+        }
+        else if (step instanceof SetOperationStep)
+        {
+            SetOperationStep setOperationStep = (SetOperationStep) step;
+
+            CompiledOclExpression expression =
+                compile(setOperationStep.getExpression());
+            subexpressions.add(expression);
+
+            return setOperationStep(setOperationStep.getOperation(),
+                                    expression);
+        }
+        else
+            return EMPTY_STEP;
+    }
+
+    protected CompiledOclExpression.Step compilePropertyAccessStep(
+        PropertyAccessStep paStep)
+    {
+        String propertyName = paStep.getPropertyName();
+        propertyName = removeHeadingWhitespace(propertyName);
+        propertyName = removeTrailingWhitespace(propertyName);
+
+        if(propertyName == null
+                || propertyName.length() == 0)
+        {
+            logger.warn(
+                "propertyAccessStep with empty " +
+                "propertyName, ignoring...");
+            return IDENTITY_STEP;
+        }
+        return propertyAccessStep(propertyName,
+                                  paStep.getPropertyName());
+    }
+
+    protected CompiledOclExpression.Condition compileCondition(
+        ExpressionFragment condition,
+        List<CompiledOclExpression> subexpressions)
+    {
+        if (condition instanceof Equation)
+        {
+            Equation equation = (Equation) condition;
+
+            return equationCondition(
+                       compileOperand(equation.getLeftPart(), "left",
+                                      equation, subexpressions),
+                       compileOperand(equation.getRightPart(), "right",
+                                      equation, subexpressions),
+                       equation.isEqual());
+        }
+        else if (condition instanceof BooleanLiteral)
+        {
+            return constantCondition(((BooleanLiteral) condition).getValue());
+        }
+        else if (condition instanceof OclExpression)
+        {
+            CompiledOclExpression expression =
+                compile((OclExpression) condition);
+            subexpressions.add(expression);
+
+            return expressionCondition(expression);
+        }
+        else if (condition instanceof ConjunctiveBooleanExpression
+                 || condition instanceof DisjunctiveBooleanExpression)
+        {
+            BooleanExpression booleanExpression =
+                (BooleanExpression) condition;
+            boolean conjunctive =
+                condition instanceof ConjunctiveBooleanExpression;
+
+            Collection<ExpressionFragment> terms = conjunctive
+                                                   ? ((ConjunctiveBooleanExpression) condition).getTerms()
+                                                   : ((DisjunctiveBooleanExpression) condition).getTerms();
+
+            CompiledOclExpression.Condition[] compiledTerms =
+                new CompiledOclExpression.Condition[terms.size()];
+            int i = 0;
+            for (ExpressionFragment term : terms)
+            {
+                compiledTerms[i++] = compileCondition(term, subexpressions);
+            }
+            return booleanCondition(compiledTerms, conjunctive,
+                                    booleanExpression.isNegated());
+        }
+        else
+            return failingCondition(
+                       "Selection Condition has invalid type: "
+                       + condition);
+    }
+
+    protected CompiledOclExpression.Operand compileOperand(
+        ExpressionFragment part, String side, Equation equation,
+        List<CompiledOclExpression> subexpressions)
+    {
+        if (part instanceof Literal)
+        {
+            try
+            {
+                return constantOperand(evaluateLiteral((Literal) part));
+            }
+            catch (OclEvaluatorException e)
+            {
+                return failingOperand(e.getMessage());
+            }
+        }
+        else if (part instanceof OclExpression)
+        {
+            CompiledOclExpression expression =
+                compile((OclExpression) part);
+            subexpressions.add(expression);
+
+            return expressionOperand(expression,
+                                     side + " part of the equation does not "
+                                     + "evaluate to a literal: " + equation);
+        }
+        else
+            return failingOperand(side + " part of the equation is no "
+                                  + "OCL-Expression: " + equation);
+    }
+
+    /*
+     * The compiled steps are created in static methods, so that they do
+     * not refer to the evaluator which compiled them.
+     */
+
+    private static final CompiledOclExpression.Step SELF_STEP =
+        new CompiledOclExpression.Step()
+    {
+        public void evaluate(OclExpressionEvaluator evaluator,
+                             Set startPoints, Set result)
+        {
+            result.add(evaluator.getSelf());
+        }
+    };
+
+    private static final CompiledOclExpression.Step IDENTITY_STEP =
+        new CompiledOclExpression.Step()
+    {
+        public void evaluate(OclExpressionEvaluator evaluator,
+                             Set startPoints, Set result)
+        {
+            result.addAll(startPoints);
+        }
+    };
+
+    private static final CompiledOclExpression.Step EMPTY_STEP =
+        new CompiledOclExpression.Step()
+    {
+        public void evaluate(OclExpressionEvaluator evaluator,
+                             Set startPoints, Set result)
+        {
+        }
+    };
+
+    /** the getter of a property on one class */
+    static class Accessor
+    {
+        final Class type;
+        final MethodHandle getter;
+
+        Accessor(Class type, MethodHandle getter)
+        {
+            this.type = type;
+            this.getter = getter;
+        }
+
+        /**
+         * @return the accessor of <code>propertyName</code> on the class
+         *     of <code>o</code>, <code>this</code> if it is the same class
+         */
+        Accessor forObject(Object o, String propertyName)
+        {
+            if (o.getClass() == type)
+                return this;
+
+            return new Accessor(o.getClass(),
+                                PropertyAccessors.getGetterHandle(o.getClass(),
+                                        propertyName));
+        }
+    }
+
+    static final Accessor NO_ACCESSOR = new Accessor(null, null);
+
+    private static CompiledOclExpression.Step propertyAccessStep(
+        final String propertyName, final String stepName)
+    {
+        return new CompiledOclExpression.Step()
+        {
+            /** the getter used for the last start point */
+            private volatile Accessor accessor = NO_ACCESSOR;
+
+            public void evaluate(OclExpressionEvaluator evaluator,
+                                 Set startPoints, Set result)
+            {
+                for (Iterator iter = startPoints.iterator(); iter.hasNext();)
+                {
+                    Object startPoint = iter.next();
+
+                    Object value = null;
+                    if (startPoint != null)
+                    {
+                        Accessor a = accessor.forObject(startPoint,
+                                                        propertyName);
+                        accessor = a;
+
+                        if (a.getter != null)
+                        {
+                            try
+                            {
+                                value = PropertyAccessors.invoke(a.getter, startPoint);
+                            }
+                            catch (Exception e)
+                            {
+                                evaluator.logger.error(
+                                    OCL_EXPRESSION_EVALUATOR_DETAILLED,
+                                    "accessing Property " + stepName
+                                    + " on Object of Type: "
+                                    + startPoint.getClass().getSimpleName()
+                                    + " failed");
+                                continue;
+                            }
+                        }
+                    }
+
+                    if (value != null)
+                    {
+                        CompiledOclExpression.addValue(result, value);
+                    }
+                    else if (!evaluator.logger.isLoggerContextDisabled(
+                                 OCL_EXPRESSION_EVALUATOR_DETAILLED))
+                    {
+                        evaluator.logger.warn(
+                            OCL_EXPRESSION_EVALUATOR_DETAILLED,
+                            "accessing Property " + stepName
+                            + " on Object " + startPoint
+                            + " returned null");
+                    }
+                }
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Step selectionStep(
+        final CompiledOclExpression.Condition condition)
+    {
+        return new CompiledOclExpression.Step()
+        {
+            public void evaluate(OclExpressionEvaluator evaluator,
+                                 Set startPoints, Set result)
+            {
+                for (Iterator iter = startPoints.iterator(); iter.hasNext();)
+                {
+                    Object startPoint = iter.next();
+                    try
+                    {
+                        if (condition.evaluate(evaluator, startPoint))
+                            result.add(startPoint);
+                    }
+                    catch (Exception e)
+                    {
+                        evaluator.logger.logException(e);
+                    }
+                }
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Step setOperationStep(
+        String operation, final CompiledOclExpression expression)
+    {
+        final int operator;
+        if (SET_OPERATOR_UNION.equals(operation))
+            operator = 1;
+        else if (SET_OPERATOR_INTERSECT.equals(operation))
+            operator = 2;
+        else if (SET_OPERATOR_MINUS.equals(operation))
+            operator = 3;
+        else
+            operator = 0;
+
+        return new CompiledOclExpression.Step()
+        {
+            public void evaluate(OclExpressionEvaluator evaluator,
+                                 Set startPoints, Set result)
+            throws OclEvaluatorException
+            {
+                result.addAll(startPoints);
+
+                Set expressionResult = expression.evaluateShared(
+                                           evaluator, evaluator.getSelf());
+
+                switch (operator)
+                {
+                case 1:
+                    result.addAll(expressionResult);
+                    break;
+                case 2:
+                    result.retainAll(expressionResult);
+                    break;
+                case 3:
+                    result.removeAll(expressionResult);
+                    break;
+                default:
+                }
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Condition equationCondition(
+        final CompiledOclExpression.Operand left,
+        final CompiledOclExpression.Operand right,
+        final boolean isEqual)
+    {
+        return new CompiledOclExpression.Condition()
+        {
+            public boolean evaluate(OclExpressionEvaluator evaluator,
+                                    Object startPoint)
+            throws OclEvaluatorException
+            {
+                Object leftValue = left.evaluate(evaluator, startPoint);
+                Object rightValue = right.evaluate(evaluator, startPoint);
+
+                if (isEqual)
+                    return leftValue.equals(rightValue);
+                else
+                    return !leftValue.equals(rightValue);
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Condition constantCondition(
+        final boolean value)
+    {
+        return new CompiledOclExpression.Condition()
+        {
+            public boolean evaluate(OclExpressionEvaluator evaluator,
+                                    Object startPoint)
+            {
+                return value;
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Condition expressionCondition(
+        final CompiledOclExpression expression)
+    {
+        return new CompiledOclExpression.Condition()
+        {
+            public boolean evaluate(OclExpressionEvaluator evaluator,
+                                    Object startPoint)
+            throws OclEvaluatorException
+            {
+                Set result = expression.evaluateShared(evaluator, startPoint);
+                if(result.size() == 1)
+                {
+                    Object item = result.iterator().next();
+                    if(item.equals(true))
+                        return true;
+                    else if(item.equals(false))
+                        return false;
+                    else
+                        throw new OclEvaluatorException(
+                            "condition OCL-Expression " +
+                            "does not evaluate to a boolean: "
+                            + item);
+                }
+                else if(result.size() == 0)
+                    throw new OclEvaluatorException(
+                        "condition OCL-Expression " +
+                        "evaluation returned no result object: "
+                        + result.size());
+                else
+                    throw new OclEvaluatorException(
+                        "condition OCL-Expression " +
+                        "evaluation returned more than one result object: "
+                        + result.size());
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Condition booleanCondition(
+        final CompiledOclExpression.Condition[] terms,
+        final boolean conjunctive,
+        final boolean negated)
+    {
+        return new CompiledOclExpression.Condition()
+        {
+            public boolean evaluate(OclExpressionEvaluator evaluator,
+                                    Object startPoint)
+            throws OclEvaluatorException
+            {
+                for (int i = 0; i < terms.length; i++)
+                {
+                    boolean termValue = terms[i].evaluate(evaluator, startPoint);
+
+                    if (termValue != conjunctive)
+                        // AND: one term false -> false,
+                        // OR: one term true -> true
+                        return termValue != negated;
+                }
+                // all terms are true (AND) or false (OR)
+                return conjunctive != negated;
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Condition failingCondition(
+        final String message)
+    {
+        return new CompiledOclExpression.Condition()
+        {
+            public boolean evaluate(OclExpressionEvaluator evaluator,
+                                    Object startPoint)
+            throws OclEvaluatorException
+            {
+                throw new OclEvaluatorException(message);
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Operand constantOperand(
+        final Object value)
+    {
+        return new CompiledOclExpression.Operand()
+        {
+            public Object evaluate(OclExpressionEvaluator evaluator,
+                                   Object startPoint)
+            {
+                return value;
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Operand expressionOperand(
+        final CompiledOclExpression expression, final String message)
+    {
+        return new CompiledOclExpression.Operand()
+        {
+            public Object evaluate(OclExpressionEvaluator evaluator,
+                                   Object startPoint)
+            throws OclEvaluatorException
+            {
+                Set result = expression.evaluateShared(evaluator, startPoint);
+                if(result.size() == 1)
+                    return result.iterator().next();
+                else
+                    throw new OclEvaluatorException(message);
+            }
+        };
+    }
+
+    private static CompiledOclExpression.Operand failingOperand(
+        final String message)
+    {
+        return new CompiledOclExpression.Operand()
+        {
+            public Object evaluate(OclExpressionEvaluator evaluator,
+                                   Object startPoint)
+            throws OclEvaluatorException
+            {
+                throw new OclEvaluatorException(message);
+            }
+        };
+    }
+
+    /* interpretation */
+
     protected Set evaluateExpression(
         OclExpression p, Object startPoint, Object self)
     throws OclEvaluatorException
@@ -43,6 +43,24 @@ public class OclExpressionsParser
 
     MultiContextLogger logger = MultiContextLogger.getDefault();
 
+    /** number of syntax errors found by this parser */
+    private int errorCount = 0;
+
+    /**
+     * @return the number of syntax errors found by this parser
+     *     since it was created
+     */
+    public int getErrorCount()
+    {
+        return errorCount;
+    }
+
+    private void reportError(String message)
+    {
+        errorCount++;
+        logger.error(message);
+    }
+
 //  public Collection<Path> parsePathList(String s)
 //  {
 //    LinkedList<Path> paths = new LinkedList<Path>();
@@ -100,7 +118,7 @@ public class OclExpressionsParser
             }
             else
             {
-                logger.error("invalid path String: '"
+                reportError("invalid path String: '"
                              + s + "'");
                 break;
             }
@@ -121,7 +139,7 @@ public class OclExpressionsParser
                         // case of the last step in expression
                         stepEnd = rest.length();
                     else
-                        logger.error("invalid rest of expression: " + s);
+                        reportError("invalid rest of expression: " + s);
                 }
 
                 String stepString = rest.substring(0, stepEnd);
@@ -211,7 +229,7 @@ public class OclExpressionsParser
 
             if(paranthesesIndex == -1)
             {
-                logger.error("invalid rest of expression: " + s);
+                reportError("invalid rest of expression: " + s);
             }
             else
                 startIndex = paranthesesIndex;
@@ -313,7 +331,7 @@ public class OclExpressionsParser
             }
             else
             {
-                logger.error("invalid Set Operator: " + operatorName);
+                reportError("invalid Set Operator: " + operatorName);
             }
 
             return step;
@@ -469,7 +487,7 @@ public class OclExpressionsParser
                 isEqual = false;
             else
             {
-                logger.error("invalid selection Condition Equation: "
+                reportError("invalid selection Condition Equation: "
                              + " comparatorSign is: " + comparatorSign);
             }
 
@@ -480,7 +498,7 @@ public class OclExpressionsParser
         }
         else
         {
-            logger.error("invalid PathSelector Condition: "
+            reportError("invalid PathSelector Condition: "
                          + conditionString);
 //      throw new OclParserException(
 //          "invalid PathSelector Condition: "
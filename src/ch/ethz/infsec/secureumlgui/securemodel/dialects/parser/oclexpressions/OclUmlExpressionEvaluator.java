@@ -3,14 +3,18 @@
  */
 package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.omg.uml.foundation.core.AssociationEnd;
 import org.omg.uml.foundation.core.ModelElement;
@@ -21,6 +25,7 @@ import ch.ethz.infsec.secureumlgui.modelmapping.GenericDialectHelper;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.DialectMetaModelInfo;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.InterResourceAssociation;
 import ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel.MetaModelClass;
+import ch.ethz.infsec.secureumlgui.util.PropertyAccessors;
 
 /**
  *  Evaluate an OCL Expression
@@ -212,7 +217,7 @@ public class OclUmlExpressionEvaluator extends OclExpressionEvaluator
 
             // uptdate ResourcePaths
 
-            for (Iterator iterator = iterationResults.iterator(); iter.hasNext();)
+            for (Iterator iterator = iterationResults.iterator(); iterator.hasNext();)
             {
                 Object item = iterator.next();
 
@@ -229,6 +234,197 @@ public class OclUmlExpressionEvaluator extends OclExpressionEvaluator
         }
     }
 
+    /* compilation */
+
+    /**
+     * the compiled property access steps depend on the dialect, but not
+     * on the start point.
+     */
+    @Override
+    protected Object getCompilationKey()
+    {
+        return Arrays.asList(new Object[] {getClass(), dialectMetaModelInfo});
+    }
+
+    @Override
+    protected CompiledOclExpression.Step compilePropertyAccessStep(
+        PropertyAccessStep paStep)
+    {
+        String propertyName = paStep.getPropertyName();
+        propertyName = removeHeadingWhitespace(propertyName);
+        propertyName = removeTrailingWhitespace(propertyName);
+
+        return umlPropertyAccessStep(propertyName, paStep.getPropertyName());
+    }
+
+    /** marker for "the metamodel class has no associations" */
+    private static final List<ch.ethz.infsec.secureumlgui.securemodel.
+    dialects.metamodel.AssociationEnd> NO_ASSOCIATIONS =
+        Collections.unmodifiableList(new ArrayList<ch.ethz.infsec.
+                                     secureumlgui.securemodel.dialects.metamodel.AssociationEnd>());
+
+    /**
+     * compiled version of {@link #takePropertyAccessStep}: the association
+     * ends named like the step are looked up once per metamodel class.
+     */
+    private static CompiledOclExpression.Step umlPropertyAccessStep(
+        final String propertyName, final String stepName)
+    {
+        return new CompiledOclExpression.Step()
+        {
+            /** metamodel class -> association ends named stepName */
+            private final Map<MetaModelClass, List<ch.ethz.infsec.secureumlgui.
+            securemodel.dialects.metamodel.AssociationEnd>> endsByClass =
+                new ConcurrentHashMap<MetaModelClass, List<ch.ethz.infsec.
+                secureumlgui.securemodel.dialects.metamodel.AssociationEnd>>();
+
+            /** the getter used for the last attribute access */
+            private volatile Accessor attributeAccessor = NO_ACCESSOR;
+
+            public void evaluate(OclExpressionEvaluator evaluator,
+                                 Set startPoints, Set result)
+            {
+                OclUmlExpressionEvaluator umlEvaluator =
+                    (OclUmlExpressionEvaluator) evaluator;
+
+                for (Iterator iter = startPoints.iterator(); iter.hasNext();)
+                {
+                    ModelElement startPoint = (ModelElement) iter.next();
+
+                    List<Object> iterationResults = new ArrayList<Object>();
+
+                    String resourcePathSoFar =
+                        umlEvaluator.resourcePaths.get(startPoint);
+
+                    List<ch.ethz.infsec.secureumlgui.securemodel.dialects.
+                    metamodel.AssociationEnd> ends = getEnds(umlEvaluator);
+
+                    if (ends == NO_ASSOCIATIONS)
+                        return;
+
+                    for (ch.ethz.infsec.secureumlgui.securemodel.dialects.
+                            metamodel.AssociationEnd end : ends)
+                    {
+                        try
+                        {
+                            Collection res = umlEvaluator.takePathStep(
+                                                 startPoint, propertyName, end, null);
+                            if(res==null) {
+                                umlEvaluator.logger.error("takePathStep failed.");
+                            } else {
+                                iterationResults.addAll(res);
+                            }
+                        }
+                        catch (Exception e)
+                        {
+                            umlEvaluator.logger.error("accessing Property "
+                                                      + stepName
+                                                      + " on Object of Type: "
+                                                      + startPoint.getClass().getSimpleName()
+                                                      + " failed");
+
+                            umlEvaluator.logger.logException(e);
+                        }
+                    }
+                    if (iterationResults.size() == 0)
+                        // not a defined association, but maybe an attribute
+                    {
+                        Accessor a = attributeAccessor.forObject(startPoint,
+                                     stepName);
+                        attributeAccessor = a;
+
+                        if (a.getter != null)
+                        {
+                            try
+                            {
+                                Object o = PropertyAccessors.invoke(a.getter, startPoint);
+
+                                if (o instanceof Collection)
+                                    iterationResults.addAll((Collection) o);
+                                else if (o != null)
+                                    iterationResults.add(o);
+                            }
+                            catch (Exception e)
+                            {
+                                // as Util.tryGetProperty
+                            }
+                        }
+                    }
+                    if (iterationResults.size() == 0)
+                    {
+                        umlEvaluator.logger.warn(
+                            "accessing Property "
+                            + stepName
+                            + " on Object of Type: "
+                            + startPoint.getClass().getSimpleName()
+                            + " " + startPoint.getName()
+                            + " returned null");
+                    }
+
+                    result.addAll(iterationResults);
+
+                    for (Object item : iterationResults)
+                    {
+                        if (item instanceof ModelElement)
+                        {
+                            ModelElement m = (ModelElement) item;
+
+                            umlEvaluator.resourcePaths.put(
+                                m, resourcePathSoFar + m.getName());
+                        }
+                    }
+                }
+            }
+
+            /**
+             * @return the association ends of the current metamodel class
+             *     of the evaluator, which are named like the step
+             */
+            private List<ch.ethz.infsec.secureumlgui.securemodel.dialects.
+            metamodel.AssociationEnd> getEnds(OclUmlExpressionEvaluator evaluator)
+            {
+                MetaModelClass mmc = evaluator.metaModelClass;
+                if (mmc == null)
+                    return resolveEnds(evaluator, null);
+
+                List<ch.ethz.infsec.secureumlgui.securemodel.dialects.
+                metamodel.AssociationEnd> ends = endsByClass.get(mmc);
+                if (ends == null)
+                {
+                    ends = resolveEnds(evaluator, mmc);
+                    endsByClass.put(mmc, ends);
+                }
+                return ends;
+            }
+
+            private List<ch.ethz.infsec.secureumlgui.securemodel.dialects.
+            metamodel.AssociationEnd> resolveEnds(
+                OclUmlExpressionEvaluator evaluator, MetaModelClass mmc)
+            {
+                Collection associations = evaluator.dialectMetaModelInfo
+                                          .getInterResourceAssociations(mmc);
+                if (associations == null)
+                    return NO_ASSOCIATIONS;
+
+                List<ch.ethz.infsec.secureumlgui.securemodel.dialects.
+                metamodel.AssociationEnd> ends = new ArrayList<ch.ethz.infsec.
+                secureumlgui.securemodel.dialects.metamodel.AssociationEnd>();
+
+                for (Iterator it = associations.iterator(); it.hasNext();)
+                {
+                    InterResourceAssociation association =
+                        (InterResourceAssociation) it.next();
+
+                    if (stepName.equals(association.getEnd1().getName()))
+                        ends.add(association.getEnd1());
+                    else if (stepName.equals(association.getEnd2().getName()))
+                        ends.add(association.getEnd2());
+                }
+                return ends;
+            }
+        };
+    }
+
     /**
      * @param modelElement
      * @param step
@@ -295,11 +491,12 @@ public class OclUmlExpressionEvaluator extends OclExpressionEvaluator
 ////                + resourcePath;
 //          }
 
-                    logger.info(OCL_EXPRESSION_EVALUATOR_DETAILLED,
-                                "step taken: "
-                                + step
-                                + ", resourcePath so far: "
-                                + getResourcePath());
+                    if(logger.isInfoEnabled(OCL_EXPRESSION_EVALUATOR_DETAILLED))
+                        logger.info(OCL_EXPRESSION_EVALUATOR_DETAILLED,
+                                    "step taken: "
+                                    + step
+                                    + ", resourcePath so far: "
+                                    + getResourcePath());
                     //break;
                 }
             }
@@ -331,51 +528,41 @@ public class OclUmlExpressionEvaluator extends OclExpressionEvaluator
         Object result = null;
         try
         {
-            String methodName = null;
-            Method umlPropertyGetter = null;
+            String methodName = end1.getUmlPropertyGetter();
+            MethodHandle umlPropertyGetter =
+                PropertyAccessors.getMethodHandle(from.getClass(), methodName);
 
-            try
+            if(umlPropertyGetter != null)
             {
-                methodName = end1.getUmlPropertyGetter();
-                umlPropertyGetter = from.getClass().getMethod(methodName,
-                                    new Class[0]);
-                logger.info(//OCL_EXPRESSION_EVALUATOR_DETAILLED,
-                    "found UMLPropertyGetter: "
-                    + from.getName() + "."
-                    + umlPropertyGetter);
                 usedEnd = end1;
             }
-            catch (Exception e1)
+            else
             {
                 logger.error("no method '"
                              + methodName + "' on " + from.getClass());
-                // TODO: handle exception
-                //e.printStackTrace();
-                try
-                {
-                    methodName = end2.getUmlPropertyGetter();
-                    umlPropertyGetter = from.getClass().getMethod(methodName,
-                                        new Class[0]);
-                    logger.info(//OCL_EXPRESSION_EVALUATOR_DETAILLED,
-                        "found UMLPropertyGetter: "
-                        + from.getName() + "."
-                        + umlPropertyGetter);
+
+                methodName = end2.getUmlPropertyGetter();
+                umlPropertyGetter =
+                    PropertyAccessors.getMethodHandle(from.getClass(), methodName);
+
+                if(umlPropertyGetter != null)
                     usedEnd = end2;
-                }
-                catch (Exception e2)
-                {
+                else
                     logger.error("no method '"
                                  + methodName + "' on " + from.getClass());
-                    // TODO: handle exception
-                    //e.printStackTrace();
-                }
             }
 
+            if(umlPropertyGetter != null)
+                logger.info(//OCL_EXPRESSION_EVALUATOR_DETAILLED,
+                    "found UMLPropertyGetter: "
+                    + from.getName() + "."
+                    + methodName);
+
 //      AssociationEnd end;
 //      end.getParticipant();
 
 
-            result = umlPropertyGetter.invoke(from, new Object[0]);
+            result = PropertyAccessors.invoke(umlPropertyGetter, from);
 
             if(usedEnd != null)
             {
@@ -85,6 +85,29 @@ public class ModelMap
         stereotypeMap.clear();
     }
 
+    /**
+     * delete the mappings between UML and SecureUML elements, but keep the
+     * action classes and stereotypes found in the UML model.
+     */
+    public void clearMappings()
+    {
+        map.clear();
+        reverseMap.clear();
+    }
+
+    /**
+     * Removes the mapping of the given UML element, if there is one.
+     * @param umlElement the UML element whose mapping is dropped
+     */
+    public void remove(RefObject umlElement)
+    {
+        Object target = map.remove(umlElement);
+        if (target != null)
+        {
+            reverseMap.remove(target);
+        }
+    }
+
     /**
      * Adds a mapping (src -> target).
      * @param src - the new mapping source
@@ -428,6 +451,18 @@ public class ModelMap
             stereotypeMap.put(stereotype.getName(), stereotype);
     }
 
+    /** forget the stereotype, wherever it is stored under its (old) name. */
+    public void removeStereotype(Stereotype stereotype)
+    {
+        stereotypeMap.values().remove(stereotype);
+    }
+
+    /** forget the action class, wherever it is stored under its (old) name. */
+    public void removeActionClass(Classifier actionClass)
+    {
+        actionMap.values().remove(actionClass);
+    }
+
 
 
 //{
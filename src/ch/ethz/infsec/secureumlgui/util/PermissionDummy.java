@@ -14,6 +14,7 @@ import ch.ethz.infsec.secureumlgui.wrapper.NamedModelElementWrapper;
 import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
 //import ch.ethz.infsec.secureumlgui.securemodelimpl.secureuml.PermissionImpl;
 import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
 
 /**
  * represents the permission association class in a UML model.
@@ -90,8 +91,8 @@ public class PermissionDummy
         for (Iterator iter = permissionAttributes.iterator(); iter.hasNext();) {
             Object permissionAttribute = (Object) iter.next();
 
-            permissionAttributeWrappers.add(new PermissionWrapper(
-                                                permissionAttribute));
+            permissionAttributeWrappers.add(
+                WrapperFactory.getPermissionWrapper(permissionAttribute));
         }
         return permissionAttributeWrappers;
     }
@@ -129,7 +130,7 @@ public class PermissionDummy
     }
 
     public RoleWrapper getRoleWrapper() {
-        return new RoleWrapper(role);
+        return WrapperFactory.getRoleWrapper(role);
     }
 
     public void setRoleWrapper(RoleWrapper roleWrapper) {
@@ -0,0 +1,375 @@
+/**
+ *
+ */
+package ch.ethz.infsec.secureumlgui.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.ethz.infsec.secureumlgui.Util;
+
+/**
+ * Registry of the reflective accessors used by the property helpers in
+ * {@link ch.ethz.infsec.secureumlgui.Util}.
+ *
+ * The public methods of a class are examined once, the accessors are then
+ * looked up by (class, method name). Missing methods are cached as well,
+ * so that asking for a property which does not exist neither repeats the
+ * lookup nor throws an exception.
+ *
+ * The accessors are invoked through {@link MethodHandle}s, adapted once
+ * to the generic types <code>(Object)Object</code> for getters and
+ * parameterless methods and <code>(Object, Object)void</code> for
+ * setters, see {@link #invoke(MethodHandle, Object)} and
+ * {@link #invoke(MethodHandle, Object, Object)}. The {@link Method}s are
+ * available as well, e.g. for their return types.
+ */
+public class PropertyAccessors
+{
+    /** the accessors of one class */
+    private static class ClassAccessors
+    {
+        /** method name -> public method without parameters */
+        final Map<String, Method> parameterless =
+            new ConcurrentHashMap<String, Method>();
+
+        /** "name(ParameterType)" -> public method with one parameter,
+         * or {@link PropertyAccessors#NO_METHOD} */
+        final Map<String, Method> oneParameter =
+            new ConcurrentHashMap<String, Method>();
+
+        /** property name -> getter, or {@link PropertyAccessors#NO_METHOD} */
+        final Map<String, Method> getters =
+            new ConcurrentHashMap<String, Method>();
+
+        /** property name -> setter, or {@link PropertyAccessors#NO_METHOD} */
+        final Map<String, Method> setters =
+            new ConcurrentHashMap<String, Method>();
+
+        /** method name -> handle of the parameterless method, or
+         * {@link PropertyAccessors#NO_HANDLE} */
+        final Map<String, MethodHandle> methodHandles =
+            new ConcurrentHashMap<String, MethodHandle>();
+
+        /** property name -> handle of the getter, or
+         * {@link PropertyAccessors#NO_HANDLE} */
+        final Map<String, MethodHandle> getterHandles =
+            new ConcurrentHashMap<String, MethodHandle>();
+
+        /** property name -> handle of the setter, or
+         * {@link PropertyAccessors#NO_HANDLE} */
+        final Map<String, MethodHandle> setterHandles =
+            new ConcurrentHashMap<String, MethodHandle>();
+
+        ClassAccessors(Class type)
+        {
+            Method[] methods = type.getMethods();
+
+            for (int i = 0; i < methods.length; i++)
+            {
+                Method m = methods[i];
+
+                if (m.getParameterTypes().length == 0)
+                {
+                    Method known = parameterless.get(m.getName());
+
+                    // with covariant return types, getMethods() returns
+                    // more than one method -> take the most specific one,
+                    // as Class.getMethod() does
+                    if (known == null
+                            || known.getReturnType().isAssignableFrom(
+                                m.getReturnType()))
+                    {
+                        parameterless.put(m.getName(), m);
+                    }
+                }
+                else if (m.getParameterTypes().length == 1)
+                {
+                    oneParameter.put(
+                        oneParameterKey(m.getName(), m.getParameterTypes()[0]),
+                        m);
+                }
+            }
+        }
+    }
+
+    /** marker for "method not found" (ConcurrentHashMap has no null values) */
+    private static final Method NO_METHOD;
+
+    static
+    {
+        Method noMethod = null;
+        try
+        {
+            noMethod = PropertyAccessors.class.getDeclaredMethod(
+                           "noMethod", new Class[0]);
+        }
+        catch (NoSuchMethodException e)
+        {
+            // can't happen
+        }
+        NO_METHOD = noMethod;
+    }
+
+    /** the type of the handles of getters and parameterless methods */
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+
+    /** the type of the handles of setters */
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** marker for "no handle" (ConcurrentHashMap has no null values) */
+    private static final MethodHandle NO_HANDLE =
+        MethodHandles.constant(Object.class, null);
+
+    private static final Map<Class, ClassAccessors> accessors =
+        new ConcurrentHashMap<Class, ClassAccessors>();
+
+    private PropertyAccessors()
+    {
+    }
+
+    @SuppressWarnings("unused")
+    private static void noMethod()
+    {
+    }
+
+    private static String oneParameterKey(String methodName, Class parameterType)
+    {
+        return methodName + "(" + parameterType.getName() + ")";
+    }
+
+    private static ClassAccessors getClassAccessors(Class type)
+    {
+        ClassAccessors classAccessors = accessors.get(type);
+        if (classAccessors == null)
+        {
+            // may be computed twice concurrently, both results are equal
+            classAccessors = new ClassAccessors(type);
+            accessors.put(type, classAccessors);
+        }
+        return classAccessors;
+    }
+
+    /**
+     * @return the public method <code>methodName()</code> of
+     *     <code>type</code>, or null if there is none
+     */
+    public static Method getMethod(Class type, String methodName)
+    {
+        if (type == null || methodName == null)
+            return null;
+
+        return getClassAccessors(type).parameterless.get(methodName);
+    }
+
+    /**
+     * @return the public method <code>methodName(parameterType)</code>
+     *     of <code>type</code>, or null if there is none
+     */
+    public static Method getMethod(Class type, String methodName,
+                                   Class parameterType)
+    {
+        if (type == null || methodName == null || parameterType == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+        String key = oneParameterKey(methodName, parameterType);
+
+        Method m = classAccessors.oneParameter.get(key);
+        if (m == null)
+        {
+            // not declared with exactly this parameter type
+            m = NO_METHOD;
+            classAccessors.oneParameter.put(key, m);
+        }
+        return m == NO_METHOD ? null : m;
+    }
+
+    /**
+     * @return the getter (<code>getName()</code>, or
+     *     <code>isName()</code> for boolean properties) of the
+     *     property, or null if there is none
+     */
+    public static Method getGetter(Class type, String propertyName)
+    {
+        if (type == null || propertyName == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+
+        Method getter = classAccessors.getters.get(propertyName);
+        if (getter == null)
+        {
+            getter = classAccessors.parameterless.get(
+                         "get" + Util.capitalize(propertyName));
+            if (getter == null)
+                getter = classAccessors.parameterless.get(
+                             "is" + Util.capitalize(propertyName));
+            if (getter == null)
+                getter = NO_METHOD;
+
+            classAccessors.getters.put(propertyName, getter);
+        }
+        return getter == NO_METHOD ? null : getter;
+    }
+
+    /**
+     * @return the setter <code>setName(T)</code> of the property, where
+     *     T is the return type of its getter, or null if there is none
+     */
+    public static Method getSetter(Class type, String propertyName)
+    {
+        if (type == null || propertyName == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+
+        Method setter = classAccessors.setters.get(propertyName);
+        if (setter == null)
+        {
+            Method getter = getGetter(type, propertyName);
+            if (getter != null)
+                setter = getMethod(type, "set" + Util.capitalize(propertyName),
+                                   getter.getReturnType());
+            if (setter == null)
+                setter = NO_METHOD;
+
+            classAccessors.setters.put(propertyName, setter);
+        }
+        return setter == NO_METHOD ? null : setter;
+    }
+
+    /**
+     * @return the handle of the public method <code>methodName()</code>
+     *     of <code>type</code>, of the type <code>(Object)Object</code>,
+     *     or null if there is none
+     */
+    public static MethodHandle getMethodHandle(Class type, String methodName)
+    {
+        if (type == null || methodName == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+        MethodHandle handle = classAccessors.methodHandles.get(methodName);
+        if (handle == null)
+        {
+            handle = toHandle(getMethod(type, methodName), GETTER_TYPE);
+            classAccessors.methodHandles.put(methodName, handle);
+        }
+        return handle == NO_HANDLE ? null : handle;
+    }
+
+    /**
+     * @return the handle of the getter of the property (see
+     *     {@link #getGetter(Class, String)}), of the type
+     *     <code>(Object)Object</code>, or null if there is none
+     */
+    public static MethodHandle getGetterHandle(Class type, String propertyName)
+    {
+        if (type == null || propertyName == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+        MethodHandle handle = classAccessors.getterHandles.get(propertyName);
+        if (handle == null)
+        {
+            handle = toHandle(getGetter(type, propertyName), GETTER_TYPE);
+            classAccessors.getterHandles.put(propertyName, handle);
+        }
+        return handle == NO_HANDLE ? null : handle;
+    }
+
+    /**
+     * @return the handle of the setter of the property (see
+     *     {@link #getSetter(Class, String)}), of the type
+     *     <code>(Object, Object)void</code>, or null if there is none
+     */
+    public static MethodHandle getSetterHandle(Class type, String propertyName)
+    {
+        if (type == null || propertyName == null)
+            return null;
+
+        ClassAccessors classAccessors = getClassAccessors(type);
+        MethodHandle handle = classAccessors.setterHandles.get(propertyName);
+        if (handle == null)
+        {
+            handle = toHandle(getSetter(type, propertyName), SETTER_TYPE);
+            classAccessors.setterHandles.put(propertyName, handle);
+        }
+        return handle == NO_HANDLE ? null : handle;
+    }
+
+    /**
+     * invokes a handle of {@link #getGetterHandle(Class, String)} or
+     * {@link #getMethodHandle(Class, String)} on <code>object</code>.
+     *
+     * @throws InvocationTargetException if the method threw, like
+     *     {@link Method#invoke(Object, Object[])}
+     */
+    public static Object invoke(MethodHandle handle, Object object)
+        throws InvocationTargetException
+    {
+        try
+        {
+            return (Object) handle.invokeExact(object);
+        }
+        catch (Throwable t)
+        {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * invokes a handle of {@link #getSetterHandle(Class, String)} on
+     * <code>object</code>.
+     *
+     * @throws InvocationTargetException if the setter threw or
+     *     <code>value</code> has the wrong type
+     */
+    public static void invoke(MethodHandle handle, Object object, Object value)
+        throws InvocationTargetException
+    {
+        try
+        {
+            handle.invokeExact(object, value);
+        }
+        catch (Throwable t)
+        {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * @return the handle of <code>method</code> adapted to
+     *     <code>type</code>, {@link #NO_HANDLE} if there is no method or
+     *     it is not accessible
+     */
+    private static MethodHandle toHandle(Method method, MethodType type)
+    {
+        if (method == null)
+            return NO_HANDLE;
+
+        try
+        {
+            return MethodHandles.publicLookup().unreflect(method).asType(type);
+        }
+        catch (IllegalAccessException e)
+        {
+            // public, but declared by a class which is not
+            return NO_HANDLE;
+        }
+    }
+
+    /** forget all cached accessors */
+    public static void clear()
+    {
+        accessors.clear();
+    }
+}
@@ -52,9 +52,11 @@ public class ActionWrapper extends NamedModelElementWrapper
 //        getSimpleName();
 
         else {
-            logger.info("create action wrapper for "+secureModelElement);
+            if(logger.isInfoEnabled(MultiContextLogger.MODELMAPPER_DETAILLED))
+                logger.info(MultiContextLogger.MODELMAPPER_DETAILLED,
+                            "create action wrapper for "+secureModelElement);
 
-            return new ActionWrapper(secureModelElement);
+            return WrapperFactory.getActionWrapper(secureModelElement);
         }
 //    if(Util.isInstanceof(secureModelElement.getClass(), "AtomicAction"))
 //        //actionSuperclassName.equals("AtomicAction"))
@@ -95,7 +97,7 @@ public class ActionWrapper extends NamedModelElementWrapper
             logger.error("could not get Resource for "+getModelElement());
         }
 
-        return new ResourceWrapper(resource);
+        return WrapperFactory.getResourceWrapper(resource);
     }
 
     public Collection getSuperActions()
@@ -114,7 +116,7 @@ public class ActionWrapper extends NamedModelElementWrapper
         {
             Object a = (Object) iter.next();
 
-            actionWrappers.add(new ActionWrapper(a));
+            actionWrappers.add(WrapperFactory.getActionWrapper(a));
         }
 
         return actionWrappers;
@@ -143,7 +145,7 @@ public class ActionWrapper extends NamedModelElementWrapper
         {
             Object a = (Object) iter.next();
 
-            actionWrappers.add(new ActionWrapper(a));
+            actionWrappers.add(WrapperFactory.getActionWrapper(a));
         }
 
         return actionWrappers;
@@ -187,7 +189,7 @@ public class ActionWrapper extends NamedModelElementWrapper
         {
             Object p = (Object) iter.next();
 
-            permissionWrappers.add(new PermissionWrapper(p));
+            permissionWrappers.add(WrapperFactory.getPermissionWrapper(p));
         }
 
         return permissionWrappers;
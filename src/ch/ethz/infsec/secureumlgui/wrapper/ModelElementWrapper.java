@@ -19,7 +19,7 @@ public class ModelElementWrapper
         this.modelElement = modelElement;
     }
 
-    MultiContextLogger logger = MultiContextLogger.getDefault();
+    static MultiContextLogger logger = MultiContextLogger.getDefault();
 
     Object modelElement;
 
@@ -54,12 +54,7 @@ public class ModelElementWrapper
                     return false;
                 else
                 {
-                    boolean result = getModelElement()==other.getModelElement();
-
-                    logger.info(this + " ?= "
-                                + other + ": "+ result);
-
-                    return result;
+                    return getModelElement()==other.getModelElement();
                 }
             }
         }
@@ -67,6 +62,18 @@ public class ModelElementWrapper
             return super.equals(obj);
     }
 
+    /**
+     * consistent with {@link #equals(Object)}: the identity hash code of
+     * the wrapped element.
+     *
+     * @see WrapperFactory
+     */
+    @Override
+    public int hashCode()
+    {
+        return System.identityHashCode(getModelElement());
+    }
+
 
 
 }
@@ -98,7 +98,7 @@ public class PermissionWrapper extends NamedModelElementWrapper
         {
             Object role = (Object) roleObject;
 
-            return new RoleWrapper(role);
+            return WrapperFactory.getRoleWrapper(role);
 
         }
         return null;
@@ -160,7 +160,7 @@ public class PermissionWrapper extends NamedModelElementWrapper
             Set<PolicyWrapper> policyWrappers = new HashSet<PolicyWrapper>();
 
             for ( Object obj : policies ) {
-                policyWrappers.add(new PolicyWrapper(obj));
+                policyWrappers.add(WrapperFactory.getPolicyWrapper(obj));
             }
             return policyWrappers;
         }
@@ -65,7 +65,7 @@ public class PolicyWrapper extends NamedModelElementWrapper {
         if(policies != null)
         {
             for ( Object policy : policies ) {
-                result.add(new PolicyWrapper(policy));
+                result.add(WrapperFactory.getPolicyWrapper(policy));
             }
             return result;
         }
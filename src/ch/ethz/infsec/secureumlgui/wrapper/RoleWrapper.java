@@ -43,7 +43,7 @@ public class RoleWrapper extends NamedModelElementWrapper
             {
                 Object role = (Object) iter.next();
 
-                result.add(new RoleWrapper(role));
+                result.add(WrapperFactory.getRoleWrapper(role));
 
             }
             return result;
@@ -92,7 +92,7 @@ public class RoleWrapper extends NamedModelElementWrapper
         {
             Object permission = (Object) iter.next();
 
-            permissionWrapper.add(new PermissionWrapper(permission));
+            permissionWrapper.add(WrapperFactory.getPermissionWrapper(permission));
         }
         return permissionWrapper;
     }
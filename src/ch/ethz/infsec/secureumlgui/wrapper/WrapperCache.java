@@ -0,0 +1,140 @@
+package ch.ethz.infsec.secureumlgui.wrapper;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns one wrapper of type <code>W</code> per wrapped model element,
+ * compared by identity like {@link ModelElementWrapper#equals}.
+ *
+ * The cache does not keep the model elements alive: the key refers to
+ * the element weakly, and the wrapper (which refers to the element) is
+ * only softly reachable from the cache. An entry is evicted when its
+ * wrapper was collected, i.e. when nobody uses it anymore and memory is
+ * needed, or when the element is gone.
+ */
+abstract class WrapperCache<W extends ModelElementWrapper>
+{
+    /** an element, compared by identity */
+    private static final class Key
+    {
+        final int hash;
+
+        /** null for the probe */
+        final WeakReference<Object> element;
+
+        /** the element looked up, only used by the probe */
+        Object probeElement;
+
+        Key(Object element)
+        {
+            this.hash = System.identityHashCode(element);
+            this.element = new WeakReference<Object>(element);
+        }
+
+        /** a key to look up elements with, without allocating */
+        Key()
+        {
+            this.hash = 0;
+            this.element = null;
+        }
+
+        Object get()
+        {
+            return element != null ? element.get() : probeElement;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return element != null ? hash : System.identityHashCode(probeElement);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Object e = get();
+            return e != null && e == ((Key) obj).get();
+        }
+    }
+
+    /** a cached wrapper, with its key to evict it */
+    private static final class Entry<W> extends SoftReference<W>
+    {
+        final Key key;
+
+        Entry(Key key, W wrapper, ReferenceQueue<? super W> queue)
+        {
+            super(wrapper, queue);
+            this.key = key;
+        }
+    }
+
+    private final Map<Key, Entry<W>> entries = new HashMap<Key, Entry<W>>();
+
+    private final ReferenceQueue<W> collected = new ReferenceQueue<W>();
+
+    private final Key probe = new Key();
+
+    /** creates the wrapper of <code>element</code>, which is not null */
+    protected abstract W create(Object element);
+
+    /**
+     * @return the canonical wrapper of <code>element</code>; a new,
+     *     uncached wrapper if <code>element</code> is null
+     */
+    public synchronized W get(Object element)
+    {
+        if (element == null)
+            return create(null);
+
+        evictCollected();
+
+        probe.probeElement = element;
+        Entry<W> entry = entries.get(probe);
+        probe.probeElement = null;
+
+        W wrapper = entry != null ? entry.get() : null;
+        if (wrapper == null)
+        {
+            wrapper = create(element);
+            Key key = new Key(element);
+            entries.put(key, new Entry<W>(key, wrapper, collected));
+        }
+        return wrapper;
+    }
+
+    /** @return the number of cached wrappers, for diagnostics */
+    public synchronized int size()
+    {
+        evictCollected();
+        return entries.size();
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        while (collected.poll() != null)
+            ;
+    }
+
+    private void evictCollected()
+    {
+        Reference<? extends W> ref;
+        while ((ref = collected.poll()) != null)
+        {
+            Key key = ((Entry<?>) ref).key;
+            // the key may have been mapped to a new wrapper meanwhile
+            if (entries.get(key) == ref)
+                entries.remove(key);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ch.ethz.infsec.secureumlgui.wrapper;
+
+/**
+ * Returns the canonical wrapper of a SecureUML element: as long as a
+ * wrapper is in use, the same instance is returned for the same element,
+ * instead of a new one per call. Wrappers are compared by the identity of
+ * their element anyway (see {@link ModelElementWrapper#equals}), so sets
+ * of wrappers behave the same; the cache only saves the allocations.
+ *
+ * The cache does not keep elements alive, see {@link WrapperCache}.
+ */
+public final class WrapperFactory
+{
+    private WrapperFactory()
+    {
+    }
+
+    private static final WrapperCache<RoleWrapper> roles =
+        new WrapperCache<RoleWrapper>()
+    {
+        protected RoleWrapper create(Object element)
+        {
+            return new RoleWrapper(element);
+        }
+    };
+
+    private static final WrapperCache<ActionWrapper> actions =
+        new WrapperCache<ActionWrapper>()
+    {
+        protected ActionWrapper create(Object element)
+        {
+            return new ActionWrapper(element);
+        }
+    };
+
+    private static final WrapperCache<PolicyWrapper> policies =
+        new WrapperCache<PolicyWrapper>()
+    {
+        protected PolicyWrapper create(Object element)
+        {
+            return new PolicyWrapper(element);
+        }
+    };
+
+    private static final WrapperCache<PermissionWrapper> permissions =
+        new WrapperCache<PermissionWrapper>()
+    {
+        protected PermissionWrapper create(Object element)
+        {
+            return new PermissionWrapper(element);
+        }
+    };
+
+    private static final WrapperCache<ResourceWrapper> resources =
+        new WrapperCache<ResourceWrapper>()
+    {
+        protected ResourceWrapper create(Object element)
+        {
+            return new ResourceWrapper(element);
+        }
+    };
+
+    public static RoleWrapper getRoleWrapper(Object role)
+    {
+        return roles.get(role);
+    }
+
+    public static ActionWrapper getActionWrapper(Object action)
+    {
+        return actions.get(action);
+    }
+
+    public static PolicyWrapper getPolicyWrapper(Object policy)
+    {
+        return policies.get(policy);
+    }
+
+    public static PermissionWrapper getPermissionWrapper(Object permission)
+    {
+        return permissions.get(permission);
+    }
+
+    public static ResourceWrapper getResourceWrapper(Object resource)
+    {
+        return resources.get(resource);
+    }
+
+    /**
+     * @return the number of cached wrappers, for diagnostics
+     */
+    public static int size()
+    {
+        return roles.size() + actions.size() + policies.size()
+            + permissions.size() + resources.size();
+    }
+
+    /** forgets all cached wrappers, e.g. when a new model is loaded */
+    public static void clear()
+    {
+        roles.clear();
+        actions.clear();
+        policies.clear();
+        permissions.clear();
+        resources.clear();
+    }
+}
@@ -0,0 +1,55 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.counters;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test of the latency histogram {@link PhaseStatistics}.
+ *
+ * @see MappingMetrics
+ */
+public class PhaseStatisticsTest {
+
+    @Test
+    public void recordsCountTotalAndMax() {
+        PhaseStatistics statistics = new PhaseStatistics();
+        statistics.record(3000);
+        statistics.record(1000);
+        statistics.record(8000);
+
+        assertEquals(3, statistics.getCount());
+        assertEquals(12000, statistics.getTotalNanos());
+        assertEquals(8000, statistics.getMaxNanos());
+        assertEquals(4.0, statistics.getMeanMicros(), 0.001);
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBounds() {
+        PhaseStatistics statistics = new PhaseStatistics();
+        assertEquals(0, statistics.getPercentileMicros(50));
+
+        // 90 times 5 µs (bucket below 8 µs), 10 times 1000 µs (below 1024 µs)
+        for ( int i = 0; i < 90; i++ ) {
+            statistics.record(5000);
+        }
+        for ( int i = 0; i < 10; i++ ) {
+            statistics.record(1000000);
+        }
+
+        assertEquals(8, statistics.getPercentileMicros(50));
+        assertEquals(8, statistics.getPercentileMicros(90));
+        assertEquals(1024, statistics.getPercentileMicros(99));
+        assertEquals(1024, statistics.getPercentileMicros(100));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        PhaseStatistics statistics = new PhaseStatistics();
+        statistics.record(Long.MAX_VALUE / 2);
+        statistics.reset();
+
+        assertEquals(0, statistics.getCount());
+        assertEquals(0, statistics.getMaxNanos());
+        assertEquals(0, statistics.getPercentileMicros(100));
+    }
+}
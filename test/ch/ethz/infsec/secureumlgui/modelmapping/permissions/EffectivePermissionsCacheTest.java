@@ -0,0 +1,66 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+
+/**
+ * JUnit test of the dependency tracking of the
+ * {@link EffectivePermissionsCache}.
+ *
+ * @version 1.0
+ * @see EffectivePermissionsCache
+ */
+public class EffectivePermissionsCacheTest {
+
+    private static EffectivePermissionsCache.Loader loader(
+        final PermissionTestModel model) {
+        return new EffectivePermissionsCache.Loader() {
+            public PermissionSet load(ResourceWrapper resource) {
+                return model.createExplicitPermissions();
+            }
+        };
+    }
+
+    /**
+     * Checks that a cached set is returned until an element it depends on
+     * changes, and that the sets of other resources are kept.
+     */
+    @Test public final void evictsDependentEntries() {
+        EffectivePermissionsCache cache = new EffectivePermissionsCache();
+        PermissionTestModel model = new PermissionTestModel(2, 2);
+        PermissionTestModel other = new PermissionTestModel(2, 2);
+        ResourceWrapper resource = model.getResourceWrapper();
+        ResourceWrapper otherResource = other.getResourceWrapper();
+
+        PermissionSet permissions =
+            cache.getPermissions(resource, "test", loader(model));
+        assertSame(permissions,
+                   cache.getPermissions(resource, "test", loader(model)));
+        cache.getPermissions(otherResource, "test", loader(other));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // not a dependency
+        assertEquals(0, cache.elementChanged(new Object()));
+        assertEquals(2, cache.size());
+
+        // a role of the first model
+        assertEquals(1, cache.elementChanged(
+                         model.getRoleWrappers().get(1).getModelElement()));
+        assertEquals(1, cache.size());
+        assertNotSame(permissions,
+                      cache.getPermissions(resource, "test", loader(model)));
+        cache.getPermissions(otherResource, "test", loader(other));
+        assertEquals(2, cache.getHits());
+
+        // a new role may belong to any set
+        assertEquals(2, cache.rolesChanged());
+        assertEquals(0, cache.size());
+        cache.getPermissions(resource, "test", loader(model));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,177 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
+
+/**
+ * JUnit test of the closures of the {@link HierarchyIndex}, and of their
+ * incremental update.
+ *
+ * @version 1.0
+ * @see HierarchyIndex
+ */
+public class HierarchyIndexTest {
+
+    /**
+     * Checks the superroles and subroles of the role lattice of the
+     * {@link PermissionTestModel}.
+     */
+    @Test public final void computesClosures() {
+        PermissionTestModel model = new PermissionTestModel(3, 1);
+        List<RoleWrapper> roles = model.getRoleWrappers();
+        HierarchyIndex.Hierarchy<RoleWrapper> hierarchy =
+            new HierarchyIndex().getRoles();
+
+        // Role2a: Role1a, Role0a, Role0b, Role1b (depth first)
+        List<RoleWrapper> superRoles = hierarchy.getAncestors(roles.get(4));
+        assertEquals(4, superRoles.size());
+        assertEquals(roles.get(2), superRoles.get(0));
+        assertEquals(roles.get(0), superRoles.get(1));
+        assertEquals(roles.get(1), superRoles.get(2));
+        assertEquals(roles.get(3), superRoles.get(3));
+
+        assertEquals(4, hierarchy.getDescendants(roles.get(0)).size());
+        assertTrue(hierarchy.isAncestor(roles.get(5), roles.get(0)));
+        assertFalse(hierarchy.isAncestor(roles.get(0), roles.get(5)));
+        assertFalse(hierarchy.isAncestor(roles.get(2), roles.get(3)));
+    }
+
+    /**
+     * Checks that adding and removing a generalization updates the
+     * closures which contain it.
+     */
+    @Test public final void updatesIncrementally() {
+        PermissionTestModel model = new PermissionTestModel(3, 1);
+        List<RoleWrapper> roles = model.getRoleWrappers();
+        HierarchyIndex.Hierarchy<RoleWrapper> hierarchy =
+            new HierarchyIndex().getRoles();
+
+        // all closures computed
+        for (RoleWrapper role : roles) {
+            hierarchy.getAncestors(role);
+            hierarchy.getDescendants(role);
+        }
+        assertFalse(hierarchy.isAncestor(roles.get(2), roles.get(3)));
+        int version = hierarchy.getVersion();
+
+        // Role1b becomes a superrole of Role1a
+        PermissionTestModel.Role sub =
+            (PermissionTestModel.Role) roles.get(2).getModelElement();
+        PermissionTestModel.Role sup =
+            (PermissionTestModel.Role) roles.get(3).getModelElement();
+        sub.getSuperroles().add(sup);
+        sup.getSubroles().add(sub);
+        hierarchy.addGeneralization(sub, sup);
+
+        assertTrue(hierarchy.getVersion() != version);
+        assertTrue(hierarchy.isAncestor(roles.get(2), roles.get(3)));
+        assertTrue(hierarchy.getDescendants(roles.get(3)).contains(roles.get(2)));
+        assertEquals(3, hierarchy.getAncestors(roles.get(2)).size());
+
+        sub.getSuperroles().remove(sup);
+        sup.getSubroles().remove(sub);
+        hierarchy.removeGeneralization(sub, sup);
+
+        assertFalse(hierarchy.isAncestor(roles.get(2), roles.get(3)));
+        assertEquals(2, hierarchy.getAncestors(roles.get(2)).size());
+        assertEquals(2, hierarchy.getDescendants(roles.get(3)).size());
+    }
+
+    /**
+     * Checks that the closures of the elements of a cycle are complete,
+     * whichever element of the cycle is asked first.
+     */
+    @Test public final void completesClosuresOfCycles() {
+        PermissionTestModel model = new PermissionTestModel(3, 1);
+        List<RoleWrapper> roles = model.getRoleWrappers();
+        HierarchyIndex.Hierarchy<RoleWrapper> hierarchy =
+            new HierarchyIndex().getRoles();
+
+        // Role2a becomes a superrole of Role0a:
+        // Role0a -> Role2a -> Role1a -> Role0a
+        PermissionTestModel.Role sub =
+            (PermissionTestModel.Role) roles.get(0).getModelElement();
+        PermissionTestModel.Role sup =
+            (PermissionTestModel.Role) roles.get(4).getModelElement();
+        sub.getSuperroles().add(sup);
+        sup.getSubroles().add(sub);
+
+        assertEquals(5, hierarchy.getAncestors(roles.get(0)).size());
+
+        // Role1a was reached through the cycle first
+        List<RoleWrapper> superRoles = hierarchy.getAncestors(roles.get(2));
+        assertEquals(5, superRoles.size());
+        assertTrue(superRoles.contains(roles.get(4)));
+        assertTrue(superRoles.contains(roles.get(3)));
+        assertTrue(hierarchy.isAncestor(roles.get(2), roles.get(2)));
+    }
+
+    /**
+     * Checks the policy and action hierarchies, and that new and removed
+     * elements change the version.
+     */
+    @Test public final void tracksPoliciesAndActions() {
+        PermissionTestModel model = new PermissionTestModel(2, 2, true);
+        HierarchyIndex index = new HierarchyIndex();
+
+        HierarchyIndex.Hierarchy<PolicyWrapper> policies = index.getPolicies();
+        List<PolicyWrapper> policyWrappers = model.getPolicyWrappers();
+        PolicyWrapper normal = policyWrappers.get(0);
+        assertEquals(1, policies.getParents(policyWrappers.get(1)).size());
+        assertEquals(2, policies.getDescendants(normal).size());
+        assertTrue(policies.isAncestor(policyWrappers.get(2), normal));
+
+        // a new policy, without refinement
+        int version = policies.getVersion();
+        PermissionTestModel.Policy emergency =
+            new PermissionTestModel.Policy("Emergency");
+        policies.elementAdded(emergency);
+        assertTrue(policies.getVersion() != version);
+        assertEquals(0, policies.getAncestors(
+                         WrapperFactory.getPolicyWrapper(emergency)).size());
+
+        version = policies.getVersion();
+        policies.elementRemoved(emergency);
+        assertTrue(policies.getVersion() != version);
+
+        // read0 becomes a subaction of update as well
+        HierarchyIndex.Hierarchy<ActionWrapper> actions = index.getActions();
+        ActionWrapper fullAccess = getAction(model, "fullAccess");
+        ActionWrapper update = getAction(model, "update");
+        ActionWrapper read0 = getAction(model, "read0");
+        assertEquals(6, actions.getDescendants(fullAccess).size());
+        assertFalse(actions.isAncestor(read0, update));
+
+        PermissionTestModel.Action sub =
+            (PermissionTestModel.Action) read0.getModelElement();
+        PermissionTestModel.Action sup =
+            (PermissionTestModel.Action) update.getModelElement();
+        sub.getSuperactions().add(sup);
+        sup.getSubactions().add(sub);
+        version = actions.getVersion();
+        actions.addGeneralization(sub, sup);
+
+        assertTrue(actions.getVersion() != version);
+        assertTrue(actions.isAncestor(read0, update));
+        assertEquals(3, actions.getDescendants(update).size());
+        assertEquals(3, actions.getAncestors(read0).size());
+    }
+
+    private static ActionWrapper getAction(PermissionTestModel model,
+                                           String name) {
+        for (ActionWrapper action
+                : model.getResourceWrapper().getActionWrapper()) {
+            if (name.equals(action.getName())) {
+                return action;
+            }
+        }
+        return null;
+    }
+}
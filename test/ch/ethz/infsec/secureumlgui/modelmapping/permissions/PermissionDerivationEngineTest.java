@@ -0,0 +1,299 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.Cancellation;
+import ch.ethz.infsec.secureumlgui.modelmapping.MappingCancelledException;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * JUnit test the semi-naive derivation of permissions
+ * ({@link PermissionDerivationEngine}) against the round based
+ * exploration ({@link RoundBasedPermissionsExplorer}).
+ *
+ * @version 1.0
+ * @see PermissionDerivationEngine
+ */
+public class PermissionDerivationEngineTest {
+
+    /**
+     * The default policy only.
+     */
+    private static final List<PolicyWrapper> DEFAULT_POLICY =
+        Collections.singletonList((PolicyWrapper) null);
+
+    /**
+     * Checks that the engine derives the same permission flags, in the
+     * same order, as the round based exploration, for the default policy
+     * and for refined policies.
+     */
+    @Test public final void derivesSameFlags() {
+        for (boolean withPolicies : new boolean[] {false, true}) {
+            for (PermissionTestModel model
+                    : PermissionTestModel.createModels(withPolicies)) {
+                List<PolicyWrapper> policies = model.getPolicyWrappers();
+
+                PermissionSet expected = model.createExplicitPermissions();
+                new RoundBasedPermissionsExplorer(model)
+                .collectNonExplicitPermissions(model.getResourceWrapper(),
+                                               expected, policies);
+
+                assertSameFlags(model, expected, model.derive());
+            }
+        }
+    }
+
+    /**
+     * Checks the permissions a policy gets from the policy refining it,
+     * and the ones of the break glass policy only.
+     */
+    @Test public final void derivesRefinedPolicies() {
+        PermissionTestModel model = new PermissionTestModel(3, 2, true);
+        PermissionSet permissions = model.derive();
+
+        List<RoleWrapper> roles = model.getRoleWrappers();
+        PolicyWrapper normal = model.getPolicyWrappers().get(0);
+        PolicyWrapper breakGlass = model.getPolicyWrappers().get(1);
+        PolicyWrapper audit = model.getPolicyWrappers().get(2);
+
+        // Role0a may read in Normal, so in BreakGlass and Audit as well
+        assertTrue(hasFlag(permissions, roles.get(0), "read", normal,
+                           PermissionValue.INT_GRANTED));
+        assertTrue(hasFlag(permissions, roles.get(0), "read", breakGlass,
+                           PermissionValue.INT_INHERITED_POLICY));
+        assertTrue(hasFlag(permissions, roles.get(0), "read", audit,
+                           PermissionValue.INT_INHERITED_POLICY));
+
+        // Role0b has fullAccess in BreakGlass only, Role1b inherits it
+        assertTrue(hasFlag(permissions, roles.get(1), "fullAccess",
+                           breakGlass, PermissionValue.INT_GRANTED));
+        assertTrue(hasFlag(permissions, roles.get(3), "update0", breakGlass,
+                           PermissionValue.INT_IMPLICIT));
+        assertFalse(hasFlag(permissions, roles.get(1), "fullAccess",
+                            normal, -1));
+        assertFalse(hasFlag(permissions, roles.get(1), "fullAccess",
+                            audit, -1));
+
+        // Role0b may read in Audit, but not update
+        assertTrue(hasFlag(permissions, roles.get(1), "read0", audit,
+                           PermissionValue.INT_IMPLICIT));
+        assertFalse(hasFlag(permissions, roles.get(1), "read", normal, -1));
+        assertFalse(hasFlag(permissions, roles.get(1), "update0", audit, -1));
+    }
+
+    /**
+     * Checks the inherited, implicit and composite permissions of a small
+     * hierarchy.
+     */
+    @Test public final void derivesPermissions() {
+        PermissionTestModel model = new PermissionTestModel(3, 2);
+        PermissionSet permissions = model.createExplicitPermissions();
+        PermissionDerivationEngine engine = model.createEngine(permissions);
+        engine.derive(DEFAULT_POLICY);
+
+        List<RoleWrapper> roles = model.getRoleWrappers();
+
+        // Role0a may read, hence read0 implicitly, Role1a inherits both
+        assertTrue(hasFlag(permissions, roles.get(0), "read0", null,
+                           PermissionValue.INT_IMPLICIT));
+        assertTrue(hasFlag(permissions, roles.get(2), "read", null,
+                           PermissionValue.INT_INHERITED_ROLE));
+        assertFalse(hasFlag(permissions, roles.get(1), "read", null, -1));
+
+        // Role2b may update all update actions, hence update as composite
+        assertTrue(hasFlag(permissions, roles.get(5), "update", null,
+                           PermissionValue.INT_COMPOSITE));
+        assertFalse(hasFlag(permissions, roles.get(3), "update", null, -1));
+
+        // Role1a has fullAccess, Role2a inherits it and implicitly update0
+        assertTrue(hasFlag(permissions, roles.get(4), "update0", null,
+                           PermissionValue.INT_IMPLICIT));
+
+        assertTrue(engine.getRounds() > 1);
+        assertTrue(engine.getDerivedPermissions() > 0);
+    }
+
+    /**
+     * Checks that deriving several resources in parallel gives the same
+     * permission flags as deriving them one after the other.
+     */
+    @Test public final void derivesResourcesInParallel() {
+        List<PermissionTestModel> models = PermissionTestModel.createModels(false);
+        List<PermissionSet> actual = new ArrayList<PermissionSet>();
+        List<PermissionDerivationEngine> engines =
+            new ArrayList<PermissionDerivationEngine>();
+
+        for (PermissionTestModel model : models) {
+            PermissionSet permissions = model.createExplicitPermissions();
+            engines.add(model.createEngine(permissions));
+            actual.add(permissions);
+        }
+
+        PermissionDerivationEngine.setParallelEnabled(true);
+        try {
+            PermissionDerivationEngine.deriveAll(engines, DEFAULT_POLICY);
+        } finally {
+            PermissionDerivationEngine.setParallelEnabled(false);
+        }
+
+        for (int i = 0; i < models.size(); i++) {
+            assertSameFlags(models.get(i), models.get(i).derive(),
+                            actual.get(i));
+        }
+    }
+
+    /**
+     * Checks that the pool threads see the cancellation token of the
+     * calling thread.
+     */
+    @Test public final void cancelsParallelDerivation() {
+        List<PermissionDerivationEngine> engines =
+            new ArrayList<PermissionDerivationEngine>();
+        for (PermissionTestModel model : PermissionTestModel.createModels(false)) {
+            engines.add(model.createEngine(model.createExplicitPermissions()));
+        }
+
+        PermissionDerivationEngine.setParallelEnabled(true);
+        Cancellation.setToken(new AtomicBoolean(true));
+        try {
+            PermissionDerivationEngine.deriveAll(engines, DEFAULT_POLICY);
+            fail("derivation was not cancelled");
+        } catch (MappingCancelledException e) {
+            // expected
+        } finally {
+            Cancellation.setToken(null);
+            PermissionDerivationEngine.setParallelEnabled(false);
+        }
+    }
+
+    /**
+     * Checks that deriving the policies of a refinement level in parallel
+     * gives the same permission flags as deriving them one after the
+     * other, and that the composite permissions are created on the
+     * calling thread.
+     */
+    @Test public final void derivesPoliciesInParallel() {
+        final Thread caller = Thread.currentThread();
+        final List<Thread> creators = new ArrayList<Thread>();
+
+        for (final PermissionTestModel model
+                : PermissionTestModel.createModels(true)) {
+            PermissionSet permissions = model.createExplicitPermissions();
+            PermissionDerivationEngine engine = new PermissionDerivationEngine(
+                model.getResourceWrapper(), permissions) {
+                @Override
+                protected PermissionValue createComposite(ActionWrapper action,
+                        RoleWrapper role) {
+                    synchronized (creators) {
+                        creators.add(Thread.currentThread());
+                    }
+                    return model.createComposite(action, role);
+                }
+            };
+
+            PermissionDerivationEngine.setParallelEnabled(true);
+            try {
+                engine.derive(model.getPolicyWrappers());
+            } finally {
+                PermissionDerivationEngine.setParallelEnabled(false);
+            }
+
+            assertSameFlags(model, model.derive(), permissions);
+        }
+
+        assertFalse(creators.isEmpty());
+        for (Thread creator : creators) {
+            assertSame(caller, creator);
+        }
+    }
+
+    /**
+     * Checks that the engine derives the composite permissions as plain
+     * values of the permitted role and action, outside the model (the
+     * subroles inherit them).
+     */
+    @Test public final void derivesCompositesOutsideTheModel() {
+        PermissionTestModel model = new PermissionTestModel(3, 2);
+        PermissionSet permissions = model.createExplicitPermissions();
+        new PermissionDerivationEngine(model.getResourceWrapper(), permissions)
+        .derive(DEFAULT_POLICY);
+
+        assertSameFlags(model, model.derive(), permissions);
+
+        int composites = 0;
+        for (RoleWrapper role : model.getRoleWrappers()) {
+            for (ActionWrapper action
+                    : model.getResourceWrapper().getActionWrapper()) {
+                for (PermissionValue value : permissions.getResourcePermissionsSet(role)
+                        .getPermissions(action).getPermissions(null)) {
+                    if ((value.getFlags() & PermissionValue.INT_COMPOSITE) != 0
+                            && (value.getFlags() & PermissionValue.INT_INHERITED_ROLE) == 0) {
+                        PermissionWrapper permission = value.getPermissionWrapper();
+                        assertTrue(permission.getModelElement() instanceof CompositePermission);
+                        assertEquals(role, permission.getRoleWrapper());
+                        assertEquals(action.getModelElement(), permission.getAction());
+                        composites++;
+                    }
+                }
+            }
+        }
+        assertTrue(composites > 0);
+    }
+
+    /**
+     * Checks that every role has the same permission flags on every action
+     * and for every policy of <code>model</code>.
+     */
+    private static void assertSameFlags(PermissionTestModel model,
+                                        PermissionSet expected,
+                                        PermissionSet actual) {
+        for (PolicyWrapper policy : model.getPolicyWrappers()) {
+            for (RoleWrapper role : model.getRoleWrappers()) {
+                for (ActionWrapper action
+                        : model.getResourceWrapper().getActionWrapper()) {
+                    assertEquals(role.getName() + " on " + action.getName()
+                                 + " in " + (policy == null ? "default" : policy.getName()),
+                                 getFlags(expected, role, action, policy),
+                                 getFlags(actual, role, action, policy));
+                }
+            }
+        }
+    }
+
+    private static List<Integer> getFlags(PermissionSet permissions,
+                                          RoleWrapper role, ActionWrapper action,
+                                          PolicyWrapper policy) {
+        List<Integer> flags = new ArrayList<Integer>();
+        for (PermissionValue value : permissions.getResourcePermissionsSet(role)
+                .getPermissions(action).getPermissions(policy)) {
+            flags.add(Integer.valueOf(value.getFlags()));
+        }
+        return flags;
+    }
+
+    /**
+     * @return true, if <code>role</code> has a permission on the action
+     *     with the given name in <code>policy</code> that has
+     *     <code>flag</code> set (any permission, if <code>flag</code> is -1)
+     */
+    private static boolean hasFlag(PermissionSet permissions,
+                                   RoleWrapper role, String actionName,
+                                   PolicyWrapper policy, int flag) {
+        for (PermissionValue value : permissions.getResourcePermissionsSet(role)
+                .getPermissions(actionName).getPermissions(policy)) {
+            if ((value.getFlags() & flag) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
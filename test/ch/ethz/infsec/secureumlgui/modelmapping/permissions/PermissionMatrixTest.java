@@ -0,0 +1,99 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer.CHANGES;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * JUnit test of the {@link PermissionMatrix} behind the permission sets.
+ *
+ * @version 1.0
+ * @see PermissionMatrix
+ */
+public class PermissionMatrixTest {
+
+    /**
+     * Checks that equal permissions are stored once and that the summary
+     * of a cell follows the flags of its permissions.
+     */
+    @Test public final void storesPermissionsOnce() {
+        PermissionTestModel model = new PermissionTestModel(1, 1);
+        RoleWrapper role = model.getRoleWrappers().get(0);
+        ActionWrapper read = null;
+        PermissionWrapper permission = null;
+        for (ActionWrapper action : model.getResourceWrapper().getActionWrapper()) {
+            if ("read".equals(action.getName())) {
+                read = action;
+                permission = action.getPermissionWrappers().iterator().next();
+            }
+        }
+
+        PermissionSet permissions = new PermissionSet();
+        PolicyPermissionSet cell = permissions.getResourcePermissionsSet(role)
+                                   .getPermissions(read).getPolicyPermissionSet(null);
+        assertFalse(cell.isPermitted());
+        assertFalse(permissions.isPermitted(role, read, null));
+
+        PermissionValue granted = PermissionValue.createGranted(permission);
+        assertTrue(cell.addPermission(granted, CHANGES.EXPLICIT));
+        assertFalse(cell.addPermission(PermissionValue.createGranted(permission),
+                                       CHANGES.EXPLICIT));
+        assertTrue(cell.addPermission(PermissionValue.createInheritedRole(granted),
+                                      CHANGES.INHERITED));
+
+        assertEquals(2, cell.getPermissions().size());
+        assertTrue(cell.isExplicitPermitted());
+        assertEquals(permission, cell.getExplicitPermittedPermission());
+        assertTrue(permissions.isPermitted(role, read, null));
+
+        int summary = cell.getSummary();
+        assertTrue((summary & PermissionMatrix.INHERITED_ROLE) != 0);
+        assertTrue((summary & PermissionMatrix.IMPLICIT) == 0);
+        assertEquals(2, permissions.getMatrix().getPermissionCount());
+    }
+
+    /**
+     * Checks that the cells of different roles and actions are independent.
+     */
+    @Test public final void separatesCells() {
+        PermissionMatrix matrix = new PermissionMatrix();
+        for (int role = 0; role < 10; role++) {
+            for (int action = 0; action < 10; action++) {
+                matrix.getCell(role, action, PermissionMatrix.DEFAULT_POLICY);
+            }
+        }
+        assertEquals(100, matrix.getCellCount());
+
+        int cell = matrix.getCell(3, 7, PermissionMatrix.DEFAULT_POLICY);
+        assertFalse(matrix.isPermitted(cell));
+        assertEquals(cell, matrix.getCell(3, 7, PermissionMatrix.DEFAULT_POLICY));
+        assertFalse(matrix.isPermitted(matrix.getCell(7, 3,
+                                       PermissionMatrix.DEFAULT_POLICY)));
+    }
+
+    /**
+     * Checks that ids which do not fit into a packed cell are rejected
+     * instead of colliding with other cells.
+     */
+    @Test public final void rejectsIdsOutOfRange() {
+        PermissionMatrix matrix = new PermissionMatrix();
+        int last = (1 << 21) - 1;
+        assertEquals(0, matrix.getCell(last, last, last));
+
+        int[][] ids = {{1 << 21, 0, 0}, {0, 1 << 21, 0}, {0, 0, 1 << 21},
+                       {-1, 0, 0}};
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                matrix.getCell(ids[i][0], ids[i][1], ids[i][2]);
+                fail("accepted cell " + i);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertEquals(1, matrix.getCellCount());
+    }
+}
@@ -0,0 +1,106 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * JUnit test of the rows and formats of the {@link PermissionReport}.
+ *
+ * @version 1.0
+ * @see PermissionReport
+ */
+public class PermissionReportTest {
+
+    private static final List<PolicyWrapper> DEFAULT_POLICY =
+        Collections.singletonList((PolicyWrapper) null);
+
+    /**
+     * Checks the rows of the derived permissions of the
+     * {@link PermissionTestModel}.
+     */
+    @Test public final void reportsPermittedCells() throws IOException {
+        PermissionTestModel model = new PermissionTestModel(3, 2);
+        PermissionSet permissions = model.derive();
+
+        PermissionReport report = new PermissionReport(DEFAULT_POLICY);
+        report.add(model.getResourceWrapper(), permissions);
+
+        assertTrue(report.size() > 0);
+        assertTrue(contains(report, "Role0a", "read", "explicit"));
+        assertTrue(contains(report, "Role0a", "read0", "implicit"));
+        assertTrue(contains(report, "Role1a", "read", "inherited-role"));
+        assertFalse(contains(report, "Role0b", "read", ""));
+
+        StringWriter csv = new StringWriter();
+        report.write(csv, PermissionReport.Format.CSV);
+        String[] lines = csv.toString().split("\r\n");
+        assertEquals("role,resource,action,policy,flags", lines[0]);
+        assertEquals(report.size() + 1, lines.length);
+
+        StringWriter json = new StringWriter();
+        report.write(json, PermissionReport.Format.JSON);
+        assertTrue(json.toString().startsWith("[\n  {\"role\": "));
+        assertTrue(json.toString().indexOf("\"policy\": \"default\"") > 0);
+    }
+
+    /**
+     * Checks that reporting only reads the permissions, which may be
+     * shared by the {@link EffectivePermissionsCache}.
+     */
+    @Test public final void keepsPermissionsUnchanged() {
+        PermissionTestModel model = new PermissionTestModel(3, 2, true);
+        PermissionSet permissions = model.createExplicitPermissions();
+        int roles = permissions.getAllRoleWrappers().size();
+        int actions = countActions(permissions);
+        int cells = permissions.getMatrix().getCellCount();
+
+        List<PolicyWrapper> policies = new ArrayList<PolicyWrapper>(model.getPolicyWrappers());
+        policies.add(null);
+        PermissionReport report = new PermissionReport(policies);
+        report.add(model.getResourceWrapper(), permissions);
+
+        assertTrue(report.size() > 0);
+        assertEquals(roles, permissions.getAllRoleWrappers().size());
+        assertEquals(actions, countActions(permissions));
+        assertEquals(cells, permissions.getMatrix().getCellCount());
+    }
+
+    /**
+     * Checks the names of the summary flags.
+     */
+    @Test public final void namesFlags() {
+        assertEquals("", PermissionReport.getFlagNames(PermissionMatrix.PERMITTED));
+        assertEquals("explicit|implicit", PermissionReport.getFlagNames(
+                         PermissionMatrix.PERMITTED | PermissionMatrix.EXPLICIT
+                         | PermissionMatrix.GRANTED | PermissionMatrix.IMPLICIT));
+    }
+
+    private static int countActions(PermissionSet permissions) {
+        int count = 0;
+        for (RoleWrapper role : permissions.getAllRoleWrappers()) {
+            count += permissions.findResourcePermissionsSet(role).getActions().size();
+        }
+        return count;
+    }
+
+    private static boolean contains(PermissionReport report, String role,
+                                    String action, String flag) {
+        for (String[] row : report.getRows()) {
+            if (row[0].equals(role) && row[1].equals("Entity")
+                    && row[2].equals(action)
+                    && row[4].indexOf(flag) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
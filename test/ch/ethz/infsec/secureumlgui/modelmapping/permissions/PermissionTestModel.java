@@ -0,0 +1,445 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.WrapperFactory;
+
+/**
+ * Small SecureUML model of beans, accessed through the wrappers like the
+ * MDR model, on which the permissions of the tests and benchmarks are
+ * derived.
+ *
+ * <h2>Role hierarchy</h2>
+ * <pre>
+ *   level 0:   Role0a   Role0b
+ *                ^  \ /  ^
+ *                |   X   |
+ *                |  / \  |
+ *   level 1:   Role1a   Role1b
+ *                ...
+ * </pre>
+ * Every role of a level has both roles of the previous level as
+ * superroles.
+ *
+ * <h2>Action hierarchy</h2>
+ * <pre>
+ *   fullAccess -> read   -> read0 ... read(width-1)
+ *              -> update -> update0 ... update(width-1)
+ * </pre>
+ *
+ * <h2>Explicit permissions</h2>
+ * Role0a may read, the first role of the middle level has fullAccess and
+ * the last role of the last level may update every atomic update action.
+ *
+ * <h2>Policies</h2>
+ * Without policies, all permissions belong to the default policy (null).
+ * With policies, they belong to "Normal", which refines "BreakGlass" and
+ * "Audit", so both get the permissions of "Normal". In addition, Role0b
+ * has fullAccess in "BreakGlass" and may read in "Audit".
+ *
+ * @version 1.0
+ */
+public final class PermissionTestModel {
+
+    /**
+     * A named element.
+     */
+    public static class Element {
+        private String name;
+
+        public Element(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A role.
+     */
+    public static class Role extends Element {
+        private final Collection<Role> superroles = new LinkedList<Role>();
+        private final Collection<Role> subroles = new LinkedList<Role>();
+        private final Collection<Permission> permission =
+            new LinkedList<Permission>();
+
+        public Role(String name) {
+            super(name);
+        }
+
+        public Collection<Role> getSuperroles() {
+            return superroles;
+        }
+
+        public Collection<Role> getSubroles() {
+            return subroles;
+        }
+
+        public Collection<Permission> getPermission() {
+            return permission;
+        }
+    }
+
+    /**
+     * An atomic or composite action.
+     */
+    public static class Action extends Element {
+        private Resource resource;
+        private final Collection<Action> superactions =
+            new LinkedList<Action>();
+        private final Collection<Action> subactions = new LinkedList<Action>();
+        private final Collection<Permission> permission =
+            new LinkedList<Permission>();
+
+        public Action(String name, Resource resource) {
+            super(name);
+            this.resource = resource;
+            resource.getAction().add(this);
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public void setResource(Resource resource) {
+            this.resource = resource;
+        }
+
+        public Collection<Action> getSuperactions() {
+            return superactions;
+        }
+
+        public Collection<Action> getSubactions() {
+            return subactions;
+        }
+
+        public Collection<Permission> getPermission() {
+            return permission;
+        }
+    }
+
+    /**
+     * A resource with actions.
+     */
+    public static class Resource extends Element {
+        private final Collection<Action> action = new LinkedList<Action>();
+
+        public Resource(String name) {
+            super(name);
+        }
+
+        public Collection<Action> getAction() {
+            return action;
+        }
+    }
+
+    /**
+     * A policy, refined by other policies.
+     */
+    public static class Policy extends Element {
+        private final Collection<Policy> refinedBy = new LinkedList<Policy>();
+        private final Collection<Policy> refines = new LinkedList<Policy>();
+
+        public Policy(String name) {
+            super(name);
+        }
+
+        public Collection<Policy> getRefinedBy() {
+            return refinedBy;
+        }
+
+        public Collection<Policy> getRefines() {
+            return refines;
+        }
+    }
+
+    /**
+     * A permission of a role on an action.
+     */
+    public static class Permission extends Element {
+        private Object role;
+        private Object action;
+        private Object policy;
+        private Object authorizationConstraint;
+
+        public Permission(String name) {
+            super(name);
+        }
+
+        public Object getRole() {
+            return role;
+        }
+
+        public void setRole(Object role) {
+            this.role = role;
+        }
+
+        public Object getAction() {
+            return action;
+        }
+
+        public void setAction(Object action) {
+            this.action = action;
+        }
+
+        public Object getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(Object policy) {
+            this.policy = policy;
+        }
+
+        public Object getAuthorizationConstraint() {
+            return authorizationConstraint;
+        }
+
+        public void setAuthorizationConstraint(Object constraint) {
+            this.authorizationConstraint = constraint;
+        }
+    }
+
+    /**
+     * (depth, width) of the models of {@link #createModels(boolean)}.
+     */
+    private static final int[][] SIZES =
+        {{1, 1}, {2, 2}, {3, 1}, {4, 3}, {5, 2}, {6, 4}};
+
+    private final Resource resource = new Resource("Entity");
+    private final List<Role> roles = new ArrayList<Role>();
+    private final List<Policy> policies = new ArrayList<Policy>();
+    private int compositePermissions = 0;
+
+    /**
+     * Creates the model without policies.
+     *
+     * @param depth the number of levels of the role hierarchy
+     * @param width the number of subactions of "read" and "update"
+     */
+    public PermissionTestModel(int depth, int width) {
+        this(depth, width, false);
+    }
+
+    /**
+     * Creates the model.
+     *
+     * @param depth the number of levels of the role hierarchy
+     * @param width the number of subactions of "read" and "update"
+     * @param withPolicies true for the policies "Normal", "BreakGlass" and
+     *     "Audit", false for the default policy only
+     */
+    public PermissionTestModel(int depth, int width, boolean withPolicies) {
+        Policy normal = null;
+        Policy breakGlass = null;
+        Policy audit = null;
+        if (withPolicies) {
+            normal = new Policy("Normal");
+            breakGlass = createRefinedPolicy("BreakGlass", normal);
+            audit = createRefinedPolicy("Audit", normal);
+            policies.add(normal);
+            policies.add(breakGlass);
+            policies.add(audit);
+        }
+
+        for (int level = 0; level < depth; level++) {
+            for (String suffix : new String[] {"a", "b"}) {
+                Role role = new Role("Role" + level + suffix);
+                if (level > 0) {
+                    for (int i = (level - 1) * 2; i < level * 2; i++) {
+                        Role superrole = roles.get(i);
+                        role.getSuperroles().add(superrole);
+                        superrole.getSubroles().add(role);
+                    }
+                }
+                roles.add(role);
+            }
+        }
+
+        Action fullAccess = new Action("fullAccess", resource);
+        Action read = createSubAction("read", fullAccess);
+        Action update = createSubAction("update", fullAccess);
+        List<Action> updates = new ArrayList<Action>();
+        for (int i = 0; i < width; i++) {
+            createSubAction("read" + i, read);
+            updates.add(createSubAction("update" + i, update));
+        }
+
+        grant(roles.get(0), read, normal);
+        grant(roles.get((depth / 2) * 2), fullAccess, normal);
+        for (Action action : updates) {
+            grant(roles.get(roles.size() - 1), action, normal);
+        }
+        if (withPolicies) {
+            grant(roles.get(1), fullAccess, breakGlass);
+            grant(roles.get(1), read, audit);
+        }
+    }
+
+    /**
+     * Creates the models of growing role hierarchy depth and action
+     * hierarchy width the tests derive the permissions of.
+     *
+     * @param withPolicies see {@link #PermissionTestModel(int, int, boolean)}
+     * @return the models
+     */
+    public static List<PermissionTestModel> createModels(boolean withPolicies) {
+        List<PermissionTestModel> models = new ArrayList<PermissionTestModel>();
+        for (int[] size : SIZES) {
+            models.add(new PermissionTestModel(size[0], size[1], withPolicies));
+        }
+        return models;
+    }
+
+    /**
+     * @return the resource of the model
+     */
+    public ResourceWrapper getResourceWrapper() {
+        return new ResourceWrapper(resource);
+    }
+
+    /**
+     * @return the roles, from the top level to the bottom level
+     */
+    public List<RoleWrapper> getRoleWrappers() {
+        List<RoleWrapper> result = new ArrayList<RoleWrapper>();
+        for (Role role : roles) {
+            result.add(new RoleWrapper(role));
+        }
+        return result;
+    }
+
+    /**
+     * @return the policies to derive the permissions for, in the order of
+     *     the refinement; the default policy (null) if the model has none
+     */
+    public List<PolicyWrapper> getPolicyWrappers() {
+        List<PolicyWrapper> result = new ArrayList<PolicyWrapper>();
+        if (policies.isEmpty()) {
+            result.add(null);
+        }
+        for (Policy policy : policies) {
+            result.add(WrapperFactory.getPolicyWrapper(policy));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the explicit permissions of the resource, for all roles,
+     * as the resource permissions table does, each in its policy.
+     *
+     * @return the explicit permissions
+     */
+    public PermissionSet createExplicitPermissions() {
+        PermissionSet permissions = new PermissionSet();
+        for (RoleWrapper role : getRoleWrappers()) {
+            ResourcePermissionsSet resourcePermissions =
+                permissions.getResourcePermissionsSet(role);
+            for (ActionWrapper action : getResourceWrapper().getActionWrapper()) {
+                resourcePermissions.getPermissions(action)
+                .setExplicitRoleWrapper(role);
+            }
+        }
+
+        for (ActionWrapper action : getResourceWrapper().getActionWrapper()) {
+            for (PermissionWrapper permission : action.getPermissionWrappers()) {
+                Object policy =
+                    ((Permission) permission.getModelElement()).getPolicy();
+                permissions.getResourcePermissionsSet(
+                    permission.getRoleWrapper()).addPermission(
+                    action, PermissionValue.createGranted(permission),
+                    policy == null ? null : WrapperFactory.getPolicyWrapper(policy));
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Creates a composite permission without a secure model.
+     *
+     * @param action the composite action
+     * @param role the permitted role
+     * @return the composite permission value
+     */
+    public PermissionValue createComposite(ActionWrapper action,
+                                           RoleWrapper role) {
+        Permission permission =
+            new Permission("tmp_perm_" + ++compositePermissions);
+        permission.setAction(action.getModelElement());
+        permission.setRole(role.getModelElement());
+        return PermissionValue.createComposite(
+                   new PermissionWrapper(permission), action);
+    }
+
+    /**
+     * Creates an engine deriving the permissions of the resource, with
+     * the composite permissions of this model.
+     *
+     * @param permissions the explicit permissions of the resource
+     * @return the engine
+     */
+    public PermissionDerivationEngine createEngine(PermissionSet permissions) {
+        return new PermissionDerivationEngine(getResourceWrapper(), permissions) {
+            @Override
+            protected PermissionValue createComposite(ActionWrapper action,
+                    RoleWrapper role) {
+                return PermissionTestModel.this.createComposite(action, role);
+            }
+        };
+    }
+
+    /**
+     * Derives the permissions of the resource for all policies, with the
+     * engine.
+     *
+     * @return the explicit and the derived permissions
+     */
+    public PermissionSet derive() {
+        PermissionSet permissions = createExplicitPermissions();
+        createEngine(permissions).derive(getPolicyWrappers());
+        return permissions;
+    }
+
+    private static Policy createRefinedPolicy(String name, Policy refinedBy) {
+        Policy policy = new Policy(name);
+        policy.getRefinedBy().add(refinedBy);
+        refinedBy.getRefines().add(policy);
+        return policy;
+    }
+
+    private Action createSubAction(String name, Action superaction) {
+        Action action = new Action(name, resource);
+        action.getSuperactions().add(superaction);
+        superaction.getSubactions().add(action);
+        return action;
+    }
+
+    private void grant(Role role, Action action, Policy policy) {
+        Permission permission =
+            new Permission(role.getName() + "_" + action.getName()
+                           + (policy == null ? "" : "_" + policy.getName()));
+        permission.setRole(role);
+        permission.setAction(action);
+        permission.setPolicy(policy);
+        role.getPermission().add(permission);
+        action.getPermission().add(permission);
+    }
+}
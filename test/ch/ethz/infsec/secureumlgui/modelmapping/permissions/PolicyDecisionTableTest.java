@@ -0,0 +1,310 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * JUnit test of the {@link PolicyDecisionCompiler}: the decisions of the
+ * compiled table, also when written and mapped again, must match the
+ * permissions derived by the {@link PermissionDerivationEngine}, and the
+ * ones of the round based exploration
+ * ({@link RoundBasedPermissionsExplorer}) for several policies and
+ * resources.
+ *
+ * @version 1.0
+ * @see PolicyDecisionTable
+ */
+public class PolicyDecisionTableTest {
+
+    private static final List<PolicyWrapper> DEFAULT_POLICY =
+        Collections.singletonList((PolicyWrapper) null);
+
+    /**
+     * Cross-checks every cell of {@link PermissionTestModel}s with the
+     * derived permission values.
+     */
+    @Test public final void matchesDerivedPermissions() throws IOException {
+        for (int depth = 1; depth <= 4; depth++) {
+            for (int width = 1; width <= 3; width++) {
+                final PermissionTestModel model = new PermissionTestModel(depth, width);
+                PermissionSet permissions = derive(model);
+
+                PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(DEFAULT_POLICY);
+                compiler.add(model.getResourceWrapper(), permissions);
+                PolicyDecisionTable table = compiler.compile();
+                crossCheck(model, permissions, table);
+
+                File file = File.createTempFile("decisions", ".table");
+                try {
+                    table.write(file);
+                    crossCheck(model, permissions, PolicyDecisionTable.map(file));
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cross-checks the tables of the {@link PermissionTestModel}s with
+     * refined policies with the round based exploration, for every
+     * policy.
+     */
+    @Test public final void matchesRoundBasedPermissionsOfAllPolicies() {
+        for (PermissionTestModel model : PermissionTestModel.createModels(true)) {
+            List<PolicyWrapper> policies = model.getPolicyWrappers();
+            PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(policies);
+            compiler.add(model.getResourceWrapper(), model.derive());
+            PolicyDecisionTable table = compiler.compile();
+            assertEquals(policies.size(), table.getPolicyCount());
+
+            PermissionSet expected = model.createExplicitPermissions();
+            new RoundBasedPermissionsExplorer(model)
+            .collectNonExplicitPermissions(model.getResourceWrapper(),
+                                           expected, policies);
+
+            Map<String, String> roleNames = new HashMap<String, String>();
+            for (RoleWrapper role : model.getRoleWrappers()) {
+                roleNames.put(role.getName(), role.getName());
+            }
+            crossCheck(model, expected, table, "Entity", roleNames, policies);
+        }
+    }
+
+    /**
+     * Cross-checks a table of the resources of all
+     * {@link PermissionTestModel}s with the round based exploration. The
+     * resources and the roles of the models have the same names, so all
+     * but the first get a suffix.
+     */
+    @Test public final void matchesRoundBasedPermissionsOfAllResources() {
+        List<PermissionTestModel> models = PermissionTestModel.createModels(false);
+        PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(DEFAULT_POLICY);
+        for (PermissionTestModel model : models) {
+            compiler.add(model.getResourceWrapper(), model.derive());
+        }
+        PolicyDecisionTable table = compiler.compile();
+        assertEquals(models.size(), table.getResourceCount());
+
+        Map<String, Integer> roleCounts = new HashMap<String, Integer>();
+        for (int i = 0; i < models.size(); i++) {
+            PermissionTestModel model = models.get(i);
+            PermissionSet expected = model.createExplicitPermissions();
+            new RoundBasedPermissionsExplorer(model)
+            .collectNonExplicitPermissions(model.getResourceWrapper(),
+                                           expected, DEFAULT_POLICY);
+
+            Map<String, String> roleNames = new HashMap<String, String>();
+            for (RoleWrapper role : model.getRoleWrappers()) {
+                roleNames.put(role.getName(), getCompiledName(roleCounts, role.getName()));
+            }
+            crossCheck(model, expected, table, i == 0 ? "Entity" : "Entity#" + (i + 1),
+                       roleNames, DEFAULT_POLICY);
+        }
+    }
+
+    /**
+     * Checks that actions with the same name get a suffix, and that a
+     * table with names that are not unique is rejected.
+     */
+    @Test public final void distinguishesDuplicateNames() {
+        PermissionTestModel.Resource resource = new PermissionTestModel.Resource("Entity");
+        new PermissionTestModel.Action("read", resource);
+        new PermissionTestModel.Action("read", resource);
+        new PermissionTestModel.Action("update", resource);
+
+        PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(DEFAULT_POLICY);
+        compiler.add(new ResourceWrapper(resource), new PermissionSet());
+        PolicyDecisionTable table = compiler.compile();
+        int entity = table.getResourceId("Entity");
+        assertEquals(3, table.getActionCount(entity));
+        assertEquals(0, table.getActionId(entity, "read"));
+        assertEquals(1, table.getActionId(entity, "read#2"));
+        assertEquals(2, table.getActionId(entity, "update"));
+
+        try {
+            new PolicyDecisionTable(new String[] {"User"}, new String[] {"default"},
+                                    new String[] {"Entity"}, new String[][] {{"read", "read"}},
+                                    ByteBuffer.allocate(2));
+            fail("duplicate action names accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Checks that cells with an authorization constraint are denied by
+     * {@link PolicyDecisionTable#check}, but keep their decision.
+     */
+    @Test public final void deniesConstrainedCells() {
+        int constrained = PermissionMatrix.PERMITTED | PermissionMatrix.GRANTED
+            | PermissionMatrix.CONSTRAINED;
+        int granted = PermissionMatrix.PERMITTED | PermissionMatrix.GRANTED;
+        PolicyDecisionTable table = new PolicyDecisionTable(
+            new String[] {"User"}, new String[] {"default"}, new String[] {"Entity"},
+            new String[][] {{"read", "update"}},
+            ByteBuffer.wrap(new byte[] {(byte) constrained, (byte) granted}));
+
+        int entity = table.getResourceId("Entity");
+        int read = table.getActionId(entity, "read");
+        int update = table.getActionId(entity, "update");
+        assertFalse(table.check(0, read, entity, 0));
+        assertEquals(constrained, table.getDecision(0, read, entity, 0));
+        assertTrue(table.check(0, update, entity, 0));
+    }
+
+    /**
+     * Checks that unknown names and ids are denied.
+     */
+    @Test public final void deniesUnknownIds() {
+        PermissionTestModel model = new PermissionTestModel(2, 2);
+        PolicyDecisionCompiler compiler = new PolicyDecisionCompiler(DEFAULT_POLICY);
+        compiler.add(model.getResourceWrapper(), derive(model));
+        PolicyDecisionTable table = compiler.compile();
+
+        int resource = table.getResourceId("Entity");
+        int role = table.getRoleId("Role0a");
+        int action = table.getActionId(resource, "read0");
+        int policy = table.getPolicyId(null);
+        assertTrue(table.check(role, action, resource, policy));
+
+        assertEquals(-1, table.getRoleId("Nobody"));
+        assertEquals(-1, table.getActionId(resource, "delete"));
+        assertEquals(-1, table.getActionId(-1, "read"));
+        assertEquals(-1, table.getPolicyId("emergency"));
+        assertFalse(table.check(-1, action, resource, policy));
+        assertFalse(table.check(role, -1, resource, policy));
+        assertFalse(table.check(role, table.getActionCount(resource), resource, policy));
+        assertFalse(table.check(role, action, 1, policy));
+        assertFalse(table.check(role, action, resource, 1));
+    }
+
+    private static PermissionSet derive(final PermissionTestModel model) {
+        PermissionSet permissions = model.createExplicitPermissions();
+        new PermissionDerivationEngine(model.getResourceWrapper(), permissions) {
+            @Override
+            protected PermissionValue createComposite(ActionWrapper action,
+                    RoleWrapper role) {
+                return model.createComposite(action, role);
+            }
+        } .derive(DEFAULT_POLICY);
+        return permissions;
+    }
+
+    private static void crossCheck(PermissionTestModel model,
+                                   PermissionSet permissions,
+                                   PolicyDecisionTable table) {
+        Map<String, String> roleNames = new HashMap<String, String>();
+        for (RoleWrapper role : model.getRoleWrappers()) {
+            roleNames.put(role.getName(), role.getName());
+        }
+        crossCheck(model, permissions, table, model.getResourceWrapper().getName(),
+                   roleNames, DEFAULT_POLICY);
+    }
+
+    /**
+     * @param resourceName the name of the resource of <code>model</code>
+     *     in <code>table</code>
+     * @param roleNames the names of the roles of <code>model</code> in
+     *     <code>table</code>, by their names in the model
+     */
+    private static void crossCheck(PermissionTestModel model,
+                                   PermissionSet permissions,
+                                   PolicyDecisionTable table,
+                                   String resourceName,
+                                   Map<String, String> roleNames,
+                                   List<PolicyWrapper> policies) {
+        ResourceWrapper resourceWrapper = model.getResourceWrapper();
+        int resource = table.getResourceId(resourceName);
+        assertTrue(resourceName, resource >= 0);
+
+        for (PolicyWrapper policyWrapper : policies) {
+            int policy = table.getPolicyId(policyWrapper == null ? null : policyWrapper.getName());
+            assertTrue(policy >= 0);
+            int permitted = 0;
+
+            for (RoleWrapper roleWrapper : model.getRoleWrappers()) {
+                int role = table.getRoleId(roleNames.get(roleWrapper.getName()));
+                assertTrue(roleWrapper.getName(), role >= 0);
+                ResourcePermissionsSet resourcePermissions =
+                    permissions.getResourcePermissionsSet(roleWrapper);
+
+                for (ActionWrapper actionWrapper : resourceWrapper.getActionWrapper()) {
+                    int action = table.getActionId(resource, actionWrapper.getName());
+                    int expected = getSummary(resourcePermissions
+                                              .getPermissions(actionWrapper)
+                                              .getPolicyPermissionSet(policyWrapper)
+                                              .getPermissions());
+
+                    String cell = roleWrapper.getName() + " " + actionWrapper.getName()
+                        + " " + table.getPolicyName(policy);
+                    assertEquals(cell, expected, table.getDecision(role, action, resource, policy));
+                    assertEquals(cell, expected != 0 && (expected & PermissionMatrix.CONSTRAINED) == 0,
+                                 table.check(role, action, resource, policy));
+                    if (expected != 0) {
+                        permitted++;
+                    }
+                }
+            }
+            assertTrue(permitted > 0);
+        }
+    }
+
+    /**
+     * @return <code>name</code> with the suffix the compiler gives the
+     *     <i>n</i>th role of that name
+     */
+    private static String getCompiledName(Map<String, Integer> counts, String name) {
+        Integer count = counts.get(name);
+        int n = count == null ? 1 : count.intValue() + 1;
+        counts.put(name, Integer.valueOf(n));
+        return n == 1 ? name : name + "#" + n;
+    }
+
+    /**
+     * @return the summary of the flags of <code>values</code>, computed
+     *     independently of the {@link PermissionMatrix}
+     */
+    private static int getSummary(Iterable<PermissionValue> values) {
+        int summary = 0;
+        for (PermissionValue value : values) {
+            int flags = value.getFlags();
+            summary |= PermissionMatrix.PERMITTED;
+            if (flags == PermissionValue.INT_GRANTED) {
+                summary |= PermissionMatrix.EXPLICIT;
+            }
+            if ((flags & PermissionValue.INT_GRANTED) != 0) {
+                summary |= PermissionMatrix.GRANTED;
+            }
+            if ((flags & PermissionValue.INT_INHERITED_ROLE) != 0) {
+                summary |= PermissionMatrix.INHERITED_ROLE;
+            }
+            if ((flags & PermissionValue.INT_INHERITED_POLICY) != 0) {
+                summary |= PermissionMatrix.INHERITED_POLICY;
+            }
+            if ((flags & PermissionValue.INT_IMPLICIT) != 0) {
+                summary |= PermissionMatrix.IMPLICIT;
+            }
+            if ((flags & PermissionValue.INT_COMPOSITE) != 0) {
+                summary |= PermissionMatrix.COMPOSITE;
+            }
+            if ((flags & PermissionValue.INT_CONSTRAINED) != 0) {
+                summary |= PermissionMatrix.CONSTRAINED;
+            }
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,265 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.permissions;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import ch.ethz.infsec.secureumlgui.modelmapping.permissions.HierarchicalPermissionsExplorer.CHANGES;
+import ch.ethz.infsec.secureumlgui.wrapper.ActionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PermissionWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.PolicyWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.ResourceWrapper;
+import ch.ethz.infsec.secureumlgui.wrapper.RoleWrapper;
+
+/**
+ * The round based exploration of the non explicit permissions, as
+ * {@link HierarchicalPermissionsExplorer} did it before the
+ * {@link PermissionDerivationEngine}: every round builds new
+ * {@link PermissionSet}s and recomputes the deep super- and subroles and
+ * -actions. Reference for the tests and benchmarks of the engine.
+ *
+ * @version 1.0
+ */
+public class RoundBasedPermissionsExplorer {
+
+    private final PermissionTestModel model;
+
+    /**
+     * @param model creates the composite permissions
+     */
+    public RoundBasedPermissionsExplorer(PermissionTestModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Derives the permissions for the given policies.
+     *
+     * @param resource the resource
+     * @param permissions the explicit permissions of the resource
+     * @param policies the policies, in this order
+     */
+    public void collectNonExplicitPermissions(ResourceWrapper resource,
+            PermissionSet permissions, List<PolicyWrapper> policies) {
+        HierarchicalPermissionsExplorer explorer =
+            new HierarchicalPermissionsExplorer();
+
+        for (PolicyWrapper policy : policies) {
+            collectPolicyInheritedPermissions(resource, permissions, policy);
+            collectImplicitPermissions(resource, permissions, policy);
+            collectInheritedPermissions(explorer, resource, permissions,
+                                        policy);
+
+            PermissionSet next, last;
+            next = new PermissionSet();
+            collectImplicitPermissions(policy, permissions, permissions, next);
+
+            while (true) {
+                last = next;
+                next = new PermissionSet();
+                if (last.getAllRoleWrappers().size() == 0) {
+                    break;
+                }
+                collectInheritedPermissions(explorer, policy, last,
+                                            permissions, next);
+
+                last = next;
+                next = new PermissionSet();
+                if (last.getAllRoleWrappers().size() == 0) {
+                    break;
+                }
+                collectImplicitPermissions(policy, last, permissions, next);
+            }
+        }
+    }
+
+    private void collectPolicyInheritedPermissions(ResourceWrapper resource,
+            PermissionSet permissions, PolicyWrapper policy) {
+        if (policy == null) {
+            return;
+        }
+        Collection refinedBy = policy.getRefinedBy();
+        if (refinedBy != null && refinedBy.size() > 0) {
+            for (PolicyWrapper supPol : policy.getRefinedByWrappers()) {
+                for (RoleWrapper role : permissions.getAllRoleWrappers()) {
+                    ResourcePermissionsSet resourcePermissions =
+                        permissions.getResourcePermissionsSet(role);
+                    for (ActionWrapper action : resource.getActionWrapper()) {
+                        ActionPermissionSet actionPermissions =
+                            resourcePermissions.getPermissions(action);
+                        for (PermissionValue permission
+                                : actionPermissions.getPermissions(supPol)) {
+                            actionPermissions.addPermission(policy,
+                                PermissionValue.createInheritedPolicy(permission),
+                                CHANGES.INHERITED_POLIY);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectImplicitPermissions(ResourceWrapper resource,
+            PermissionSet permissions, PolicyWrapper policy) {
+        for (RoleWrapper role : permissions.getAllRoleWrappers()) {
+            ResourcePermissionsSet resourcePermissions =
+                permissions.getResourcePermissionsSet(role);
+            for (ActionWrapper action : resource.getActionWrapper()) {
+                ActionPermissionSet actionPermissions =
+                    resourcePermissions.getPermissions(action);
+                for (ActionWrapper superAction : HierarchicalPermissionsExplorer
+                        .getSuperActionWrappersDeep(action)) {
+                    for (PermissionValue permission : permissions
+                            .getResourcePermissionsSet(role)
+                            .getPermissions(superAction).getPermissions(policy)) {
+                        actionPermissions.addPermission(policy,
+                            PermissionValue.createImplicite(permission),
+                            CHANGES.IMPLICIT_SUPER);
+                    }
+                }
+                if (action.hasSubActions() && isPermittedImplicitBySubactions(
+                            permissions, role, action, policy)) {
+                    actionPermissions.addPermission(policy,
+                        model.createComposite(action, role),
+                        CHANGES.IMPLICIT_SUB);
+                }
+            }
+        }
+    }
+
+    private void collectInheritedPermissions(
+        HierarchicalPermissionsExplorer explorer, ResourceWrapper resource,
+        PermissionSet permissions, PolicyWrapper policy) {
+        for (RoleWrapper role : permissions.getAllRoleWrappers()) {
+            ResourcePermissionsSet resourcePermissions =
+                permissions.getResourcePermissionsSet(role);
+            Set<RoleWrapper> superRoles =
+                explorer.getSuperRoleWrappersDeep(role);
+            for (ActionWrapper action : resource.getActionWrapper()) {
+                ActionPermissionSet actionPermissions =
+                    resourcePermissions.getPermissions(action);
+                for (RoleWrapper superRole : superRoles) {
+                    for (PermissionValue permission : permissions
+                            .getResourcePermissionsSet(superRole)
+                            .getPermissions(action).getPermissions(policy)) {
+                        actionPermissions.addPermission(policy,
+                            PermissionValue.createInheritedRole(permission),
+                            CHANGES.INHERITED);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectImplicitPermissions(PolicyWrapper policy,
+            PermissionSet last, PermissionSet dst, PermissionSet next) {
+        for (RoleWrapper role : last.getAllRoleWrappers()) {
+            ResourcePermissionsSet resourcePermissions =
+                last.getResourcePermissionsSet(role);
+            for (Object action : resourcePermissions.getActions()) {
+                ActionWrapper actionWrapper =
+                    ActionWrapper.createActionWrapper(action);
+                ActionPermissionSet actionPermissions = dst
+                    .getResourcePermissionsSet(role).getPermissions(actionWrapper);
+                for (ActionWrapper superAction : HierarchicalPermissionsExplorer
+                        .getSuperActionWrappersDeep(actionWrapper)) {
+                    for (PermissionValue permission : dst
+                            .getResourcePermissionsSet(role)
+                            .getPermissions(superAction).getPermissions(policy)) {
+                        addPermission(policy,
+                            actionPermissions.getPolicyPermissionSet(policy),
+                            PermissionValue.createImplicite(permission), next,
+                            CHANGES.IMPLICIT_SUPER, superAction, role);
+                    }
+                }
+                if (actionWrapper.hasSubActions()
+                        && isPermittedImplicitBySubactions(dst, role,
+                                actionWrapper, policy)) {
+                    addPermission(policy,
+                        actionPermissions.getPolicyPermissionSet(policy),
+                        model.createComposite(actionWrapper, role), next,
+                        CHANGES.IMPLICIT_SUB, actionWrapper, role);
+                }
+            }
+        }
+    }
+
+    private void collectInheritedPermissions(
+        HierarchicalPermissionsExplorer explorer, PolicyWrapper policy,
+        PermissionSet last, PermissionSet dst, PermissionSet next) {
+        for (RoleWrapper role : last.getAllRoleWrappers()) {
+            ResourcePermissionsSet resourcePermissions =
+                last.getResourcePermissionsSet(role);
+            for (Object action : resourcePermissions.getActions()) {
+                ActionWrapper actionWrapper =
+                    ActionWrapper.createActionWrapper(action);
+                ActionPermissionSet actionPermissions = dst
+                    .getResourcePermissionsSet(role).getPermissions(actionWrapper);
+                for (RoleWrapper superRole
+                        : explorer.getSuperRoleWrappersDeep(role)) {
+                    for (PermissionValue permission : dst
+                            .getResourcePermissionsSet(superRole)
+                            .getPermissions(action).getPermissions(policy)) {
+                        addPermission(policy,
+                            actionPermissions.getPolicyPermissionSet(policy),
+                            PermissionValue.createInheritedRole(permission), next,
+                            CHANGES.INHERITED, actionWrapper, role);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the permission and marks the pairs which may change because of
+     * it in <code>next</code>.
+     */
+    private void addPermission(PolicyWrapper policy,
+            PolicyPermissionSet permissions, PermissionValue permissionValue,
+            PermissionSet next, CHANGES changeReason, ActionWrapper action,
+            RoleWrapper role) {
+        if (!permissions.addPermission(permissionValue, changeReason)) {
+            return;
+        }
+
+        PermissionWrapper permission = permissionValue.getPermissionWrapper();
+        switch (changeReason) {
+        case INHERITED:
+            for (ActionWrapper inhAction : HierarchicalPermissionsExplorer
+                    .getSubAndSuperActionWrappersDeep(
+                        permission.getActionWrapper())) {
+                next.getResourcePermissionsSet(role).getPermissions(inhAction)
+                .addPermission(policy, permissionValue, changeReason);
+            }
+            break;
+        case IMPLICIT_SUPER:
+        case IMPLICIT_SUB:
+            for (RoleWrapper impRole : HierarchicalPermissionsExplorer
+                    .getSubRoleWrapperDeep(permission.getRoleWrapper())) {
+                next.getResourcePermissionsSet(impRole).getPermissions(action)
+                .addPermission(policy, permissionValue, changeReason);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private boolean isPermittedImplicitBySubactions(PermissionSet permissions,
+            RoleWrapper role, ActionWrapper action, PolicyWrapper policy) {
+        if (permissions.getResourcePermissionsSet(role).getPermissions(action)
+                .getPolicyPermissionSet(policy).isPermitted()) {
+            return true;
+        }
+        Set<ActionWrapper> subActions = action.getSubActionWrappers();
+        if (subActions != null && subActions.size() > 0) {
+            for (ActionWrapper subAction : subActions) {
+                if (!isPermittedImplicitBySubactions(permissions, role,
+                                                     subAction, policy)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
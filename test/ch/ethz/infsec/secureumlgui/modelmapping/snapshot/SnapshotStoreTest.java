@@ -0,0 +1,133 @@
+package ch.ethz.infsec.secureumlgui.modelmapping.snapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test of writing and reading {@link MappingSnapshot}s with the
+ * {@link SnapshotStore}.
+ *
+ * @version 1.0
+ * @see SnapshotStore
+ */
+public class SnapshotStoreTest {
+
+    private File directory;
+
+    private SnapshotStore store;
+
+    @Before public final void createStore() throws IOException {
+        directory = File.createTempFile("snapshots", "");
+        directory.delete();
+        store = new SnapshotStore(directory);
+    }
+
+    @After public final void deleteStore() {
+        File[] files = directory.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Checks that a saved snapshot is read back unchanged.
+     */
+    @Test public final void roundTrip() throws IOException {
+        String key = SnapshotStore.getKey("model", "dialect");
+        MappingSnapshot snapshot = new MappingSnapshot(key, true);
+        MappingSnapshot.Resource entity = new MappingSnapshot.Resource("uuid-1", "Entity");
+        entity.addCell("User", "read", "default", "explicit");
+        entity.addCell("Admin", "read", "default", "inherited-role|implicit");
+        snapshot.addResource(entity);
+        snapshot.addResource(new MappingSnapshot.Resource("uuid-2", null));
+
+        assertFalse(store.contains(key));
+        store.save(snapshot);
+        assertTrue(store.contains(key));
+
+        MappingSnapshot loaded = store.load(key);
+        assertNotNull(loaded);
+        assertEquals(key, loaded.getKey());
+        assertTrue(loaded.isComplete());
+        assertEquals(2, loaded.getResources().size());
+
+        MappingSnapshot.Resource loadedEntity = loaded.getResources().get(0);
+        assertEquals("uuid-1", loadedEntity.getUuid());
+        assertEquals("Entity", loadedEntity.getName());
+        assertEquals(2, loadedEntity.getCells().size());
+        assertArrayEquals(new String[] { "Admin", "read", "default", "inherited-role|implicit" },
+                          loadedEntity.getCells().get(1));
+        assertNull(loaded.getResources().get(1).getName());
+    }
+
+    /**
+     * Checks that other models and damaged files have no snapshot.
+     */
+    @Test public final void rejectsInvalidSnapshots() throws IOException {
+        String key = SnapshotStore.getKey("model", "dialect");
+        assertFalse(key.equals(SnapshotStore.getKey("model", "other dialect")));
+        assertFalse(key.equals(SnapshotStore.getKey("modeldialect", "")));
+
+        store.save(new MappingSnapshot(key, false));
+        assertNull(store.load(SnapshotStore.getKey("changed model", "dialect")));
+
+        FileOutputStream out = new FileOutputStream(new File(directory, key + ".snapshot"));
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+        assertFalse(store.contains(key));
+        assertNull(store.load(key));
+    }
+
+    /**
+     * Checks that the digest of the model is stored with a snapshot, so
+     * that a snapshot of another version of the model is recognized.
+     */
+    @Test public final void recordsModelDigest() throws IOException {
+        String key = SnapshotStore.getKey("model", "dialect");
+        store.save(new MappingSnapshot(key, "digest 1", false));
+
+        MappingSnapshot loaded = store.load(key);
+        assertEquals("digest 1", loaded.getModelDigest());
+        assertFalse(loaded.isComplete());
+        assertTrue(loaded.isOf("digest 1"));
+        assertFalse(loaded.isOf("digest 2"));
+
+        store.save(new MappingSnapshot(key, true));
+        loaded = store.load(key);
+        assertNull(loaded.getModelDigest());
+        assertTrue(loaded.isComplete());
+        assertFalse(loaded.isOf("digest 1"));
+    }
+
+    /**
+     * Checks that saving deletes the least recently saved snapshots
+     * beyond the retention limit.
+     */
+    @Test public final void retainsRecentSnapshots() throws IOException {
+        SnapshotStore small = new SnapshotStore(directory, 2);
+        String oldest = SnapshotStore.getKey("model 1", "dialect");
+        String older = SnapshotStore.getKey("model 2", "dialect");
+        String newest = SnapshotStore.getKey("model 3", "dialect");
+        long now = System.currentTimeMillis();
+
+        small.save(new MappingSnapshot(oldest, false));
+        new File(directory, oldest + ".snapshot").setLastModified(now - 20000);
+        small.save(new MappingSnapshot(older, false));
+        new File(directory, older + ".snapshot").setLastModified(now - 10000);
+        assertTrue(small.contains(oldest));
+
+        small.save(new MappingSnapshot(newest, false));
+        assertFalse(small.contains(oldest));
+        assertTrue(small.contains(older));
+        assertTrue(small.contains(newest));
+    }
+}
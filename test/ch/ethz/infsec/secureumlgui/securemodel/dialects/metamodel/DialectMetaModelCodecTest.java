@@ -0,0 +1,107 @@
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.metamodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test of writing and reading analyzed dialects with the
+ * {@link DialectMetaModelCodec}.
+ *
+ * @version 1.0
+ * @see DialectMetaModelCodec
+ */
+public class DialectMetaModelCodecTest {
+
+    /**
+     * Checks that the structure of a small dialect survives a round trip.
+     */
+    @Test public final void roundTrip() throws IOException {
+        DialectMetaModelInfo mmInfo = new DialectMetaModelInfo();
+        mmInfo.setDialectName("ComponentUml");
+
+        MetaModelClass method = new MetaModelClass();
+        method.setName("Method");
+        method.setUmlClassName("Operation");
+        mmInfo.addMetaModelClass(method);
+
+        ResourceType component = new ResourceType();
+        component.setName("Component");
+        component.setModelElementStereotype("compuml.component");
+        component.setAnchorPath("self");
+        mmInfo.addResourceType(component);
+
+        ResourceType entity = new ResourceType();
+        entity.setName("Entity");
+        entity.setParentResourceType(component);
+        MetaModelClassAttribute attribute = new MetaModelClassAttribute("name");
+        attribute.setTypeName("String");
+        entity.getAttributes().add(attribute);
+        mmInfo.addResourceType(entity);
+
+        AtomicActionType read = MetaModelFactory.getInstance().createAtomicActionType();
+        read.setName("EntityRead");
+        read.setShortName("read");
+        mmInfo.addAtomicActionType(read);
+        CompositeActionType fullAccess = MetaModelFactory.getInstance().createCompositeActionType();
+        fullAccess.setName("EntityFullAccess");
+        fullAccess.setShortName("fullAccess");
+        fullAccess.setSubactionsDefinition("self.read");
+        mmInfo.addCompositeActionType(fullAccess);
+        mmInfo.addResourceActionAssociation("read", entity, read);
+        mmInfo.addResourceActionAssociation("fullAccess", entity, fullAccess);
+
+        InterResourceAssociation methods =
+            mmInfo.addInterResourceAssociation("EntityMethods", entity, method);
+        methods.getEnd1().setName("entity");
+        methods.getEnd1().setType(entity);
+        methods.getEnd2().setName("methods");
+        methods.getEnd2().setType(method);
+        methods.getEnd2().setMultiple(true);
+
+        DialectMetaModelInfo copy = roundTrip(mmInfo);
+
+        assertEquals("ComponentUml", copy.getDialectName());
+        assertEquals(1, copy.getMetaModelClasses().size());
+        List<ResourceType> resourceTypes = new ArrayList<ResourceType>(copy.getResourceTypes());
+        assertEquals(2, resourceTypes.size());
+        ResourceType copiedEntity = resourceTypes.get(1);
+        assertEquals("Entity", copiedEntity.getName());
+        assertSame(resourceTypes.get(0), copiedEntity.getParentResourceType());
+        assertEquals("compuml.component", resourceTypes.get(0).getModelElementStereotype());
+        assertEquals("String", copiedEntity.getAttributes().iterator().next().getTypeName());
+
+        List<ActionType> actionTypes = new ArrayList<ActionType>(copy.getActionTypes());
+        assertEquals(2, actionTypes.size());
+        assertTrue(actionTypes.get(0) instanceof AtomicActionType);
+        assertTrue(actionTypes.get(1) instanceof CompositeActionType);
+        assertEquals("self.read", actionTypes.get(1).getSubactionsDefinition());
+        assertSame(copiedEntity, copy.getResourceTypeOfActionType(actionTypes.get(1)));
+        assertEquals(2, copy.getActionTypesOfResourceType(copiedEntity).size());
+
+        MetaModelClass copiedMethod = copy.getMetaModelClasses().iterator().next();
+        InterResourceAssociation copiedMethods =
+            copy.getInterResourceAssociations(copiedMethod).iterator().next();
+        assertEquals("EntityMethods", copiedMethods.getName());
+        assertSame(copiedEntity, copiedMethods.getOtherEnd(copiedMethod).getType());
+        assertTrue(copiedMethods.getEnd2().isMultiple());
+        assertSame(copiedMethods, copiedMethods.getEnd1().getOwner());
+        assertEquals(1, copy.getInterResourceAssociations().size() / 2);
+    }
+
+    private static DialectMetaModelInfo roundTrip(DialectMetaModelInfo mmInfo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        DialectMetaModelCodec.write(mmInfo, out);
+        out.close();
+        return DialectMetaModelCodec.read(new DataInputStream(
+                                              new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
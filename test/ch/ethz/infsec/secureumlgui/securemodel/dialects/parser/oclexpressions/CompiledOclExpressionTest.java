@@ -0,0 +1,109 @@
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test the compiled evaluation of OCL expressions
+ * ({@link CompiledOclExpression}) against the interpreter of
+ * {@link OclExpressionEvaluator}.
+ *
+ * @version 1.0
+ * @see CompiledOclExpression
+ */
+public class CompiledOclExpressionTest {
+
+    /**
+     * Restore the default evaluation mode.
+     */
+    @After public final void restoreCompilation() {
+        OclExpressionEvaluator.setCompilationEnabled(true);
+    }
+
+    /**
+     * Checks that the subactions of "read" are the read actions of the
+     * attributes and the execute actions of the query methods.
+     */
+    @Test public final void evaluatesSelectionAndUnion() {
+        OclTestModel.Entity entity = OclTestModel.createEntity(4);
+        OclTestModel.Action read = OclTestModel.getAction(entity, "read");
+
+        Set result = evaluate(OclTestModel.READ_SUBACTIONS, read, true);
+
+        assertEquals(4 + 2, result.size());
+        for (OclTestModel.Resource attribute : entity.getAttributes()) {
+            assertTrue(result.contains(
+                           OclTestModel.getAction(attribute, "read")));
+        }
+        for (OclTestModel.Method method : entity.getMethods()) {
+            assertEquals(method.isQuery(), result.contains(
+                             OclTestModel.getAction(method, "execute")));
+        }
+    }
+
+    /**
+     * Checks that compiled and interpreted evaluation return the same
+     * elements in the same order.
+     */
+    @Test public final void compiledEqualsInterpreted() {
+        OclTestModel.Entity entity = OclTestModel.createEntity(5);
+        OclTestModel.Action read = OclTestModel.getAction(entity, "read");
+        OclTestModel.Action fullAccess =
+            OclTestModel.getAction(entity, "fullAccess");
+
+        assertEquals(
+            new ArrayList<Object>(
+                evaluate(OclTestModel.READ_SUBACTIONS, read, false)),
+            new ArrayList<Object>(
+                evaluate(OclTestModel.READ_SUBACTIONS, read, true)));
+
+        Set interpreted = evaluate(OclTestModel.FULL_ACCESS_SUBACTIONS,
+                                   fullAccess, false);
+        assertEquals(4, interpreted.size());
+        assertEquals(
+            new ArrayList<Object>(interpreted),
+            new ArrayList<Object>(
+                evaluate(OclTestModel.FULL_ACCESS_SUBACTIONS,
+                         fullAccess, true)));
+    }
+
+    /**
+     * Checks that a shared compiled expression returns independent
+     * results to subsequent evaluations.
+     */
+    @Test public final void returnsIndependentResults() {
+        OclExpression expression = new OclExpressionsParser()
+                                   .parseOclExpression("self.resource.action");
+        OclTestModel.Entity entity1 = OclTestModel.createEntity(1);
+        OclTestModel.Entity entity2 = OclTestModel.createEntity(1);
+
+        Set result1 = evaluate(expression,
+                               OclTestModel.getAction(entity1, "read"));
+        Set result2 = evaluate(expression,
+                               OclTestModel.getAction(entity2, "read"));
+
+        assertEquals(entity1.getAction().size(), result1.size());
+        assertTrue(result1.containsAll(entity1.getAction()));
+        assertTrue(result2.containsAll(entity2.getAction()));
+    }
+
+    private Set evaluate(String expression, Object self, boolean compiled) {
+        OclExpressionEvaluator.setCompilationEnabled(compiled);
+        return evaluate(new OclExpressionsParser()
+                        .parseOclExpression(expression), self);
+    }
+
+    private Set evaluate(OclExpression expression, Object self) {
+        try {
+            return new OclExpressionEvaluator(expression, self)
+                   .evaluateExpression();
+        } catch (OclEvaluatorException e) {
+            fail(e.getMessage());
+            return null;
+        }
+    }
+}
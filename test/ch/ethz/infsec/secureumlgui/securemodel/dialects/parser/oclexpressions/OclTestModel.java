@@ -0,0 +1,142 @@
+package ch.ethz.infsec.secureumlgui.securemodel.dialects.parser.oclexpressions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Small object model, shaped like the ComponentUML dialect, on which the
+ * OCL expressions of the tests and benchmarks are evaluated.
+ *
+ * @version 1.0
+ */
+public final class OclTestModel {
+
+    /**
+     * Subactions definition of the ComponentUML "read" action.
+     */
+    public static final String READ_SUBACTIONS =
+        "self.resource.attributes.action->select(name=\"read\")"
+        + "->union(self.resource.methods->select(query).action"
+        + "->select(name=\"execute\"))";
+
+    /**
+     * Subactions definition of the ComponentUML "fullAccess" action.
+     */
+    public static final String FULL_ACCESS_SUBACTIONS =
+        "self.resource.action->select(name=\"create\" or name=\"read\" "
+        + "or name=\"update\" or name=\"delete\")";
+
+    /**
+     * Utility class.
+     */
+    private OclTestModel() {
+    }
+
+    /**
+     * An atomic or composite action on a resource.
+     */
+    public static class Action {
+        private final String name;
+        private final Object resource;
+
+        public Action(String name, Object resource) {
+            this.name = name;
+            this.resource = resource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Object getResource() {
+            return resource;
+        }
+    }
+
+    /**
+     * A resource with actions.
+     */
+    public static class Resource {
+        private final Collection<Action> action = new ArrayList<Action>();
+
+        public Collection<Action> getAction() {
+            return action;
+        }
+    }
+
+    /**
+     * A method of an entity.
+     */
+    public static class Method extends Resource {
+        private final boolean query;
+
+        public Method(boolean query) {
+            this.query = query;
+        }
+
+        public boolean isQuery() {
+            return query;
+        }
+    }
+
+    /**
+     * An entity with attributes and methods.
+     */
+    public static class Entity extends Resource {
+        private final Collection<Resource> attributes =
+            new ArrayList<Resource>();
+        private final Collection<Method> methods = new ArrayList<Method>();
+
+        public Collection<Resource> getAttributes() {
+            return attributes;
+        }
+
+        public Collection<Method> getMethods() {
+            return methods;
+        }
+    }
+
+    /**
+     * Creates an entity with the given number of attributes and methods,
+     * every other method is a query.
+     *
+     * @param size the number of attributes and of methods
+     * @return the entity
+     */
+    public static Entity createEntity(int size) {
+        Entity entity = new Entity();
+        addActions(entity, new String[] {"create", "read", "update",
+                                         "delete", "fullAccess"});
+
+        for (int i = 0; i < size; i++) {
+            Resource attribute = new Resource();
+            addActions(attribute, new String[] {"read", "update"});
+            entity.getAttributes().add(attribute);
+
+            Method method = new Method(i % 2 == 0);
+            addActions(method, new String[] {"execute"});
+            entity.getMethods().add(method);
+        }
+        return entity;
+    }
+
+    /**
+     * @param resource a resource of the model
+     * @param name an action name
+     * @return the action of the resource with the given name
+     */
+    public static Action getAction(Resource resource, String name) {
+        for (Action action : resource.getAction()) {
+            if (action.getName().equals(name)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private static void addActions(Resource resource, String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            resource.getAction().add(new Action(names[i], resource));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ch.ethz.infsec.secureumlgui.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test the accessor registry
+ * {@link PropertyAccessors PropertyAccessors}.
+ *
+ * @version 1.0
+ * @see PropertyAccessors
+ */
+public class PropertyAccessorsTest {
+
+    /**
+     * Simple bean the accessors are resolved on.
+     */
+    public static class Bean {
+        private String name;
+        private boolean active;
+        private Collection<String> items = new LinkedList<String>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Collection<String> getItems() {
+            return items;
+        }
+
+        public Object getParent() {
+            return null;
+        }
+    }
+
+    /**
+     * Bean with a covariant override of a getter.
+     */
+    public static class SubBean extends Bean {
+        @Override
+        public String getParent() {
+            return "parent";
+        }
+    }
+
+    /**
+     * Start each test with an empty registry.
+     */
+    @Before public final void setup() {
+        PropertyAccessors.clear();
+    }
+
+    /**
+     * Checks that getters are resolved with "get" and "is" prefixes.
+     */
+    @Test public final void resolvesGetters() {
+        Method name = PropertyAccessors.getGetter(Bean.class, "name");
+        assertNotNull(name);
+        assertEquals("getName", name.getName());
+
+        Method active = PropertyAccessors.getGetter(Bean.class, "active");
+        assertNotNull(active);
+        assertEquals("isActive", active.getName());
+
+        assertSame(name, PropertyAccessors.getGetter(Bean.class, "name"));
+    }
+
+    /**
+     * Checks that missing methods are reported as null, also when asked
+     * repeatedly.
+     */
+    @Test public final void cachesMissingMethods() {
+        assertNull(PropertyAccessors.getGetter(Bean.class, "unknown"));
+        assertNull(PropertyAccessors.getGetter(Bean.class, "unknown"));
+        assertNull(PropertyAccessors.getMethod(Bean.class, "unknown"));
+        assertNull(PropertyAccessors.getSetter(Bean.class, "items"));
+        assertNull(PropertyAccessors.getSetter(Bean.class, "items"));
+    }
+
+    /**
+     * Checks that setters are resolved with the type of the getter.
+     */
+    @Test public final void resolvesSetters() {
+        Method setName = PropertyAccessors.getSetter(Bean.class, "name");
+        assertNotNull(setName);
+        assertEquals(String.class, setName.getParameterTypes()[0]);
+
+        Method setActive = PropertyAccessors.getSetter(Bean.class, "active");
+        assertNotNull(setActive);
+        assertEquals(boolean.class, setActive.getParameterTypes()[0]);
+
+        assertNull(PropertyAccessors.getMethod(Bean.class, "setName",
+                                               Object.class));
+    }
+
+    /**
+     * Checks that the most specific method is used for covariant return
+     * types.
+     */
+    @Test public final void prefersCovariantOverride() {
+        Method parent = PropertyAccessors.getGetter(SubBean.class, "parent");
+        assertNotNull(parent);
+        assertEquals(String.class, parent.getReturnType());
+    }
+
+    /**
+     * Checks that getters, setters and methods are invoked through their
+     * handles, with boxed primitive values.
+     */
+    @Test public final void invokesHandles() throws Exception {
+        Bean bean = new Bean();
+        MethodHandle setName = PropertyAccessors.getSetterHandle(Bean.class, "name");
+        MethodHandle setActive = PropertyAccessors.getSetterHandle(Bean.class, "active");
+        assertNotNull(setName);
+        assertNotNull(setActive);
+        PropertyAccessors.invoke(setName, bean, "bean");
+        PropertyAccessors.invoke(setActive, bean, Boolean.TRUE);
+
+        assertEquals("bean", PropertyAccessors.invoke(
+                         PropertyAccessors.getGetterHandle(Bean.class, "name"), bean));
+        assertEquals(Boolean.TRUE, PropertyAccessors.invoke(
+                         PropertyAccessors.getGetterHandle(Bean.class, "active"), bean));
+        assertEquals("parent", PropertyAccessors.invoke(
+                         PropertyAccessors.getMethodHandle(SubBean.class, "getParent"), new SubBean()));
+        assertSame(setName, PropertyAccessors.getSetterHandle(Bean.class, "name"));
+
+        assertNull(PropertyAccessors.getGetterHandle(Bean.class, "unknown"));
+        assertNull(PropertyAccessors.getSetterHandle(Bean.class, "items"));
+        assertNull(PropertyAccessors.getMethodHandle(Bean.class, "unknown"));
+    }
+
+    /**
+     * Checks that a failing accessor is reported like by
+     * {@link Method#invoke(Object, Object[])}.
+     */
+    @Test public final void wrapsFailures() {
+        try {
+            PropertyAccessors.invoke(PropertyAccessors.getSetterHandle(Bean.class, "active"),
+                                     new Bean(), "no boolean");
+            fail("setter accepted a string");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ch.ethz.infsec.secureumlgui.wrapper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test of the interning {@link WrapperFactory} and of the hashing
+ * of {@link ModelElementWrapper}.
+ */
+public class WrapperFactoryTest {
+
+    @Test
+    public void returnsOneWrapperPerElement() {
+        Object role = new Object();
+        RoleWrapper wrapper = WrapperFactory.getRoleWrapper(role);
+
+        assertSame(wrapper, WrapperFactory.getRoleWrapper(role));
+        assertSame(role, wrapper.getModelElement());
+        assertNotSame(wrapper, WrapperFactory.getRoleWrapper(new Object()));
+    }
+
+    @Test
+    public void wrappersOfTheSameElementHashAlike() {
+        Object action = new Object();
+        Set<ActionWrapper> actions = new HashSet<ActionWrapper>();
+        actions.add(new ActionWrapper(action));
+        actions.add(new ActionWrapper(action));
+        actions.add(WrapperFactory.getActionWrapper(action));
+
+        assertEquals(1, actions.size());
+        assertTrue(actions.contains(new ActionWrapper(action)));
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        PolicyWrapper wrapper = WrapperFactory.getPolicyWrapper(null);
+
+        assertNull(wrapper.getModelElement());
+        assertNotSame(wrapper, WrapperFactory.getPolicyWrapper(null));
+    }
+}